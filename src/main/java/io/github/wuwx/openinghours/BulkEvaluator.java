@@ -0,0 +1,496 @@
+package io.github.wuwx.openinghours;
+
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Command-line tool flagging each row of a timestamp file as open or closed
+ *
+ * <pre>
+ * java -cp opening-hours.jar io.github.wuwx.openinghours.BulkEvaluator schedules.properties rows.csv out.csv
+ * </pre>
+ *
+ * Input rows are {@code scheduleId,timestamp} (or tab-separated), with an ISO local
+ * timestamp ({@code 2024-03-25T10:00}, seconds and a space instead of {@code T}
+ * are accepted). Each row is copied to the output with a {@code 1} (open),
+ * {@code 0} (closed) or empty (unknown schedule or invalid timestamp) column
+ * appended. A first row with no valid timestamp is taken as a header. Use
+ * {@code -} as output to write to standard output. Throughput is reported on
+ * standard error.
+ *
+ * The file is streamed through a {@link FileChannel} in large buffers and rows are
+ * parsed in place: ids are matched against a byte-level hash table and timestamps
+ * are decoded to epoch day and second of day arithmetically, so the main loop
+ * creates no String or date/time object per row.
+ *
+ * Schedules are read once from a properties file, one key per schedule and day
+ * entry, the id being everything before the first dot (spaces in keys are escaped,
+ * as usual in properties files):
+ * <pre>
+ * store-1.monday\ to\ friday=09:00-12:00,13:00-18:00
+ * store-1.exceptions.12-25=
+ * store-1.overflow=true
+ * </pre>
+ *
+ * @author wuwx
+ */
+public final class BulkEvaluator {
+
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final IdTable schedules;
+
+    /**
+     * Constructs an evaluator over loaded schedules
+     *
+     * @param schedules the schedules by id
+     */
+    public BulkEvaluator(Map<String, OpeningHours> schedules) {
+        this.schedules = new IdTable(schedules);
+    }
+
+    /**
+     * Runs the tool
+     *
+     * @param args the schedules file, the input file and the output file (or -)
+     * @throws IOException if a file can't be read or written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3) {
+            System.err.println("Usage: BulkEvaluator <schedules.properties> <input> <output|->");
+            System.exit(2);
+            return;
+        }
+        Map<String, OpeningHours> schedules = loadSchedules(Paths.get(args[0]), System.err);
+        BulkEvaluator evaluator = new BulkEvaluator(schedules);
+        Report report;
+        try (FileChannel in = FileChannel.open(Paths.get(args[1]), StandardOpenOption.READ);
+             WritableByteChannel out = "-".equals(args[2])
+                 ? Channels.newChannel(new FileOutputStream(FileDescriptor.out))
+                 : FileChannel.open(Paths.get(args[2]), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                    StandardOpenOption.TRUNCATE_EXISTING)) {
+            report = evaluator.evaluate(in, out);
+        }
+        System.err.println(report);
+    }
+
+    /**
+     * Loads schedules from a properties file
+     *
+     * Schedules that fail to parse are reported and left out
+     *
+     * @param file the properties file
+     * @param log receives one line per rejected schedule
+     * @return the schedules by id
+     * @throws IOException if the file can't be read
+     */
+    public static Map<String, OpeningHours> loadSchedules(Path file, PrintStream log) throws IOException {
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            properties.load(in);
+        }
+
+        Map<String, Map<String, Object>> records = new LinkedHashMap<>();
+        for (String key : properties.stringPropertyNames()) {
+            int dot = key.indexOf('.');
+            if (dot <= 0) {
+                log.println("Ignoring key without schedule id: " + key);
+                continue;
+            }
+            Map<String, Object> record = records.computeIfAbsent(key.substring(0, dot), id -> new LinkedHashMap<>());
+            String entry = key.substring(dot + 1);
+            String value = properties.getProperty(key).trim();
+            if ("overflow".equals(entry) || "calendarCache".equals(entry)) {
+                record.put(entry, Boolean.valueOf(value));
+            } else if (entry.startsWith("exceptions.")) {
+                @SuppressWarnings("unchecked")
+                Map<String, Object> exceptions = (Map<String, Object>) record.computeIfAbsent("exceptions", k -> new LinkedHashMap<>());
+                exceptions.put(entry.substring("exceptions.".length()), ranges(value));
+            } else {
+                record.put(entry, ranges(value));
+            }
+        }
+
+        List<String> ids = new ArrayList<>(records.keySet());
+        LoadResult result = OpeningHours.createAll(records.values().stream());
+        for (LoadResult.RecordError error : result.errors()) {
+            log.println("Skipping schedule " + ids.get(error.index()) + ": "
+                        + (error.key() == null ? "" : error.key() + ": ") + error.message());
+        }
+        Map<String, OpeningHours> schedules = new LinkedHashMap<>();
+        for (int i = 0; i < ids.size(); i++) {
+            if (result.schedules().get(i) != null) {
+                schedules.put(ids.get(i), result.schedules().get(i));
+            }
+        }
+        return schedules;
+    }
+
+    private static List<String> ranges(String value) {
+        List<String> ranges = new ArrayList<>();
+        for (String range : value.split(",")) {
+            if (!range.trim().isEmpty()) {
+                ranges.add(range.trim());
+            }
+        }
+        return ranges;
+    }
+
+    /**
+     * Evaluates every row of the input and writes the flagged rows to the output
+     *
+     * @param in the input rows
+     * @param out receives the rows with an open column appended
+     * @return the number of rows, errors and the throughput
+     * @throws IOException if the input can't be read or the output written
+     */
+    public Report evaluate(ReadableByteChannel in, WritableByteChannel out) throws IOException {
+        long startNanos = System.nanoTime();
+        ByteBuffer input = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        ByteBuffer output = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        byte[] line = new byte[256];
+        int lineLength = 0;
+        long rows = 0;
+        long errors = 0;
+        boolean first = true;
+        boolean eof = false;
+
+        while (!eof) {
+            eof = in.read(input) < 0;
+            input.flip();
+            while (input.hasRemaining() || (eof && lineLength > 0)) {
+                // Collect the bytes of the next line, it may continue in the next read
+                boolean complete = false;
+                while (input.hasRemaining()) {
+                    byte b = input.get();
+                    if (b == '\n') {
+                        complete = true;
+                        break;
+                    }
+                    if (lineLength == line.length) {
+                        line = Arrays.copyOf(line, line.length * 2);
+                    }
+                    line[lineLength++] = b;
+                }
+                if (!complete && !eof) {
+                    break;
+                }
+                int length = lineLength > 0 && line[lineLength - 1] == '\r' ? lineLength - 1 : lineLength;
+                lineLength = 0;
+                if (length == 0) {
+                    continue;
+                }
+
+                int result = evaluate(line, length);
+                if (first && result == INVALID_TIMESTAMP) {
+                    // Header row
+                    write(out, output, line, length, HEADER);
+                } else {
+                    rows++;
+                    if (result < 0) {
+                        errors++;
+                    }
+                    write(out, output, line, length, result == OPEN ? ONE : result == CLOSED ? ZERO : EMPTY);
+                }
+                first = false;
+            }
+            input.compact();
+        }
+        output.flip();
+        while (output.hasRemaining()) {
+            out.write(output);
+        }
+        return new Report(rows, errors, System.nanoTime() - startNanos);
+    }
+
+    private static final int OPEN = 1;
+    private static final int CLOSED = 0;
+    private static final int UNKNOWN_SCHEDULE = -1;
+    private static final int INVALID_TIMESTAMP = -2;
+
+    private static final byte[] HEADER = ",open\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] ONE = ",1\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] ZERO = ",0\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] EMPTY = ",\n".getBytes(StandardCharsets.US_ASCII);
+
+    private int evaluate(byte[] line, int length) {
+        int separator = 0;
+        while (separator < length && line[separator] != ',' && line[separator] != '\t') {
+            separator++;
+        }
+        if (separator == length) {
+            return INVALID_TIMESTAMP;
+        }
+        int start = separator + 1;
+        int end = start;
+        while (end < length && line[end] != ',' && line[end] != '\t') {
+            end++;
+        }
+        // Trim spaces and quotes around the timestamp
+        while (start < end && (line[start] == ' ' || line[start] == '"')) {
+            start++;
+        }
+        while (end > start && (line[end - 1] == ' ' || line[end - 1] == '"')) {
+            end--;
+        }
+
+        long epochSecond = parseTimestamp(line, start, end);
+        if (epochSecond == Long.MIN_VALUE) {
+            return INVALID_TIMESTAMP;
+        }
+        Schedule schedule = schedules.get(line, 0, separator);
+        if (schedule == null) {
+            return UNKNOWN_SCHEDULE;
+        }
+        return schedule.isOpenAt(epochSecond) ? OPEN : CLOSED;
+    }
+
+    private static void write(WritableByteChannel out, ByteBuffer output, byte[] line, int length, byte[] suffix)
+            throws IOException {
+        if (output.remaining() < length + suffix.length) {
+            output.flip();
+            while (output.hasRemaining()) {
+                out.write(output);
+            }
+            output.clear();
+            if (output.remaining() < length + suffix.length) {
+                // Longer than the whole buffer, write it directly
+                out.write(ByteBuffer.wrap(line, 0, length));
+                out.write(ByteBuffer.wrap(suffix));
+                return;
+            }
+        }
+        output.put(line, 0, length).put(suffix);
+    }
+
+    /**
+     * Parses yyyy-MM-dd[T ]HH:mm[:ss] into local epoch seconds
+     *
+     * @return the epoch second, or Long.MIN_VALUE if the timestamp is invalid
+     */
+    static long parseTimestamp(byte[] bytes, int start, int end) {
+        int length = end - start;
+        if (length != 16 && length != 19) {
+            return Long.MIN_VALUE;
+        }
+        int year = digits(bytes, start, 4);
+        int month = digits(bytes, start + 5, 2);
+        int day = digits(bytes, start + 8, 2);
+        int hour = digits(bytes, start + 11, 2);
+        int minute = digits(bytes, start + 14, 2);
+        int second = length == 19 ? digits(bytes, start + 17, 2) : 0;
+        byte dateTimeSeparator = bytes[start + 10];
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > monthLength(year, month)
+            || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59
+            || bytes[start + 4] != '-' || bytes[start + 7] != '-' || bytes[start + 13] != ':'
+            || (dateTimeSeparator != 'T' && dateTimeSeparator != ' ')
+            || (length == 19 && bytes[start + 16] != ':')) {
+            return Long.MIN_VALUE;
+        }
+        return epochDay(year, month, day) * Intervals.SECONDS_PER_DAY + hour * 3600 + minute * 60 + second;
+    }
+
+    private static int digits(byte[] bytes, int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            int digit = bytes[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static int monthLength(int year, int month) {
+        if (month == 2) {
+            boolean leap = (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+            return leap ? 29 : 28;
+        }
+        return month == 4 || month == 6 || month == 9 || month == 11 ? 30 : 31;
+    }
+
+    // Days from civil, as in LocalDate.toEpochDay, for years 0 to 9999
+    private static long epochDay(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = Math.floorDiv(y, 400);
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097L + dayOfEra - 719468;
+    }
+
+    /**
+     * A schedule with the intervals of the last day it was asked about
+     *
+     * Rows of the same schedule usually come in time order, so most rows reuse the day.
+     * Without overflow, an overnight range also matches its end time, as in
+     * {@link OpeningHoursForDay#isOpenAt(LocalTime)}, so those ends are kept aside.
+     */
+    private static final class Schedule {
+        private static final int[] NONE = new int[0];
+
+        final byte[] id;
+        final OpeningHours openingHours;
+        long day = Long.MIN_VALUE;
+        int[] intervals;
+        int[] overnightEnds;
+
+        Schedule(byte[] id, OpeningHours openingHours) {
+            this.id = id;
+            this.openingHours = openingHours;
+        }
+
+        boolean isOpenAt(long epochSecond) {
+            long epochDay = Math.floorDiv(epochSecond, Intervals.SECONDS_PER_DAY);
+            if (epochDay != day) {
+                load(epochDay);
+            }
+            int second = (int) (epochSecond - epochDay * Intervals.SECONDS_PER_DAY);
+            if (Intervals.contains(intervals, second)) {
+                return true;
+            }
+            for (int end : overnightEnds) {
+                if (end == second) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void load(long epochDay) {
+            if (openingHours.overflows()) {
+                intervals = openingHours.intervalsFor(epochDay);
+                overnightEnds = NONE;
+            } else {
+                OpeningHoursForDay hours = openingHours.forEpochDay(epochDay);
+                intervals = hours.intervals();
+                overnightEnds = NONE;
+                for (TimeRange range : hours.getTimeRanges()) {
+                    LocalTime end = range.end().toLocalTime();
+                    if (end.isBefore(range.start().toLocalTime())) {
+                        overnightEnds = Arrays.copyOf(overnightEnds, overnightEnds.length + 1);
+                        overnightEnds[overnightEnds.length - 1] = end.toSecondOfDay();
+                    }
+                }
+            }
+            day = epochDay;
+        }
+    }
+
+    /**
+     * Open-addressing hash table from id bytes to schedules, looked up without decoding the bytes
+     */
+    private static final class IdTable {
+        private final Schedule[] slots;
+        private final int mask;
+
+        IdTable(Map<String, OpeningHours> schedules) {
+            int capacity = Integer.highestOneBit(Math.max(1, schedules.size()) * 2 - 1) << 1;
+            slots = new Schedule[Math.max(2, capacity)];
+            mask = slots.length - 1;
+            for (Map.Entry<String, OpeningHours> entry : schedules.entrySet()) {
+                byte[] id = entry.getKey().getBytes(StandardCharsets.UTF_8);
+                int i = hash(id, 0, id.length) & mask;
+                while (slots[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                slots[i] = new Schedule(id, entry.getValue());
+            }
+        }
+
+        Schedule get(byte[] bytes, int start, int end) {
+            for (int i = hash(bytes, start, end) & mask; slots[i] != null; i = (i + 1) & mask) {
+                byte[] id = slots[i].id;
+                if (id.length == end - start && equals(id, bytes, start)) {
+                    return slots[i];
+                }
+            }
+            return null;
+        }
+
+        private static boolean equals(byte[] id, byte[] bytes, int start) {
+            for (int i = 0; i < id.length; i++) {
+                if (id[i] != bytes[start + i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static int hash(byte[] bytes, int start, int end) {
+            int hash = 0x811C9DC5;
+            for (int i = start; i < end; i++) {
+                hash = (hash ^ bytes[i]) * 0x01000193;
+            }
+            return hash ^ (hash >>> 16);
+        }
+    }
+
+    /**
+     * Outcome of a run: rows evaluated, rows that could not be evaluated and the time taken
+     */
+    public static final class Report {
+        private final long rows;
+        private final long errors;
+        private final long nanos;
+
+        Report(long rows, long errors, long nanos) {
+            this.rows = rows;
+            this.errors = errors;
+            this.nanos = nanos;
+        }
+
+        /**
+         * Gets the number of rows evaluated, the header excluded
+         *
+         * @return the number of rows
+         */
+        public long rows() {
+            return rows;
+        }
+
+        /**
+         * Gets the number of rows with an unknown schedule or an invalid timestamp
+         *
+         * @return the number of errors
+         */
+        public long errors() {
+            return errors;
+        }
+
+        /**
+         * Gets the throughput of the run
+         *
+         * @return the number of rows per second
+         */
+        public double rowsPerSecond() {
+            return nanos == 0 ? 0.0 : rows * 1e9 / nanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d rows (%d errors) in %.1f ms, %.0f rows/s", rows, errors, nanos / 1e6, rowsPerSecond());
+        }
+    }
+}
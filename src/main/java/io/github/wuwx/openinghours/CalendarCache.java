@@ -0,0 +1,150 @@
+package io.github.wuwx.openinghours;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Per-year cache of the resolved schedule of every date
+ * 
+ * Each year is an array indexed by day of year, holding the day schedule that
+ * {@link OpeningHours#forDate} would return once the weekly pattern, exceptions
+ * and filters have been applied. Years are built on first use. Readers never
+ * block: a missing year is built by the reading thread and published with
+ * {@code putIfAbsent}, so two threads may build the same year and the first
+ * one wins. Only the most recently used years are kept; recency is tracked per
+ * build, so a year that was not read since the last year was built goes first and
+ * reading an up-to-date year does not write anything.
+ * 
+ * @author wuwx
+ */
+final class CalendarCache {
+    
+    static final int DEFAULT_MAXIMUM_YEARS = 4;
+    
+    private final int maximumYears;
+    private final Function<LocalDate, OpeningHoursForDay> resolver;
+    private final Map<Integer, YearTable> years = new ConcurrentHashMap<>();
+    private final AtomicLong clock = new AtomicLong();
+    
+    /**
+     * Constructs an empty cache
+     * 
+     * @param maximumYears the number of years to keep
+     * @param resolver computes the schedule of a date without the cache
+     */
+    CalendarCache(int maximumYears, Function<LocalDate, OpeningHoursForDay> resolver) {
+        if (maximumYears <= 0) {
+            throw new IllegalArgumentException("Maximum number of years must be positive: " + maximumYears);
+        }
+        this.maximumYears = maximumYears;
+        this.resolver = resolver;
+    }
+    
+    /**
+     * Gets the resolved schedule of a date
+     * 
+     * @param date the date
+     * @return the opening hours of the date
+     */
+    OpeningHoursForDay get(LocalDate date) {
+        return table(date.getYear()).days[date.getDayOfYear() - 1];
+    }
+    
+    /**
+     * Gets the resolved schedule of a day, without creating a date
+     * 
+     * @param epochDay the day as a number of days since 1970-01-01
+     * @return the opening hours of the day
+     */
+    OpeningHoursForDay get(long epochDay) {
+        int year = ExceptionIndex.year(epochDay);
+        return table(year).days[(int) (epochDay - ExceptionIndex.epochDay(year, 101))];
+    }
+    
+    /**
+     * Checks if the year of a date is already built
+     * 
+     * @param date the date
+     * @return true if the date can be answered without building a year
+     */
+    boolean contains(LocalDate date) {
+        return years.containsKey(date.getYear());
+    }
+    
+    /**
+     * Checks if the year of a day is already built
+     * 
+     * @param epochDay the day as a number of days since 1970-01-01
+     * @return true if the day can be answered without building a year
+     */
+    boolean contains(long epochDay) {
+        return years.containsKey(ExceptionIndex.year(epochDay));
+    }
+    
+    /**
+     * Gets the number of years currently cached
+     * 
+     * @return the number of years
+     */
+    int size() {
+        return years.size();
+    }
+    
+    private YearTable table(int year) {
+        YearTable table = years.get(year);
+        if (table != null) {
+            // Only write when the year fell behind, so hot reads stay read-only
+            long now = clock.get();
+            if (table.lastUsed != now) {
+                table.lastUsed = now;
+            }
+            return table;
+        }
+        
+        YearTable built = build(year);
+        built.lastUsed = clock.incrementAndGet();
+        table = years.putIfAbsent(year, built);
+        if (table == null) {
+            table = built;
+            evict();
+        }
+        return table;
+    }
+    
+    private YearTable build(int year) {
+        LocalDate date = LocalDate.of(year, 1, 1);
+        OpeningHoursForDay[] days = new OpeningHoursForDay[date.lengthOfYear()];
+        for (int i = 0; i < days.length; i++) {
+            days[i] = resolver.apply(date);
+            date = date.plusDays(1);
+        }
+        return new YearTable(days);
+    }
+    
+    private void evict() {
+        while (years.size() > maximumYears) {
+            Map.Entry<Integer, YearTable> oldest = null;
+            for (Map.Entry<Integer, YearTable> entry : years.entrySet()) {
+                if (oldest == null || entry.getValue().lastUsed < oldest.getValue().lastUsed) {
+                    oldest = entry;
+                }
+            }
+            if (oldest == null) {
+                return;
+            }
+            years.remove(oldest.getKey(), oldest.getValue());
+        }
+    }
+    
+    private static final class YearTable {
+        final OpeningHoursForDay[] days;
+        volatile long lastUsed;
+        
+        YearTable(OpeningHoursForDay[] days) {
+            this.days = days;
+        }
+    }
+}
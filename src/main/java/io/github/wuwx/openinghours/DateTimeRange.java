@@ -0,0 +1,84 @@
+package io.github.wuwx.openinghours;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Value object representing a period between two date/times
+ * The start is inclusive and the end is exclusive
+ * 
+ * @author wuwx
+ */
+public final class DateTimeRange {
+    private final LocalDateTime start;
+    private final LocalDateTime end;
+    
+    /**
+     * Constructs a DateTimeRange with start and end date/times
+     * 
+     * @param start the start date/time (inclusive)
+     * @param end the end date/time (exclusive)
+     */
+    public DateTimeRange(LocalDateTime start, LocalDateTime end) {
+        if (end.isBefore(start)) {
+            throw new IllegalArgumentException("End " + end + " is before start " + start);
+        }
+        this.start = start;
+        this.end = end;
+    }
+    
+    /**
+     * Gets the start date/time of this range
+     * 
+     * @return the start date/time
+     */
+    public LocalDateTime start() {
+        return start;
+    }
+    
+    /**
+     * Gets the end date/time of this range
+     * 
+     * @return the end date/time
+     */
+    public LocalDateTime end() {
+        return end;
+    }
+    
+    /**
+     * Gets the length of this range
+     * 
+     * @return the duration between start and end
+     */
+    public Duration duration() {
+        return Duration.between(start, end);
+    }
+    
+    /**
+     * Checks if this range contains the given date/time
+     * 
+     * @param dateTime the date/time to check
+     * @return true if start <= dateTime < end
+     */
+    public boolean contains(LocalDateTime dateTime) {
+        return !dateTime.isBefore(start) && dateTime.isBefore(end);
+    }
+    
+    @Override
+    public String toString() {
+        return start.toString() + "/" + end.toString();
+    }
+    
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        DateTimeRange that = (DateTimeRange) o;
+        return start.equals(that.start) && end.equals(that.end);
+    }
+    
+    @Override
+    public int hashCode() {
+        return 31 * start.hashCode() + end.hashCode();
+    }
+}
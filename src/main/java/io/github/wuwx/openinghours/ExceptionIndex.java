@@ -0,0 +1,326 @@
+package io.github.wuwx.openinghours;
+
+import io.github.wuwx.openinghours.holidays.HolidayCalendar;
+
+import java.time.LocalDate;
+import java.time.Year;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Sorted index of the days on which a schedule deviates from its weekly pattern
+ * 
+ * Dated exceptions are kept as sorted epoch days and recurring exceptions as
+ * sorted month-day keys ({@code month * 100 + dayOfMonth}), so the next or
+ * previous exception day can be found with a binary search. Holidays of a
+ * {@link HolidayCalendar} are looked up in the calendar's compiled years. The
+ * index of an overlay only holds the overlay's own days and defers to the index
+ * of its parent for the rest.
+ * 
+ * @author wuwx
+ */
+final class ExceptionIndex {
+    
+    static final ExceptionIndex EMPTY = new ExceptionIndex(new long[0], new int[0], false, null, false, null);
+    
+    /**
+     * Index in which every day is an exception, for schedules whose days can't be predicted (filters)
+     */
+    static final ExceptionIndex ALL = new ExceptionIndex(new long[0], new int[0], true, null, false, null);
+    
+    private final long[] datedDays;
+    private final int[] recurringDays;
+    private final boolean everyDay;
+    private final HolidayCalendar holidays;
+    private final boolean holidaysFollowing;
+    private final ExceptionIndex parent;
+    
+    private ExceptionIndex(long[] datedDays, int[] recurringDays, boolean everyDay,
+                           HolidayCalendar holidays, boolean holidaysFollowing, ExceptionIndex parent) {
+        this.datedDays = datedDays;
+        this.recurringDays = recurringDays;
+        this.everyDay = everyDay;
+        this.holidays = holidays;
+        this.holidaysFollowing = holidaysFollowing;
+        this.parent = parent;
+    }
+    
+    /**
+     * Adds the holidays of a calendar to this index
+     * 
+     * @param calendar the holiday calendar
+     * @param following true to also include the day after each holiday (overflow)
+     * @return a new ExceptionIndex instance
+     */
+    ExceptionIndex withHolidays(HolidayCalendar calendar, boolean following) {
+        if (everyDay) {
+            return this;
+        }
+        return new ExceptionIndex(datedDays, recurringDays, false, calendar, following, parent);
+    }
+    
+    /**
+     * Stacks this index on top of the index of a parent schedule
+     * 
+     * @param parentIndex the index of the parent
+     * @return a new ExceptionIndex instance covering the days of both
+     */
+    ExceptionIndex over(ExceptionIndex parentIndex) {
+        if (everyDay || parentIndex.everyDay) {
+            return ALL;
+        }
+        if (parentIndex.isEmpty()) {
+            return this;
+        }
+        return new ExceptionIndex(datedDays, recurringDays, false, holidays, holidaysFollowing, parentIndex);
+    }
+    
+    /**
+     * Builds an index from exception keys
+     * Keys are either full dates (yyyy-MM-dd) or recurring dates (MM-dd), invalid keys are ignored
+     * 
+     * @param keys the exception keys
+     * @return a new ExceptionIndex instance
+     */
+    static ExceptionIndex of(Collection<String> keys) {
+        if (keys.isEmpty()) {
+            return EMPTY;
+        }
+        long[] dated = new long[keys.size()];
+        int[] recurring = new int[keys.size()];
+        int datedCount = 0;
+        int recurringCount = 0;
+        for (String key : keys) {
+            try {
+                LocalDate date = parseKey(key, 2000);
+                if (isRecurringKey(key)) {
+                    recurring[recurringCount++] = monthDay(date.getMonthValue(), date.getDayOfMonth());
+                } else {
+                    dated[datedCount++] = date.toEpochDay();
+                }
+            } catch (DateTimeParseException e) {
+                // Invalid date key, never matched by forDate
+            }
+        }
+        dated = Arrays.copyOf(dated, datedCount);
+        recurring = Arrays.copyOf(recurring, recurringCount);
+        Arrays.sort(dated);
+        Arrays.sort(recurring);
+        return new ExceptionIndex(dated, recurring, false, null, false, null);
+    }
+    
+    /**
+     * Checks if an exception key is a recurring date ("12-25") rather than a full date
+     * 
+     * @param key the exception key
+     * @return true for a month-day key
+     */
+    static boolean isRecurringKey(String key) {
+        return key.length() == 5 && key.charAt(2) == '-';
+    }
+    
+    /**
+     * Parses an exception key, placing a recurring date in the given year
+     * 
+     * @param key the exception key, "2016-12-25" or "12-25"
+     * @param year the year of a recurring date, 2000 accepts every month-day
+     * @return the date
+     * @throws DateTimeParseException if the key is no valid date, or no valid date in that year
+     */
+    static LocalDate parseKey(String key, int year) {
+        return LocalDate.parse(isRecurringKey(key) ? year + "-" + key : key);
+    }
+    
+    static int monthDay(int month, int dayOfMonth) {
+        return month * 100 + dayOfMonth;
+    }
+    
+    /**
+     * Checks if there is no exception at all
+     * 
+     * @return true if every day follows the weekly pattern
+     */
+    boolean isEmpty() {
+        return datedDays.length == 0 && recurringDays.length == 0 && !everyDay
+               && (holidays == null || holidays.rules().isEmpty()) && (parent == null || parent.isEmpty());
+    }
+    
+    /**
+     * Checks if a day is in the index
+     * 
+     * The check creates no date, holidays included, so it can guard hot lookups.
+     * 
+     * @param epochDay the day
+     * @return true if the day may deviate from the weekly pattern
+     */
+    boolean contains(long epochDay) {
+        if (everyDay
+            || Arrays.binarySearch(datedDays, epochDay) >= 0
+            || (recurringDays.length > 0 && Arrays.binarySearch(recurringDays, monthDay(epochDay)) >= 0)) {
+            return true;
+        }
+        if (holidays != null
+            && (holidays.isHoliday(epochDay) || (holidaysFollowing && holidays.isHoliday(epochDay - 1)))) {
+            return true;
+        }
+        return parent != null && parent.contains(epochDay);
+    }
+    
+    /**
+     * Gets the month-day key of an epoch day without creating a LocalDate
+     * 
+     * @param epochDay the day
+     * @return the key, month * 100 + dayOfMonth
+     */
+    static int monthDay(long epochDay) {
+        return (int) Math.floorMod(civil(epochDay), 10000L);
+    }
+    
+    /**
+     * Gets the year of an epoch day without creating a LocalDate
+     * 
+     * @param epochDay the day
+     * @return the proleptic year
+     */
+    static int year(long epochDay) {
+        return (int) Math.floorDiv(civil(epochDay), 10000L);
+    }
+    
+    /**
+     * Gets the epoch day of a month-day key in a year without creating a LocalDate
+     * 
+     * @param year the proleptic year
+     * @param monthDay the key, month * 100 + dayOfMonth, valid in that year
+     * @return the epoch day
+     */
+    static long epochDay(int year, int monthDay) {
+        // Days from civil, with years starting in March so that February 29th comes last
+        int month = monthDay / 100;
+        long y = month <= 2 ? year - 1 : year;
+        long era = Math.floorDiv(y, 400L);
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + monthDay % 100 - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+    
+    // Civil from days as year * 10000 + month * 100 + dayOfMonth
+    private static long civil(long epochDay) {
+        // Years start in March so that February 29th comes last
+        long days = epochDay + 719468;
+        long era = Math.floorDiv(days, 146097L);
+        long dayOfEra = days - era * 146097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long monthIndex = (5 * dayOfYear + 2) / 153;
+        int dayOfMonth = (int) (dayOfYear - (153 * monthIndex + 2) / 5 + 1);
+        int month = (int) (monthIndex < 10 ? monthIndex + 3 : monthIndex - 9);
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        return year * 10000 + monthDay(month, dayOfMonth);
+    }
+    
+    /**
+     * Finds the first exception day on or after the given day
+     * 
+     * @param epochDay the day to search from
+     * @return the epoch day of the exception, or Long.MAX_VALUE if there is none
+     */
+    long nextExceptionDay(long epochDay) {
+        if (everyDay) {
+            return epochDay;
+        }
+        long next = nextHoliday(epochDay);
+        if (parent != null) {
+            next = Math.min(next, parent.nextExceptionDay(epochDay));
+        }
+        int i = Arrays.binarySearch(datedDays, epochDay);
+        if (i < 0) {
+            i = -i - 1;
+        }
+        if (i < datedDays.length) {
+            next = Math.min(next, datedDays[i]);
+        }
+        
+        if (recurringDays.length > 0) {
+            int from = monthDay(epochDay);
+            int first = year(epochDay);
+            // February 29th may only come back after 8 years
+            for (int year = first; year <= first + 8; year++) {
+                for (int key : recurringDays) {
+                    if (key >= from && isValid(year, key)) {
+                        return Math.min(next, epochDay(year, key));
+                    }
+                }
+                from = 0;
+            }
+        }
+        return next;
+    }
+    
+    /**
+     * Finds the last exception day on or before the given day
+     * 
+     * @param epochDay the day to search from
+     * @return the epoch day of the exception, or Long.MIN_VALUE if there is none
+     */
+    long previousExceptionDay(long epochDay) {
+        if (everyDay) {
+            return epochDay;
+        }
+        long previous = previousHoliday(epochDay);
+        if (parent != null) {
+            previous = Math.max(previous, parent.previousExceptionDay(epochDay));
+        }
+        int i = Arrays.binarySearch(datedDays, epochDay);
+        if (i < 0) {
+            i = -i - 2;
+        }
+        if (i >= 0) {
+            previous = Math.max(previous, datedDays[i]);
+        }
+        
+        if (recurringDays.length > 0) {
+            int from = monthDay(epochDay);
+            int last = year(epochDay);
+            for (int year = last; year >= last - 8; year--) {
+                for (int k = recurringDays.length - 1; k >= 0; k--) {
+                    int key = recurringDays[k];
+                    if (key <= from && isValid(year, key)) {
+                        return Math.max(previous, epochDay(year, key));
+                    }
+                }
+                from = Integer.MAX_VALUE;
+            }
+        }
+        return previous;
+    }
+    
+    private long nextHoliday(long epochDay) {
+        if (holidays == null) {
+            return Long.MAX_VALUE;
+        }
+        long next = holidays.nextHolidayDay(epochDay);
+        if (holidaysFollowing) {
+            long following = holidays.nextHolidayDay(epochDay - 1);
+            next = Math.min(next, following == Long.MAX_VALUE ? following : following + 1);
+        }
+        return next;
+    }
+    
+    private long previousHoliday(long epochDay) {
+        if (holidays == null) {
+            return Long.MIN_VALUE;
+        }
+        long previous = holidays.previousHolidayDay(epochDay);
+        if (holidaysFollowing) {
+            long following = holidays.previousHolidayDay(epochDay - 1);
+            previous = Math.max(previous, following == Long.MIN_VALUE ? following : following + 1);
+        }
+        return previous;
+    }
+    
+    private static boolean isValid(int year, int monthDay) {
+        return monthDay != 229 || Year.isLeap(year);
+    }
+}
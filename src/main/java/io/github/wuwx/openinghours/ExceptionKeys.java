@@ -0,0 +1,96 @@
+package io.github.wuwx.openinghours;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.TreeMap;
+
+/**
+ * Exception keys of a schedule, sorted by the day they fall on
+ * 
+ * Dated keys are sorted by epoch day and recurring keys by month-day
+ * ({@code month * 100 + dayOfMonth}), so the key of a day is found with a binary
+ * search instead of formatting the day as a string. The key is then looked up in
+ * the exception map as usual, so exceptions that are parsed lazily stay unparsed
+ * until their day is asked for. Unlike {@link ExceptionIndex}, only the schedule's
+ * own keys are held, without the days receiving their overnight spill.
+ * 
+ * @author wuwx
+ */
+final class ExceptionKeys {
+    
+    private final long[] datedDays;
+    private final String[] datedKeys;
+    private final int[] recurringDays;
+    private final String[] recurringKeys;
+    
+    private ExceptionKeys(long[] datedDays, String[] datedKeys, int[] recurringDays, String[] recurringKeys) {
+        this.datedDays = datedDays;
+        this.datedKeys = datedKeys;
+        this.recurringDays = recurringDays;
+        this.recurringKeys = recurringKeys;
+    }
+    
+    /**
+     * Sorts exception keys by day
+     * Keys are either full dates (yyyy-MM-dd) or recurring dates (MM-dd), invalid keys are ignored
+     * 
+     * @param keys the exception keys
+     * @return a new ExceptionKeys instance
+     */
+    static ExceptionKeys of(Collection<String> keys) {
+        TreeMap<Long, String> dated = new TreeMap<>();
+        TreeMap<Integer, String> recurring = new TreeMap<>();
+        for (String key : keys) {
+            try {
+                LocalDate date = ExceptionIndex.parseKey(key, 2000);
+                if (ExceptionIndex.isRecurringKey(key)) {
+                    recurring.put(ExceptionIndex.monthDay(date.getMonthValue(), date.getDayOfMonth()), key);
+                } else {
+                    dated.put(date.toEpochDay(), key);
+                }
+            } catch (DateTimeParseException e) {
+                // Invalid date key, never matched by forDate
+            }
+        }
+        long[] datedDays = new long[dated.size()];
+        String[] datedKeys = dated.values().toArray(new String[0]);
+        int i = 0;
+        for (long day : dated.keySet()) {
+            datedDays[i++] = day;
+        }
+        int[] recurringDays = new int[recurring.size()];
+        String[] recurringKeys = recurring.values().toArray(new String[0]);
+        i = 0;
+        for (int day : recurring.keySet()) {
+            recurringDays[i++] = day;
+        }
+        return new ExceptionKeys(datedDays, datedKeys, recurringDays, recurringKeys);
+    }
+    
+    /**
+     * Gets the dated key of a day
+     * 
+     * @param epochDay the day as a number of days since 1970-01-01
+     * @return the "yyyy-MM-dd" key, or null if there is none
+     */
+    String datedKey(long epochDay) {
+        int i = Arrays.binarySearch(datedDays, epochDay);
+        return i >= 0 ? datedKeys[i] : null;
+    }
+    
+    /**
+     * Gets the recurring key of a day
+     * 
+     * @param epochDay the day as a number of days since 1970-01-01
+     * @return the "MM-dd" key, or null if there is none
+     */
+    String recurringKey(long epochDay) {
+        if (recurringDays.length == 0) {
+            return null;
+        }
+        int i = Arrays.binarySearch(recurringDays, ExceptionIndex.monthDay(epochDay));
+        return i >= 0 ? recurringKeys[i] : null;
+    }
+}
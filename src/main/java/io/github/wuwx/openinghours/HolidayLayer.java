@@ -0,0 +1,165 @@
+package io.github.wuwx.openinghours;
+
+import io.github.wuwx.openinghours.holidays.HolidayCalendar;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongFunction;
+
+/**
+ * Holiday calendar of a schedule together with the hours kept on its holidays
+ * 
+ * Each holiday name gets its own day schedule, carrying the name as data unless
+ * the configured hours have data of their own, so the day is built once per name
+ * instead of once per date. The layer of an overlay falls back to the layer of
+ * its parent, so holidays of both calendars apply and the overlay's hours win.
+ * The layer of a set operation result has the holidays of both operands, and
+ * computes the hours of each holiday from the operands when it is resolved.
+ * Lookups take epoch days and create no date.
+ * 
+ * @author wuwx
+ */
+final class HolidayLayer {
+    
+    private final HolidayCalendar calendar;
+    private final Map<String, OpeningHoursForDay> days;
+    private final HolidayLayer parent;
+    
+    // Set operation results only: the layers of both operands and the hours of their holidays
+    private final HolidayLayer first;
+    private final HolidayLayer second;
+    private final boolean following;
+    private final LongFunction<OpeningHoursForDay> resolver;
+    
+    HolidayLayer(HolidayCalendar calendar, OpeningHoursForDay hours) {
+        this.calendar = calendar;
+        this.days = new HashMap<>();
+        this.parent = null;
+        this.first = null;
+        this.second = null;
+        this.following = false;
+        this.resolver = null;
+        for (String name : calendar.rules().keySet()) {
+            days.put(name, hours.getData() != null ? hours : new OpeningHoursForDay(hours.getTimeRanges(), name));
+        }
+    }
+    
+    private HolidayLayer(HolidayCalendar calendar, Map<String, OpeningHoursForDay> days, HolidayLayer parent,
+                         HolidayLayer first, HolidayLayer second, boolean following,
+                         LongFunction<OpeningHoursForDay> resolver) {
+        this.calendar = calendar;
+        this.days = days;
+        this.parent = parent;
+        this.first = first;
+        this.second = second;
+        this.following = following;
+        this.resolver = resolver;
+    }
+    
+    /**
+     * Creates the layer of a set operation result over the layers of its operands
+     * 
+     * @param first the layer of the first operand, may be null
+     * @param second the layer of the second operand, may be null
+     * @param following true to also resolve the day after each holiday, whose morning
+     *                  an operand with overflow may change
+     * @param resolver gives the hours of the result on a holiday from the operands
+     * @return a layer with the holidays of both operands
+     */
+    static HolidayLayer combined(HolidayLayer first, HolidayLayer second, boolean following,
+                                 LongFunction<OpeningHoursForDay> resolver) {
+        return new HolidayLayer(null, null, null, first, second, following, resolver);
+    }
+    
+    /**
+     * Stacks this layer on top of the holiday layer of a parent schedule
+     * 
+     * @param parent the parent layer, may be null
+     * @return a layer checking this calendar first, then the parent
+     */
+    HolidayLayer over(HolidayLayer parent) {
+        if (parent == null) {
+            return this;
+        }
+        if (resolver != null) {
+            throw new IllegalStateException("Set operation results are never overlays");
+        }
+        return new HolidayLayer(calendar, days, parent, null, null, false, null);
+    }
+    
+    /**
+     * Checks if this is the layer of a set operation result
+     * 
+     * Its hours are computed from the whole rules of both operands, exceptions
+     * included, so they are right on any holiday of either operand.
+     * 
+     * @return true if built by {@link #combined}
+     */
+    boolean isCombined() {
+        return resolver != null;
+    }
+    
+    /**
+     * Checks if the day after each holiday is resolved by this layer too
+     * 
+     * @return true for set operation results with an operand that overflows
+     */
+    boolean following() {
+        return following;
+    }
+    
+    /**
+     * Gets the calendars of this layer, those of parents and operands included
+     * 
+     * @return the distinct calendars, in lookup order
+     */
+    List<HolidayCalendar> calendars() {
+        List<HolidayCalendar> calendars = new ArrayList<>();
+        addCalendars(calendars);
+        return calendars;
+    }
+    
+    private void addCalendars(List<HolidayCalendar> calendars) {
+        if (calendar != null && !calendars.contains(calendar)) {
+            calendars.add(calendar);
+        }
+        for (HolidayLayer layer : new HolidayLayer[] {parent, first, second}) {
+            if (layer != null) {
+                layer.addCalendars(calendars);
+            }
+        }
+    }
+    
+    /**
+     * Checks if a day is a holiday in any calendar of this layer
+     * 
+     * @param epochDay the day as a number of days since 1970-01-01
+     * @return true if a rule falls on the day
+     */
+    boolean isHoliday(long epochDay) {
+        if (resolver != null) {
+            return (first != null && first.isHoliday(epochDay)) || (second != null && second.isHoliday(epochDay));
+        }
+        return calendar.isHoliday(epochDay) || (parent != null && parent.isHoliday(epochDay));
+    }
+    
+    /**
+     * Gets the hours of a day if it is a holiday
+     * 
+     * @param epochDay the day as a number of days since 1970-01-01
+     * @return the holiday hours, or null if the day is not a holiday
+     */
+    OpeningHoursForDay forDay(long epochDay) {
+        if (resolver != null) {
+            boolean holiday = isHoliday(epochDay) || (following && isHoliday(epochDay - 1));
+            return holiday ? resolver.apply(epochDay) : null;
+        }
+        String name = calendar.holidayName(epochDay);
+        if (name != null) {
+            return days.get(name);
+        }
+        return parent == null ? null : parent.forDay(epochDay);
+    }
+}
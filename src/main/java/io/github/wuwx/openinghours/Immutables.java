@@ -0,0 +1,52 @@
+package io.github.wuwx.openinghours;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Deep copies of user-supplied values into unmodifiable collections
+ * 
+ * @author wuwx
+ */
+final class Immutables {
+    
+    private Immutables() {
+    }
+    
+    /**
+     * Copies lists, sets and maps, recursively, into unmodifiable collections
+     * Other values are returned as they are and are expected to be immutable
+     * 
+     * @param value the value to copy
+     * @return an unmodifiable copy of the value
+     */
+    static Object freeze(Object value) {
+        if (value instanceof List) {
+            List<Object> copy = new ArrayList<>(((List<?>) value).size());
+            for (Object item : (List<?>) value) {
+                copy.add(freeze(item));
+            }
+            return Collections.unmodifiableList(copy);
+        }
+        if (value instanceof Set) {
+            Set<Object> copy = new LinkedHashSet<>();
+            for (Object item : (Set<?>) value) {
+                copy.add(freeze(item));
+            }
+            return Collections.unmodifiableSet(copy);
+        }
+        if (value instanceof Map) {
+            Map<Object, Object> copy = new LinkedHashMap<>();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                copy.put(entry.getKey(), freeze(entry.getValue()));
+            }
+            return Collections.unmodifiableMap(copy);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,299 @@
+package io.github.wuwx.openinghours;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Normalized interval lists used by the set and duration computations
+ * 
+ * An interval list is an int array of [start, end) pairs expressed in seconds
+ * of the day, sorted by start, non-overlapping and non-adjacent. The end of
+ * the day is represented by {@link #SECONDS_PER_DAY}.
+ * 
+ * @author wuwx
+ */
+final class Intervals {
+    
+    static final int SECONDS_PER_DAY = 86400;
+    
+    static final int[] EMPTY = new int[0];
+    
+    private Intervals() {
+    }
+    
+    /**
+     * Converts a time to seconds of the day, mapping "24:00" to the end of the day
+     * 
+     * @param time the time
+     * @return the second of the day, between 0 and {@link #SECONDS_PER_DAY}
+     */
+    static int secondOfDay(Time time) {
+        LocalTime localTime = time.toLocalTime();
+        if (localTime.equals(LocalTime.MAX)) {
+            return SECONDS_PER_DAY;
+        }
+        return localTime.toSecondOfDay();
+    }
+    
+    /**
+     * Normalizes the ranges of a day
+     * Overnight ranges (e.g., 22:00-02:00) wrap around within the same day
+     * 
+     * @param day the opening hours for the day
+     * @return the normalized interval list
+     */
+    static int[] of(OpeningHoursForDay day) {
+        if (day.isEmpty()) {
+            return EMPTY;
+        }
+        int[] pairs = new int[day.size() * 4];
+        int length = 0;
+        for (TimeRange range : day.getTimeRanges()) {
+            int start = secondOfDay(range.start());
+            int end = secondOfDay(range.end());
+            if (end < start) {
+                pairs[length++] = start;
+                pairs[length++] = SECONDS_PER_DAY;
+                pairs[length++] = 0;
+                pairs[length++] = end;
+            } else {
+                pairs[length++] = start;
+                pairs[length++] = end;
+            }
+        }
+        return normalize(pairs, length);
+    }
+    
+    /**
+     * Normalizes the part of the ranges of a day that falls on the day itself
+     * Overnight ranges (e.g., 22:00-02:00) only cover their start up to midnight
+     * 
+     * @param day the opening hours for the day
+     * @return the normalized interval list
+     */
+    static int[] sameDay(OpeningHoursForDay day) {
+        if (day.isEmpty()) {
+            return EMPTY;
+        }
+        int[] pairs = new int[day.size() * 2];
+        int length = 0;
+        for (TimeRange range : day.getTimeRanges()) {
+            int start = secondOfDay(range.start());
+            int end = secondOfDay(range.end());
+            pairs[length++] = start;
+            pairs[length++] = end < start ? SECONDS_PER_DAY : end;
+        }
+        return normalize(pairs, length);
+    }
+    
+    /**
+     * Normalizes the part of the overnight ranges of a day that spills past midnight
+     * (e.g., 00:00-02:00 for 22:00-02:00), to be applied to the following day
+     * 
+     * @param day the opening hours for the day
+     * @return the normalized interval list, empty if no range crosses midnight
+     */
+    static int[] spill(OpeningHoursForDay day) {
+        int[] pairs = null;
+        int length = 0;
+        for (TimeRange range : day.getTimeRanges()) {
+            int start = secondOfDay(range.start());
+            int end = secondOfDay(range.end());
+            if (end < start) {
+                if (pairs == null) {
+                    pairs = new int[day.size() * 2];
+                }
+                pairs[length++] = 0;
+                pairs[length++] = end;
+            }
+        }
+        return pairs == null ? EMPTY : normalize(pairs, length);
+    }
+    
+    /**
+     * Checks if an interval list covers a second of the day
+     * 
+     * @param intervals the interval list
+     * @param second the second of the day
+     * @return true if a [start, end) pair contains the second
+     */
+    static boolean contains(int[] intervals, int second) {
+        for (int i = 0; i < intervals.length && intervals[i] <= second; i += 2) {
+            if (second < intervals[i + 1]) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Sorts and merges raw [start, end) pairs, dropping empty ones
+     * 
+     * @param pairs the raw pairs
+     * @param length the number of used array slots
+     * @return the normalized interval list
+     */
+    static int[] normalize(int[] pairs, int length) {
+        int count = length / 2;
+        long[] packed = new long[count];
+        int used = 0;
+        for (int i = 0; i < count; i++) {
+            int start = pairs[2 * i];
+            int end = pairs[2 * i + 1];
+            if (start < end) {
+                packed[used++] = ((long) start << 32) | end;
+            }
+        }
+        if (used == 0) {
+            return EMPTY;
+        }
+        Arrays.sort(packed, 0, used);
+        
+        int[] result = new int[used * 2];
+        int size = 0;
+        for (int i = 0; i < used; i++) {
+            int start = (int) (packed[i] >>> 32);
+            int end = (int) packed[i];
+            if (size > 0 && start <= result[size - 1]) {
+                if (end > result[size - 1]) {
+                    result[size - 1] = end;
+                }
+            } else {
+                result[size++] = start;
+                result[size++] = end;
+            }
+        }
+        return size == result.length ? result : Arrays.copyOf(result, size);
+    }
+    
+    /**
+     * Computes the union of two interval lists
+     * 
+     * @param a the first list
+     * @param b the second list
+     * @return the intervals covered by either list
+     */
+    static int[] union(int[] a, int[] b) {
+        return combine(a, b, true, true);
+    }
+    
+    /**
+     * Computes the intersection of two interval lists
+     * 
+     * @param a the first list
+     * @param b the second list
+     * @return the intervals covered by both lists
+     */
+    static int[] intersect(int[] a, int[] b) {
+        return combine(a, b, false, false);
+    }
+    
+    /**
+     * Computes the difference of two interval lists
+     * 
+     * @param a the list to subtract from
+     * @param b the list to subtract
+     * @return the intervals covered by a but not by b
+     */
+    static int[] subtract(int[] a, int[] b) {
+        return combine(a, b, true, false);
+    }
+    
+    /**
+     * Computes the symmetric difference of two interval lists
+     * 
+     * @param a the first list
+     * @param b the second list
+     * @return the intervals covered by exactly one of the lists
+     */
+    static int[] symmetricDifference(int[] a, int[] b) {
+        if (a == b) {
+            return new int[0];
+        }
+        return subtract(union(a, b), intersect(a, b));
+    }
+    
+    /**
+     * Sweeps the boundaries of both lists in order, keeping the points where
+     * the combined predicate holds. Linear in the size of both lists.
+     */
+    private static int[] combine(int[] a, int[] b, boolean union, boolean keepB) {
+        int[] result = new int[a.length + b.length];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        boolean inA = false;
+        boolean inB = false;
+        boolean inResult = false;
+        
+        while (i < a.length || j < b.length) {
+            int point;
+            if (j >= b.length || (i < a.length && a[i] <= b[j])) {
+                point = a[i];
+            } else {
+                point = b[j];
+            }
+            while (i < a.length && a[i] == point) {
+                inA = !inA;
+                i++;
+            }
+            while (j < b.length && b[j] == point) {
+                inB = !inB;
+                j++;
+            }
+            
+            boolean covered;
+            if (union && keepB) {
+                covered = inA || inB;
+            } else if (union) {
+                covered = inA && !inB;
+            } else {
+                covered = inA && inB;
+            }
+            
+            if (covered != inResult) {
+                result[size++] = point;
+                inResult = covered;
+            }
+        }
+        return size == result.length ? result : Arrays.copyOf(result, size);
+    }
+    
+    /**
+     * Sums the length of an interval list
+     * 
+     * @param intervals the interval list
+     * @return the total number of seconds covered
+     */
+    static int total(int[] intervals) {
+        int total = 0;
+        for (int i = 0; i < intervals.length; i += 2) {
+            total += intervals[i + 1] - intervals[i];
+        }
+        return total;
+    }
+    
+    /**
+     * Builds opening hours for a day from an interval list
+     * 
+     * @param intervals the interval list
+     * @param data the associated data
+     * @return a new OpeningHoursForDay instance
+     */
+    static OpeningHoursForDay toDay(int[] intervals, Object data) {
+        List<TimeRange> ranges = new ArrayList<>(intervals.length / 2);
+        for (int i = 0; i < intervals.length; i += 2) {
+            ranges.add(new TimeRange(toTime(intervals[i]), toTime(intervals[i + 1])));
+        }
+        return new OpeningHoursForDay(ranges, data);
+    }
+    
+    private static Time toTime(int secondOfDay) {
+        if (secondOfDay == SECONDS_PER_DAY) {
+            return new Time(LocalTime.MAX);
+        }
+        return new Time(LocalTime.ofSecondOfDay(secondOfDay));
+    }
+}
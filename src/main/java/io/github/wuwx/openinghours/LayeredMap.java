@@ -0,0 +1,49 @@
+package io.github.wuwx.openinghours;
+
+import java.util.AbstractMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Read-only view of a map of overrides on top of a parent map
+ * 
+ * Lookups check the overrides first and fall back to the parent, so a child
+ * schedule only stores its own entries and shares everything else with its parent.
+ * Iteration builds a merged copy, which is only needed by the rare whole-map
+ * operations (listing exceptions, set operations).
+ * 
+ * @author wuwx
+ */
+final class LayeredMap<K, V> extends AbstractMap<K, V> {
+    
+    private final Map<K, V> overrides;
+    private final Map<K, V> parent;
+    
+    LayeredMap(Map<K, V> overrides, Map<K, V> parent) {
+        this.overrides = overrides;
+        this.parent = parent;
+    }
+    
+    @Override
+    public V get(Object key) {
+        return overrides.containsKey(key) ? overrides.get(key) : parent.get(key);
+    }
+    
+    @Override
+    public boolean containsKey(Object key) {
+        return overrides.containsKey(key) || parent.containsKey(key);
+    }
+    
+    @Override
+    public boolean isEmpty() {
+        return overrides.isEmpty() && parent.isEmpty();
+    }
+    
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        Map<K, V> merged = new LinkedHashMap<>(parent);
+        merged.putAll(overrides);
+        return java.util.Collections.unmodifiableMap(merged).entrySet();
+    }
+}
@@ -0,0 +1,116 @@
+package io.github.wuwx.openinghours;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Read-only map of day schedules that are parsed on first access
+ *
+ * Each key points to a {@link Slot} holding the raw configuration value. Keys that
+ * came from the same rule (a day range or a date range) share a slot, so the rule
+ * is parsed once. Key lookups never parse; only reading a value does.
+ *
+ * @author wuwx
+ */
+final class LazyDayMap<K> extends AbstractMap<K, OpeningHoursForDay> {
+
+    private final Map<K, Slot> slots;
+
+    LazyDayMap(Map<K, Slot> slots) {
+        this.slots = slots;
+    }
+
+    @Override
+    public OpeningHoursForDay get(Object key) {
+        Slot slot = slots.get(key);
+        return slot == null ? null : slot.get();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return slots.containsKey(key);
+    }
+
+    @Override
+    public int size() {
+        return slots.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return slots.isEmpty();
+    }
+
+    @Override
+    public Set<K> keySet() {
+        return Collections.unmodifiableSet(slots.keySet());
+    }
+
+    @Override
+    public Set<Map.Entry<K, OpeningHoursForDay>> entrySet() {
+        return new AbstractSet<Map.Entry<K, OpeningHoursForDay>>() {
+            @Override
+            public Iterator<Map.Entry<K, OpeningHoursForDay>> iterator() {
+                Iterator<Map.Entry<K, Slot>> iterator = slots.entrySet().iterator();
+                return new Iterator<Map.Entry<K, OpeningHoursForDay>>() {
+                    @Override
+                    public boolean hasNext() {
+                        return iterator.hasNext();
+                    }
+
+                    @Override
+                    public Map.Entry<K, OpeningHoursForDay> next() {
+                        Map.Entry<K, Slot> entry = iterator.next();
+                        return new SimpleImmutableEntry<>(entry.getKey(), entry.getValue().get());
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return slots.size();
+            }
+        };
+    }
+
+    /**
+     * A raw day value and its parsed form once it has been read
+     *
+     * The parsed day is published through a volatile field. Two threads reading an
+     * unparsed slot at the same time may both parse it, which is harmless because
+     * the results are equal and immutable.
+     */
+    static final class Slot {
+        private final Object raw;
+        private final Function<Object, OpeningHoursForDay> parser;
+        private volatile OpeningHoursForDay day;
+
+        private Slot(Object raw, Function<Object, OpeningHoursForDay> parser, OpeningHoursForDay day) {
+            this.raw = raw;
+            this.parser = parser;
+            this.day = day;
+        }
+
+        static Slot parsed(OpeningHoursForDay day) {
+            return new Slot(null, null, day);
+        }
+
+        static Slot deferred(Object raw, Function<Object, OpeningHoursForDay> parser) {
+            return new Slot(raw, parser, null);
+        }
+
+        OpeningHoursForDay get() {
+            OpeningHoursForDay parsed = day;
+            if (parsed == null) {
+                parsed = parser.apply(raw);
+                day = parsed;
+            }
+            return parsed;
+        }
+    }
+}
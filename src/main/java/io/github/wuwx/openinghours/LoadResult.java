@@ -0,0 +1,126 @@
+package io.github.wuwx.openinghours;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of a bulk load with {@link OpeningHours#createAll(java.util.stream.Stream)}
+ *
+ * Schedules are kept in input order. A record with at least one invalid key is
+ * rejected: its position holds null and each problem is listed in {@link #errors()}.
+ *
+ * @author wuwx
+ */
+public final class LoadResult {
+
+    private final List<OpeningHours> schedules;
+    private final List<RecordError> errors;
+
+    LoadResult(List<OpeningHours> schedules, List<RecordError> errors) {
+        this.schedules = Collections.unmodifiableList(schedules);
+        this.errors = Collections.unmodifiableList(errors);
+    }
+
+    /**
+     * Gets the loaded schedules in input order, null for rejected records
+     *
+     * @return an unmodifiable list of schedules
+     */
+    public List<OpeningHours> schedules() {
+        return schedules;
+    }
+
+    /**
+     * Gets the problems found in rejected records, ordered by record index
+     *
+     * @return an unmodifiable list of errors
+     */
+    public List<RecordError> errors() {
+        return errors;
+    }
+
+    /**
+     * Checks if any record was rejected
+     *
+     * @return true if there is at least one error
+     */
+    public boolean hasErrors() {
+        return !errors.isEmpty();
+    }
+
+    /**
+     * Gets the number of records that were loaded successfully
+     *
+     * @return the number of non-null schedules
+     */
+    public int loadedCount() {
+        int count = 0;
+        for (OpeningHours schedule : schedules) {
+            if (schedule != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        return "LoadResult{records=" + schedules.size() + ", errors=" + errors.size() + "}";
+    }
+
+    /**
+     * A problem found in one record of a bulk load
+     */
+    public static final class RecordError {
+        private final int index;
+        private final String key;
+        private final RuntimeException cause;
+
+        RecordError(int index, String key, RuntimeException cause) {
+            this.index = index;
+            this.key = key;
+            this.cause = cause;
+        }
+
+        /**
+         * Gets the position of the record in the input stream
+         *
+         * @return the zero-based record index
+         */
+        public int index() {
+            return index;
+        }
+
+        /**
+         * Gets the data key that could not be parsed
+         *
+         * @return the key, or null if the record as a whole could not be parsed
+         */
+        public String key() {
+            return key;
+        }
+
+        /**
+         * Gets the exception raised while parsing
+         *
+         * @return the cause
+         */
+        public RuntimeException cause() {
+            return cause;
+        }
+
+        /**
+         * Gets the message of the exception raised while parsing
+         *
+         * @return the message
+         */
+        public String message() {
+            return cause.getMessage();
+        }
+
+        @Override
+        public String toString() {
+            return "record " + index + (key == null ? "" : " key '" + key + "'") + ": " + cause.getMessage();
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package io.github.wuwx.openinghours;
+
+import java.util.List;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Fork-join task adding up the open buckets of a shard of schedules
+ * 
+ * Each shard fills its own difference array, +1 at the first bucket in which a
+ * schedule is open and -1 at the first bucket after, and shards are summed when
+ * joined. The caller turns the sum into counts with a prefix sum.
+ * 
+ * @author wuwx
+ */
+final class OpenCountTask extends RecursiveTask<int[]> {
+    
+    private static final long serialVersionUID = 1L;
+    
+    /**
+     * Below this number of schedules a shard is computed on the current thread
+     */
+    static final int THRESHOLD = 64;
+    
+    private final List<OpeningHours> schedules;
+    private final long start;
+    private final long end;
+    private final long bucketSeconds;
+    private final int from;
+    private final int to;
+    
+    /**
+     * Constructs a task for the schedules in [from, to)
+     * 
+     * @param schedules the schedules
+     * @param start the local epoch second of the first bucket
+     * @param end the local epoch second to stop at (exclusive)
+     * @param bucketSeconds the length of a bucket
+     * @param from the first index (inclusive)
+     * @param to the last index (exclusive)
+     */
+    OpenCountTask(List<OpeningHours> schedules, long start, long end, long bucketSeconds, int from, int to) {
+        this.schedules = schedules;
+        this.start = start;
+        this.end = end;
+        this.bucketSeconds = bucketSeconds;
+        this.from = from;
+        this.to = to;
+    }
+    
+    @Override
+    protected int[] compute() {
+        if (to - from <= THRESHOLD) {
+            return computeDirectly(schedules, start, end, bucketSeconds, from, to);
+        }
+        int middle = (from + to) >>> 1;
+        OpenCountTask left = new OpenCountTask(schedules, start, end, bucketSeconds, from, middle);
+        left.fork();
+        int[] sum = new OpenCountTask(schedules, start, end, bucketSeconds, middle, to).compute();
+        int[] other = left.join();
+        for (int i = 0; i < sum.length; i++) {
+            sum[i] += other[i];
+        }
+        return sum;
+    }
+    
+    /**
+     * Fills the difference array of some schedules
+     * 
+     * @return the difference array, one entry more than there are buckets
+     */
+    static int[] computeDirectly(List<OpeningHours> schedules, long start, long end, long bucketSeconds,
+                                 int from, int to) {
+        int buckets = (int) ((end - start + bucketSeconds - 1) / bucketSeconds);
+        int[] difference = new int[buckets + 1];
+        long firstDay = Math.floorDiv(start, (long) Intervals.SECONDS_PER_DAY);
+        long lastDay = Math.floorDiv(end - 1, (long) Intervals.SECONDS_PER_DAY);
+        for (int i = from; i < to; i++) {
+            OpeningHours schedule = schedules.get(i);
+            for (long day = firstDay; day <= lastDay; day++) {
+                // Intervals meeting at midnight add and remove the same bucket, so they need no merging
+                int[] intervals = schedule.intervalsFor(day);
+                long base = day * Intervals.SECONDS_PER_DAY;
+                for (int j = 0; j < intervals.length; j += 2) {
+                    long open = Math.max(base + intervals[j], start);
+                    long close = Math.min(base + intervals[j + 1], end);
+                    if (open < close) {
+                        // Buckets whose start falls within [open, close)
+                        int first = (int) ((open - start + bucketSeconds - 1) / bucketSeconds);
+                        int after = (int) ((close - start + bucketSeconds - 1) / bucketSeconds);
+                        if (first < after) {
+                            difference[first]++;
+                            difference[after]--;
+                        }
+                    }
+                }
+            }
+        }
+        return difference;
+    }
+}
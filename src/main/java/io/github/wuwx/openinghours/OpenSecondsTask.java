@@ -0,0 +1,62 @@
+package io.github.wuwx.openinghours;
+
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Fork-join task computing open seconds for a slice of interval pairs
+ * 
+ * @author wuwx
+ */
+final class OpenSecondsTask extends RecursiveAction {
+    
+    private static final long serialVersionUID = 1L;
+    
+    /**
+     * Below this number of pairs a slice is computed on the current thread
+     */
+    static final int THRESHOLD = 8192;
+    
+    private final WeeklyOpenTime weeklyOpenTime;
+    private final long[] starts;
+    private final long[] ends;
+    private final long[] results;
+    private final int from;
+    private final int to;
+    
+    /**
+     * Constructs a task for the pairs in [from, to)
+     * 
+     * @param weeklyOpenTime the shared weekly tables
+     * @param starts the local epoch seconds to count from
+     * @param ends the local epoch seconds to count until
+     * @param results the array receiving the open seconds
+     * @param from the first index (inclusive)
+     * @param to the last index (exclusive)
+     */
+    OpenSecondsTask(WeeklyOpenTime weeklyOpenTime, long[] starts, long[] ends, long[] results, int from, int to) {
+        this.weeklyOpenTime = weeklyOpenTime;
+        this.starts = starts;
+        this.ends = ends;
+        this.results = results;
+        this.from = from;
+        this.to = to;
+    }
+    
+    @Override
+    protected void compute() {
+        if (to - from <= THRESHOLD) {
+            computeDirectly(weeklyOpenTime, starts, ends, results, from, to);
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        invokeAll(new OpenSecondsTask(weeklyOpenTime, starts, ends, results, from, middle),
+                  new OpenSecondsTask(weeklyOpenTime, starts, ends, results, middle, to));
+    }
+    
+    static void computeDirectly(WeeklyOpenTime weeklyOpenTime, long[] starts, long[] ends, long[] results,
+                                int from, int to) {
+        for (int i = from; i < to; i++) {
+            results[i] = weeklyOpenTime.openSecondsBetween(starts[i], ends[i]);
+        }
+    }
+}
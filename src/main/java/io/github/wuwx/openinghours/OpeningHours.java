@@ -1,42 +1,217 @@
 package io.github.wuwx.openinghours;
 
+import io.github.wuwx.openinghours.exceptions.MaximumLimitExceeded;
+import io.github.wuwx.openinghours.holidays.HolidayCalendar;
+import io.github.wuwx.openinghours.metrics.Metrics;
+
 import java.time.DayOfWeek;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.ZoneId;
-import java.time.format.DateTimeFormatter;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiConsumer;
 import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Main class for handling opening hours
  * 
+ * Instances are immutable and safe to share between any number of threads without
+ * copying or locking. All state is set in the constructor and held in final fields
+ * and unmodifiable collections; the values derived on first use (weekly tables,
+ * week groupings, parsed lazy days) are immutable and published through volatile
+ * fields, so a race at worst computes the same value twice. Filters are the only
+ * user code called during queries and must be thread-safe themselves.
+ * 
  * @author wuwx
  */
-public class OpeningHours {
+public final class OpeningHours {
+    
+    private static final int DEFAULT_BULK_CACHE_SIZE = 1 << 16;
+    
+    private static final int MAX_SEARCH_DAYS = 366;
+    
+    private static final String[] DAY_NAMES = {
+        "monday", "tuesday", "wednesday", "thursday", "friday", "saturday", "sunday"
+    };
 
     private final Map<DayOfWeek, OpeningHoursForDay> openingHours;
     private final Map<String, OpeningHoursForDay> exceptions;
+    private final Map<String, OpeningHoursForDay[]> recurringByWeekday;
     private final List<Function<LocalDate, Map<String, Object>>> filters;
+    private final HolidayLayer holidays;
     private final ZoneId timezone;
     private final ZoneId outputTimezone;
     private final boolean overflow;
+    private final Metrics metrics;
+    private final ExceptionIndex exceptionIndex;
+    private final ExceptionKeys exceptionKeys;
+    private final int calendarYears;
+    private final CalendarCache calendar;
+    private final Overlay overlay;
+    private volatile WeeklyOpenTime weeklyOpenTime;
+    private volatile WeeklyTransitions weeklyTransitions;
+    private volatile WeeklyTransitions intervalTransitions;
+    private volatile int[][] weekdayIntervals;
+    
+    // Weekly groupings, computed on first use (immutable, so a racy computation is harmless)
+    private volatile Map<String, Object> weekCombined;
+    private volatile Map<String, Object> weekConsecutiveDays;
     
     private OpeningHours(Map<DayOfWeek, OpeningHoursForDay> openingHours,
                         Map<String, OpeningHoursForDay> exceptions,
+                        Map<String, OpeningHoursForDay[]> recurringByWeekday,
                         List<Function<LocalDate, Map<String, Object>>> filters,
+                        HolidayLayer holidays,
                         ZoneId timezone,
                         ZoneId outputTimezone,
-                        boolean overflow) {
-        this.openingHours = openingHours;
-        this.exceptions = exceptions;
-        this.filters = filters;
+                        boolean overflow,
+                        Metrics metrics,
+                        int calendarYears,
+                        Overlay overlay) {
+        this.openingHours = Collections.unmodifiableMap(openingHours);
+        this.exceptions = Collections.unmodifiableMap(exceptions);
+        this.recurringByWeekday = Collections.unmodifiableMap(recurringByWeekday);
+        this.filters = Collections.unmodifiableList(filters);
+        this.holidays = holidays;
         this.timezone = timezone;
         this.outputTimezone = outputTimezone;
         this.overflow = overflow;
+        this.metrics = metrics;
+        this.calendarYears = calendarYears;
+        this.overlay = overlay;
+        this.calendar = calendarYears > 0 ? new CalendarCache(calendarYears, date -> resolveDate(date, false)) : null;
+        
+        // An overlay only indexes its own days and defers to the index of its parent
+        Set<String> indexKeys = new HashSet<>(overlay == null ? exceptions.keySet() : overlay.exceptions.keySet());
+        if (overlay == null) {
+            indexKeys.addAll(recurringByWeekday.keySet());
+        }
+        this.exceptionKeys = ExceptionKeys.of(indexKeys);
+        if (overflow) {
+            // The day after an exception receives its overnight spill, so it deviates too
+            indexKeys.addAll(followingKeys(indexKeys));
+        }
+        // Filters may change any day, so no day can be assumed to follow the weekly pattern
+        boolean filtered = !(overlay == null ? filters : overlay.filters).isEmpty();
+        ExceptionIndex index = filtered ? ExceptionIndex.ALL : ExceptionIndex.of(indexKeys);
+        HolidayLayer ownHolidays = overlay == null ? holidays : overlay.holidays;
+        if (ownHolidays != null) {
+            // Set operation results have the calendars of both operands, the others are stacked below the first
+            boolean following = overflow || ownHolidays.following();
+            List<HolidayCalendar> calendars = ownHolidays.calendars();
+            index = index.withHolidays(calendars.get(0), following);
+            for (int i = 1; i < calendars.size(); i++) {
+                index = ExceptionIndex.EMPTY.withHolidays(calendars.get(i), following).over(index);
+            }
+        }
+        this.exceptionIndex = overlay == null ? index : index.over(overlay.parent.exceptionIndex);
+    }
+    
+    // Built on first use, so that a lazily parsed schedule only parses its days when needed
+    private WeeklyOpenTime weeklyOpenTime() {
+        WeeklyOpenTime table = weeklyOpenTime;
+        if (table == null) {
+            table = new WeeklyOpenTime(this, exceptionIndex, weekdayIntervals());
+            weeklyOpenTime = table;
+        }
+        return table;
+    }
+    
+    // Built on first use, like the weekly open time
+    private WeeklyTransitions weeklyTransitions() {
+        WeeklyTransitions table = weeklyTransitions;
+        if (table == null) {
+            if (overflow) {
+                table = WeeklyTransitions.ofIntervals(weekdayIntervals());
+            } else {
+                OpeningHoursForDay[] days = new OpeningHoursForDay[7];
+                for (DayOfWeek day : DayOfWeek.values()) {
+                    days[day.ordinal()] = openingHours.get(day);
+                }
+                table = WeeklyTransitions.ofDays(days);
+            }
+            weeklyTransitions = table;
+        }
+        return table;
+    }
+    
+    // Transitions of the weekly open intervals, the search table itself with overflow
+    private WeeklyTransitions intervalTransitions() {
+        if (overflow) {
+            return weeklyTransitions();
+        }
+        WeeklyTransitions table = intervalTransitions;
+        if (table == null) {
+            table = WeeklyTransitions.ofIntervals(weekdayIntervals());
+            intervalTransitions = table;
+        }
+        return table;
+    }
+    
+    /**
+     * Checks if every day from one day up to a time follows the weekly pattern
+     * 
+     * @param epochDay the first day
+     * @param until the local epoch second found in the weekly table, Long.MIN_VALUE for none
+     * @return true if the answer of the weekly table holds
+     */
+    private boolean regularUntil(long epochDay, long until) {
+        return until != Long.MIN_VALUE
+            && exceptionIndex.nextExceptionDay(epochDay) > Math.floorDiv(until, (long) Intervals.SECONDS_PER_DAY);
+    }
+    
+    /**
+     * Gets the open intervals of each weekday outside exceptions
+     * With overflow, each weekday includes the spill of the previous weekday's overnight ranges
+     * 
+     * @return the interval lists indexed by {@link DayOfWeek#ordinal()}, must not be modified
+     */
+    private int[][] weekdayIntervals() {
+        int[][] table = weekdayIntervals;
+        if (table == null) {
+            table = new int[7][];
+            for (DayOfWeek day : DayOfWeek.values()) {
+                OpeningHoursForDay hours = openingHours.get(day);
+                table[day.ordinal()] = overflow
+                    ? Intervals.union(hours.sameDayIntervals(), openingHours.get(day.minus(1)).spill())
+                    : hours.intervals();
+            }
+            weekdayIntervals = table;
+        }
+        return table;
+    }
+    
+    private static Set<String> followingKeys(Collection<String> keys) {
+        Set<String> following = new HashSet<>();
+        for (String key : keys) {
+            try {
+                if (ExceptionIndex.isRecurringKey(key)) {
+                    // Recurring: 02-28 is followed by 02-29 in leap years and by 03-01 otherwise
+                    following.add(recurringKey(ExceptionIndex.parseKey(key, 2000).plusDays(1)));
+                    following.add(recurringKey(ExceptionIndex.parseKey("02-29".equals(key) ? "02-28" : key, 2001).plusDays(1)));
+                } else {
+                    following.add(ExceptionIndex.parseKey(key, 2000).plusDays(1).toString());
+                }
+            } catch (java.time.format.DateTimeParseException e) {
+                // Invalid date key, never matched by forDate
+            }
+        }
+        return following;
+    }
+    
+    private static String recurringKey(LocalDate date) {
+        int month = date.getMonthValue();
+        int day = date.getDayOfMonth();
+        return new String(new char[] {
+            (char) ('0' + month / 10), (char) ('0' + month % 10), '-', (char) ('0' + day / 10), (char) ('0' + day % 10)
+        });
     }
     
     /**
@@ -69,14 +244,142 @@ public class OpeningHours {
      * @return a new OpeningHours instance
      */
     public static OpeningHours create(Map<String, Object> data, ZoneId timezone, ZoneId outputTimezone) {
-        Map<DayOfWeek, OpeningHoursForDay> openingHours = new EnumMap<>(DayOfWeek.class);
-        Map<String, OpeningHoursForDay> exceptions = new HashMap<>();
+        return build(data, timezone, outputTimezone, null, null, false, null);
+    }
+    
+    /**
+     * Create opening hours that parse each day on first access
+     * 
+     * @param data the opening hours data map
+     * @return a new OpeningHours instance
+     * @see #createLazy(Map, ZoneId, ZoneId)
+     */
+    public static OpeningHours createLazy(Map<String, Object> data) {
+        return createLazy(data, null, null);
+    }
+    
+    /**
+     * Create opening hours that parse each day on first access
+     * 
+     * Day names, day ranges and exception dates are resolved immediately, but the
+     * hours of each weekday and each exception rule are kept raw and parsed the first
+     * time a query needs them. A schedule that is only ever asked about a couple of
+     * days never parses the others. Parsed days are published safely, so the instance
+     * can be shared between threads like any other. The raw values must not be
+     * modified afterwards, and a value that fails to parse throws on first access
+     * instead of from this method.
+     * 
+     * @param data the opening hours data map
+     * @param timezone the input timezone
+     * @param outputTimezone the output timezone
+     * @return a new OpeningHours instance
+     */
+    public static OpeningHours createLazy(Map<String, Object> data, ZoneId timezone, ZoneId outputTimezone) {
+        return build(data, timezone, outputTimezone, null, null, true, null);
+    }
+    
+    /**
+     * Create opening hours for a whole catalog of records in parallel
+     * Records are parsed on the common fork/join pool and share one parse cache
+     * 
+     * @param records the opening hours data maps
+     * @return the loaded schedules in input order and the errors of rejected records
+     * @see #createAll(Stream, ParseCache, ForkJoinPool)
+     */
+    public static LoadResult createAll(Stream<Map<String, Object>> records) {
+        return createAll(records, new ParseCache(DEFAULT_BULK_CACHE_SIZE), ForkJoinPool.commonPool());
+    }
+    
+    /**
+     * Create opening hours for a whole catalog of records in parallel
+     * 
+     * Unlike {@link #create(Map)}, invalid keys are not skipped silently: a record
+     * with an invalid day name, day range, exception date or time range is rejected
+     * and every problem is reported in {@link LoadResult#errors()}. Records that carry
+     * their own "parseCache" use it, all others share the given cache, so identical
+     * day schedules are parsed once and shared across workers.
+     * 
+     * @param records the opening hours data maps
+     * @param parseCache the cache shared by all workers
+     * @param pool the pool running the parallel parse
+     * @return the loaded schedules in input order and the errors of rejected records
+     */
+    public static LoadResult createAll(Stream<Map<String, Object>> records, ParseCache parseCache, ForkJoinPool pool) {
+        // A parallel stream started from inside a pool runs its tasks on that pool
+        List<RecordOutcome> outcomes = pool.submit(() -> records.parallel()
+                .map(record -> RecordOutcome.load(record, parseCache))
+                .collect(Collectors.toList()))
+            .join();
+        
+        List<OpeningHours> schedules = new ArrayList<>(outcomes.size());
+        List<LoadResult.RecordError> errors = new ArrayList<>();
+        for (int index = 0; index < outcomes.size(); index++) {
+            RecordOutcome outcome = outcomes.get(index);
+            schedules.add(outcome.causes.isEmpty() ? outcome.schedule : null);
+            for (int i = 0; i < outcome.causes.size(); i++) {
+                errors.add(new LoadResult.RecordError(index, outcome.keys.get(i), outcome.causes.get(i)));
+            }
+        }
+        return new LoadResult(schedules, errors);
+    }
+    
+    private static final class RecordOutcome {
+        final List<String> keys = new ArrayList<>(0);
+        final List<RuntimeException> causes = new ArrayList<>(0);
+        OpeningHours schedule;
+        
+        static RecordOutcome load(Map<String, Object> record, ParseCache parseCache) {
+            RecordOutcome outcome = new RecordOutcome();
+            try {
+                if (record == null) {
+                    throw new IllegalArgumentException("Record is null");
+                }
+                outcome.schedule = build(record, null, null, parseCache, outcome::add, false, null);
+            } catch (RuntimeException e) {
+                outcome.add(null, e);
+            }
+            return outcome;
+        }
+        
+        void add(String key, RuntimeException cause) {
+            keys.add(key);
+            causes.add(cause);
+        }
+    }
+    
+    /**
+     * Builds opening hours from a data map
+     * 
+     * @param data the opening hours data map
+     * @param timezone the input timezone
+     * @param outputTimezone the output timezone
+     * @param defaultCache the parse cache used when the data has none, may be null
+     * @param onError receives the keys that could not be parsed, null to skip them silently
+     * @param lazy true to keep the raw day values and parse each one on first access
+     * @param parent the schedule to overlay, null for a standalone schedule
+     * @return a new OpeningHours instance
+     */
+    private static OpeningHours build(Map<String, Object> data, ZoneId timezone, ZoneId outputTimezone,
+                                      ParseCache defaultCache, BiConsumer<String, RuntimeException> onError,
+                                      boolean lazy, OpeningHours parent) {
+        Map<DayOfWeek, LazyDayMap.Slot> days = new EnumMap<>(DayOfWeek.class);
+        Map<String, LazyDayMap.Slot> exceptionSlots = new HashMap<>();
         List<Function<LocalDate, Map<String, Object>>> filters = new ArrayList<>();
+        List<Function<LocalDate, Map<String, Object>>> exceptionFilters = new ArrayList<>();
         boolean overflow = false;
+        int calendarYears = 0;
+        HolidayLayer holidays = null;
+        Metrics ownMetrics = data.get("metrics") instanceof Metrics ? (Metrics) data.get("metrics") : null;
+        Metrics metrics = ownMetrics != null ? ownMetrics : parent != null ? parent.metrics : Metrics.noop();
+        Object cache = data.get("parseCache");
+        Function<Object, OpeningHoursForDay> parser = dayParser(cache instanceof ParseCache ? cache : defaultCache, metrics);
         
-        // Initialize all days as closed
-        for (DayOfWeek day : DayOfWeek.values()) {
-            openingHours.put(day, new OpeningHoursForDay());
+        // Initialize all days as closed, an overlay only keeps the days it overrides
+        if (parent == null) {
+            LazyDayMap.Slot closed = LazyDayMap.Slot.parsed(new OpeningHoursForDay());
+            for (DayOfWeek day : DayOfWeek.values()) {
+                days.put(day, closed);
+            }
         }
         
         // Parse data
@@ -93,16 +396,31 @@ public class OpeningHours {
                         String dateKey = excEntry.getKey();
                         Object excValue = excEntry.getValue();
                         
+                        if (excValue instanceof Function) {
+                            @SuppressWarnings("unchecked")
+                            Function<LocalDate, Map<String, Object>> filter = (Function<LocalDate, Map<String, Object>>) excValue;
+                            exceptionFilters.add(filter);
+                            continue;
+                        }
+                        
                         // Handle date ranges in exceptions (e.g., "12-24 to 12-26")
                         if (dateKey.contains(" to ")) {
                             String[] parts = dateKey.split(" to ");
                             if (parts.length == 2) {
-                                parseDateRangeException(parts[0].trim(), parts[1].trim(), excValue, exceptions);
+                                parseDateRangeException(parts[0].trim(), parts[1].trim(), excValue, exceptionSlots,
+                                                        parser, dateKey, onError, lazy);
+                            } else {
+                                report(onError, dateKey, new IllegalArgumentException("Invalid date range: " + dateKey));
                             }
                         } else {
-                            exceptions.put(dateKey, parseOpeningHoursValue(excValue));
+                            if (onError != null) {
+                                validateExceptionDate(dateKey, onError);
+                            }
+                            exceptionSlots.put(dateKey, slot(parser, excValue, dateKey, onError, lazy));
                         }
                     }
+                } else {
+                    report(onError, key, new IllegalArgumentException("Exceptions must be a map"));
                 }
             } else if ("filters".equals(key)) {
                 // Handle filters
@@ -111,12 +429,31 @@ public class OpeningHours {
                     List<Function<LocalDate, Map<String, Object>>> filterList = 
                         (List<Function<LocalDate, Map<String, Object>>>) value;
                     filters.addAll(filterList);
+                } else {
+                    report(onError, key, new IllegalArgumentException("Filters must be a list"));
                 }
             } else if ("overflow".equals(key)) {
                 // Handle overflow flag
                 if (value instanceof Boolean) {
                     overflow = (Boolean) value;
+                } else {
+                    report(onError, key, new IllegalArgumentException("Overflow must be a boolean"));
                 }
+            } else if ("holidays".equals(key)) {
+                // Handle holiday calendar, closed on holidays unless hours are given
+                holidays = parseHolidays(value, parser, onError);
+            } else if ("calendarCache".equals(key)) {
+                // Handle calendar cache, true for the default number of years or the number of years to keep
+                if (Boolean.TRUE.equals(value)) {
+                    calendarYears = CalendarCache.DEFAULT_MAXIMUM_YEARS;
+                } else if (value instanceof Integer && (Integer) value >= 0) {
+                    calendarYears = (Integer) value;
+                } else if (!Boolean.FALSE.equals(value)) {
+                    report(onError, key, new IllegalArgumentException("Calendar cache must be a boolean or a number of years"));
+                }
+            } else if ("metrics".equals(key) || "parseCache".equals(key)) {
+                // Handle metrics sink and parse cache (already resolved above)
+                continue;
             } else if ("timezone".equals(key)) {
                 // Handle timezone (already handled in calling method)
                 continue;
@@ -126,61 +463,145 @@ public class OpeningHours {
                     // Handle day range
                     String[] parts = key.split(" to ");
                     if (parts.length == 2) {
-                        parseDayRange(parts[0].trim(), parts[1].trim(), value, openingHours);
+                        parseDayRange(parts[0].trim(), parts[1].trim(), value, days, parser, key, onError, lazy);
+                    } else {
+                        report(onError, key, new IllegalArgumentException("Invalid day range: " + key));
                     }
                 } else {
                     // Handle single day
                     try {
                         DayOfWeek dayOfWeek = DayOfWeek.valueOf(key.toUpperCase());
-                        openingHours.put(dayOfWeek, parseOpeningHoursValue(value));
+                        days.put(dayOfWeek, slot(parser, value, key, onError, lazy));
                     } catch (IllegalArgumentException e) {
                         // Invalid day name, skip
+                        report(onError, key, e);
                     }
                 }
             }
         }
         
-        return new OpeningHours(openingHours, exceptions, filters, timezone, outputTimezone, overflow);
+        Map<DayOfWeek, OpeningHoursForDay> openingHours;
+        Map<String, OpeningHoursForDay> exceptions;
+        if (lazy) {
+            openingHours = new LazyDayMap<>(days);
+            exceptions = new LazyDayMap<>(exceptionSlots);
+        } else {
+            openingHours = new EnumMap<>(DayOfWeek.class);
+            days.forEach((day, slot) -> openingHours.put(day, slot.get()));
+            exceptions = new HashMap<>();
+            exceptionSlots.forEach((date, slot) -> exceptions.put(date, slot.get()));
+        }
+        
+        // Filters found in the exceptions come after the ones of the filters list
+        filters.addAll(exceptionFilters);
+        
+        if (parent != null) {
+            return new Overlay(parent, openingHours, exceptions, filters, holidays, ownMetrics, calendarYears).apply();
+        }
+        return new OpeningHours(openingHours, exceptions, Collections.emptyMap(), filters, holidays,
+                                timezone, outputTimezone, overflow, metrics, calendarYears, null);
+    }
+    
+    private static HolidayLayer parseHolidays(Object value, Function<Object, OpeningHoursForDay> parser,
+                                              BiConsumer<String, RuntimeException> onError) {
+        if (value instanceof HolidayCalendar) {
+            return new HolidayLayer((HolidayCalendar) value, new OpeningHoursForDay());
+        }
+        if (value instanceof Map && ((Map<?, ?>) value).get("calendar") instanceof HolidayCalendar) {
+            // The rest of the map is a day value with hours and data
+            Map<String, Object> day = new LinkedHashMap<>();
+            ((Map<?, ?>) value).forEach((k, v) -> {
+                if (!"calendar".equals(k)) {
+                    day.put(String.valueOf(k), v);
+                }
+            });
+            HolidayCalendar calendar = (HolidayCalendar) ((Map<?, ?>) value).get("calendar");
+            return new HolidayLayer(calendar, parseValue(parser, day, "holidays", onError));
+        }
+        report(onError, "holidays", new IllegalArgumentException("Holidays must be a calendar or a map with a calendar"));
+        return null;
+    }
+    
+    private static LazyDayMap.Slot slot(Function<Object, OpeningHoursForDay> parser, Object value, String key,
+                                        BiConsumer<String, RuntimeException> onError, boolean lazy) {
+        if (lazy) {
+            return LazyDayMap.Slot.deferred(value, parser);
+        }
+        return LazyDayMap.Slot.parsed(parseValue(parser, value, key, onError));
+    }
+    
+    private static void report(BiConsumer<String, RuntimeException> onError, String key, RuntimeException e) {
+        if (onError != null) {
+            onError.accept(key, e);
+        }
+    }
+    
+    private static OpeningHoursForDay parseValue(Function<Object, OpeningHoursForDay> parser, Object value,
+                                                 String key, BiConsumer<String, RuntimeException> onError) {
+        if (onError == null) {
+            return parser.apply(value);
+        }
+        try {
+            return parser.apply(value);
+        } catch (RuntimeException e) {
+            onError.accept(key, e);
+            return new OpeningHoursForDay();
+        }
+    }
+    
+    private static void validateExceptionDate(String key, BiConsumer<String, RuntimeException> onError) {
+        try {
+            ExceptionIndex.parseKey(key, 2000);
+        } catch (java.time.format.DateTimeParseException e) {
+            onError.accept(key, e);
+        }
+    }
+    
+    private static Function<Object, OpeningHoursForDay> dayParser(Object cache, Metrics metrics) {
+        if (cache instanceof ParseCache) {
+            ParseCache parseCache = (ParseCache) cache;
+            return value -> parseCache.get(value, metrics, OpeningHours::parseOpeningHoursValue);
+        }
+        return OpeningHours::parseOpeningHoursValue;
     }
     
     private static void parseDayRange(String startDay, String endDay, Object value, 
-                                     Map<DayOfWeek, OpeningHoursForDay> openingHours) {
+                                     Map<DayOfWeek, LazyDayMap.Slot> days,
+                                     Function<Object, OpeningHoursForDay> parser,
+                                     String key, BiConsumer<String, RuntimeException> onError,
+                                     boolean lazy) {
         try {
             DayOfWeek start = DayOfWeek.valueOf(startDay.toUpperCase());
             DayOfWeek end = DayOfWeek.valueOf(endDay.toUpperCase());
-            OpeningHoursForDay hours = parseOpeningHoursValue(value);
+            LazyDayMap.Slot hours = slot(parser, value, key, onError, lazy);
             
             DayOfWeek current = start;
             while (true) {
-                openingHours.put(current, hours);
+                days.put(current, hours);
                 if (current == end) break;
                 current = current.plus(1);
             }
         } catch (IllegalArgumentException e) {
             // Invalid day names, skip
+            report(onError, key, e);
         }
     }
     
     private static void parseDateRangeException(String startDate, String endDate, Object value,
-                                                Map<String, OpeningHoursForDay> exceptions) {
+                                                Map<String, LazyDayMap.Slot> exceptions,
+                                                Function<Object, OpeningHoursForDay> parser,
+                                                String rangeKey, BiConsumer<String, RuntimeException> onError,
+                                                boolean lazy) {
         try {
-            java.time.LocalDate start;
-            java.time.LocalDate end;
-            boolean isRecurring = false;
-            
-            // Check if it's a recurring range (MM-dd format)
-            if (startDate.length() == 5 && startDate.charAt(2) == '-') {
-                isRecurring = true;
-                // Parse as MM-dd, use current year or a reference year
-                start = java.time.LocalDate.parse("2000-" + startDate);
-                end = java.time.LocalDate.parse("2000-" + endDate);
-            } else {
-                // Parse as full date
-                start = java.time.LocalDate.parse(startDate);
-                end = java.time.LocalDate.parse(endDate);
+            // Check if it's a recurring range (MM-dd format), placed in a leap year
+            boolean isRecurring = ExceptionIndex.isRecurringKey(startDate);
+            if (ExceptionIndex.isRecurringKey(endDate) != isRecurring) {
+                throw new IllegalArgumentException("Range mixes recurring and full dates: " + rangeKey);
             }
+            java.time.LocalDate start = ExceptionIndex.parseKey(startDate, 2000);
+            java.time.LocalDate end = ExceptionIndex.parseKey(endDate, 2000);
             
-            OpeningHoursForDay hours = parseOpeningHoursValue(value);
+            LazyDayMap.Slot hours = slot(parser, value, rangeKey, onError, lazy);
             
             // Add all dates in range
             java.time.LocalDate current = start;
@@ -194,8 +615,9 @@ public class OpeningHours {
                 exceptions.put(key, hours);
                 current = current.plusDays(1);
             }
-        } catch (Exception e) {
+        } catch (RuntimeException e) {
             // Invalid date format, skip
+            report(onError, rangeKey, e);
         }
     }
     
@@ -263,6 +685,11 @@ public class OpeningHours {
                 return new OpeningHoursForDay(new ArrayList<>(), data);
             }
             
+            if (hours instanceof OpeningHoursForDay) {
+                // Already resolved, e.g. by the filter of a set operation result
+                return (OpeningHoursForDay) hours;
+            }
+            
             if (hours instanceof List) {
                 List<String> timeRanges = new ArrayList<>();
                 for (Object item : (List<?>) hours) {
@@ -292,6 +719,100 @@ public class OpeningHours {
         return create(data, this.timezone, this.outputTimezone);
     }
     
+    /**
+     * Create a schedule layered on top of this one, storing only its overrides
+     * 
+     * The data has the same format as {@link #create(Map)}. Within each kind of rule
+     * the overlay wins: its filters run before the parent's, its exceptions and
+     * holidays replace the parent's on the same dates, and the weekdays it lists
+     * replace the parent's hours while the other weekdays are inherited. Parent
+     * rules are shared rather than copied, so memory grows with the overrides and
+     * not with the number of schedules. Timezones and overflow are inherited, and
+     * so are metrics unless the overlay has its own.
+     * 
+     * @param data the overrides
+     * @return a new OpeningHours instance
+     * @throws IllegalArgumentException if the data sets a different overflow mode than this schedule
+     */
+    public OpeningHours overlay(Map<String, Object> data) {
+        if (data.containsKey("overflow") && !Boolean.valueOf(overflow).equals(data.get("overflow"))) {
+            throw new IllegalArgumentException("Overlays inherit overflow from their parent");
+        }
+        return build(data, timezone, outputTimezone, null, null, false, this);
+    }
+    
+    /**
+     * Get the schedule this one was layered on
+     * 
+     * @return the parent, or empty if this schedule is not an overlay
+     */
+    public Optional<OpeningHours> parent() {
+        return overlay == null ? Optional.empty() : Optional.of(overlay.parent);
+    }
+    
+    /**
+     * Layer the overrides of this overlay on top of another parent
+     * Schedules are immutable, so this is how children pick up a changed parent;
+     * the overrides are reused without parsing them again
+     * 
+     * @param parent the new parent
+     * @return a new OpeningHours instance
+     * @throws IllegalStateException if this schedule is not an overlay
+     * @throws IllegalArgumentException if the new parent has a different overflow mode
+     */
+    public OpeningHours withParent(OpeningHours parent) {
+        if (overlay == null) {
+            throw new IllegalStateException("Not an overlay");
+        }
+        if (parent.overflow != overflow) {
+            throw new IllegalArgumentException("Overlays inherit overflow from their parent");
+        }
+        return overlay.withParent(parent).apply();
+    }
+    
+    /**
+     * Own rules of an overlay, kept to rebuild it on top of another parent
+     */
+    private static final class Overlay {
+        final OpeningHours parent;
+        final Map<DayOfWeek, OpeningHoursForDay> days;
+        final Map<String, OpeningHoursForDay> exceptions;
+        final List<Function<LocalDate, Map<String, Object>>> filters;
+        final HolidayLayer holidays;
+        final Metrics metrics;
+        final int calendarYears;
+        
+        Overlay(OpeningHours parent, Map<DayOfWeek, OpeningHoursForDay> days,
+                Map<String, OpeningHoursForDay> exceptions, List<Function<LocalDate, Map<String, Object>>> filters,
+                HolidayLayer holidays, Metrics metrics, int calendarYears) {
+            this.parent = parent;
+            this.days = days;
+            this.exceptions = exceptions;
+            this.filters = filters;
+            this.holidays = holidays;
+            this.metrics = metrics;
+            this.calendarYears = calendarYears;
+        }
+        
+        Overlay withParent(OpeningHours newParent) {
+            return new Overlay(newParent, days, exceptions, filters, holidays, metrics, calendarYears);
+        }
+        
+        OpeningHours apply() {
+            Map<DayOfWeek, OpeningHoursForDay> week = new EnumMap<>(DayOfWeek.class);
+            week.putAll(parent.openingHours);
+            week.putAll(days);
+            Map<String, OpeningHoursForDay> layeredExceptions = exceptions.isEmpty()
+                ? parent.exceptions : new LayeredMap<>(exceptions, parent.exceptions);
+            List<Function<LocalDate, Map<String, Object>>> layeredFilters = new ArrayList<>(filters);
+            layeredFilters.addAll(parent.filters);
+            HolidayLayer layeredHolidays = holidays == null ? parent.holidays : holidays.over(parent.holidays);
+            return new OpeningHours(week, layeredExceptions, parent.recurringByWeekday, layeredFilters, layeredHolidays,
+                                    parent.timezone, parent.outputTimezone, parent.overflow,
+                                    metrics != null ? metrics : parent.metrics, calendarYears, this);
+        }
+    }
+    
     /**
      * Check if open on a specific day name or date string
      * Supports day names (e.g., "monday") and date strings (e.g., "2020-09-03", "09-03")
@@ -308,16 +829,10 @@ public class OpeningHours {
         } catch (IllegalArgumentException e) {
             // Try parsing as date
             try {
-                java.time.LocalDate date;
-                if (day.length() == 5 && day.charAt(2) == '-') {
-                    // MM-dd format, use current year
-                    date = java.time.LocalDate.parse(java.time.Year.now() + "-" + day);
-                } else {
-                    // Full date format
-                    date = java.time.LocalDate.parse(day);
-                }
+                // MM-dd format uses the current year
+                java.time.LocalDate date = ExceptionIndex.parseKey(day, java.time.Year.now().getValue());
                 
-                OpeningHoursForDay hours = forDate(date.atStartOfDay());
+                OpeningHoursForDay hours = forEpochDay(date.toEpochDay());
                 return hours != null && !hours.isEmpty();
             } catch (Exception ex) {
                 return false;
@@ -342,8 +857,17 @@ public class OpeningHours {
      * @return true if open at that date/time
      */
     public boolean isOpenAt(LocalDateTime dateTime) {
-        OpeningHoursForDay day = forDate(dateTime);
-        return day.isOpenAt(dateTime.toLocalTime());
+        long startNanos = startTimer();
+        boolean open;
+        if (overflow) {
+            // Own ranges and the spill of the previous day in a single interval lookup
+            long epochDay = dateTime.toLocalDate().toEpochDay();
+            open = Intervals.contains(intervalsFor(epochDay), dateTime.toLocalTime().toSecondOfDay());
+        } else {
+            open = forEpochDay(dateTime.toLocalDate().toEpochDay()).isOpenAt(dateTime.toLocalTime());
+        }
+        stopTimer(Metrics.IS_OPEN_AT, startNanos);
+        return open;
     }
     
     /**
@@ -356,6 +880,15 @@ public class OpeningHours {
         return !isOpenAt(dateTime);
     }
     
+    /**
+     * Gets the timezone the schedule's local times are in
+     * 
+     * @return the timezone, or null if the schedule uses the system default
+     */
+    public ZoneId getTimezone() {
+        return timezone;
+    }
+    
     /**
      * Check if open right now
      * 
@@ -381,7 +914,7 @@ public class OpeningHours {
      */
     public boolean isAlwaysOpen() {
         // Must have no exceptions and no filters
-        if (!exceptions.isEmpty() || !filters.isEmpty()) {
+        if (!exceptions.isEmpty() || !recurringByWeekday.isEmpty() || !filters.isEmpty() || holidays != null) {
             return false;
         }
         
@@ -419,7 +952,7 @@ public class OpeningHours {
      */
     public boolean isAlwaysClosed() {
         // Must have no exceptions and no filters
-        if (!exceptions.isEmpty() || !filters.isEmpty()) {
+        if (!exceptions.isEmpty() || !recurringByWeekday.isEmpty() || !filters.isEmpty() || holidays != null) {
             return false;
         }
         
@@ -453,158 +986,320 @@ public class OpeningHours {
      * @return the opening hours for that date
      */
     public OpeningHoursForDay forDate(LocalDateTime dateTime) {
-        LocalDate date = dateTime.toLocalDate();
-        
-        // Check filters first
-        for (Function<LocalDate, Map<String, Object>> filter : filters) {
-            Map<String, Object> result = filter.apply(date);
-            if (result != null) {
-                // TODO: Parse result into OpeningHoursForDay
-            }
-        }
-        
-        // Check exceptions
-        String dateKey = date.format(DateTimeFormatter.ISO_LOCAL_DATE);
-        if (exceptions.containsKey(dateKey)) {
-            return exceptions.get(dateKey);
+        long startNanos = startTimer();
+        OpeningHoursForDay day = forEpochDay(dateTime.toLocalDate().toEpochDay());
+        stopTimer(Metrics.FOR_DATE, startNanos);
+        return day;
+    }
+    
+    /**
+     * Get opening hours for a date given as an epoch day, like {@link #forDate}
+     * 
+     * No date object is created unless the schedule has filters, which take a LocalDate.
+     * 
+     * @param epochDay the date as a number of days since 1970-01-01
+     * @return the opening hours for that date
+     */
+    OpeningHoursForDay forEpochDay(long epochDay) {
+        if (calendar != null) {
+            metrics.recordCacheAccess(Metrics.CALENDAR_CACHE, calendar.contains(epochDay));
+            return calendar.get(epochDay);
         }
-        
-        // Check recurring exceptions (MM-dd format)
-        String recurringKey = date.format(DateTimeFormatter.ofPattern("MM-dd"));
-        if (exceptions.containsKey(recurringKey)) {
-            return exceptions.get(recurringKey);
+        if (!filters.isEmpty()) {
+            return resolveDate(LocalDate.ofEpochDay(epochDay), true);
         }
-        
-        // Return regular schedule
-        return openingHours.get(date.getDayOfWeek());
+        return resolveDay(epochDay, true);
     }
     
     /**
-     * Get opening hours for the whole week
+     * Resolve the opening hours of a date from filters, exceptions, holidays and the weekly pattern
      * 
-     * @return a map of day names to opening hours, containing all 7 days
+     * @param date the date
+     * @return the opening hours for that date
      */
-    public Map<String, OpeningHoursForDay> forWeek() {
-        Map<String, OpeningHoursForDay> week = new LinkedHashMap<>();
-        for (DayOfWeek day : DayOfWeek.values()) {
-            week.put(day.name().toLowerCase(), openingHours.get(day));
+    private OpeningHoursForDay resolveDate(LocalDate date, boolean record) {
+        // Check filters first, the first one returning a value wins
+        for (int i = 0; i < filters.size(); i++) {
+            Map<String, Object> result = filters.get(i).apply(date);
+            if (result != null) {
+                return parseOpeningHoursValue(result);
+            }
         }
-        return week;
+        return resolveDay(date.toEpochDay(), record);
     }
     
     /**
-     * Get combined opening hours (days with same hours grouped)
+     * Resolve the opening hours of a date from exceptions, holidays and the weekly pattern
      * 
-     * @return a map with first day as key, containing days list and hours
+     * @param epochDay the date as a number of days since 1970-01-01
+     * @return the opening hours for that date
      */
-    public Map<String, Object> forWeekCombined() {
-        Map<String, Object> combined = new LinkedHashMap<>();
-        Map<String, List<String>> groups = new HashMap<>();
-        
-        // Group days by their opening hours
-        for (DayOfWeek day : DayOfWeek.values()) {
-            String dayName = day.name().toLowerCase();
-            OpeningHoursForDay hours = openingHours.get(day);
-            String hoursKey = hours.toString(); // Use string representation as key
-            
-            groups.computeIfAbsent(hoursKey, k -> new ArrayList<>()).add(dayName);
-        }
-        
-        // Create result with first day as key
-        for (Map.Entry<String, List<String>> entry : groups.entrySet()) {
-            List<String> days = entry.getValue();
-            if (!days.isEmpty()) {
-                String firstDay = days.get(0);
-                Map<String, Object> value = new HashMap<>();
-                value.put("days", days);
-                value.put("hours", openingHours.get(DayOfWeek.valueOf(firstDay.toUpperCase())));
-                combined.put(firstDay, value);
+    private OpeningHoursForDay resolveDay(long epochDay, boolean record) {
+        // Days missing from the exception index follow the weekly pattern, no key needs to be looked up
+        if (exceptionIndex.contains(epochDay)) {
+            // Check exceptions and holidays, an overlay's own rules before its parent's
+            OpeningHoursForDay hours = ruleFor(epochDay);
+            if (hours != null) {
+                if (record) {
+                    metrics.recordExceptionLookup(true);
+                }
+                return hours;
             }
         }
         
-        return combined;
+        // Return regular schedule
+        if (record) {
+            metrics.recordExceptionLookup(false);
+        }
+        return openingHours.get(DayOfWeek.of(WeeklyOpenTime.dayOfWeek(epochDay) + 1));
     }
     
     /**
-     * Get consecutive days with same opening hours
+     * Find the hours an exception or a holiday sets for a date
      * 
-     * @return a map with first day as key, containing consecutive days list and hours
+     * Dated exceptions win over recurring ones, and explicit exceptions over holidays.
+     * An overlay goes through its own rules first and asks its parent only if none of
+     * them matches, so its recurring exceptions and holidays also beat the parent's
+     * dated exceptions.
+     * 
+     * @param epochDay the date as a number of days since 1970-01-01
+     * @return the hours, or null if the date follows the weekly pattern
      */
-    public Map<String, Object> forWeekConsecutiveDays() {
-        Map<String, Object> consecutive = new LinkedHashMap<>();
-        
-        List<DayOfWeek> days = Arrays.asList(DayOfWeek.values());
-        int i = 0;
-        
-        while (i < days.size()) {
-            DayOfWeek startDay = days.get(i);
-            OpeningHoursForDay startHours = openingHours.get(startDay);
-            List<String> group = new ArrayList<>();
-            group.add(startDay.name().toLowerCase());
-            
-            // Find consecutive days with same hours
-            int j = i + 1;
-            while (j < days.size()) {
-                DayOfWeek nextDay = days.get(j);
-                OpeningHoursForDay nextHours = openingHours.get(nextDay);
-                
-                if (startHours.toString().equals(nextHours.toString())) {
-                    group.add(nextDay.name().toLowerCase());
-                    j++;
-                } else {
-                    break;
+    private OpeningHoursForDay ruleFor(long epochDay) {
+        HolidayLayer ownHolidays = overlay != null ? overlay.holidays : holidays;
+        OpeningHoursForDay hours = null;
+        if (ownHolidays != null && ownHolidays.isCombined()) {
+            // Holidays of a set operation result are resolved from both operands, exceptions included,
+            // while its recurring exceptions were combined without the operands' holidays
+            hours = ownHolidays.forDay(epochDay);
+        }
+        Map<String, OpeningHoursForDay> ownExceptions = overlay != null ? overlay.exceptions : exceptions;
+        String dateKey = hours == null ? exceptionKeys.datedKey(epochDay) : null;
+        if (dateKey != null) {
+            hours = ownExceptions.get(dateKey);
+        }
+        String recurringKey = hours == null ? exceptionKeys.recurringKey(epochDay) : null;
+        if (recurringKey != null) {
+            hours = ownExceptions.get(recurringKey);
+            if (hours == null && overlay == null) {
+                // Recurring exceptions whose hours depend on the day of week (from set operations)
+                OpeningHoursForDay[] byWeekday = recurringByWeekday.get(recurringKey);
+                if (byWeekday != null) {
+                    hours = byWeekday[WeeklyOpenTime.dayOfWeek(epochDay)];
                 }
             }
-            
-            Map<String, Object> value = new HashMap<>();
-            value.put("days", group);
-            value.put("hours", startHours);
-            consecutive.put(startDay.name().toLowerCase(), value);
-            
-            i = j;
         }
-        
-        return consecutive;
+        if (hours == null && ownHolidays != null && !ownHolidays.isCombined()) {
+            hours = ownHolidays.forDay(epochDay);
+        }
+        if (hours == null && overlay != null) {
+            hours = overlay.parent.ruleFor(epochDay);
+        }
+        return hours;
     }
     
     /**
-     * Get all exceptions
+     * Get the normalized open intervals of a date
      * 
-     * @return a map of date strings to opening hours for exceptions
+     * @param epochDay the date as a number of days since 1970-01-01
+     * @return the [start, end) second-of-day pairs, must not be modified
      */
-    public Map<String, OpeningHoursForDay> exceptions() {
-        return new HashMap<>(exceptions);
+    int[] intervalsFor(long epochDay) {
+        if (!overflow) {
+            if (!exceptionIndex.contains(epochDay)) {
+                return weekdayIntervals()[WeeklyOpenTime.dayOfWeek(epochDay)];
+            }
+            return forEpochDay(epochDay).intervals();
+        }
+        if (!exceptionIndex.contains(epochDay)) {
+            // Neither this day nor the previous one is an exception
+            return weekdayIntervals()[WeeklyOpenTime.dayOfWeek(epochDay)];
+        }
+        int[] spill = forEpochDay(epochDay - 1).spill();
+        int[] own = forEpochDay(epochDay).sameDayIntervals();
+        // Most previous days don't spill, so no union needs to be allocated
+        return spill.length == 0 ? own : Intervals.union(own, spill);
     }
     
     /**
-     * Get next open date/time from the given date/time
+     * Check if overnight ranges overflow into the next day
      * 
-     * @param dateTime the starting date/time (null for now)
-     * @return the next open date/time
+     * @return true if the "overflow" option is set
      */
-    public LocalDateTime nextOpen(LocalDateTime dateTime) {
-        return nextOpen(dateTime, null, null);
+    boolean overflows() {
+        return overflow;
     }
     
     /**
-     * Get next open date/time with search limits
+     * Get the index of the days that may deviate from the weekly pattern
      * 
-     * @param dateTime the starting date/time (null for now)
-     * @param searchUntil throw exception if not found before this time
-     * @param cap return this time if not found before it
-     * @return the next open date/time
+     * @return the exception index, overlays and holidays included
      */
-    public LocalDateTime nextOpen(LocalDateTime dateTime, LocalDateTime searchUntil, LocalDateTime cap) {
-        if (dateTime == null) {
-            dateTime = LocalDateTime.now(timezone != null ? timezone : ZoneId.systemDefault());
+    ExceptionIndex exceptionIndex() {
+        return exceptionIndex;
+    }
+    
+    /**
+     * Get the schedule of the day before a date, used to find the ranges overflowing into it
+     * 
+     * @param date the date
+     * @return the opening hours of the previous day
+     */
+    private OpeningHoursForDay previousDay(LocalDate date) {
+        long previous = date.toEpochDay() - 1;
+        if (exceptionIndex.nextExceptionDay(previous) != previous) {
+            return openingHours.get(date.getDayOfWeek().minus(1));
+        }
+        return forEpochDay(previous);
+    }
+    
+    /**
+     * Get opening hours for the whole week
+     * 
+     * @return an unmodifiable map of day names to opening hours, containing all 7 days
+     */
+    public Map<String, OpeningHoursForDay> forWeek() {
+        Map<String, OpeningHoursForDay> week = new LinkedHashMap<>();
+        for (DayOfWeek day : DayOfWeek.values()) {
+            week.put(DAY_NAMES[day.ordinal()], openingHours.get(day));
+        }
+        return Collections.unmodifiableMap(week);
+    }
+    
+    /**
+     * Get combined opening hours (days with same hours grouped)
+     * Computed once per instance, the returned map is unmodifiable
+     * 
+     * @return a map with first day as key, containing days list and hours
+     */
+    public Map<String, Object> forWeekCombined() {
+        Map<String, Object> combined = weekCombined;
+        if (combined == null) {
+            combined = computeWeekCombined();
+            weekCombined = combined;
+        }
+        return combined;
+    }
+    
+    private Map<String, Object> computeWeekCombined() {
+        // Group days by their opening hours, compared by structural fingerprint
+        Map<OpeningHoursForDay, List<String>> groups = new LinkedHashMap<>();
+        for (DayOfWeek day : DayOfWeek.values()) {
+            groups.computeIfAbsent(openingHours.get(day), k -> new ArrayList<>()).add(DAY_NAMES[day.ordinal()]);
+        }
+        
+        // Create result with first day as key
+        Map<String, Object> combined = new LinkedHashMap<>();
+        for (Map.Entry<OpeningHoursForDay, List<String>> entry : groups.entrySet()) {
+            List<String> days = entry.getValue();
+            combined.put(days.get(0), weekGroup(days, entry.getKey()));
+        }
+        return Collections.unmodifiableMap(combined);
+    }
+    
+    /**
+     * Get consecutive days with same opening hours
+     * Computed once per instance, the returned map is unmodifiable
+     * 
+     * @return a map with first day as key, containing consecutive days list and hours
+     */
+    public Map<String, Object> forWeekConsecutiveDays() {
+        Map<String, Object> consecutive = weekConsecutiveDays;
+        if (consecutive == null) {
+            consecutive = computeWeekConsecutiveDays();
+            weekConsecutiveDays = consecutive;
+        }
+        return consecutive;
+    }
+    
+    private Map<String, Object> computeWeekConsecutiveDays() {
+        Map<String, Object> consecutive = new LinkedHashMap<>();
+        DayOfWeek[] days = DayOfWeek.values();
+        int i = 0;
+        
+        while (i < days.length) {
+            OpeningHoursForDay startHours = openingHours.get(days[i]);
+            List<String> group = new ArrayList<>();
+            group.add(DAY_NAMES[i]);
+            
+            // Find consecutive days with same hours
+            int j = i + 1;
+            while (j < days.length && startHours.equals(openingHours.get(days[j]))) {
+                group.add(DAY_NAMES[j]);
+                j++;
+            }
+            
+            consecutive.put(DAY_NAMES[i], weekGroup(group, startHours));
+            i = j;
+        }
+        
+        return Collections.unmodifiableMap(consecutive);
+    }
+    
+    private static Map<String, Object> weekGroup(List<String> days, OpeningHoursForDay hours) {
+        Map<String, Object> value = new LinkedHashMap<>();
+        value.put("days", Collections.unmodifiableList(days));
+        value.put("hours", hours);
+        return Collections.unmodifiableMap(value);
+    }
+    
+    /**
+     * Get all exceptions
+     * 
+     * @return an unmodifiable map of date strings to opening hours for exceptions
+     */
+    public Map<String, OpeningHoursForDay> exceptions() {
+        return exceptions;
+    }
+    
+    /**
+     * Get next open date/time from the given date/time
+     * 
+     * @param dateTime the starting date/time (null for now)
+     * @return the next open date/time
+     */
+    public LocalDateTime nextOpen(LocalDateTime dateTime) {
+        return nextOpen(dateTime, null, null);
+    }
+    
+    /**
+     * Get next open date/time with search limits
+     * 
+     * @param dateTime the starting date/time (null for now)
+     * @param searchUntil throw exception if not found before this time
+     * @param cap return this time if not found before it
+     * @return the next open date/time
+     */
+    public LocalDateTime nextOpen(LocalDateTime dateTime, LocalDateTime searchUntil, LocalDateTime cap) {
+        long startNanos = startTimer();
+        try {
+            return findNextOpen(dateTime, searchUntil, cap);
+        } finally {
+            stopTimer(Metrics.NEXT_OPEN, startNanos);
+        }
+    }
+    
+    private LocalDateTime findNextOpen(LocalDateTime dateTime, LocalDateTime searchUntil, LocalDateTime cap) {
+        if (dateTime == null) {
+            dateTime = LocalDateTime.now(timezone != null ? timezone : ZoneId.systemDefault());
+        }
+        if (overflow) {
+            return findOverflowTransition(Metrics.NEXT_OPEN, dateTime, true, true, searchUntil, cap);
+        }
+        
+        // Across regular days the next start is a lookup in the weekly table
+        long startDay = dateTime.toLocalDate().toEpochDay();
+        long found = weeklyTransitions().nextOpening(TransitionCursor.toEpochSecond(dateTime.withNano(0)));
+        if (regularUntil(startDay, found)) {
+            return found(Metrics.NEXT_OPEN, "No open time", startDay, TransitionCursor.toDateTime(found),
+                         searchUntil, cap);
         }
         
         LocalDateTime current = dateTime;
         int daysSearched = 0;
-        final int MAX_DAYS = 366;
         
-        while (daysSearched < MAX_DAYS) {
-            OpeningHoursForDay day = forDate(current);
+        while (daysSearched < MAX_SEARCH_DAYS) {
+            OpeningHoursForDay day = forEpochDay(current.toLocalDate().toEpochDay());
             LocalTime currentTime = current.toLocalTime();
             
             // Find next opening time that starts AFTER current time
@@ -615,8 +1310,9 @@ public class OpeningHours {
                 // This ensures we get the NEXT opening, not the current one
                 if (startTime.isAfter(currentTime)) {
                     LocalDateTime result = current.toLocalDate().atTime(startTime);
+                    metrics.recordSearchIterations(Metrics.NEXT_OPEN, daysSearched + 1);
                     if (searchUntil != null && result.isAfter(searchUntil)) {
-                        throw new io.github.wuwx.openinghours.exceptions.MaximumLimitExceeded(
+                        throw limitExceeded(Metrics.NEXT_OPEN,
                             "No open time found before " + searchUntil);
                     }
                     if (cap != null && result.isAfter(cap)) {
@@ -631,15 +1327,16 @@ public class OpeningHours {
             daysSearched++;
         }
         
+        metrics.recordSearchIterations(Metrics.NEXT_OPEN, daysSearched);
         if (searchUntil != null) {
-            throw new io.github.wuwx.openinghours.exceptions.MaximumLimitExceeded(
+            throw limitExceeded(Metrics.NEXT_OPEN,
                 "No open time found before " + searchUntil);
         }
         if (cap != null) {
             return cap;
         }
-        throw new io.github.wuwx.openinghours.exceptions.MaximumLimitExceeded(
-            "No open time found within " + MAX_DAYS + " days");
+        throw limitExceeded(Metrics.NEXT_OPEN,
+            "No open time found within " + MAX_SEARCH_DAYS + " days");
     }
     
     /**
@@ -661,63 +1358,52 @@ public class OpeningHours {
      * @return the next close date/time
      */
     public LocalDateTime nextClose(LocalDateTime dateTime, LocalDateTime searchUntil, LocalDateTime cap) {
+        long startNanos = startTimer();
+        try {
+            return findNextClose(dateTime, searchUntil, cap);
+        } finally {
+            stopTimer(Metrics.NEXT_CLOSE, startNanos);
+        }
+    }
+    
+    private LocalDateTime findNextClose(LocalDateTime dateTime, LocalDateTime searchUntil, LocalDateTime cap) {
         if (dateTime == null) {
             dateTime = LocalDateTime.now(timezone != null ? timezone : ZoneId.systemDefault());
         }
+        if (overflow) {
+            return findOverflowTransition(Metrics.NEXT_CLOSE, dateTime, true, false, searchUntil, cap);
+        }
+        
+        // A regular day is searched through its ranges, the regular days after it are a lookup
+        long startDay = dateTime.toLocalDate().toEpochDay();
+        if (exceptionIndex.nextExceptionDay(startDay) > startDay) {
+            LocalDateTime result = closeOnDay(openingHours.get(dateTime.getDayOfWeek()), dateTime, false);
+            if (result != null) {
+                return found(Metrics.NEXT_CLOSE, "No close time", startDay, result, searchUntil, cap);
+            }
+            long found = weeklyTransitions().nextClosing((startDay + 1) * Intervals.SECONDS_PER_DAY - 1);
+            if (regularUntil(startDay, found)) {
+                return found(Metrics.NEXT_CLOSE, "No close time", startDay, TransitionCursor.toDateTime(found),
+                             searchUntil, cap);
+            }
+        }
         
         LocalDateTime current = dateTime;
         int daysSearched = 0;
-        final int MAX_DAYS = 366;
         
-        while (daysSearched < MAX_DAYS) {
-            OpeningHoursForDay day = forDate(current);
-            LocalTime currentTime = current.toLocalTime();
-            
-            // If currently in an open range, return the end of that range
-            for (TimeRange range : day.getTimeRanges()) {
-                if (range.containsTime(currentTime)) {
-                    LocalTime endTime = range.end().toLocalTime();
-                    LocalDateTime result = current.toLocalDate().atTime(endTime);
-                    
-                    // Handle overnight ranges
-                    if (endTime.isBefore(range.start().toLocalTime()) || endTime.equals(LocalTime.MAX)) {
-                        result = result.plusDays(1);
-                    }
-                    
-                    if (searchUntil != null && result.isAfter(searchUntil)) {
-                        throw new io.github.wuwx.openinghours.exceptions.MaximumLimitExceeded(
-                            "No close time found before " + searchUntil);
-                    }
-                    if (cap != null && result.isAfter(cap)) {
-                        return cap;
-                    }
-                    return result;
+        while (daysSearched < MAX_SEARCH_DAYS) {
+            OpeningHoursForDay day = forEpochDay(current.toLocalDate().toEpochDay());
+            LocalDateTime result = closeOnDay(day, current, daysSearched > 0);
+            if (result != null) {
+                metrics.recordSearchIterations(Metrics.NEXT_CLOSE, daysSearched + 1);
+                if (searchUntil != null && result.isAfter(searchUntil)) {
+                    throw limitExceeded(Metrics.NEXT_CLOSE,
+                        "No close time found before " + searchUntil);
                 }
-            }
-            
-            // Currently closed - find the end of next open range on this or future days
-            for (TimeRange range : day.getTimeRanges()) {
-                LocalTime startTime = range.start().toLocalTime();
-                LocalTime endTime = range.end().toLocalTime();
-                
-                // If this range starts after or at current time (for future days, startTime can be <= currentTime)
-                if (startTime.isAfter(currentTime) || current.toLocalDate().isAfter(dateTime.toLocalDate())) {
-                    LocalDateTime result = current.toLocalDate().atTime(endTime);
-                    
-                    // Handle overnight ranges
-                    if (endTime.isBefore(startTime) || endTime.equals(LocalTime.MAX)) {
-                        result = result.plusDays(1);
-                    }
-                    
-                    if (searchUntil != null && result.isAfter(searchUntil)) {
-                        throw new io.github.wuwx.openinghours.exceptions.MaximumLimitExceeded(
-                            "No close time found before " + searchUntil);
-                    }
-                    if (cap != null && result.isAfter(cap)) {
-                        return cap;
-                    }
-                    return result;
+                if (cap != null && result.isAfter(cap)) {
+                    return cap;
                 }
+                return result;
             }
             
             // Move to next day at midnight
@@ -725,15 +1411,79 @@ public class OpeningHours {
             daysSearched++;
         }
         
+        metrics.recordSearchIterations(Metrics.NEXT_CLOSE, daysSearched);
         if (searchUntil != null) {
-            throw new io.github.wuwx.openinghours.exceptions.MaximumLimitExceeded(
+            throw limitExceeded(Metrics.NEXT_CLOSE,
                 "No close time found before " + searchUntil);
         }
         if (cap != null) {
             return cap;
         }
-        throw new io.github.wuwx.openinghours.exceptions.MaximumLimitExceeded(
-            "No close time found within " + MAX_DAYS + " days");
+        throw limitExceeded(Metrics.NEXT_CLOSE,
+            "No close time found within " + MAX_SEARCH_DAYS + " days");
+    }
+    
+    /**
+     * Finds the close of a day without overflow
+     * 
+     * @param day the opening hours of the day
+     * @param current the time searched from, midnight on the days after the first one
+     * @param laterDay true if the day comes after the one searched from
+     * @return the end of the range holding the time, or else of the first range starting after it, null if none
+     */
+    private static LocalDateTime closeOnDay(OpeningHoursForDay day, LocalDateTime current, boolean laterDay) {
+        LocalTime currentTime = current.toLocalTime();
+        
+        List<TimeRange> ranges = day.getTimeRanges();
+        
+        // If currently in an open range, return the end of that range
+        for (int i = 0; i < ranges.size(); i++) {
+            if (ranges.get(i).containsTime(currentTime)) {
+                return endOfRange(ranges.get(i), current);
+            }
+        }
+        
+        // Currently closed - find the end of the next open range (on later days, any range)
+        for (int i = 0; i < ranges.size(); i++) {
+            if (ranges.get(i).start().toLocalTime().isAfter(currentTime) || laterDay) {
+                return endOfRange(ranges.get(i), current);
+            }
+        }
+        return null;
+    }
+    
+    private static LocalDateTime endOfRange(TimeRange range, LocalDateTime current) {
+        LocalTime endTime = range.end().toLocalTime();
+        LocalDateTime result = current.toLocalDate().atTime(endTime);
+        
+        // Handle overnight ranges
+        if (endTime.isBefore(range.start().toLocalTime()) || endTime.equals(LocalTime.MAX)) {
+            result = result.plusDays(1);
+        }
+        return result;
+    }
+    
+    /**
+     * Applies the search limits to a time found without the day by day search
+     * 
+     * @param operation the metrics operation name
+     * @param what the start of the limit message
+     * @param startDay the day searched from
+     * @param result the time found
+     * @param searchUntil throw exception if found after this time
+     * @param cap return this time if found after it
+     * @return the time found, or the cap
+     */
+    private LocalDateTime found(String operation, String what, long startDay, LocalDateTime result,
+                                LocalDateTime searchUntil, LocalDateTime cap) {
+        metrics.recordSearchIterations(operation, (int) (result.toLocalDate().toEpochDay() - startDay) + 1);
+        if (searchUntil != null && result.isAfter(searchUntil)) {
+            throw limitExceeded(operation, what + " found before " + searchUntil);
+        }
+        if (cap != null && result.isAfter(cap)) {
+            return cap;
+        }
+        return result;
     }
     
     /**
@@ -755,16 +1505,27 @@ public class OpeningHours {
      * @return the previous open date/time
      */
     public LocalDateTime previousOpen(LocalDateTime dateTime, LocalDateTime searchUntil, LocalDateTime cap) {
+        long startNanos = startTimer();
+        try {
+            return findPreviousOpen(dateTime, searchUntil, cap);
+        } finally {
+            stopTimer(Metrics.PREVIOUS_OPEN, startNanos);
+        }
+    }
+    
+    private LocalDateTime findPreviousOpen(LocalDateTime dateTime, LocalDateTime searchUntil, LocalDateTime cap) {
         if (dateTime == null) {
             dateTime = LocalDateTime.now(timezone != null ? timezone : ZoneId.systemDefault());
         }
+        if (overflow) {
+            return findOverflowTransition(Metrics.PREVIOUS_OPEN, dateTime, false, true, searchUntil, cap);
+        }
         
         LocalDateTime current = dateTime;
         int daysSearched = 0;
-        final int MAX_DAYS = 366;
         
-        while (daysSearched < MAX_DAYS) {
-            OpeningHoursForDay day = forDate(current);
+        while (daysSearched < MAX_SEARCH_DAYS) {
+            OpeningHoursForDay day = forEpochDay(current.toLocalDate().toEpochDay());
             LocalTime currentTime = current.toLocalTime();
             
             // Look for opening time on this day (in reverse)
@@ -777,8 +1538,9 @@ public class OpeningHours {
                 if (currentTime.isAfter(startTime)) {
                     LocalDateTime result = current.toLocalDate().atTime(startTime);
                     
+                    metrics.recordSearchIterations(Metrics.PREVIOUS_OPEN, daysSearched + 1);
                     if (searchUntil != null && result.isBefore(searchUntil)) {
-                        throw new io.github.wuwx.openinghours.exceptions.MaximumLimitExceeded(
+                        throw limitExceeded(Metrics.PREVIOUS_OPEN,
                             "No open time found after " + searchUntil);
                     }
                     if (cap != null && result.isBefore(cap)) {
@@ -793,15 +1555,16 @@ public class OpeningHours {
             daysSearched++;
         }
         
+        metrics.recordSearchIterations(Metrics.PREVIOUS_OPEN, daysSearched);
         if (searchUntil != null) {
-            throw new io.github.wuwx.openinghours.exceptions.MaximumLimitExceeded(
+            throw limitExceeded(Metrics.PREVIOUS_OPEN,
                 "No open time found after " + searchUntil);
         }
         if (cap != null) {
             return cap;
         }
-        throw new io.github.wuwx.openinghours.exceptions.MaximumLimitExceeded(
-            "No open time found within " + MAX_DAYS + " days");
+        throw limitExceeded(Metrics.PREVIOUS_OPEN,
+            "No open time found within " + MAX_SEARCH_DAYS + " days");
     }
     
     /**
@@ -823,16 +1586,27 @@ public class OpeningHours {
      * @return the previous close date/time
      */
     public LocalDateTime previousClose(LocalDateTime dateTime, LocalDateTime searchUntil, LocalDateTime cap) {
+        long startNanos = startTimer();
+        try {
+            return findPreviousClose(dateTime, searchUntil, cap);
+        } finally {
+            stopTimer(Metrics.PREVIOUS_CLOSE, startNanos);
+        }
+    }
+    
+    private LocalDateTime findPreviousClose(LocalDateTime dateTime, LocalDateTime searchUntil, LocalDateTime cap) {
         if (dateTime == null) {
             dateTime = LocalDateTime.now(timezone != null ? timezone : ZoneId.systemDefault());
         }
+        if (overflow) {
+            return findOverflowTransition(Metrics.PREVIOUS_CLOSE, dateTime, false, false, searchUntil, cap);
+        }
         
         LocalDateTime current = dateTime;
         int daysSearched = 0;
-        final int MAX_DAYS = 366;
         
-        while (daysSearched < MAX_DAYS) {
-            OpeningHoursForDay day = forDate(current);
+        while (daysSearched < MAX_SEARCH_DAYS) {
+            OpeningHoursForDay day = forEpochDay(current.toLocalDate().toEpochDay());
             LocalTime currentTime = current.toLocalTime();
             
             // Look for close times on this day (in reverse)
@@ -850,8 +1624,9 @@ public class OpeningHours {
                         result = result.plusDays(1);
                     }
                     
+                    metrics.recordSearchIterations(Metrics.PREVIOUS_CLOSE, daysSearched + 1);
                     if (searchUntil != null && result.isBefore(searchUntil)) {
-                        throw new io.github.wuwx.openinghours.exceptions.MaximumLimitExceeded(
+                        throw limitExceeded(Metrics.PREVIOUS_CLOSE,
                             "No close time found after " + searchUntil);
                     }
                     if (cap != null && result.isBefore(cap)) {
@@ -866,15 +1641,131 @@ public class OpeningHours {
             daysSearched++;
         }
         
+        metrics.recordSearchIterations(Metrics.PREVIOUS_CLOSE, daysSearched);
         if (searchUntil != null) {
-            throw new io.github.wuwx.openinghours.exceptions.MaximumLimitExceeded(
+            throw limitExceeded(Metrics.PREVIOUS_CLOSE,
                 "No close time found after " + searchUntil);
         }
         if (cap != null) {
             return cap;
         }
-        throw new io.github.wuwx.openinghours.exceptions.MaximumLimitExceeded(
-            "No close time found within " + MAX_DAYS + " days");
+        throw limitExceeded(Metrics.PREVIOUS_CLOSE,
+            "No close time found within " + MAX_SEARCH_DAYS + " days");
+    }
+    
+    /**
+     * Finds the next or previous opening or closing with overflow semantics
+     * Works on the merged open intervals, so a range continuing from the previous
+     * day is neither an opening at midnight nor a closing at midnight
+     */
+    private LocalDateTime findOverflowTransition(String operation, LocalDateTime dateTime, boolean forward,
+                                                 boolean opening, LocalDateTime searchUntil, LocalDateTime cap) {
+        long found = forward
+            ? nextIntervalTransition(TransitionCursor.toEpochSecond(dateTime.withNano(0)), opening)
+            : previousIntervalTransition(TransitionCursor.toEpochSecond(dateTime.withNano(0))
+                                         + (dateTime.getNano() > 0 ? 1 : 0), opening);
+        String what = opening ? "No open time" : "No close time";
+        long startDay = dateTime.toLocalDate().toEpochDay();
+        
+        if (found == Long.MIN_VALUE) {
+            metrics.recordSearchIterations(operation, MAX_SEARCH_DAYS);
+            if (searchUntil != null) {
+                throw limitExceeded(operation, what + " found " + (forward ? "before " : "after ") + searchUntil);
+            }
+            if (cap != null) {
+                return cap;
+            }
+            throw limitExceeded(operation, what + " found within " + MAX_SEARCH_DAYS + " days");
+        }
+        
+        LocalDateTime result = TransitionCursor.toDateTime(found);
+        metrics.recordSearchIterations(operation,
+            (int) Math.abs(Math.floorDiv(found, (long) Intervals.SECONDS_PER_DAY) - startDay) + 1);
+        boolean beyond = searchUntil != null && (forward ? result.isAfter(searchUntil) : result.isBefore(searchUntil));
+        if (beyond) {
+            throw limitExceeded(operation, what + " found " + (forward ? "before " : "after ") + searchUntil);
+        }
+        if (cap != null && (forward ? result.isAfter(cap) : result.isBefore(cap))) {
+            return cap;
+        }
+        return result;
+    }
+    
+    // First opening or closing of the open intervals strictly after from, Long.MIN_VALUE if none within the search window
+    private long nextIntervalTransition(long from, boolean opening) {
+        WeeklyTransitions weekly = intervalTransitions();
+        long found = opening ? weekly.nextOpening(from) : weekly.nextClosing(from);
+        long day = Math.floorDiv(from, (long) Intervals.SECONDS_PER_DAY);
+        long exception = exceptionIndex.nextExceptionDay(day);
+        if (found != Long.MIN_VALUE && exception > Math.floorDiv(found, (long) Intervals.SECONDS_PER_DAY)) {
+            return found;
+        }
+        long lastDay = day + MAX_SEARCH_DAYS;
+        // Nothing changes on the regular days before the exception, except where they meet it
+        day = Math.max(day, exception - 1);
+        int[] previous = intervalsFor(day - 1);
+        int[] intervals = intervalsFor(day);
+        for (; day <= lastDay; day++) {
+            int[] next = intervalsFor(day + 1);
+            long base = day * Intervals.SECONDS_PER_DAY;
+            for (int i = 0; i < intervals.length; i += 2) {
+                if (opening) {
+                    // A range continuing from the previous day doesn't open at midnight
+                    boolean continued = intervals[i] == 0
+                        && previous.length > 0 && previous[previous.length - 1] == Intervals.SECONDS_PER_DAY;
+                    if (base + intervals[i] > from && !continued) {
+                        return base + intervals[i];
+                    }
+                } else if (base + intervals[i + 1] > from) {
+                    boolean continues = intervals[i + 1] == Intervals.SECONDS_PER_DAY && next.length > 0 && next[0] == 0;
+                    if (!continues) {
+                        return base + intervals[i + 1];
+                    }
+                }
+            }
+            previous = intervals;
+            intervals = next;
+        }
+        return Long.MIN_VALUE;
+    }
+    
+    // Last opening or closing of the open intervals strictly before from, Long.MIN_VALUE if none within the search window
+    private long previousIntervalTransition(long from, boolean opening) {
+        WeeklyTransitions weekly = intervalTransitions();
+        long found = opening ? weekly.previousOpening(from) : weekly.previousClosing(from);
+        long day = Math.floorDiv(from, (long) Intervals.SECONDS_PER_DAY);
+        long exception = exceptionIndex.previousExceptionDay(day);
+        // A transition at midnight also depends on the day before it
+        if (found != Long.MIN_VALUE && exception < Math.floorDiv(found, (long) Intervals.SECONDS_PER_DAY) - 1) {
+            return found;
+        }
+        long lastDay = day - MAX_SEARCH_DAYS;
+        day = Math.min(day, exception + 1);
+        int[] intervals = intervalsFor(day);
+        for (; day >= lastDay; day--) {
+            int[] previous = intervalsFor(day - 1);
+            long base = day * Intervals.SECONDS_PER_DAY;
+            for (int i = intervals.length - 2; i >= 0; i -= 2) {
+                if (opening) {
+                    boolean continued = intervals[i] == 0
+                        && previous.length > 0 && previous[previous.length - 1] == Intervals.SECONDS_PER_DAY;
+                    if (base + intervals[i] < from && !continued) {
+                        return base + intervals[i];
+                    }
+                } else if (base + intervals[i + 1] < from) {
+                    boolean continues = false;
+                    if (intervals[i + 1] == Intervals.SECONDS_PER_DAY) {
+                        int[] next = intervalsFor(day + 1);
+                        continues = next.length > 0 && next[0] == 0;
+                    }
+                    if (!continues) {
+                        return base + intervals[i + 1];
+                    }
+                }
+            }
+            intervals = previous;
+        }
+        return Long.MIN_VALUE;
     }
     
     /**
@@ -888,54 +1779,362 @@ public class OpeningHours {
             dateTime = LocalDateTime.now(timezone != null ? timezone : ZoneId.systemDefault());
         }
         
-        OpeningHoursForDay day = forDate(dateTime);
+        long startNanos = startTimer();
+        OpeningHoursForDay day = forEpochDay(dateTime.toLocalDate().toEpochDay());
         LocalTime time = dateTime.toLocalTime();
         
-        for (TimeRange range : day.getTimeRanges()) {
-            if (range.containsTime(time)) {
-                return Optional.of(range);
+        Optional<TimeRange> result = Optional.empty();
+        if (overflow) {
+            result = overflowRangeAt(day, dateTime.toLocalDate(), time.toSecondOfDay());
+        } else {
+            List<TimeRange> ranges = day.getTimeRanges();
+            for (int i = 0; i < ranges.size(); i++) {
+                if (ranges.get(i).containsTime(time)) {
+                    result = Optional.of(ranges.get(i));
+                    break;
+                }
             }
         }
         
+        stopTimer(Metrics.CURRENT_OPEN_RANGE, startNanos);
+        return result;
+    }
+    
+    private Optional<TimeRange> overflowRangeAt(OpeningHoursForDay day, LocalDate date, int second) {
+        List<TimeRange> ranges = day.getTimeRanges();
+        for (int i = 0; i < ranges.size(); i++) {
+            TimeRange range = ranges.get(i);
+            int start = Intervals.secondOfDay(range.start());
+            int end = Intervals.secondOfDay(range.end());
+            if (second >= start && (end < start || second < end)) {
+                return Optional.of(range);
+            }
+        }
+        // Overnight ranges of the previous day that spill past midnight
+        OpeningHoursForDay previous = previousDay(date);
+        if (Intervals.contains(previous.spill(), second)) {
+            List<TimeRange> previousRanges = previous.getTimeRanges();
+            for (int i = 0; i < previousRanges.size(); i++) {
+                TimeRange range = previousRanges.get(i);
+                int start = Intervals.secondOfDay(range.start());
+                int end = Intervals.secondOfDay(range.end());
+                if (end < start && second < end) {
+                    return Optional.of(range);
+                }
+            }
+        }
         return Optional.empty();
     }
     
     /**
      * Get current open range start time
      * 
+     * This is the start of the whole open period holding the date/time, which may lie
+     * on an earlier day when ranges meet at midnight or run past it.
+     * 
      * @param dateTime the date/time to check (null for now)
      * @return Optional containing the start date/time, or empty if closed
+     * @throws MaximumLimitExceeded if open without a break for the whole past year (e.g., 24/7)
      */
     public Optional<LocalDateTime> currentOpenRangeStart(LocalDateTime dateTime) {
-        Optional<TimeRange> range = currentOpenRange(dateTime);
-        if (range.isPresent()) {
-            LocalDateTime start = dateTime.toLocalDate().atTime(range.get().start().toLocalTime());
-            return Optional.of(start);
-        }
-        return Optional.empty();
+        return currentOpenPeriodBound(dateTime, true);
     }
     
     /**
      * Get current open range end time
      * 
+     * This is the end of the whole open period holding the date/time, which may lie
+     * several days later when ranges meet at midnight or run past it.
+     * 
      * @param dateTime the date/time to check (null for now)
      * @return Optional containing the end date/time, or empty if closed
+     * @throws MaximumLimitExceeded if open without a break for the whole next year (e.g., 24/7)
      */
     public Optional<LocalDateTime> currentOpenRangeEnd(LocalDateTime dateTime) {
-        Optional<TimeRange> range = currentOpenRange(dateTime);
-        if (range.isPresent()) {
-            LocalTime endTime = range.get().end().toLocalTime();
-            LocalDateTime end = dateTime.toLocalDate().atTime(endTime);
-            
-            // Handle overnight ranges
-            LocalTime startTime = range.get().start().toLocalTime();
-            if (endTime.isBefore(startTime) || endTime.equals(java.time.LocalTime.MAX)) {
-                end = end.plusDays(1);
+        return currentOpenPeriodBound(dateTime, false);
+    }
+    
+    /**
+     * Finds a bound of the merged open intervals around an open date/time
+     * Without overflow, the end of an overnight range still counts as open there, and
+     * is then the end of the period
+     */
+    private Optional<LocalDateTime> currentOpenPeriodBound(LocalDateTime dateTime, boolean start) {
+        if (dateTime == null) {
+            dateTime = LocalDateTime.now(timezone != null ? timezone : ZoneId.systemDefault());
+        }
+        if (!currentOpenRange(dateTime).isPresent()) {
+            return Optional.empty();
+        }
+        // Ranges are set in whole minutes, so the second holding the time decides
+        long second = TransitionCursor.toEpochSecond(dateTime.withNano(0));
+        long found = start ? previousIntervalTransition(second + 1, true) : nextIntervalTransition(second - 1, false);
+        if (found == Long.MIN_VALUE) {
+            // Open, but the period doesn't start or end within the search window
+            throw limitExceeded(Metrics.CURRENT_OPEN_RANGE,
+                (start ? "No open time found within " : "No close time found within ") + MAX_SEARCH_DAYS + " days");
+        }
+        return Optional.of(TransitionCursor.toDateTime(found));
+    }
+    
+    /**
+     * Get the date/time at which the given amount of open time has elapsed
+     * Useful for business-time deadlines (e.g., "8 open hours after ticket creation")
+     * 
+     * Regular weeks are skipped arithmetically using the weekly open time, so the cost
+     * depends on the number of exception days crossed rather than on the duration.
+     * Computed with second precision.
+     * 
+     * @param start the start date/time
+     * @param duration the open time to add (negative to go back in time)
+     * @return the date/time at which the open time is reached
+     */
+    public LocalDateTime addOpenDuration(LocalDateTime start, java.time.Duration duration) {
+        if (duration.isNegative()) {
+            return subtractOpenDuration(start, duration.negated());
+        }
+        long startNanos = startTimer();
+        try {
+            long from = TransitionCursor.toEpochSecond(start.withNano(0));
+            return TransitionCursor.toDateTime(weeklyOpenTime().add(from, duration.getSeconds()));
+        } catch (MaximumLimitExceeded e) {
+            metrics.recordLimitExceeded(Metrics.ADD_OPEN_DURATION);
+            throw e;
+        } finally {
+            stopTimer(Metrics.ADD_OPEN_DURATION, startNanos);
+        }
+    }
+    
+    /**
+     * Get the date/time from which the given amount of open time elapses until the end date/time
+     * 
+     * @param end the end date/time
+     * @param duration the open time to subtract (negative to go forward in time)
+     * @return the date/time from which the open time is reached
+     */
+    public LocalDateTime subtractOpenDuration(LocalDateTime end, java.time.Duration duration) {
+        if (duration.isNegative()) {
+            return addOpenDuration(end, duration.negated());
+        }
+        long startNanos = startTimer();
+        try {
+            long to = TransitionCursor.toEpochSecond(end.withNano(0));
+            return TransitionCursor.toDateTime(weeklyOpenTime().subtract(to, duration.getSeconds()));
+        } catch (MaximumLimitExceeded e) {
+            metrics.recordLimitExceeded(Metrics.SUBTRACT_OPEN_DURATION);
+            throw e;
+        } finally {
+            stopTimer(Metrics.SUBTRACT_OPEN_DURATION, startNanos);
+        }
+    }
+    
+    /**
+     * Publish the open and close transitions from a date/time on
+     * 
+     * @param start the first time a transition may be published at (null for now)
+     * @return a publisher of transitions, which completes when no transition is found within a year
+     * @see #transitions(LocalDateTime, LocalDateTime)
+     */
+    public Flow.Publisher<Transition> transitions(LocalDateTime start) {
+        return transitions(start, null);
+    }
+    
+    /**
+     * Publish the open and close transitions between two date/times
+     * 
+     * Transitions are published in order, each one at a time when the schedule actually
+     * changes: a schedule already open at the start begins with its next close. They are
+     * computed lazily, one per requested item, on the thread that requests them, so the
+     * publisher honours backpressure without buffering. Each subscriber gets the whole
+     * sequence independently. The sequence completes at the end, or when the next
+     * transition is more than a year away.
+     * 
+     * Requires a runtime with {@code java.util.concurrent.Flow} (Java 9 or later).
+     * 
+     * @param start the first time a transition may be published at (null for now)
+     * @param end the time to stop at (exclusive), null for no end
+     * @return a publisher of transitions
+     */
+    public Flow.Publisher<Transition> transitions(LocalDateTime start, LocalDateTime end) {
+        if (start == null) {
+            start = LocalDateTime.now(timezone != null ? timezone : ZoneId.systemDefault());
+        }
+        long from = TransitionCursor.toEpochSecond(start.withNano(0));
+        long until = end == null ? Long.MAX_VALUE : TransitionCursor.toEpochSecond(end.withNano(0));
+        return new TransitionPublisher(this, from, until, MAX_SEARCH_DAYS);
+    }
+    
+    /**
+     * Check if open at a local epoch minute
+     * 
+     * Local epoch minutes count the minutes of the schedule's wall clock since
+     * 1970-01-01T00:00, as in {@code LocalDateTime.toEpochSecond(ZoneOffset.UTC) / 60}.
+     * The epoch minute methods follow the open intervals, like {@link #transitions(LocalDateTime)}:
+     * without overflow, an overnight range is open until, not at, its end. They create
+     * no date/time object, exception and holiday days included, which makes them suited
+     * to callers holding primitive timestamps. Only filters, which take a LocalDate, need one.
+     * 
+     * @param epochMinute the local epoch minute
+     * @return true if open at that minute
+     */
+    public boolean isOpenAtEpochMinute(long epochMinute) {
+        long startNanos = startTimer();
+        long second = epochMinute * 60;
+        long epochDay = Math.floorDiv(second, (long) Intervals.SECONDS_PER_DAY);
+        boolean open = Intervals.contains(intervalsFor(epochDay), (int) (second - epochDay * Intervals.SECONDS_PER_DAY));
+        stopTimer(Metrics.IS_OPEN_AT, startNanos);
+        return open;
+    }
+    
+    /**
+     * Check if open at an epoch minute, in a timezone
+     * 
+     * @param epochMinute the minutes since 1970-01-01T00:00Z
+     * @param zone the timezone of the schedule's wall clock
+     * @return true if open at that minute
+     */
+    public boolean isOpenAtEpochMinute(long epochMinute, ZoneId zone) {
+        return isOpenAtEpochMinute(toLocalMinute(epochMinute, zone));
+    }
+    
+    /**
+     * Get the next opening after a local epoch minute
+     * 
+     * @param epochMinute the local epoch minute, excluded
+     * @return the local epoch minute of the next opening
+     * @throws MaximumLimitExceeded if the schedule doesn't open within a year
+     */
+    public long nextOpenEpochMinute(long epochMinute) {
+        return transitionMinute(Metrics.NEXT_OPEN, epochMinute, true, true);
+    }
+    
+    /**
+     * Get the next opening after an epoch minute, in a timezone
+     * 
+     * @param epochMinute the minutes since 1970-01-01T00:00Z, excluded
+     * @param zone the timezone of the schedule's wall clock
+     * @return the minutes since 1970-01-01T00:00Z of the next opening
+     * @throws MaximumLimitExceeded if the schedule doesn't open within a year
+     */
+    public long nextOpenEpochMinute(long epochMinute, ZoneId zone) {
+        return toEpochMinute(nextOpenEpochMinute(toLocalMinute(epochMinute, zone)), zone);
+    }
+    
+    /**
+     * Get the next closing after a local epoch minute
+     * 
+     * @param epochMinute the local epoch minute, excluded
+     * @return the local epoch minute of the next closing
+     * @throws MaximumLimitExceeded if the schedule doesn't close within a year
+     */
+    public long nextCloseEpochMinute(long epochMinute) {
+        return transitionMinute(Metrics.NEXT_CLOSE, epochMinute, true, false);
+    }
+    
+    /**
+     * Get the next closing after an epoch minute, in a timezone
+     * 
+     * @param epochMinute the minutes since 1970-01-01T00:00Z, excluded
+     * @param zone the timezone of the schedule's wall clock
+     * @return the minutes since 1970-01-01T00:00Z of the next closing
+     * @throws MaximumLimitExceeded if the schedule doesn't close within a year
+     */
+    public long nextCloseEpochMinute(long epochMinute, ZoneId zone) {
+        return toEpochMinute(nextCloseEpochMinute(toLocalMinute(epochMinute, zone)), zone);
+    }
+    
+    /**
+     * Get the previous opening before a local epoch minute
+     * 
+     * @param epochMinute the local epoch minute, excluded
+     * @return the local epoch minute of the previous opening
+     * @throws MaximumLimitExceeded if the schedule didn't open within a year
+     */
+    public long previousOpenEpochMinute(long epochMinute) {
+        return transitionMinute(Metrics.PREVIOUS_OPEN, epochMinute, false, true);
+    }
+    
+    /**
+     * Get the previous opening before an epoch minute, in a timezone
+     * 
+     * @param epochMinute the minutes since 1970-01-01T00:00Z, excluded
+     * @param zone the timezone of the schedule's wall clock
+     * @return the minutes since 1970-01-01T00:00Z of the previous opening
+     * @throws MaximumLimitExceeded if the schedule didn't open within a year
+     */
+    public long previousOpenEpochMinute(long epochMinute, ZoneId zone) {
+        return toEpochMinute(previousOpenEpochMinute(toLocalMinute(epochMinute, zone)), zone);
+    }
+    
+    /**
+     * Get the previous closing before a local epoch minute
+     * 
+     * @param epochMinute the local epoch minute, excluded
+     * @return the local epoch minute of the previous closing
+     * @throws MaximumLimitExceeded if the schedule didn't close within a year
+     */
+    public long previousCloseEpochMinute(long epochMinute) {
+        return transitionMinute(Metrics.PREVIOUS_CLOSE, epochMinute, false, false);
+    }
+    
+    /**
+     * Get the previous closing before an epoch minute, in a timezone
+     * 
+     * @param epochMinute the minutes since 1970-01-01T00:00Z, excluded
+     * @param zone the timezone of the schedule's wall clock
+     * @return the minutes since 1970-01-01T00:00Z of the previous closing
+     * @throws MaximumLimitExceeded if the schedule didn't close within a year
+     */
+    public long previousCloseEpochMinute(long epochMinute, ZoneId zone) {
+        return toEpochMinute(previousCloseEpochMinute(toLocalMinute(epochMinute, zone)), zone);
+    }
+    
+    private long transitionMinute(String operation, long epochMinute, boolean forward, boolean opening) {
+        long startNanos = startTimer();
+        try {
+            long from = epochMinute * 60;
+            long found = forward ? nextIntervalTransition(from, opening) : previousIntervalTransition(from, opening);
+            if (found == Long.MIN_VALUE) {
+                metrics.recordSearchIterations(operation, MAX_SEARCH_DAYS);
+                throw limitExceeded(operation,
+                    (opening ? "No open time" : "No close time") + " found within " + MAX_SEARCH_DAYS + " days");
             }
-            
-            return Optional.of(end);
+            metrics.recordSearchIterations(operation, (int) Math.abs(
+                Math.floorDiv(found, (long) Intervals.SECONDS_PER_DAY) - Math.floorDiv(from, (long) Intervals.SECONDS_PER_DAY)) + 1);
+            // Ranges are set in whole minutes
+            return Math.floorDiv(found, 60L);
+        } finally {
+            stopTimer(operation, startNanos);
         }
-        return Optional.empty();
+    }
+    
+    private static long toLocalMinute(long epochMinute, ZoneId zone) {
+        long epochSecond = epochMinute * 60;
+        return Math.floorDiv(epochSecond + offsetAt(zone, epochSecond), 60L);
+    }
+    
+    /**
+     * Converts a local epoch minute back to an instant, as ZonedDateTime.ofLocal does:
+     * the earlier offset in an overlap, and shifted by the length of a gap
+     */
+    private static long toEpochMinute(long localMinute, ZoneId zone) {
+        long localSecond = localMinute * 60;
+        // Offsets on either side of any transition near the local time
+        int before = offsetAt(zone, localSecond - Intervals.SECONDS_PER_DAY);
+        int after = offsetAt(zone, localSecond + Intervals.SECONDS_PER_DAY);
+        long epochSecond;
+        if (offsetAt(zone, localSecond - before) == before) {
+            epochSecond = localSecond - before;
+        } else if (offsetAt(zone, localSecond - after) == after) {
+            epochSecond = localSecond - after;
+        } else {
+            epochSecond = localSecond - before;
+        }
+        return Math.floorDiv(epochSecond, 60L);
+    }
+    
+    private static int offsetAt(ZoneId zone, long epochSecond) {
+        return zone.getRules().getOffset(Instant.ofEpochSecond(epochSecond)).getTotalSeconds();
     }
     
     /**
@@ -971,6 +2170,31 @@ public class OpeningHours {
         return diffInSeconds(true, start, end);
     }
     
+    /**
+     * Calculate open seconds for many intervals at once
+     * 
+     * Times are local epoch seconds, as returned by {@code LocalDateTime.toEpochSecond(ZoneOffset.UTC)}.
+     * The weekly tables of this schedule are shared across the whole batch, and large batches
+     * are split across the common fork-join pool.
+     * 
+     * @param starts the start of each interval
+     * @param ends the end of each interval
+     * @param openSeconds the array receiving the open seconds of each interval
+     */
+    public void diffInOpenSeconds(long[] starts, long[] ends, long[] openSeconds) {
+        if (starts.length != ends.length || openSeconds.length < starts.length) {
+            throw new IllegalArgumentException("Arrays must have matching lengths");
+        }
+        long startNanos = startTimer();
+        if (starts.length <= OpenSecondsTask.THRESHOLD) {
+            OpenSecondsTask.computeDirectly(weeklyOpenTime(), starts, ends, openSeconds, 0, starts.length);
+        } else {
+            ForkJoinPool.commonPool().invoke(
+                new OpenSecondsTask(weeklyOpenTime(), starts, ends, openSeconds, 0, starts.length));
+        }
+        stopTimer(Metrics.DIFF_IN_OPEN_SECONDS_BULK, startNanos);
+    }
+    
     /**
      * Calculate difference in closed hours between two date/times
      * 
@@ -1009,90 +2233,103 @@ public class OpeningHours {
             return -diffInSeconds(countOpen, end, start);
         }
         
-        double totalSeconds = 0.0;
-        LocalDateTime current = start;
+        // Exact integer arithmetic on second-of-day intervals, whole days come from the weekly tables
+        long startNanos = startTimer();
+        long from = TransitionCursor.toEpochSecond(start.withNano(0));
+        long to = TransitionCursor.toEpochSecond(end.withNano(0));
+        long openSeconds = weeklyOpenTime().openSecondsBetween(from, to);
+        long seconds = countOpen ? openSeconds : (to - from) - openSeconds;
+        stopTimer(Metrics.DIFF_IN_SECONDS, startNanos);
+        return seconds;
+    }
+    
+    private long startTimer() {
+        return metrics.isEnabled() ? System.nanoTime() : 0L;
+    }
+    
+    private void stopTimer(String operation, long startNanos) {
+        if (metrics.isEnabled()) {
+            metrics.recordLatency(operation, System.nanoTime() - startNanos);
+        }
+    }
+    
+    private MaximumLimitExceeded limitExceeded(String operation, String message) {
+        metrics.recordLimitExceeded(operation);
+        return MaximumLimitExceeded.forString(message);
+    }
+    
+    /**
+     * Find the first windows where all the given schedules are open at the same time
+     * 
+     * All schedules are swept together over their open and close transitions, so the cost
+     * grows with the number of transitions rather than with repeated nextOpen/nextClose calls.
+     * 
+     * @param schedules the schedules that must all be open (e.g., room, staff and store)
+     * @param start the date/time to search from
+     * @param horizon the date/time to search until, windows are cut at this time
+     * @param minimumDuration the minimum length of a window
+     * @param limit the maximum number of windows to return
+     * @return the common open windows in chronological order
+     */
+    public static List<DateTimeRange> commonOpenWindows(Collection<OpeningHours> schedules,
+                                                        LocalDateTime start, LocalDateTime horizon,
+                                                        java.time.Duration minimumDuration, int limit) {
+        if (schedules.isEmpty()) {
+            throw new IllegalArgumentException("At least one schedule is required");
+        }
+        
+        long from = TransitionCursor.toEpochSecond(start);
+        long until = TransitionCursor.toEpochSecond(horizon);
+        long minimumSeconds = minimumDuration.getSeconds();
+        List<DateTimeRange> windows = new ArrayList<>();
         
-        while (current.isBefore(end)) {
-            LocalDateTime dayEnd = current.toLocalDate().plusDays(1).atStartOfDay();
-            LocalDateTime segmentEnd = end.isBefore(dayEnd) ? end : dayEnd;
-            
-            OpeningHoursForDay day = forDate(current);
-            LocalTime currentTime = current.toLocalTime();
-            LocalTime segmentEndTime = segmentEnd.toLocalTime();
-            
-            if (segmentEnd.toLocalDate().equals(current.toLocalDate())) {
-                // Same day
-                totalSeconds += calculateSecondsInDay(day, currentTime, segmentEndTime, countOpen);
-            } else {
-                // Goes to next day
-                totalSeconds += calculateSecondsInDay(day, currentTime, LocalTime.MAX, countOpen);
+        PriorityQueue<TransitionCursor> queue = new PriorityQueue<>(
+            schedules.size(), Comparator.comparingLong(TransitionCursor::time));
+        for (OpeningHours schedule : schedules) {
+            TransitionCursor cursor = new TransitionCursor(schedule, from, until);
+            if (!cursor.advance()) {
+                // Never open in the window, so there is no common window
+                return windows;
             }
-            
-            current = segmentEnd;
+            queue.add(cursor);
         }
         
-        return totalSeconds;
-    }
-    
-    private double calculateSecondsInDay(OpeningHoursForDay day, LocalTime start, LocalTime end, boolean countOpen) {
-        double seconds = 0.0;
-        LocalTime current = start;
+        int openCount = 0;
+        long windowStart = 0;
+        boolean inWindow = false;
+        boolean exhausted = false;
         
-        while (current.isBefore(end)) {
-            boolean isOpen = day.isOpenAt(current);
+        while (!queue.isEmpty() && windows.size() < limit) {
+            long time = queue.peek().time();
             
-            if (isOpen == countOpen) {
-                // Find end of current state (open or closed)
-                LocalTime stateEnd = end;
-                
-                for (TimeRange range : day.getTimeRanges()) {
-                    LocalTime rangeStart = range.start().toLocalTime();
-                    LocalTime rangeEnd = range.end().toLocalTime();
-                    
-                    if (countOpen && range.containsTime(current)) {
-                        // Currently in open range, find end
-                        stateEnd = rangeEnd.isBefore(end) ? rangeEnd : end;
-                        break;
-                    } else if (!countOpen && current.isBefore(rangeStart) && rangeStart.isBefore(end)) {
-                        // Currently in closed period before this range
-                        stateEnd = rangeStart;
-                        break;
-                    }
+            // Apply every transition happening at this time before checking the state
+            while (!queue.isEmpty() && queue.peek().time() == time) {
+                TransitionCursor cursor = queue.poll();
+                openCount += cursor.opening() ? 1 : -1;
+                if (cursor.advance()) {
+                    queue.add(cursor);
+                } else {
+                    exhausted = true;
                 }
-                
-                seconds += java.time.Duration.between(current, stateEnd).getSeconds();
-                current = stateEnd;
-            } else {
-                // Skip to next state change
-                LocalTime nextChange = end;
-                
-                for (TimeRange range : day.getTimeRanges()) {
-                    LocalTime rangeStart = range.start().toLocalTime();
-                    LocalTime rangeEnd = range.end().toLocalTime();
-                    
-                    if (countOpen) {
-                        // Looking for open time - find next range start
-                        if (rangeStart.isAfter(current) && rangeStart.isBefore(nextChange)) {
-                            nextChange = rangeStart;
-                        }
-                    } else {
-                        // Looking for closed time - find next range end
-                        if (range.containsTime(current) && rangeEnd.isBefore(nextChange)) {
-                            nextChange = rangeEnd;
-                        }
-                    }
+            }
+            
+            if (openCount == schedules.size() && !inWindow) {
+                windowStart = time;
+                inWindow = true;
+            } else if (openCount < schedules.size() && inWindow) {
+                if (time - windowStart >= minimumSeconds) {
+                    windows.add(new DateTimeRange(
+                        TransitionCursor.toDateTime(windowStart), TransitionCursor.toDateTime(time)));
                 }
-                
-                current = nextChange;
+                inWindow = false;
             }
             
-            // Prevent infinite loop
-            if (current.equals(start)) {
-                current = current.plusMinutes(1);
+            if (exhausted && !inWindow) {
+                break;
             }
         }
         
-        return seconds;
+        return windows;
     }
     
     /**
@@ -1155,6 +2392,48 @@ public class OpeningHours {
         return result;
     }
     
+    /**
+     * Count how many schedules are open in each bucket of a period
+     * 
+     * A schedule counts in a bucket if it is open at the bucket's start, following its
+     * open intervals (a range is open up to, but not at, its end). Every schedule adds +1
+     * where it opens and -1 where it closes to a difference array, so the cost grows
+     * with the number of ranges rather than with schedules times buckets. Large
+     * collections are split into shards across the common fork-join pool.
+     * 
+     * @param schedules the schedules to count (e.g., all locations)
+     * @param start the start of the first bucket
+     * @param end the date/time to stop at (exclusive), the last bucket may be cut short
+     * @param bucket the length of a bucket, a positive whole number of seconds
+     * @return the number of open schedules in each bucket, bucket i starting at start + i * bucket
+     * @throws IllegalArgumentException if the period is empty or the bucket isn't valid
+     */
+    public static int[] openCounts(Collection<OpeningHours> schedules, LocalDateTime start, LocalDateTime end,
+                                   java.time.Duration bucket) {
+        long bucketSeconds = bucket.getSeconds();
+        if (bucketSeconds <= 0 || bucket.getNano() != 0) {
+            throw new IllegalArgumentException("Bucket must be a positive whole number of seconds: " + bucket);
+        }
+        long from = TransitionCursor.toEpochSecond(start);
+        long until = TransitionCursor.toEpochSecond(end);
+        if (until <= from) {
+            throw new IllegalArgumentException("End " + end + " is not after start " + start);
+        }
+        if ((until - from + bucketSeconds - 1) / bucketSeconds >= Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many buckets between " + start + " and " + end);
+        }
+        
+        List<OpeningHours> list = new ArrayList<>(schedules);
+        int[] counts = list.size() <= OpenCountTask.THRESHOLD
+            ? OpenCountTask.computeDirectly(list, from, until, bucketSeconds, 0, list.size())
+            : ForkJoinPool.commonPool().invoke(new OpenCountTask(list, from, until, bucketSeconds, 0, list.size()));
+        for (int i = 1; i < counts.length; i++) {
+            counts[i] += counts[i - 1];
+        }
+        // The extra entry only closes the last bucket
+        return Arrays.copyOf(counts, counts.length - 1);
+    }
+    
     /**
      * Create from schedule and merge overlapping ranges
      * 
@@ -1168,6 +2447,226 @@ public class OpeningHours {
         return create(data);
     }
     
+    /**
+     * Combine with another schedule, open whenever either schedule is open
+     * Exceptions, holidays and filters of both schedules are merged
+     * 
+     * @param other the other opening hours
+     * @return a new OpeningHours instance
+     */
+    public OpeningHours union(OpeningHours other) {
+        return combine(other, SetOperation.UNION);
+    }
+    
+    /**
+     * Combine with another schedule, open only when both schedules are open
+     * Exceptions, holidays and filters of both schedules are merged
+     * 
+     * @param other the other opening hours
+     * @return a new OpeningHours instance
+     */
+    public OpeningHours intersect(OpeningHours other) {
+        return combine(other, SetOperation.INTERSECT);
+    }
+    
+    /**
+     * Remove the open times of another schedule from this one
+     * Exceptions, holidays and filters of both schedules are merged
+     * 
+     * @param other the opening hours to subtract (e.g., staff training blocks)
+     * @return a new OpeningHours instance
+     */
+    public OpeningHours subtract(OpeningHours other) {
+        return combine(other, SetOperation.SUBTRACT);
+    }
+    
+    private enum SetOperation {
+        UNION, INTERSECT, SUBTRACT;
+        
+        int[] apply(int[] a, int[] b) {
+            switch (this) {
+                case UNION:
+                    return Intervals.union(a, b);
+                case INTERSECT:
+                    return Intervals.intersect(a, b);
+                default:
+                    return Intervals.subtract(a, b);
+            }
+        }
+    }
+    
+    private OpeningHours combine(OpeningHours other, SetOperation operation) {
+        // Operands are compared on the times they are actually open, spill included,
+        // and the result has no overnight ranges left to overflow
+        int[][] weekdays = weekdayIntervals();
+        int[][] otherWeekdays = other.weekdayIntervals();
+        Map<DayOfWeek, OpeningHoursForDay> combinedHours = new EnumMap<>(DayOfWeek.class);
+        for (DayOfWeek day : DayOfWeek.values()) {
+            combinedHours.put(day, combineDays(weekdays[day.ordinal()], otherWeekdays[day.ordinal()],
+                                               openingHours.get(day).getData(), operation));
+        }
+        
+        Set<String> keys = new HashSet<>(exceptions.keySet());
+        keys.addAll(recurringByWeekday.keySet());
+        keys.addAll(other.exceptions.keySet());
+        keys.addAll(other.recurringByWeekday.keySet());
+        if (overflow || other.overflow) {
+            keys.addAll(followingKeys(keys));
+        }
+        
+        Map<String, OpeningHoursForDay> combinedExceptions = new HashMap<>();
+        Map<String, OpeningHoursForDay[]> combinedByWeekday = new HashMap<>();
+        for (String key : keys) {
+            if (ExceptionIndex.isRecurringKey(key)) {
+                // Recurring exception: the side without it falls back to its weekly schedule,
+                // so the result may depend on the day of week the date falls on
+                OpeningHoursForDay[] byWeekday = new OpeningHoursForDay[7];
+                int[] first = null;
+                boolean sameEveryDay = true;
+                for (DayOfWeek day : DayOfWeek.values()) {
+                    OpeningHoursForDay hours = combineDays(recurringIntervals(key, day), other.recurringIntervals(key, day),
+                                                           forRecurringDate(key, day).getData(), operation);
+                    byWeekday[day.ordinal()] = hours;
+                    int[] intervals = hours.intervals();
+                    if (first == null) {
+                        first = intervals;
+                    } else if (!Arrays.equals(first, intervals)
+                               || !Objects.equals(byWeekday[0].getData(), hours.getData())) {
+                        sameEveryDay = false;
+                    }
+                }
+                if (sameEveryDay) {
+                    combinedExceptions.put(key, byWeekday[0]);
+                } else {
+                    combinedByWeekday.put(key, byWeekday);
+                }
+            } else {
+                LocalDate date;
+                try {
+                    date = LocalDate.parse(key);
+                } catch (java.time.format.DateTimeParseException e) {
+                    // Invalid date key, never matched by forDate
+                    continue;
+                }
+                combinedExceptions.put(key, combineDays(intervalsFor(date.toEpochDay()),
+                                                        other.intervalsFor(date.toEpochDay()),
+                                                        forEpochDay(date.toEpochDay()).getData(), operation));
+            }
+        }
+        
+        // Holidays recur without end, so their hours are combined when a holiday is resolved
+        HolidayLayer combinedHolidays = null;
+        if (holidays != null || other.holidays != null) {
+            combinedHolidays = HolidayLayer.combined(holidays, other.holidays, overflow || other.overflow,
+                day -> combineDays(intervalsFor(day), other.intervalsFor(day), forEpochDay(day).getData(), operation));
+        }
+        
+        // Filters may change any date, so a filtered operand makes the result combine every date it is asked for
+        List<Function<LocalDate, Map<String, Object>>> combinedFilters = new ArrayList<>();
+        if (!filters.isEmpty() || !other.filters.isEmpty()) {
+            combinedFilters.add(date -> {
+                long day = date.toEpochDay();
+                return Collections.singletonMap("hours", combineDays(intervalsFor(day), other.intervalsFor(day),
+                                                                     forEpochDay(day).getData(), operation));
+            });
+        }
+        
+        return new OpeningHours(combinedHours, combinedExceptions, combinedByWeekday, combinedFilters, combinedHolidays,
+                                timezone, outputTimezone, false, metrics, calendarYears, null);
+    }
+    
+    private static OpeningHoursForDay combineDays(int[] a, int[] b, Object data, SetOperation operation) {
+        return Intervals.toDay(operation.apply(a, b), data);
+    }
+    
+    /**
+     * Compare this schedule with another version of it
+     * 
+     * Days are compared on the times they are actually open, spill included, so an
+     * exception equal to the weekly hours it replaces is no change and a reordered or
+     * split range is none either. The cost is linear in the number of weekdays and
+     * exceptions. Filters and holidays can't be compared as rules, they only show in
+     * {@link ScheduleDiff#affectedWindows}.
+     * 
+     * @param other the other version (e.g., the one just published)
+     * @return the changes from this schedule to the other one
+     */
+    public ScheduleDiff diff(OpeningHours other) {
+        int[][] weekdays = weekdayIntervals();
+        int[][] otherWeekdays = other.weekdayIntervals();
+        Map<DayOfWeek, OpeningHoursForDay> changedWeekdays = new EnumMap<>(DayOfWeek.class);
+        for (DayOfWeek day : DayOfWeek.values()) {
+            int[] changed = Intervals.symmetricDifference(weekdays[day.ordinal()], otherWeekdays[day.ordinal()]);
+            if (changed.length > 0) {
+                changedWeekdays.put(day, Intervals.toDay(changed, null));
+            }
+        }
+        
+        Set<String> keys = new HashSet<>(exceptions.keySet());
+        keys.addAll(recurringByWeekday.keySet());
+        keys.addAll(other.exceptions.keySet());
+        keys.addAll(other.recurringByWeekday.keySet());
+        if (overflow || other.overflow) {
+            keys.addAll(followingKeys(keys));
+        }
+        
+        Map<String, OpeningHoursForDay> changedExceptions = new TreeMap<>();
+        for (String key : keys) {
+            int[] changed;
+            if (ExceptionIndex.isRecurringKey(key)) {
+                // Recurring exception: the date may fall on any weekday, so any of them counts
+                changed = new int[0];
+                for (DayOfWeek day : DayOfWeek.values()) {
+                    changed = Intervals.union(changed,
+                        Intervals.symmetricDifference(recurringIntervals(key, day), other.recurringIntervals(key, day)));
+                }
+            } else {
+                long epochDay;
+                try {
+                    epochDay = LocalDate.parse(key).toEpochDay();
+                } catch (java.time.format.DateTimeParseException e) {
+                    // Invalid date key, never matched by forDate
+                    continue;
+                }
+                changed = Intervals.symmetricDifference(intervalsFor(epochDay), other.intervalsFor(epochDay));
+            }
+            if (changed.length > 0) {
+                changedExceptions.put(key, Intervals.toDay(changed, null));
+            }
+        }
+        
+        return new ScheduleDiff(this, other, changedWeekdays, changedExceptions);
+    }
+    
+    private int[] recurringIntervals(String recurringKey, DayOfWeek dayOfWeek) {
+        OpeningHoursForDay hours = forRecurringDate(recurringKey, dayOfWeek);
+        if (!overflow) {
+            return hours.intervals();
+        }
+        // The day before 03-01 is taken as 02-28, a recurring 02-29 only spills into 03-01 of leap years
+        LocalDate date;
+        try {
+            date = ExceptionIndex.parseKey(recurringKey, "02-29".equals(recurringKey) ? 2000 : 2001);
+        } catch (java.time.format.DateTimeParseException e) {
+            // Invalid date key, never matched by forDate
+            return hours.sameDayIntervals();
+        }
+        OpeningHoursForDay previous = forRecurringDate(recurringKey(date.minusDays(1)), dayOfWeek.minus(1));
+        return Intervals.union(hours.sameDayIntervals(), previous.spill());
+    }
+    
+    private OpeningHoursForDay forRecurringDate(String recurringKey, DayOfWeek dayOfWeek) {
+        OpeningHoursForDay hours = exceptions.get(recurringKey);
+        if (hours != null) {
+            return hours;
+        }
+        OpeningHoursForDay[] byWeekday = recurringByWeekday.get(recurringKey);
+        if (byWeekday != null) {
+            return byWeekday[dayOfWeek.ordinal()];
+        }
+        return openingHours.get(dayOfWeek);
+    }
+    
     /**
      * Create from structured data (schema.org format)
      * 
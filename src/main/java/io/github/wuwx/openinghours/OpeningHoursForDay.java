@@ -2,17 +2,28 @@ package io.github.wuwx.openinghours;
 
 import java.time.LocalTime;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
 
 /**
  * Represents opening hours for a single day
  * 
+ * Instances are immutable and safe to share between threads, which is what lets
+ * parse caches and schedules reuse them. The list of ranges is copied on
+ * construction, and data that is a list, set or map is copied into unmodifiable
+ * collections.
+ * 
  * @author wuwx
  */
-public class OpeningHoursForDay {
+public final class OpeningHoursForDay {
     private final List<TimeRange> timeRanges;
     private final Object data;
+    private final int[] intervals;
+    private final int[] sameDayIntervals;
+    private final int[] spill;
+    private final long fingerprint;
     
     /**
      * Constructs an empty OpeningHoursForDay (closed all day)
@@ -37,8 +48,31 @@ public class OpeningHoursForDay {
      * @param data the associated data
      */
     public OpeningHoursForDay(List<TimeRange> timeRanges, Object data) {
-        this.timeRanges = new ArrayList<>(timeRanges);
-        this.data = data;
+        this.timeRanges = Collections.unmodifiableList(new ArrayList<>(timeRanges));
+        this.data = Immutables.freeze(data);
+        this.intervals = Intervals.of(this);
+        this.spill = Intervals.spill(this);
+        this.sameDayIntervals = spill.length == 0 ? intervals : Intervals.sameDay(this);
+        this.fingerprint = fingerprint(intervals, spill);
+    }
+    
+    private static long fingerprint(int[] intervals, int[] spill) {
+        long hash = 0x9E3779B97F4A7C15L * (intervals.length + 1);
+        for (int value : intervals) {
+            hash = mix(hash ^ value);
+        }
+        // Overnight ranges behave differently with overflow, so they are part of the identity
+        for (int value : spill) {
+            hash = mix(hash ^ ~value);
+        }
+        return hash;
+    }
+    
+    private static long mix(long z) {
+        // SplitMix64 finalizer
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
     }
     
     /**
@@ -73,8 +107,9 @@ public class OpeningHoursForDay {
      * @return true if open at this time
      */
     public boolean isOpenAt(LocalTime time) {
-        for (TimeRange timeRange : timeRanges) {
-            if (timeRange.containsTime(time)) {
+        // Indexed, so that no iterator is allocated on this hot path
+        for (int i = 0; i < timeRanges.size(); i++) {
+            if (timeRanges.get(i).containsTime(time)) {
                 return true;
             }
         }
@@ -96,7 +131,7 @@ public class OpeningHoursForDay {
      * @return the list of time ranges
      */
     public List<TimeRange> getTimeRanges() {
-        return Collections.unmodifiableList(timeRanges);
+        return timeRanges;
     }
     
     /**
@@ -118,6 +153,33 @@ public class OpeningHoursForDay {
         return timeRanges.size();
     }
     
+    /**
+     * Gets the normalized [start, end) second-of-day pairs covered by this day
+     * 
+     * @return the interval list, must not be modified
+     */
+    int[] intervals() {
+        return intervals;
+    }
+    
+    /**
+     * Gets the intervals covered on this day when overnight ranges overflow to the next day
+     * 
+     * @return the interval list, must not be modified
+     */
+    int[] sameDayIntervals() {
+        return sameDayIntervals;
+    }
+    
+    /**
+     * Gets the intervals that overnight ranges cover on the next day when they overflow
+     * 
+     * @return the interval list, must not be modified
+     */
+    int[] spill() {
+        return spill;
+    }
+    
     /**
      * Gets the associated data
      * 
@@ -127,8 +189,38 @@ public class OpeningHoursForDay {
         return data;
     }
     
+    /**
+     * Gets a 64-bit structural fingerprint of the opening hours
+     * Days covering the same times have the same fingerprint, whatever the order
+     * or the split of their ranges (e.g., 09:00-12:00 and 11:00-13:00 vs 09:00-13:00)
+     * 
+     * @return the fingerprint
+     */
+    public long fingerprint() {
+        return fingerprint;
+    }
+    
     @Override
     public String toString() {
         return timeRanges.toString();
     }
+    
+    /**
+     * Two days are equal when they cover the same times, with the same overnight ranges, and have equal data
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        OpeningHoursForDay that = (OpeningHoursForDay) o;
+        return fingerprint == that.fingerprint
+            && Arrays.equals(intervals, that.intervals)
+            && Arrays.equals(spill, that.spill)
+            && Objects.equals(data, that.data);
+    }
+    
+    @Override
+    public int hashCode() {
+        return (int) (fingerprint ^ (fingerprint >>> 32));
+    }
 }
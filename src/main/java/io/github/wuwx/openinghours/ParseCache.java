@@ -0,0 +1,177 @@
+package io.github.wuwx.openinghours;
+
+import io.github.wuwx.openinghours.metrics.Metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Bounded cache of parsed day schedules, keyed by the raw value they were parsed from
+ *
+ * Pass an instance under the "parseCache" key of {@link OpeningHours#create(Map)} to
+ * reuse parsed {@link OpeningHoursForDay} objects when many schedules share the same
+ * hour lists. Parsed days are immutable, so a cached day can be shared by any number
+ * of schedules. A single cache can be shared by all loader threads.
+ *
+ * @author wuwx
+ */
+public final class ParseCache {
+
+    /**
+     * Eviction policy applied when the cache is full
+     */
+    public enum Eviction {
+        /** Evicts the entry that was used least recently */
+        LRU,
+        /** Evicts the entry that was inserted first */
+        FIFO
+    }
+
+    private final int maximumSize;
+    private final Eviction eviction;
+    private final Map<Object, OpeningHoursForDay> entries;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Creates an LRU cache
+     *
+     * @param maximumSize the maximum number of parsed values to keep
+     */
+    public ParseCache(int maximumSize) {
+        this(maximumSize, Eviction.LRU);
+    }
+
+    /**
+     * Creates a cache with the given eviction policy
+     *
+     * @param maximumSize the maximum number of parsed values to keep
+     * @param eviction the eviction policy
+     */
+    public ParseCache(int maximumSize, Eviction eviction) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("Maximum size must be positive: " + maximumSize);
+        }
+        if (eviction == null) {
+            throw new IllegalArgumentException("Eviction policy must not be null");
+        }
+        this.maximumSize = maximumSize;
+        this.eviction = eviction;
+        this.entries = new LinkedHashMap<Object, OpeningHoursForDay>(16, 0.75f, eviction == Eviction.LRU) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object, OpeningHoursForDay> eldest) {
+                return size() > ParseCache.this.maximumSize;
+            }
+        };
+    }
+
+    /**
+     * Returns the parsed day for a value, parsing and caching it on a miss
+     *
+     * The value is copied into an immutable key, so callers may reuse or modify
+     * their lists and maps afterwards. Values that fail to parse are not cached.
+     *
+     * @param value the raw day value (a list of ranges or a map with hours and data)
+     * @param metrics the sink for hit and miss counts
+     * @param parser the parser used on a miss
+     * @return the parsed day
+     */
+    OpeningHoursForDay get(Object value, Metrics metrics, Function<Object, OpeningHoursForDay> parser) {
+        Object key = Immutables.freeze(value);
+        OpeningHoursForDay day;
+        synchronized (entries) {
+            day = entries.get(key);
+        }
+        if (day != null) {
+            hits.incrementAndGet();
+            metrics.recordCacheAccess(Metrics.PARSE_CACHE, true);
+            return day;
+        }
+
+        misses.incrementAndGet();
+        metrics.recordCacheAccess(Metrics.PARSE_CACHE, false);
+        // Parse outside the lock; if two threads race, the first value stored wins
+        OpeningHoursForDay parsed = parser.apply(value);
+        synchronized (entries) {
+            OpeningHoursForDay existing = entries.putIfAbsent(key, parsed);
+            return existing != null ? existing : parsed;
+        }
+    }
+
+    /**
+     * Gets the maximum number of entries
+     *
+     * @return the maximum size
+     */
+    public int maximumSize() {
+        return maximumSize;
+    }
+
+    /**
+     * Gets the eviction policy
+     *
+     * @return the eviction policy
+     */
+    public Eviction eviction() {
+        return eviction;
+    }
+
+    /**
+     * Gets the current number of entries
+     *
+     * @return the number of cached values
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Gets the number of lookups that found a cached value
+     *
+     * @return the hit count
+     */
+    public long hitCount() {
+        return hits.get();
+    }
+
+    /**
+     * Gets the number of lookups that had to parse
+     *
+     * @return the miss count
+     */
+    public long missCount() {
+        return misses.get();
+    }
+
+    /**
+     * Gets the fraction of lookups that found a cached value
+     *
+     * @return the hit rate between 0 and 1, or 0 if there were no lookups
+     */
+    public double hitRate() {
+        long hitCount = hits.get();
+        long total = hitCount + misses.get();
+        return total == 0 ? 0.0 : (double) hitCount / total;
+    }
+
+    /**
+     * Removes all entries and resets the statistics
+     */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+        hits.set(0);
+        misses.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return "ParseCache{size=" + size() + ", maximumSize=" + maximumSize + ", eviction=" + eviction
+                + ", hits=" + hits.get() + ", misses=" + misses.get() + "}";
+    }
+}
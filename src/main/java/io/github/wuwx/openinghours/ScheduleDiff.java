@@ -0,0 +1,115 @@
+package io.github.wuwx.openinghours;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Changes between two versions of a schedule, as returned by {@link OpeningHours#diff}
+ * 
+ * Changed weekdays and exceptions come with the times of day whose open state differs,
+ * so caches of open times can be updated for those times only instead of being rebuilt.
+ * Instances are immutable and safe to share between threads.
+ * 
+ * @author wuwx
+ */
+public final class ScheduleDiff {
+    private final OpeningHours from;
+    private final OpeningHours to;
+    private final Map<DayOfWeek, OpeningHoursForDay> weekdays;
+    private final Map<String, OpeningHoursForDay> exceptions;
+    
+    ScheduleDiff(OpeningHours from, OpeningHours to,
+                 Map<DayOfWeek, OpeningHoursForDay> weekdays, Map<String, OpeningHoursForDay> exceptions) {
+        this.from = from;
+        this.to = to;
+        this.weekdays = Collections.unmodifiableMap(weekdays);
+        this.exceptions = Collections.unmodifiableMap(exceptions);
+    }
+    
+    /**
+     * Gets the weekdays whose regular hours changed
+     * 
+     * With overflow, the day after a changed overnight range is listed too, as its
+     * morning changed.
+     * 
+     * @return the changed weekdays in order, each with the times that opened or closed
+     */
+    public Map<DayOfWeek, OpeningHoursForDay> weekdays() {
+        return weekdays;
+    }
+    
+    /**
+     * Gets the exceptions whose hours changed, added and removed ones included
+     * 
+     * Keys are those of {@link OpeningHours#exceptions()}, dates ("2016-12-25") or
+     * recurring dates ("12-25"). A recurring exception counts as changed if it changed
+     * on any weekday it may fall on.
+     * 
+     * @return the changed exceptions sorted by key, each with the times that opened or closed
+     */
+    public Map<String, OpeningHoursForDay> exceptions() {
+        return exceptions;
+    }
+    
+    /**
+     * Checks if no weekday and no exception changed
+     * 
+     * @return true if the rules of both versions give the same open times
+     */
+    public boolean isEmpty() {
+        return weekdays.isEmpty() && exceptions.isEmpty();
+    }
+    
+    /**
+     * Gets the windows of time in which the two versions are not open at the same times
+     * 
+     * Each window is a stretch where one version is open and the other is closed, and
+     * windows meeting at midnight are joined. Filters and holidays are taken into account
+     * here. When no weekday changed, only the exception days of either version are
+     * looked at, so long periods cost little.
+     * 
+     * @param start the first date to look at
+     * @param end the date to stop at (exclusive)
+     * @return the windows in chronological order, cut at the start and end dates
+     */
+    public List<DateTimeRange> affectedWindows(LocalDate start, LocalDate end) {
+        List<DateTimeRange> windows = new ArrayList<>();
+        long windowStart = 0;
+        long windowEnd = Long.MIN_VALUE;
+        long last = end.toEpochDay();
+        long day = start.toEpochDay();
+        while (day < last) {
+            int[] changed = Intervals.symmetricDifference(from.intervalsFor(day), to.intervalsFor(day));
+            long base = day * Intervals.SECONDS_PER_DAY;
+            for (int i = 0; i < changed.length; i += 2) {
+                if (base + changed[i] != windowEnd) {
+                    addWindow(windows, windowStart, windowEnd);
+                    windowStart = base + changed[i];
+                }
+                windowEnd = base + changed[i + 1];
+            }
+            day++;
+            if (weekdays.isEmpty() && day < last) {
+                // Days outside both exception indexes follow the same weekly hours
+                day = Math.min(from.exceptionIndex().nextExceptionDay(day), to.exceptionIndex().nextExceptionDay(day));
+            }
+        }
+        addWindow(windows, windowStart, windowEnd);
+        return windows;
+    }
+    
+    private static void addWindow(List<DateTimeRange> windows, long start, long end) {
+        if (end != Long.MIN_VALUE) {
+            windows.add(new DateTimeRange(TransitionCursor.toDateTime(start), TransitionCursor.toDateTime(end)));
+        }
+    }
+    
+    @Override
+    public String toString() {
+        return "weekdays " + weekdays + ", exceptions " + exceptions;
+    }
+}
@@ -5,10 +5,11 @@ import java.time.format.DateTimeFormatter;
 
 /**
  * Value object representing a single time
+ * Instances are immutable and safe to share between threads
  * 
  * @author wuwx
  */
-public class Time {
+public final class Time {
     private final LocalTime time;
     
     /**
@@ -20,19 +21,51 @@ public class Time {
         this.time = time;
     }
     
+    private static final DateTimeFormatter FORMAT = DateTimeFormatter.ofPattern("HH:mm");
+    
+    // Shared instances for every HH:mm value, index 1440 is "24:00"
+    private static final Time[] INTERNED = new Time[24 * 60 + 1];
+    
     /**
      * Creates a Time from a time string in HH:mm format
      * Supports special "24:00" to represent end of day
+     * Instances are immutable and shared, so equal strings return the same object
      * 
      * @param timeString the time string (e.g., "09:00", "24:00")
-     * @return a new Time instance
+     * @return a Time instance
      */
     public static Time fromString(String timeString) {
-        // Handle special case "24:00"
-        if ("24:00".equals(timeString)) {
-            return new Time(LocalTime.MAX); // 23:59:59.999999999
+        int minuteOfDay = minuteOfDay(timeString);
+        if (minuteOfDay >= 0) {
+            Time time = INTERNED[minuteOfDay];
+            if (time == null) {
+                // A racing thread may create a duplicate, which is harmless for a value object
+                time = new Time(minuteOfDay == 24 * 60 ? LocalTime.MAX : LocalTime.of(minuteOfDay / 60, minuteOfDay % 60));
+                INTERNED[minuteOfDay] = time;
+            }
+            return time;
+        }
+        // Anything else goes through the formatter, which reports the parse error
+        return new Time(LocalTime.parse(timeString, FORMAT));
+    }
+    
+    private static int minuteOfDay(String timeString) {
+        if (timeString == null || timeString.length() != 5 || timeString.charAt(2) != ':') {
+            return -1;
+        }
+        int hour = digits(timeString.charAt(0), timeString.charAt(1));
+        int minute = digits(timeString.charAt(3), timeString.charAt(4));
+        if (hour < 0 || minute < 0 || minute > 59 || hour > 24 || (hour == 24 && minute != 0)) {
+            return -1;
+        }
+        return hour * 60 + minute;
+    }
+    
+    private static int digits(char tens, char units) {
+        if (tens < '0' || tens > '9' || units < '0' || units > '9') {
+            return -1;
         }
-        return new Time(LocalTime.parse(timeString, DateTimeFormatter.ofPattern("HH:mm")));
+        return (tens - '0') * 10 + (units - '0');
     }
     
     /**
@@ -5,9 +5,13 @@ import java.time.LocalTime;
 /**
  * Value object representing a time range with start and end
  * 
+ * Instances are immutable and safe to share between threads. Data that is a list,
+ * set or map is copied into unmodifiable collections; other data objects are kept
+ * as given and should be immutable themselves.
+ * 
  * @author wuwx
  */
-public class TimeRange {
+public final class TimeRange {
     private final Time start;
     private final Time end;
     private final Object data;
@@ -32,7 +36,7 @@ public class TimeRange {
     public TimeRange(Time start, Time end, Object data) {
         this.start = start;
         this.end = end;
-        this.data = data;
+        this.data = Immutables.freeze(data);
     }
     
     /**
@@ -100,8 +104,13 @@ public class TimeRange {
         LocalTime startTime = start.toLocalTime();
         LocalTime endTime = end.toLocalTime();
         
+        // Handle ranges reaching the end of the day (e.g., 22:00-24:00)
+        if (endTime.equals(LocalTime.MAX)) {
+            return !time.isBefore(startTime);
+        }
+        
         // Handle overnight ranges (e.g., 22:00-02:00)
-        if (endTime.isBefore(startTime) || endTime.equals(LocalTime.MAX)) {
+        if (endTime.isBefore(startTime)) {
             // Overnight: time >= start OR time <= end
             return !time.isBefore(startTime) || !time.isAfter(endTime);
         } else {
@@ -0,0 +1,71 @@
+package io.github.wuwx.openinghours;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * Value object representing a schedule opening or closing at a given time
+ * Instances are immutable and safe to share between threads
+ * 
+ * @author wuwx
+ */
+public final class Transition {
+    private final LocalDateTime time;
+    private final boolean opening;
+    
+    /**
+     * Constructs a Transition
+     * 
+     * @param time the time of the transition
+     * @param opening true if the schedule opens at this time, false if it closes
+     */
+    public Transition(LocalDateTime time, boolean opening) {
+        this.time = Objects.requireNonNull(time, "time");
+        this.opening = opening;
+    }
+    
+    /**
+     * Gets the time of the transition
+     * 
+     * @return the date/time
+     */
+    public LocalDateTime time() {
+        return time;
+    }
+    
+    /**
+     * Checks if the schedule opens at this time
+     * 
+     * @return true for an opening
+     */
+    public boolean isOpening() {
+        return opening;
+    }
+    
+    /**
+     * Checks if the schedule closes at this time
+     * 
+     * @return true for a closing
+     */
+    public boolean isClosing() {
+        return !opening;
+    }
+    
+    @Override
+    public String toString() {
+        return (opening ? "open at " : "close at ") + time;
+    }
+    
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        Transition that = (Transition) o;
+        return opening == that.opening && time.equals(that.time);
+    }
+    
+    @Override
+    public int hashCode() {
+        return 31 * time.hashCode() + (opening ? 1 : 0);
+    }
+}
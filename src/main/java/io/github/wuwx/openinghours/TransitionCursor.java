@@ -0,0 +1,147 @@
+package io.github.wuwx.openinghours;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Forward iterator over the open and close transitions of a schedule
+ * 
+ * Times are local epoch seconds (seconds since 1970-01-01T00:00 in the
+ * schedule's local time). Consecutive days that are open across midnight are
+ * merged into a single open interval. Intervals are clipped to the
+ * [from, until) window, so a schedule that is open at {@code from} starts with
+ * an opening at {@code from} and one still open at {@code until} closes there.
+ * 
+ * @author wuwx
+ */
+final class TransitionCursor {
+    
+    private static final int SECONDS_PER_DAY = Intervals.SECONDS_PER_DAY;
+    
+    private final OpeningHours openingHours;
+    private final long until;
+    
+    private long epochDay;
+    private int[] intervals;
+    private int index;
+    private long position;
+    
+    private boolean opening;
+    private long time;
+    private long closeAt;
+    
+    /**
+     * Constructs a cursor positioned before the first transition
+     * 
+     * @param openingHours the schedule to iterate
+     * @param from the local epoch second to start from (inclusive)
+     * @param until the local epoch second to stop at (exclusive)
+     */
+    TransitionCursor(OpeningHours openingHours, long from, long until) {
+        this.openingHours = openingHours;
+        this.until = until;
+        this.epochDay = Math.floorDiv(from, SECONDS_PER_DAY);
+        this.position = from;
+    }
+    
+    /**
+     * Converts a date/time to local epoch seconds
+     * 
+     * @param dateTime the date/time
+     * @return the number of seconds since 1970-01-01T00:00
+     */
+    static long toEpochSecond(LocalDateTime dateTime) {
+        return dateTime.toEpochSecond(ZoneOffset.UTC);
+    }
+    
+    /**
+     * Converts local epoch seconds to a date/time
+     * 
+     * @param epochSecond the number of seconds since 1970-01-01T00:00
+     * @return the date/time
+     */
+    static LocalDateTime toDateTime(long epochSecond) {
+        return LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC);
+    }
+    
+    /**
+     * Moves to the next transition
+     * 
+     * @return false if there is no transition before the end of the window
+     */
+    boolean advance() {
+        if (opening) {
+            opening = false;
+            time = closeAt;
+            return true;
+        }
+        if (!nextInterval()) {
+            return false;
+        }
+        opening = true;
+        return true;
+    }
+    
+    /**
+     * Checks if the current transition opens the schedule
+     * 
+     * @return true for an opening, false for a closing
+     */
+    boolean opening() {
+        return opening;
+    }
+    
+    /**
+     * Gets the time of the current transition
+     * 
+     * @return the local epoch second of the transition
+     */
+    long time() {
+        return time;
+    }
+    
+    private boolean nextInterval() {
+        while (true) {
+            long base = epochDay * SECONDS_PER_DAY;
+            if (base >= until) {
+                return false;
+            }
+            if (intervals == null) {
+                intervals = openingHours.intervalsFor(epochDay);
+                index = 0;
+            }
+            if (index >= intervals.length) {
+                epochDay++;
+                intervals = null;
+                continue;
+            }
+            
+            long start = base + intervals[index];
+            long end = base + intervals[index + 1];
+            index += 2;
+            if (end <= position) {
+                continue;
+            }
+            if (start >= until) {
+                return false;
+            }
+            
+            // Merge ranges that continue past midnight into the next day
+            while (end == (epochDay + 1) * SECONDS_PER_DAY && end < until) {
+                epochDay++;
+                intervals = openingHours.intervalsFor(epochDay);
+                index = 0;
+                if (intervals.length == 0 || intervals[0] != 0) {
+                    break;
+                }
+                end = epochDay * SECONDS_PER_DAY + intervals[1];
+                index = 2;
+            }
+            
+            time = Math.max(start, position);
+            closeAt = Math.min(end, until);
+            position = closeAt;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package io.github.wuwx.openinghours;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publisher of the open and close transitions of a schedule
+ * 
+ * Each subscriber gets its own sequence, starting from the same time. Nothing is
+ * computed ahead of demand: every transition is searched for when a subscriber
+ * requests it, on the thread calling {@link Flow.Subscription#request(long)}, so a
+ * slow subscriber never causes work or buffering on the schedule's side.
+ * 
+ * This is the only class referring to {@link Flow}, so the rest of the library
+ * keeps working on runtimes without it.
+ * 
+ * @author wuwx
+ */
+final class TransitionPublisher implements Flow.Publisher<Transition> {
+    
+    private static final long SECONDS_PER_DAY = Intervals.SECONDS_PER_DAY;
+    
+    private final OpeningHours openingHours;
+    private final long from;
+    private final long until;
+    private final long searchSeconds;
+    
+    /**
+     * @param openingHours the schedule
+     * @param from the local epoch second of the first transition that may be published (inclusive)
+     * @param until the local epoch second to stop at (exclusive), Long.MAX_VALUE for no end
+     * @param searchDays the number of days to search for the next transition before completing
+     */
+    TransitionPublisher(OpeningHours openingHours, long from, long until, int searchDays) {
+        this.openingHours = openingHours;
+        this.from = from;
+        this.until = until;
+        this.searchSeconds = searchDays * SECONDS_PER_DAY;
+    }
+    
+    @Override
+    public void subscribe(Flow.Subscriber<? super Transition> subscriber) {
+        if (subscriber == null) {
+            throw new NullPointerException("subscriber");
+        }
+        TransitionSubscription subscription = new TransitionSubscription(subscriber);
+        subscriber.onSubscribe(subscription);
+    }
+    
+    private final class TransitionSubscription implements Flow.Subscription {
+        private final Flow.Subscriber<? super Transition> subscriber;
+        private final AtomicLong demand = new AtomicLong();
+        // Serializes delivery, so onNext is never called concurrently or reentrantly
+        private final AtomicInteger wip = new AtomicInteger();
+        private volatile boolean done;
+        private Throwable invalidRequest;
+        
+        // Only touched by the thread holding wip
+        private long position = from;
+        private boolean open;
+        private boolean started;
+        
+        TransitionSubscription(Flow.Subscriber<? super Transition> subscriber) {
+            this.subscriber = subscriber;
+        }
+        
+        @Override
+        public void request(long n) {
+            if (done) {
+                return;
+            }
+            if (n <= 0) {
+                invalidRequest = new IllegalArgumentException("Requested " + n + " transitions, must be positive (rule 3.9)");
+            } else {
+                demand.getAndAccumulate(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+            }
+            drain();
+        }
+        
+        @Override
+        public void cancel() {
+            done = true;
+        }
+        
+        private void drain() {
+            if (wip.getAndIncrement() != 0) {
+                return;
+            }
+            int missed = 1;
+            do {
+                try {
+                    while (!done) {
+                        if (invalidRequest != null) {
+                            done = true;
+                            subscriber.onError(invalidRequest);
+                            break;
+                        }
+                        if (demand.get() == 0) {
+                            break;
+                        }
+                        if (!started) {
+                            // Resolved on first demand, so that a failing schedule reaches onError
+                            started = true;
+                            open = from > Long.MIN_VALUE && isOpenAt(from - 1);
+                        }
+                        Transition next = next();
+                        if (next == null) {
+                            done = true;
+                            subscriber.onComplete();
+                            break;
+                        }
+                        demand.decrementAndGet();
+                        subscriber.onNext(next);
+                    }
+                } catch (RuntimeException e) {
+                    if (!done) {
+                        done = true;
+                        subscriber.onError(e);
+                    }
+                }
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+        
+        /**
+         * Searches for the transition following the current position
+         * 
+         * @return the transition, or null if there is none before the end or within the search window
+         */
+        private Transition next() {
+            long window = Math.min(until, position + searchSeconds);
+            TransitionCursor cursor = new TransitionCursor(openingHours, position, window);
+            if (!open) {
+                // The cursor starts with the first opening at or after the position
+                if (!cursor.advance()) {
+                    return null;
+                }
+                return emit(cursor.time(), true);
+            }
+            // Open just before the position: closed at the position unless it starts with an opening there
+            if (!cursor.advance() || cursor.time() > position) {
+                return emit(position, false);
+            }
+            cursor.advance();
+            if (cursor.time() >= window) {
+                // Still open at the end of the window: either the end, or no close within the search window
+                return null;
+            }
+            return emit(cursor.time(), false);
+        }
+        
+        /**
+         * Checks if the schedule is open at a second, from the same intervals the cursor walks
+         * 
+         * The state just before the start is used, so that a transition at the start itself is published.
+         * 
+         * @param second the local epoch second
+         * @return true if the second falls within an interval of its day
+         */
+        private boolean isOpenAt(long second) {
+            long day = Math.floorDiv(second, SECONDS_PER_DAY);
+            return Intervals.contains(openingHours.intervalsFor(day), (int) (second - day * SECONDS_PER_DAY));
+        }
+        
+        private Transition emit(long time, boolean opening) {
+            position = time;
+            open = opening;
+            return new Transition(TransitionCursor.toDateTime(time), opening);
+        }
+    }
+}
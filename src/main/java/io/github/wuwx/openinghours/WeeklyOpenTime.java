@@ -0,0 +1,241 @@
+package io.github.wuwx.openinghours;
+
+import io.github.wuwx.openinghours.exceptions.MaximumLimitExceeded;
+
+/**
+ * Cumulative open time of the regular weekly pattern of a schedule
+ * 
+ * Days between two exception days follow the weekly pattern, so whole weeks
+ * of them are skipped arithmetically and only exception days are resolved
+ * through the schedule.
+ * 
+ * @author wuwx
+ */
+final class WeeklyOpenTime {
+    
+    private static final int SECONDS_PER_DAY = Intervals.SECONDS_PER_DAY;
+    private static final int MAX_DAYS_WITHOUT_OPENING = 366;
+    
+    private final OpeningHours openingHours;
+    private final ExceptionIndex exceptionIndex;
+    private final int[][] weekdayIntervals;
+    private final int[] weekdayTotals;
+    private final long[] cumulative;
+    private final long weekTotal;
+    
+    /**
+     * Constructs the weekly table
+     * 
+     * @param openingHours the schedule used to resolve exception days
+     * @param exceptionIndex the exception days of the schedule
+     * @param weekdayIntervals the interval lists of the regular days, indexed by DayOfWeek ordinal
+     */
+    WeeklyOpenTime(OpeningHours openingHours, ExceptionIndex exceptionIndex, int[][] weekdayIntervals) {
+        this.openingHours = openingHours;
+        this.exceptionIndex = exceptionIndex;
+        this.weekdayIntervals = weekdayIntervals;
+        this.weekdayTotals = new int[7];
+        // Cumulative open time over two weeks, so any run of up to 7 days is a single subtraction
+        this.cumulative = new long[15];
+        for (int i = 0; i < 14; i++) {
+            weekdayTotals[i % 7] = Intervals.total(weekdayIntervals[i % 7]);
+            cumulative[i + 1] = cumulative[i] + weekdayTotals[i % 7];
+        }
+        this.weekTotal = cumulative[7];
+    }
+    
+    /**
+     * Gets the day of week ordinal (Monday is 0) of an epoch day
+     * 
+     * @param epochDay the number of days since 1970-01-01
+     * @return the DayOfWeek ordinal
+     */
+    static int dayOfWeek(long epochDay) {
+        // 1970-01-01 was a Thursday
+        return (int) Math.floorMod(epochDay + 3, 7L);
+    }
+    
+    /**
+     * Gets the open time of a full regular week
+     * 
+     * @return the number of open seconds per week
+     */
+    long weekTotal() {
+        return weekTotal;
+    }
+    
+    /**
+     * Counts the open seconds between two times
+     * 
+     * @param from the local epoch second to count from
+     * @param to the local epoch second to count until
+     * @return the number of open seconds, negative if to is before from
+     */
+    long openSecondsBetween(long from, long to) {
+        if (to < from) {
+            return -openSecondsBetween(to, from);
+        }
+        long firstDay = Math.floorDiv(from, SECONDS_PER_DAY);
+        long lastDay = Math.floorDiv(to, SECONDS_PER_DAY);
+        int fromSecond = (int) (from - firstDay * SECONDS_PER_DAY);
+        int toSecond = (int) (to - lastDay * SECONDS_PER_DAY);
+        
+        if (firstDay == lastDay) {
+            return openSecondsInDay(intervalsFor(firstDay), fromSecond, toSecond);
+        }
+        return openSecondsInDay(intervalsFor(firstDay), fromSecond, SECONDS_PER_DAY)
+            + openSecondsInDays(firstDay + 1, lastDay)
+            + openSecondsInDay(intervalsFor(lastDay), 0, toSecond);
+    }
+    
+    /**
+     * Counts the open seconds of whole days in [firstDay, endDay)
+     */
+    private long openSecondsInDays(long firstDay, long endDay) {
+        long days = endDay - firstDay;
+        if (days <= 0) {
+            return 0;
+        }
+        int weekday = dayOfWeek(firstDay);
+        int rest = (int) (days % 7);
+        long total = (days / 7) * weekTotal + cumulative[weekday + rest] - cumulative[weekday];
+        
+        // Replace the regular open time of every exception day in the range
+        long day = exceptionIndex.nextExceptionDay(firstDay);
+        while (day < endDay) {
+            total += Intervals.total(openingHours.intervalsFor(day)) - weekdayTotals[dayOfWeek(day)];
+            day = exceptionIndex.nextExceptionDay(day + 1);
+        }
+        return total;
+    }
+    
+    private static int openSecondsInDay(int[] intervals, int from, int to) {
+        int total = 0;
+        for (int i = 0; i < intervals.length; i += 2) {
+            int start = Math.max(intervals[i], from);
+            int end = Math.min(intervals[i + 1], to);
+            if (start < end) {
+                total += end - start;
+            }
+        }
+        return total;
+    }
+    
+    private int[] intervalsFor(long day) {
+        if (exceptionIndex.nextExceptionDay(day) == day) {
+            return openingHours.intervalsFor(day);
+        }
+        return weekdayIntervals[dayOfWeek(day)];
+    }
+    
+    /**
+     * Finds the time at which the given amount of open time has elapsed
+     * 
+     * @param from the local epoch second to start from
+     * @param seconds the open seconds to add, must not be negative
+     * @return the local epoch second at which the open time is reached
+     */
+    long add(long from, long seconds) {
+        if (seconds == 0) {
+            return from;
+        }
+        long day = Math.floorDiv(from, SECONDS_PER_DAY);
+        int secondOfDay = (int) Math.floorMod(from, (long) SECONDS_PER_DAY);
+        long remaining = seconds;
+        long nextException = exceptionIndex.nextExceptionDay(day);
+        long lastProgress = day;
+        
+        while (true) {
+            if (day > nextException) {
+                nextException = exceptionIndex.nextExceptionDay(day);
+            }
+            boolean regular = day < nextException;
+            
+            if (regular && secondOfDay == 0 && weekTotal > 0) {
+                // Skip whole weeks, keeping at least one second to place inside the last one
+                long regularDays = nextException == Long.MAX_VALUE ? Long.MAX_VALUE : nextException - day;
+                long weeks = Math.min((remaining - 1) / weekTotal, regularDays / 7);
+                day += 7 * weeks;
+                remaining -= weeks * weekTotal;
+            }
+            
+            int[] intervals = regular ? weekdayIntervals[dayOfWeek(day)] : openingHours.intervalsFor(day);
+            for (int i = 0; i < intervals.length; i += 2) {
+                if (intervals[i + 1] <= secondOfDay) {
+                    continue;
+                }
+                int start = Math.max(intervals[i], secondOfDay);
+                int available = intervals[i + 1] - start;
+                if (remaining <= available) {
+                    return day * SECONDS_PER_DAY + start + remaining;
+                }
+                remaining -= available;
+                lastProgress = day;
+            }
+            
+            day++;
+            secondOfDay = 0;
+            if (day - lastProgress > MAX_DAYS_WITHOUT_OPENING) {
+                throw MaximumLimitExceeded.forString(
+                    "No open time found within " + MAX_DAYS_WITHOUT_OPENING + " days");
+            }
+        }
+    }
+    
+    /**
+     * Finds the time from which the given amount of open time elapses until {@code to}
+     * 
+     * @param to the local epoch second to count back from
+     * @param seconds the open seconds to subtract, must not be negative
+     * @return the local epoch second from which the open time is reached
+     */
+    long subtract(long to, long seconds) {
+        if (seconds == 0) {
+            return to;
+        }
+        long day = Math.floorDiv(to, SECONDS_PER_DAY);
+        int secondOfDay = (int) Math.floorMod(to, (long) SECONDS_PER_DAY);
+        if (secondOfDay == 0) {
+            day--;
+            secondOfDay = SECONDS_PER_DAY;
+        }
+        long remaining = seconds;
+        long previousException = exceptionIndex.previousExceptionDay(day);
+        long lastProgress = day;
+        
+        while (true) {
+            if (day < previousException) {
+                previousException = exceptionIndex.previousExceptionDay(day);
+            }
+            boolean regular = day > previousException;
+            
+            if (regular && secondOfDay == SECONDS_PER_DAY && weekTotal > 0) {
+                long regularDays = previousException == Long.MIN_VALUE ? Long.MAX_VALUE : day - previousException;
+                long weeks = Math.min((remaining - 1) / weekTotal, regularDays / 7);
+                day -= 7 * weeks;
+                remaining -= weeks * weekTotal;
+            }
+            
+            int[] intervals = regular ? weekdayIntervals[dayOfWeek(day)] : openingHours.intervalsFor(day);
+            for (int i = intervals.length - 2; i >= 0; i -= 2) {
+                if (intervals[i] >= secondOfDay) {
+                    continue;
+                }
+                int end = Math.min(intervals[i + 1], secondOfDay);
+                int available = end - intervals[i];
+                if (remaining <= available) {
+                    return day * SECONDS_PER_DAY + end - remaining;
+                }
+                remaining -= available;
+                lastProgress = day;
+            }
+            
+            day--;
+            secondOfDay = SECONDS_PER_DAY;
+            if (lastProgress - day > MAX_DAYS_WITHOUT_OPENING) {
+                throw MaximumLimitExceeded.forString(
+                    "No open time found within " + MAX_DAYS_WITHOUT_OPENING + " days");
+            }
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package io.github.wuwx.openinghours;
+
+import java.time.LocalTime;
+import java.util.Arrays;
+
+/**
+ * Next opening and closing of the regular weekly pattern of a schedule
+ *
+ * The week is cut at its transition times. For each cut the answer is precomputed,
+ * so the next opening or closing after any time of a regular week is one binary
+ * search over a handful of cuts and an array read. The answers hold only while the
+ * days up to them follow the weekly pattern, which callers check on the exception
+ * index before using them.
+ *
+ * @author wuwx
+ */
+final class WeeklyTransitions {
+
+    static final int SECONDS_PER_WEEK = 7 * Intervals.SECONDS_PER_DAY;
+
+    private final Lookup openings;
+    private final Lookup closings;
+
+    private WeeklyTransitions(Lookup openings, Lookup closings) {
+        this.openings = openings;
+        this.closings = closings;
+    }
+
+    /**
+     * Builds the table of a schedule whose overnight ranges overflow into the next day
+     *
+     * Openings and closings are the boundaries of the weekly open time, where ranges
+     * meeting at midnight or at the end of the week count as one.
+     *
+     * @param weekdayIntervals the interval lists of the regular days, indexed by DayOfWeek ordinal
+     * @return the table
+     */
+    static WeeklyTransitions ofIntervals(int[][] weekdayIntervals) {
+        int[] week = new int[0];
+        for (int day = 0; day < 7; day++) {
+            int[] intervals = weekdayIntervals[day];
+            int[] shifted = new int[intervals.length];
+            for (int i = 0; i < intervals.length; i++) {
+                shifted[i] = intervals[i] + day * Intervals.SECONDS_PER_DAY;
+            }
+            week = Intervals.union(week, shifted);
+        }
+        // Open time running over the end of the week continues at the start of the next
+        boolean wraps = week.length > 2 && week[0] == 0 && week[week.length - 1] == SECONDS_PER_WEEK;
+        int[] opens = new int[week.length / 2];
+        int[] closes = new int[week.length / 2];
+        int count = 0;
+        for (int i = 0; i < week.length; i += 2) {
+            opens[count] = week[i];
+            closes[count] = week[i + 1] % SECONDS_PER_WEEK;
+            count++;
+        }
+        if (wraps) {
+            opens = Arrays.copyOfRange(opens, 1, count);
+            closes = Arrays.copyOf(closes, count - 1);
+        } else if (week.length == 2 && week[0] == 0 && week[1] == SECONDS_PER_WEEK) {
+            // Always open, nothing ever changes
+            opens = new int[0];
+            closes = new int[0];
+        }
+        Arrays.sort(closes);
+        return new WeeklyTransitions(Lookup.of(opens), Lookup.of(closes));
+    }
+
+    /**
+     * Builds the table of a schedule whose overnight ranges stay within their own day
+     *
+     * Mirrors the day by day search of that mode: the next opening is the next start
+     * of a range after midnight, and once the current day has no answer, the next
+     * closing is the end of the first range of the next day with hours, the range
+     * holding midnight first. Days with ranges out of order leave the openings empty and
+     * days whose first range ends at "24:00" leave the closings empty.
+     *
+     * @param days the regular days, indexed by DayOfWeek ordinal
+     * @return the table
+     */
+    static WeeklyTransitions ofDays(OpeningHoursForDay[] days) {
+        int[] starts = new int[0];
+        int[] dayStarts = new int[0];
+        long[] dayCloses = new long[0];
+        boolean closable = true;
+        for (int day = 0; day < 7; day++) {
+            int base = day * Intervals.SECONDS_PER_DAY;
+            TimeRange first = null;
+            for (TimeRange range : days[day].getTimeRanges()) {
+                int start = range.start().toLocalTime().toSecondOfDay();
+                if (start > 0) {
+                    starts = append(starts, base + start);
+                }
+                if (first == null && range.containsTime(LocalTime.MIDNIGHT)) {
+                    first = range;
+                }
+            }
+            if (first == null && !days[day].isEmpty()) {
+                first = days[day].get(0);
+            }
+            if (first != null && first.end().toLocalTime().equals(LocalTime.MAX)) {
+                // The search answers a whole day later with nanoseconds, leave those to it
+                closable = false;
+            } else if (first != null) {
+                dayStarts = append(dayStarts, base);
+                dayCloses = Arrays.copyOf(dayCloses, dayCloses.length + 1);
+                dayCloses[dayCloses.length - 1] = base + endOf(first);
+            }
+        }
+        // The search takes the first later start in list order, which is the earliest only if sorted
+        int[] sorted = starts.clone();
+        Arrays.sort(sorted);
+        return new WeeklyTransitions(Lookup.of(Arrays.equals(sorted, starts) ? starts : new int[0]),
+                                     closable ? new Lookup(dayStarts, dayCloses) : Lookup.of(new int[0]));
+    }
+
+    // End of a range as seconds from the start of its day, on the next day for overnight ranges
+    private static int endOf(TimeRange range) {
+        LocalTime end = range.end().toLocalTime();
+        return end.toSecondOfDay() + (end.isBefore(range.start().toLocalTime()) ? Intervals.SECONDS_PER_DAY : 0);
+    }
+
+    private static int[] append(int[] values, int value) {
+        int[] appended = Arrays.copyOf(values, values.length + 1);
+        appended[values.length] = value;
+        return appended;
+    }
+
+    /**
+     * Gets the first opening strictly after a time
+     *
+     * @param from the local epoch second to search from
+     * @return the local epoch second of the opening, or Long.MIN_VALUE if the table has none
+     */
+    long nextOpening(long from) {
+        return openings.next(from);
+    }
+
+    /**
+     * Gets the first closing strictly after a time
+     *
+     * For a table built with {@link #ofDays}, this is the closing found by searching
+     * the days that start after the time.
+     *
+     * @param from the local epoch second to search from
+     * @return the local epoch second of the closing, or Long.MIN_VALUE if the table has none
+     */
+    long nextClosing(long from) {
+        return closings.next(from);
+    }
+
+    /**
+     * Gets the last opening strictly before a time, for a table built with {@link #ofIntervals}
+     *
+     * @param from the local epoch second to search from
+     * @return the local epoch second of the opening, or Long.MIN_VALUE if the table has none
+     */
+    long previousOpening(long from) {
+        return openings.previous(from);
+    }
+
+    /**
+     * Gets the last closing strictly before a time, for a table built with {@link #ofIntervals}
+     *
+     * @param from the local epoch second to search from
+     * @return the local epoch second of the closing, or Long.MIN_VALUE if the table has none
+     */
+    long previousClosing(long from) {
+        return closings.previous(from);
+    }
+
+    /**
+     * Sorted cuts within the week, each with the answer for times up to it
+     */
+    private static final class Lookup {
+        private final int[] keys;
+        private final long[] answers;
+
+        Lookup(int[] keys, long[] answers) {
+            this.keys = keys;
+            this.answers = answers;
+        }
+
+        static Lookup of(int[] times) {
+            long[] answers = new long[times.length];
+            for (int i = 0; i < times.length; i++) {
+                answers[i] = times[i];
+            }
+            return new Lookup(times, answers);
+        }
+
+        long next(long from) {
+            if (keys.length == 0) {
+                return Long.MIN_VALUE;
+            }
+            long weekStart = weekStart(from);
+            // First key strictly after the second of week, wrapping to the next week
+            int index = firstAfter((int) (from - weekStart));
+            return index < keys.length ? weekStart + answers[index] : weekStart + SECONDS_PER_WEEK + answers[0];
+        }
+
+        // Only meaningful when every answer is its own key
+        long previous(long from) {
+            if (keys.length == 0) {
+                return Long.MIN_VALUE;
+            }
+            long weekStart = weekStart(from);
+            // Last key strictly before the second of week, wrapping to the previous week
+            int index = firstAfter((int) (from - weekStart) - 1) - 1;
+            return index >= 0 ? weekStart + answers[index] : weekStart - SECONDS_PER_WEEK + answers[keys.length - 1];
+        }
+
+        private int firstAfter(int secondOfWeek) {
+            int low = 0;
+            int high = keys.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (keys[middle] <= secondOfWeek) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        private static long weekStart(long from) {
+            long epochDay = Math.floorDiv(from, (long) Intervals.SECONDS_PER_DAY);
+            return (epochDay - WeeklyOpenTime.dayOfWeek(epochDay)) * Intervals.SECONDS_PER_DAY;
+        }
+    }
+}
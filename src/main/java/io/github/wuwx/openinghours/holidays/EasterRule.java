@@ -0,0 +1,52 @@
+package io.github.wuwx.openinghours.holidays;
+
+import java.time.LocalDate;
+import java.util.Optional;
+
+/**
+ * Holiday at a fixed offset from Western Easter Sunday
+ * 
+ * @author wuwx
+ */
+final class EasterRule implements HolidayRule {
+    
+    private final int offsetDays;
+    
+    EasterRule(int offsetDays) {
+        this.offsetDays = offsetDays;
+    }
+    
+    @Override
+    public Optional<LocalDate> dateIn(int year) {
+        return Optional.of(easterSunday(year).plusDays(offsetDays));
+    }
+    
+    /**
+     * Computes Easter Sunday in the Gregorian calendar (anonymous Gregorian algorithm)
+     * 
+     * @param year the year
+     * @return the date of Easter Sunday
+     */
+    static LocalDate easterSunday(int year) {
+        int a = year % 19;
+        int b = year / 100;
+        int c = year % 100;
+        int d = b / 4;
+        int e = b % 4;
+        int f = (b + 8) / 25;
+        int g = (b - f + 1) / 3;
+        int h = (19 * a + b - d - g + 15) % 30;
+        int i = c / 4;
+        int k = c % 4;
+        int l = (32 + 2 * e + 2 * i - h - k) % 7;
+        int m = (a + 11 * h + 22 * l) / 451;
+        int month = (h + l - 7 * m + 114) / 31;
+        int day = (h + l - 7 * m + 114) % 31 + 1;
+        return LocalDate.of(year, month, day);
+    }
+    
+    @Override
+    public String toString() {
+        return "easter(" + (offsetDays >= 0 ? "+" : "") + offsetDays + ")";
+    }
+}
@@ -0,0 +1,38 @@
+package io.github.wuwx.openinghours.holidays;
+
+import java.time.LocalDate;
+import java.time.Month;
+import java.time.Year;
+import java.util.Optional;
+
+/**
+ * Holiday on the same month and day every year
+ * 
+ * @author wuwx
+ */
+final class FixedDateRule implements HolidayRule {
+    
+    private final Month month;
+    private final int dayOfMonth;
+    
+    FixedDateRule(Month month, int dayOfMonth) {
+        if (month == null || dayOfMonth < 1 || dayOfMonth > month.maxLength()) {
+            throw new IllegalArgumentException("Invalid date: " + month + " " + dayOfMonth);
+        }
+        this.month = month;
+        this.dayOfMonth = dayOfMonth;
+    }
+    
+    @Override
+    public Optional<LocalDate> dateIn(int year) {
+        if (dayOfMonth > month.length(Year.isLeap(year))) {
+            return Optional.empty();
+        }
+        return Optional.of(LocalDate.of(year, month, dayOfMonth));
+    }
+    
+    @Override
+    public String toString() {
+        return "fixed(" + month + " " + dayOfMonth + ")";
+    }
+}
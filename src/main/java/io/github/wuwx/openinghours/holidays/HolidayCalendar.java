@@ -0,0 +1,261 @@
+package io.github.wuwx.openinghours.holidays;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Named set of holiday rules, evaluated one year at a time
+ * 
+ * A calendar never enumerates its holidays up front. The first lookup in a year
+ * evaluates every rule for that year and keeps the result as a sorted array of
+ * epoch days; later lookups are a binary search. Compiled years are kept by the
+ * calendar itself, so every schedule referencing the same instance shares them.
+ * Calendars are immutable and safe to share between threads; two threads compiling
+ * the same year at once both do the work and the first result is kept.
+ * 
+ * When two rules fall on the same date, the rule added first gives the holiday its name.
+ * 
+ * @author wuwx
+ */
+public final class HolidayCalendar {
+    
+    // A February 29th rule may only come back after 8 years
+    private static final int SEARCH_YEARS = 8;
+    
+    private final Map<String, HolidayRule> rules;
+    private final Map<Integer, CompiledYear> years = new ConcurrentHashMap<>();
+    // Recently used years by year modulo the length, so that lookups don't box the year.
+    // Compiled years only have final fields, so a racy read sees them fully built.
+    private final CompiledYear[] recent = new CompiledYear[16];
+    
+    private HolidayCalendar(Map<String, HolidayRule> rules) {
+        this.rules = rules;
+    }
+    
+    /**
+     * Creates a calendar from named rules
+     * 
+     * @param rules the rules by holiday name, in order of precedence
+     * @return a new HolidayCalendar instance
+     */
+    public static HolidayCalendar of(Map<String, HolidayRule> rules) {
+        Map<String, HolidayRule> copy = new LinkedHashMap<>();
+        for (Map.Entry<String, HolidayRule> entry : rules.entrySet()) {
+            if (entry.getKey() == null || entry.getValue() == null) {
+                throw new IllegalArgumentException("Holiday names and rules must not be null");
+            }
+            copy.put(entry.getKey(), entry.getValue());
+        }
+        return new HolidayCalendar(Collections.unmodifiableMap(copy));
+    }
+    
+    /**
+     * Gets the rules of this calendar
+     * 
+     * @return an unmodifiable map of rules by holiday name
+     */
+    public Map<String, HolidayRule> rules() {
+        return rules;
+    }
+    
+    /**
+     * Gets the name of the holiday on a date
+     * 
+     * @param date the date
+     * @return the holiday name, or empty if the date is not a holiday
+     */
+    public Optional<String> holidayOn(LocalDate date) {
+        return Optional.ofNullable(holidayName(date.toEpochDay()));
+    }
+    
+    /**
+     * Gets the name of the holiday on a day, without creating a date
+     * 
+     * @param epochDay the day as a number of days since 1970-01-01
+     * @return the holiday name, or null if the day is not a holiday
+     */
+    public String holidayName(long epochDay) {
+        CompiledYear year = compiled(yearOf(epochDay));
+        int i = Arrays.binarySearch(year.days, epochDay);
+        return i >= 0 ? year.names[i] : null;
+    }
+    
+    /**
+     * Checks if a date is a holiday
+     * 
+     * @param date the date
+     * @return true if a rule falls on the date
+     */
+    public boolean isHoliday(LocalDate date) {
+        return isHoliday(date.toEpochDay());
+    }
+    
+    /**
+     * Checks if a day is a holiday, without creating a date
+     * 
+     * @param epochDay the day as a number of days since 1970-01-01
+     * @return true if a rule falls on the day
+     */
+    public boolean isHoliday(long epochDay) {
+        return Arrays.binarySearch(compiled(yearOf(epochDay)).days, epochDay) >= 0;
+    }
+    
+    /**
+     * Gets the holidays of a year
+     * 
+     * @param year the year
+     * @return an unmodifiable map of holiday names by date, sorted by date
+     */
+    public Map<LocalDate, String> holidaysIn(int year) {
+        CompiledYear compiled = compiled(year);
+        Map<LocalDate, String> holidays = new LinkedHashMap<>();
+        for (int i = 0; i < compiled.days.length; i++) {
+            holidays.put(LocalDate.ofEpochDay(compiled.days[i]), compiled.names[i]);
+        }
+        return Collections.unmodifiableMap(holidays);
+    }
+    
+    /**
+     * Finds the first holiday on or after a date
+     * 
+     * @param date the date to search from
+     * @return the date of the holiday, or empty if there is none in the next years
+     */
+    public Optional<LocalDate> nextHoliday(LocalDate date) {
+        long next = nextHolidayDay(date.toEpochDay());
+        return next == Long.MAX_VALUE ? Optional.empty() : Optional.of(LocalDate.ofEpochDay(next));
+    }
+    
+    /**
+     * Finds the first holiday on or after a day, without creating a date
+     * 
+     * @param epochDay the day to search from, as a number of days since 1970-01-01
+     * @return the epoch day of the holiday, or Long.MAX_VALUE if there is none in the next years
+     */
+    public long nextHolidayDay(long epochDay) {
+        int first = yearOf(epochDay);
+        for (int year = first; year <= first + SEARCH_YEARS; year++) {
+            long[] days = compiled(year).days;
+            int i = Arrays.binarySearch(days, epochDay);
+            if (i < 0) {
+                i = -i - 1;
+            }
+            if (i < days.length) {
+                return days[i];
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+    
+    /**
+     * Finds the last holiday on or before a date
+     * 
+     * @param date the date to search from
+     * @return the date of the holiday, or empty if there is none in the previous years
+     */
+    public Optional<LocalDate> previousHoliday(LocalDate date) {
+        long previous = previousHolidayDay(date.toEpochDay());
+        return previous == Long.MIN_VALUE ? Optional.empty() : Optional.of(LocalDate.ofEpochDay(previous));
+    }
+    
+    /**
+     * Finds the last holiday on or before a day, without creating a date
+     * 
+     * @param epochDay the day to search from, as a number of days since 1970-01-01
+     * @return the epoch day of the holiday, or Long.MIN_VALUE if there is none in the previous years
+     */
+    public long previousHolidayDay(long epochDay) {
+        int last = yearOf(epochDay);
+        for (int year = last; year >= last - SEARCH_YEARS; year--) {
+            long[] days = compiled(year).days;
+            int i = Arrays.binarySearch(days, epochDay);
+            if (i < 0) {
+                i = -i - 2;
+            }
+            if (i >= 0) {
+                return days[i];
+            }
+        }
+        return Long.MIN_VALUE;
+    }
+    
+    private CompiledYear compiled(int year) {
+        int slot = year & (recent.length - 1);
+        CompiledYear compiled = recent[slot];
+        if (compiled != null && compiled.year == year) {
+            return compiled;
+        }
+        compiled = years.get(year);
+        if (compiled == null) {
+            compiled = compile(year);
+            CompiledYear existing = years.putIfAbsent(year, compiled);
+            if (existing != null) {
+                compiled = existing;
+            }
+        }
+        recent[slot] = compiled;
+        return compiled;
+    }
+    
+    // Proleptic year of an epoch day, computed like LocalDate.ofEpochDay without creating one
+    private static int yearOf(long epochDay) {
+        // Years counted from March 1st of year 0, so that February 29th comes last
+        long days = epochDay + 719468;
+        long era = Math.floorDiv(days, 146097L);
+        long dayOfEra = days - era * 146097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        // January and February (from day 306 on) belong to the next calendar year
+        return (int) (yearOfEra + era * 400 + (dayOfYear >= 306 ? 1 : 0));
+    }
+    
+    private CompiledYear compile(int year) {
+        // Keyed by epoch day so that the first rule on a date keeps its name
+        Map<Long, String> found = new LinkedHashMap<>();
+        for (Map.Entry<String, HolidayRule> entry : rules.entrySet()) {
+            // A rule may land in the neighbouring year (observed days, Easter offsets)
+            for (int ruleYear = year - 1; ruleYear <= year + 1; ruleYear++) {
+                Optional<LocalDate> date = entry.getValue().dateIn(ruleYear);
+                if (date.isPresent() && date.get().getYear() == year) {
+                    found.putIfAbsent(date.get().toEpochDay(), entry.getKey());
+                }
+            }
+        }
+        long[] days = new long[found.size()];
+        int n = 0;
+        for (Long day : found.keySet()) {
+            days[n++] = day;
+        }
+        Arrays.sort(days);
+        String[] names = new String[days.length];
+        for (int i = 0; i < days.length; i++) {
+            names[i] = found.get(days[i]);
+        }
+        return new CompiledYear(year, days, names);
+    }
+    
+    @Override
+    public String toString() {
+        return "HolidayCalendar" + rules.keySet();
+    }
+    
+    /**
+     * Holidays of one year as sorted epoch days and their names
+     */
+    private static final class CompiledYear {
+        final int year;
+        final long[] days;
+        final String[] names;
+        
+        CompiledYear(int year, long[] days, String[] names) {
+            this.year = year;
+            this.days = days;
+            this.names = names;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package io.github.wuwx.openinghours.holidays;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.Optional;
+
+/**
+ * Service provider interface for a holiday that falls on a computable date each year
+ * 
+ * Implementations must be stateless or immutable, as a rule is evaluated once per
+ * year by a {@link HolidayCalendar} and the result is shared between threads.
+ * Built-in rules are available from the static factories.
+ * 
+ * @author wuwx
+ */
+@FunctionalInterface
+public interface HolidayRule {
+    
+    /**
+     * Gets the date of the holiday in a year
+     * 
+     * @param year the year
+     * @return the date, or empty if the holiday does not occur that year
+     */
+    Optional<LocalDate> dateIn(int year);
+    
+    /**
+     * Moves a holiday falling on a weekend to the following Monday
+     * 
+     * @return a rule observed on Monday when the holiday is on Saturday or Sunday
+     */
+    default HolidayRule observedOnMonday() {
+        return new ObservedRule(this, false);
+    }
+    
+    /**
+     * Moves a holiday falling on a weekend to the nearest weekday
+     * 
+     * @return a rule observed on Friday for Saturday and on Monday for Sunday
+     */
+    default HolidayRule observedOnNearestWeekday() {
+        return new ObservedRule(this, true);
+    }
+    
+    /**
+     * Creates a holiday on the same date every year (e.g., December 25th)
+     * February 29th only occurs in leap years
+     * 
+     * @param month the month
+     * @param dayOfMonth the day of the month
+     * @return a new rule
+     */
+    static HolidayRule fixed(Month month, int dayOfMonth) {
+        return new FixedDateRule(month, dayOfMonth);
+    }
+    
+    /**
+     * Creates a holiday on the nth weekday of a month (e.g., the 3rd Monday of January)
+     * 
+     * @param n the occurrence, from 1 to 5
+     * @param dayOfWeek the day of the week
+     * @param month the month
+     * @return a new rule, which has no date in years where the month has no nth such weekday
+     */
+    static HolidayRule nthWeekday(int n, DayOfWeek dayOfWeek, Month month) {
+        return new NthWeekdayRule(n, dayOfWeek, month);
+    }
+    
+    /**
+     * Creates a holiday on the last weekday of a month (e.g., the last Monday of May)
+     * 
+     * @param dayOfWeek the day of the week
+     * @param month the month
+     * @return a new rule
+     */
+    static HolidayRule lastWeekday(DayOfWeek dayOfWeek, Month month) {
+        return new NthWeekdayRule(-1, dayOfWeek, month);
+    }
+    
+    /**
+     * Creates a holiday relative to Western (Gregorian) Easter Sunday
+     * 
+     * @param offsetDays the number of days after Easter Sunday (e.g., -2 for Good Friday, 1 for Easter Monday)
+     * @return a new rule
+     */
+    static HolidayRule easter(int offsetDays) {
+        return new EasterRule(offsetDays);
+    }
+}
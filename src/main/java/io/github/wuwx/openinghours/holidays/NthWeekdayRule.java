@@ -0,0 +1,49 @@
+package io.github.wuwx.openinghours.holidays;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.Month;
+import java.time.temporal.TemporalAdjusters;
+import java.util.Optional;
+
+/**
+ * Holiday on the nth or the last given weekday of a month
+ * 
+ * @author wuwx
+ */
+final class NthWeekdayRule implements HolidayRule {
+    
+    private final int n;
+    private final DayOfWeek dayOfWeek;
+    private final Month month;
+    
+    /**
+     * @param n the occurrence from 1 to 5, or -1 for the last one
+     */
+    NthWeekdayRule(int n, DayOfWeek dayOfWeek, Month month) {
+        if ((n < 1 || n > 5) && n != -1) {
+            throw new IllegalArgumentException("Occurrence must be between 1 and 5: " + n);
+        }
+        if (dayOfWeek == null || month == null) {
+            throw new IllegalArgumentException("Day of week and month must not be null");
+        }
+        this.n = n;
+        this.dayOfWeek = dayOfWeek;
+        this.month = month;
+    }
+    
+    @Override
+    public Optional<LocalDate> dateIn(int year) {
+        LocalDate first = LocalDate.of(year, month, 1);
+        if (n == -1) {
+            return Optional.of(first.with(TemporalAdjusters.lastInMonth(dayOfWeek)));
+        }
+        LocalDate date = first.with(TemporalAdjusters.dayOfWeekInMonth(n, dayOfWeek));
+        return date.getMonth() == month ? Optional.of(date) : Optional.empty();
+    }
+    
+    @Override
+    public String toString() {
+        return (n == -1 ? "last" : "nth(" + n + ")") + " " + dayOfWeek + " of " + month;
+    }
+}
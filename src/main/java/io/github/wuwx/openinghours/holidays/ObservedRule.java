@@ -0,0 +1,39 @@
+package io.github.wuwx.openinghours.holidays;
+
+import java.time.LocalDate;
+import java.util.Optional;
+
+/**
+ * Holiday moved off the weekend to the day it is observed
+ * 
+ * @author wuwx
+ */
+final class ObservedRule implements HolidayRule {
+    
+    private final HolidayRule rule;
+    private final boolean nearestWeekday;
+    
+    ObservedRule(HolidayRule rule, boolean nearestWeekday) {
+        this.rule = rule;
+        this.nearestWeekday = nearestWeekday;
+    }
+    
+    @Override
+    public Optional<LocalDate> dateIn(int year) {
+        return rule.dateIn(year).map(date -> {
+            switch (date.getDayOfWeek()) {
+                case SATURDAY:
+                    return nearestWeekday ? date.minusDays(1) : date.plusDays(2);
+                case SUNDAY:
+                    return date.plusDays(1);
+                default:
+                    return date;
+            }
+        });
+    }
+    
+    @Override
+    public String toString() {
+        return rule + (nearestWeekday ? " observed on nearest weekday" : " observed on monday");
+    }
+}
@@ -0,0 +1,88 @@
+package io.github.wuwx.openinghours.metrics;
+
+/**
+ * Service provider interface for instrumenting opening hours queries
+ * 
+ * Implementations bridge the library to an external metrics stack. The default
+ * is {@link #noop()}, which reports itself as disabled so that callers skip the
+ * timing code entirely and the JIT can remove the calls.
+ * 
+ * Implementations must be thread-safe, as a single instance is shared by every
+ * query on the schedules it is attached to.
+ * 
+ * @author wuwx
+ */
+public interface Metrics {
+    
+    String IS_OPEN_AT = "isOpenAt";
+    String FOR_DATE = "forDate";
+    String NEXT_OPEN = "nextOpen";
+    String NEXT_CLOSE = "nextClose";
+    String PREVIOUS_OPEN = "previousOpen";
+    String PREVIOUS_CLOSE = "previousClose";
+    String CURRENT_OPEN_RANGE = "currentOpenRange";
+    String DIFF_IN_SECONDS = "diffInSeconds";
+    String DIFF_IN_OPEN_SECONDS_BULK = "diffInOpenSecondsBulk";
+    String ADD_OPEN_DURATION = "addOpenDuration";
+    String SUBTRACT_OPEN_DURATION = "subtractOpenDuration";
+    
+    String PARSE_CACHE = "parseCache";
+    String CALENDAR_CACHE = "calendarCache";
+    
+    /**
+     * Returns the shared no-op implementation
+     * 
+     * @return a metrics instance that discards everything
+     */
+    static Metrics noop() {
+        return NoopMetrics.INSTANCE;
+    }
+    
+    /**
+     * Checks if this implementation records anything
+     * Callers use this to skip clock reads when metrics are disabled
+     * 
+     * @return true if measurements should be taken
+     */
+    default boolean isEnabled() {
+        return true;
+    }
+    
+    /**
+     * Records how many days a search walked before it returned
+     * 
+     * @param operation the operation name (e.g., {@link #NEXT_OPEN})
+     * @param iterations the number of days visited
+     */
+    void recordSearchIterations(String operation, int iterations);
+    
+    /**
+     * Records an exception lookup for a date
+     * 
+     * @param hit true if the date matched an exception
+     */
+    void recordExceptionLookup(boolean hit);
+    
+    /**
+     * Records an access to an internal cache
+     * 
+     * @param cache the cache name
+     * @param hit true if the value was already cached
+     */
+    void recordCacheAccess(String cache, boolean hit);
+    
+    /**
+     * Records a search that gave up with a MaximumLimitExceeded exception
+     * 
+     * @param operation the operation name
+     */
+    void recordLimitExceeded(String operation);
+    
+    /**
+     * Records the duration of a query
+     * 
+     * @param operation the operation name
+     * @param nanos the elapsed time in nanoseconds
+     */
+    void recordLatency(String operation, long nanos);
+}
@@ -0,0 +1,39 @@
+package io.github.wuwx.openinghours.metrics;
+
+/**
+ * Metrics implementation that discards all measurements
+ * 
+ * @author wuwx
+ */
+final class NoopMetrics implements Metrics {
+    
+    static final NoopMetrics INSTANCE = new NoopMetrics();
+    
+    private NoopMetrics() {
+    }
+    
+    @Override
+    public boolean isEnabled() {
+        return false;
+    }
+    
+    @Override
+    public void recordSearchIterations(String operation, int iterations) {
+    }
+    
+    @Override
+    public void recordExceptionLookup(boolean hit) {
+    }
+    
+    @Override
+    public void recordCacheAccess(String cache, boolean hit) {
+    }
+    
+    @Override
+    public void recordLimitExceeded(String operation) {
+    }
+    
+    @Override
+    public void recordLatency(String operation, long nanos) {
+    }
+}
@@ -0,0 +1,124 @@
+package io.github.wuwx.openinghours.server;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Minimal streaming JSON writer for the flat documents of the query service
+ * Commas are inserted automatically; nesting is tracked with a bit per level
+ * 
+ * @author wuwx
+ */
+final class JsonWriter {
+    
+    private final Writer out;
+    // Bit n is set when the container at depth n already has a member
+    private long hasMember;
+    private int depth;
+    
+    JsonWriter(Writer out) {
+        this.out = out;
+    }
+    
+    JsonWriter beginObject() throws IOException {
+        return open('{');
+    }
+    
+    JsonWriter endObject() throws IOException {
+        return close('}');
+    }
+    
+    JsonWriter beginArray() throws IOException {
+        return open('[');
+    }
+    
+    JsonWriter endArray() throws IOException {
+        return close(']');
+    }
+    
+    JsonWriter name(String name) throws IOException {
+        separate();
+        string(name);
+        out.write(':');
+        // The value that follows belongs to this name, so it must not add a comma
+        hasMember &= ~(1L << depth);
+        return this;
+    }
+    
+    JsonWriter value(String value) throws IOException {
+        separate();
+        if (value == null) {
+            out.write("null");
+        } else {
+            string(value);
+        }
+        return this;
+    }
+    
+    JsonWriter value(Boolean value) throws IOException {
+        separate();
+        out.write(value == null ? "null" : value.toString());
+        return this;
+    }
+    
+    JsonWriter value(Object value) throws IOException {
+        return value(value == null ? null : value.toString());
+    }
+    
+    void flush() throws IOException {
+        out.flush();
+    }
+    
+    private JsonWriter open(char c) throws IOException {
+        separate();
+        out.write(c);
+        depth++;
+        hasMember &= ~(1L << depth);
+        return this;
+    }
+    
+    private JsonWriter close(char c) throws IOException {
+        depth--;
+        out.write(c);
+        hasMember |= 1L << depth;
+        return this;
+    }
+    
+    private void separate() throws IOException {
+        if ((hasMember & (1L << depth)) != 0) {
+            out.write(',');
+        }
+        hasMember |= 1L << depth;
+    }
+    
+    private void string(String value) throws IOException {
+        out.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    out.write("\\\"");
+                    break;
+                case '\\':
+                    out.write("\\\\");
+                    break;
+                case '\n':
+                    out.write("\\n");
+                    break;
+                case '\r':
+                    out.write("\\r");
+                    break;
+                case '\t':
+                    out.write("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        out.write(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.write(c);
+                    }
+            }
+        }
+        out.write('"');
+    }
+}
@@ -0,0 +1,92 @@
+package io.github.wuwx.openinghours.server;
+
+import io.github.wuwx.openinghours.OpeningHours;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Thread-safe registry of schedules by id
+ * 
+ * Schedules are immutable, so replacing one is a single map update and readers
+ * see either the old or the new schedule, never a mix.
+ * 
+ * @author wuwx
+ */
+public final class ScheduleRegistry {
+    
+    private final Map<String, OpeningHours> schedules = new ConcurrentHashMap<>();
+    
+    /**
+     * Registers a schedule, replacing any schedule with the same id
+     * 
+     * @param id the schedule id
+     * @param openingHours the schedule
+     * @return the replaced schedule, or null if there was none
+     */
+    public OpeningHours put(String id, OpeningHours openingHours) {
+        if (id == null || openingHours == null) {
+            throw new IllegalArgumentException("Id and schedule must not be null");
+        }
+        return schedules.put(id, openingHours);
+    }
+    
+    /**
+     * Gets a schedule
+     * 
+     * @param id the schedule id
+     * @return the schedule, or null if there is none with this id
+     */
+    public OpeningHours get(String id) {
+        return schedules.get(id);
+    }
+    
+    /**
+     * Removes a schedule
+     * 
+     * @param id the schedule id
+     * @return the removed schedule, or null if there was none
+     */
+    public OpeningHours remove(String id) {
+        return schedules.remove(id);
+    }
+    
+    /**
+     * Gets the registered ids
+     * 
+     * @return an unmodifiable view of the ids
+     */
+    public Set<String> ids() {
+        return Collections.unmodifiableSet(schedules.keySet());
+    }
+    
+    /**
+     * Counts how many registered schedules are open in each bucket of a period
+     * 
+     * Takes a snapshot of the schedules and counts them with
+     * {@link OpeningHours#openCounts(java.util.Collection, LocalDateTime, LocalDateTime, Duration)},
+     * in parallel shards for large registries.
+     * 
+     * @param start the start of the first bucket, in the schedules' local time
+     * @param end the date/time to stop at (exclusive)
+     * @param bucket the length of a bucket (e.g., 5 minutes)
+     * @return the number of open schedules in each bucket
+     */
+    public int[] openCounts(LocalDateTime start, LocalDateTime end, Duration bucket) {
+        return OpeningHours.openCounts(new ArrayList<>(schedules.values()), start, end, bucket);
+    }
+    
+    /**
+     * Gets the number of registered schedules
+     * 
+     * @return the number of schedules
+     */
+    public int size() {
+        return schedules.size();
+    }
+}
@@ -0,0 +1,316 @@
+package io.github.wuwx.openinghours.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.github.wuwx.openinghours.OpeningHours;
+import io.github.wuwx.openinghours.exceptions.MaximumLimitExceeded;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Embedded HTTP service answering schedule queries from a {@link ScheduleRegistry}
+ * 
+ * Built on the JDK's {@code com.sun.net.httpserver}, with no other dependency.
+ * Every response is JSON and is streamed to the client as it is produced, so a
+ * batch query over thousands of ids never holds the whole answer in memory.
+ * Endpoints, where {@code at} is an ISO local date/time and defaults to now in
+ * each schedule's timezone:
+ * <ul>
+ * <li>{@code GET /schedules/{id}/open?at=} whether one schedule is open</li>
+ * <li>{@code GET /schedules/{id}/next-transition?at=} the next time it opens or closes</li>
+ * <li>{@code GET /open-at?at=&ids=a,b,c} whether each schedule is open, or
+ * {@code POST /open-at?at=} with one id per line in the body</li>
+ * </ul>
+ * 
+ * Requests run on virtual threads when the runtime has them, and on a bounded pool
+ * of platform threads otherwise. Deployments should start the JVM with
+ * {@code -Dsun.net.httpserver.nodelay=true}: the JDK server writes headers and body
+ * separately, and with Nagle's algorithm each keep-alive response waits for the
+ * client's delayed acknowledgement.
+ * 
+ * @author wuwx
+ */
+public final class ScheduleServer implements AutoCloseable {
+    
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final boolean ownsExecutor;
+    private final ScheduleRegistry registry;
+    
+    private ScheduleServer(HttpServer server, ExecutorService executor, boolean ownsExecutor, ScheduleRegistry registry) {
+        this.server = server;
+        this.executor = executor;
+        this.ownsExecutor = ownsExecutor;
+        this.registry = registry;
+    }
+    
+    /**
+     * Starts a server on the default executor
+     * 
+     * @param registry the schedules to serve
+     * @param address the address to bind, port 0 for any free port
+     * @return the running server
+     * @throws IOException if the address can't be bound
+     */
+    public static ScheduleServer start(ScheduleRegistry registry, InetSocketAddress address) throws IOException {
+        return start(registry, address, defaultExecutor(), true);
+    }
+    
+    /**
+     * Starts a server on the given executor, which is left running when the server is closed
+     * 
+     * @param registry the schedules to serve
+     * @param address the address to bind, port 0 for any free port
+     * @param executor the executor running the requests
+     * @return the running server
+     * @throws IOException if the address can't be bound
+     */
+    public static ScheduleServer start(ScheduleRegistry registry, InetSocketAddress address,
+                                       ExecutorService executor) throws IOException {
+        return start(registry, address, executor, false);
+    }
+    
+    private static ScheduleServer start(ScheduleRegistry registry, InetSocketAddress address,
+                                        ExecutorService executor, boolean ownsExecutor) throws IOException {
+        HttpServer httpServer = HttpServer.create(address, 0);
+        ScheduleServer server = new ScheduleServer(httpServer, executor, ownsExecutor, registry);
+        httpServer.createContext("/schedules/", server::handleSchedule);
+        httpServer.createContext("/open-at", server::handleOpenAt);
+        httpServer.setExecutor(executor);
+        httpServer.start();
+        return server;
+    }
+    
+    /**
+     * Creates a virtual-thread-per-task executor, looked up reflectively so that the
+     * library still runs on Java versions without virtual threads
+     * 
+     * @return a new executor
+     */
+    static ExecutorService defaultExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger count = new AtomicInteger();
+            return Executors.newFixedThreadPool(Math.max(4, Runtime.getRuntime().availableProcessors() * 4), task -> {
+                Thread thread = new Thread(task, "schedule-server-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+    
+    /**
+     * Gets the address the server is bound to
+     * 
+     * @return the address, with the actual port
+     */
+    public InetSocketAddress address() {
+        return server.getAddress();
+    }
+    
+    /**
+     * Stops the server, and the executor if it was created by the server
+     */
+    @Override
+    public void close() {
+        server.stop(0);
+        if (ownsExecutor) {
+            executor.shutdown();
+        }
+    }
+    
+    private void handleSchedule(HttpExchange exchange) throws IOException {
+        try {
+            // /schedules/{id}/{query}
+            String path = exchange.getRequestURI().getRawPath();
+            String[] parts = path.substring("/schedules/".length()).split("/");
+            if (parts.length != 2) {
+                sendError(exchange, 404, "Not found: " + path);
+                return;
+            }
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                sendError(exchange, 405, "Method not allowed: " + exchange.getRequestMethod());
+                return;
+            }
+            String id = decode(parts[0]);
+            OpeningHours openingHours = registry.get(id);
+            if (openingHours == null) {
+                sendError(exchange, 404, "Unknown schedule: " + id);
+                return;
+            }
+            LocalDateTime at = parseAt(query(exchange).get("at"));
+            if (at == null) {
+                // Read the clock once, so that both answers of a request are about the same time
+                ZoneId timezone = openingHours.getTimezone();
+                at = LocalDateTime.now(timezone != null ? timezone : ZoneId.systemDefault());
+            }
+            
+            if ("open".equals(parts[1])) {
+                JsonWriter json = begin(exchange);
+                json.beginObject().name("id").value(id).name("at").value(at)
+                    .name("open").value(openingHours.isOpenAt(at)).endObject();
+                json.flush();
+            } else if ("next-transition".equals(parts[1])) {
+                boolean open = openingHours.isOpenAt(at);
+                LocalDateTime next = nextTransition(openingHours, at, open);
+                JsonWriter json = begin(exchange);
+                json.beginObject().name("id").value(id).name("at").value(at).name("open").value(open).name("next");
+                if (next == null) {
+                    json.value((String) null);
+                } else {
+                    json.beginObject().name("time").value(next).name("opening").value(!open).endObject();
+                }
+                json.endObject();
+                json.flush();
+            } else {
+                sendError(exchange, 404, "Not found: " + path);
+            }
+        } catch (IllegalArgumentException e) {
+            sendError(exchange, 400, e.getMessage());
+        } finally {
+            exchange.close();
+        }
+    }
+    
+    private void handleOpenAt(HttpExchange exchange) throws IOException {
+        try {
+            Map<String, String> query = query(exchange);
+            LocalDateTime at = parseAt(query.get("at"));
+            BufferedReader body = null;
+            List<String> ids = new ArrayList<>();
+            if ("GET".equals(exchange.getRequestMethod())) {
+                String idList = query.get("ids");
+                if (idList != null && !idList.isEmpty()) {
+                    ids.addAll(Arrays.asList(idList.split(",")));
+                }
+            } else if ("POST".equals(exchange.getRequestMethod())) {
+                body = new BufferedReader(new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8));
+            } else {
+                sendError(exchange, 405, "Method not allowed: " + exchange.getRequestMethod());
+                return;
+            }
+            
+            JsonWriter json = begin(exchange);
+            json.beginObject();
+            if (at != null) {
+                json.name("at").value(at);
+            }
+            json.name("results").beginArray();
+            if (body == null) {
+                for (String id : ids) {
+                    writeOpenAt(json, id, at);
+                }
+            } else {
+                // Answer each id as it is read, without buffering the request or the response
+                String line;
+                while ((line = body.readLine()) != null) {
+                    String id = line.trim();
+                    if (!id.isEmpty()) {
+                        writeOpenAt(json, id, at);
+                    }
+                }
+            }
+            json.endArray().endObject();
+            json.flush();
+        } catch (IllegalArgumentException e) {
+            sendError(exchange, 400, e.getMessage());
+        } finally {
+            exchange.close();
+        }
+    }
+    
+    private void writeOpenAt(JsonWriter json, String id, LocalDateTime at) throws IOException {
+        OpeningHours openingHours = registry.get(id);
+        // Unknown ids are answered with null rather than failing the whole batch
+        json.beginObject().name("id").value(id)
+            .name("open").value(openingHours == null ? null : isOpen(openingHours, at))
+            .endObject();
+    }
+    
+    private static boolean isOpen(OpeningHours openingHours, LocalDateTime at) {
+        return at == null ? openingHours.isOpen() : openingHours.isOpenAt(at);
+    }
+    
+    private static LocalDateTime nextTransition(OpeningHours openingHours, LocalDateTime at, boolean open) {
+        try {
+            return open ? openingHours.nextClose(at) : openingHours.nextOpen(at);
+        } catch (MaximumLimitExceeded e) {
+            return null;
+        }
+    }
+    
+    private static LocalDateTime parseAt(String at) {
+        if (at == null || at.isEmpty()) {
+            return null;
+        }
+        try {
+            return LocalDateTime.parse(at);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid date/time: " + at);
+        }
+    }
+    
+    private static Map<String, String> query(HttpExchange exchange) {
+        Map<String, String> parameters = new HashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null) {
+            return parameters;
+        }
+        for (String pair : query.split("&")) {
+            int equals = pair.indexOf('=');
+            if (equals > 0) {
+                parameters.put(decode(pair.substring(0, equals)), decode(pair.substring(equals + 1)));
+            }
+        }
+        return parameters;
+    }
+    
+    private static String decode(String value) {
+        try {
+            return URLDecoder.decode(value, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    private static JsonWriter begin(HttpExchange exchange) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        // A length of 0 selects chunked encoding, so the body is sent as it is written
+        exchange.sendResponseHeaders(200, 0);
+        return new JsonWriter(new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8)));
+    }
+    
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        if (exchange.getResponseCode() != -1) {
+            // Headers already sent, the client sees a truncated body
+            return;
+        }
+        StringWriter buffer = new StringWriter();
+        new JsonWriter(buffer).beginObject().name("error").value(message).endObject();
+        byte[] body = buffer.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        exchange.getResponseBody().write(body);
+    }
+}
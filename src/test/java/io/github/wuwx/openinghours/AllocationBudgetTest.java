@@ -0,0 +1,141 @@
+package io.github.wuwx.openinghours;
+
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Bytes allocated per call by the hot query methods, once they are compiled
+ *
+ * Each call is warmed up until the JIT has compiled it, then measured over many
+ * calls with the per-thread allocation counter; the best of a few rounds is kept so
+ * that a compilation or a TLAB refill during one round doesn't fail the test.
+ * Budgets hold on exception and holiday days too, as they are resolved by epoch day.
+ */
+public class AllocationBudgetTest {
+    
+    private static final int WARMUP_CALLS = 300000;
+    private static final int MEASURED_CALLS = 10000;
+    private static final int ROUNDS = 5;
+    
+    // The returned LocalDateTime and its LocalDate and LocalTime, 24 bytes each
+    private static final long RESULT_DATE_TIME = 72;
+    // The returned Optional
+    private static final long RESULT_OPTIONAL = 16;
+    
+    private static com.sun.management.ThreadMXBean threads;
+    
+    // Keeps the results reachable so the calls can't be optimized away
+    private static volatile Object sink;
+    
+    @BeforeClass
+    public static void checkSupport() {
+        Assume.assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+    }
+    
+    private static OpeningHours openingHours(boolean overflow) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("monday to friday", Arrays.asList("09:00-12:00", "13:00-18:00"));
+        data.put("saturday", Arrays.asList("20:00-02:00"));
+        Map<String, Object> exceptions = new HashMap<>();
+        exceptions.put("12-25", Arrays.asList());
+        exceptions.put("2024-07-04", Arrays.asList("10:00-12:00"));
+        data.put("exceptions", exceptions);
+        Map<String, io.github.wuwx.openinghours.holidays.HolidayRule> rules = new HashMap<>();
+        rules.put("Good Friday", io.github.wuwx.openinghours.holidays.HolidayRule.easter(-2));
+        data.put("holidays", io.github.wuwx.openinghours.holidays.HolidayCalendar.of(rules));
+        data.put("overflow", overflow);
+        return OpeningHours.create(data);
+    }
+    
+    private static long bytesPerCall(Supplier<Object> call) {
+        for (int i = 0; i < WARMUP_CALLS; i++) {
+            sink = call.get();
+        }
+        long thread = Thread.currentThread().getId();
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long before = threads.getThreadAllocatedBytes(thread);
+            for (int i = 0; i < MEASURED_CALLS; i++) {
+                sink = call.get();
+            }
+            best = Math.min(best, (threads.getThreadAllocatedBytes(thread) - before) / MEASURED_CALLS);
+        }
+        return best;
+    }
+    
+    private static void assertBudget(String call, long budget, Supplier<Object> supplier) {
+        long bytes = bytesPerCall(supplier);
+        assertTrue(call + " allocated " + bytes + " bytes per call, budget is " + budget, bytes <= budget);
+    }
+    
+    private static void checkBudgets(OpeningHours openingHours) {
+        // 2024-03-25 is a Monday, 10:30 is inside a range and 12:30 between two
+        LocalDateTime open = LocalDateTime.of(2024, 3, 25, 10, 30);
+        LocalDateTime closed = LocalDateTime.of(2024, 3, 25, 12, 30);
+        
+        assertBudget("isOpenAt", 0, () -> openingHours.isOpenAt(open));
+        assertBudget("isOpenAt", 0, () -> openingHours.isOpenAt(closed));
+        assertBudget("forDate", 0, () -> openingHours.forDate(open));
+        assertBudget("nextOpen", RESULT_DATE_TIME, () -> openingHours.nextOpen(closed));
+        assertBudget("nextClose", RESULT_DATE_TIME, () -> openingHours.nextClose(open));
+        assertBudget("currentOpenRange", RESULT_OPTIONAL, () -> openingHours.currentOpenRange(open));
+        assertBudget("currentOpenRange", 0, () -> openingHours.currentOpenRange(closed));
+        
+        // Results are compared rather than boxed, so the measure only counts the call
+        long minute = open.toEpochSecond(ZoneOffset.UTC) / 60;
+        assertBudget("isOpenAtEpochMinute", 0, () -> openingHours.isOpenAtEpochMinute(minute));
+        assertBudget("nextOpenEpochMinute", 0, () -> openingHours.nextOpenEpochMinute(minute) > minute);
+        assertBudget("nextCloseEpochMinute", 0, () -> openingHours.nextCloseEpochMinute(minute) > minute);
+        assertBudget("previousOpenEpochMinute", 0, () -> openingHours.previousOpenEpochMinute(minute) < minute);
+        assertBudget("previousCloseEpochMinute", 0, () -> openingHours.previousCloseEpochMinute(minute) < minute);
+    }
+    
+    private static void checkExceptionDayBudgets(OpeningHours openingHours) {
+        // A dated exception, a recurring exception and Good Friday 2024
+        for (LocalDateTime day : Arrays.asList(LocalDateTime.of(2024, 7, 4, 11, 0), LocalDateTime.of(2024, 12, 25, 11, 0),
+                                               LocalDateTime.of(2024, 3, 29, 11, 0))) {
+            assertBudget("isOpenAt " + day, 0, () -> openingHours.isOpenAt(day));
+            assertBudget("forDate " + day, 0, () -> openingHours.forDate(day));
+            
+            long minute = day.toEpochSecond(ZoneOffset.UTC) / 60;
+            assertBudget("isOpenAtEpochMinute " + day, 0, () -> openingHours.isOpenAtEpochMinute(minute));
+            assertBudget("nextOpenEpochMinute " + day, 0, () -> openingHours.nextOpenEpochMinute(minute) > minute);
+            assertBudget("nextCloseEpochMinute " + day, 0, () -> openingHours.nextCloseEpochMinute(minute) > minute);
+            assertBudget("previousOpenEpochMinute " + day, 0, () -> openingHours.previousOpenEpochMinute(minute) < minute);
+            assertBudget("previousCloseEpochMinute " + day, 0, () -> openingHours.previousCloseEpochMinute(minute) < minute);
+        }
+    }
+    
+    @Test
+    public void testBudgets() {
+        checkBudgets(openingHours(false));
+    }
+    
+    @Test
+    public void testBudgetsWithOverflow() {
+        checkBudgets(openingHours(true));
+    }
+    
+    @Test
+    public void testExceptionDayBudgets() {
+        checkExceptionDayBudgets(openingHours(false));
+    }
+    
+    @Test
+    public void testExceptionDayBudgetsWithOverflow() {
+        checkExceptionDayBudgets(openingHours(true));
+    }
+}
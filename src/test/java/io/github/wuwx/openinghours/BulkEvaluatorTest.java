@@ -0,0 +1,161 @@
+package io.github.wuwx.openinghours;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+public class BulkEvaluatorTest {
+    
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    
+    private static Map<String, OpeningHours> schedules() {
+        Map<String, OpeningHours> schedules = new HashMap<>();
+        Map<String, Object> store = new HashMap<>();
+        store.put("monday to friday", Arrays.asList("09:00-12:00", "13:00-18:00"));
+        store.put("exceptions", new HashMap<>(Collections.singletonMap("2024-03-27", Arrays.asList())));
+        schedules.put("store", OpeningHours.create(store));
+        Map<String, Object> bar = new HashMap<>();
+        bar.put("friday", Arrays.asList("20:00-02:00"));
+        bar.put("saturday", Arrays.asList("20:00-02:00"));
+        schedules.put("bar", OpeningHours.create(bar));
+        return schedules;
+    }
+    
+    private static String evaluate(Map<String, OpeningHours> schedules, String input) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new BulkEvaluator(schedules).evaluate(
+            Channels.newChannel(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8))),
+            Channels.newChannel(out));
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+    
+    @Test
+    public void testEvaluate() throws IOException {
+        String input = "id,timestamp\n"
+                       + "store,2024-03-25T10:00\n"
+                       + "store,2024-03-25 12:30:00\n"
+                       + "store,2024-03-27T10:00\n"
+                       + "bar\t2024-03-23T01:30\r\n"
+                       + "cafe,2024-03-25T10:00\n"
+                       + "store,2024-13-25T10:00\n"
+                       + "store,2024-03-25T18:00";
+        String expected = "id,timestamp,open\n"
+                          + "store,2024-03-25T10:00,1\n"
+                          + "store,2024-03-25 12:30:00,0\n"
+                          + "store,2024-03-27T10:00,0\n"
+                          + "bar\t2024-03-23T01:30,1\n"
+                          + "cafe,2024-03-25T10:00,\n"
+                          + "store,2024-13-25T10:00,\n"
+                          + "store,2024-03-25T18:00,0\n";
+        assertEquals(expected, evaluate(schedules(), input));
+    }
+    
+    @Test
+    public void testReport() throws IOException {
+        BulkEvaluator.Report report = new BulkEvaluator(schedules()).evaluate(
+            Channels.newChannel(new ByteArrayInputStream(
+                "store,2024-03-25T10:00\ncafe,2024-03-25T10:00\nstore,bad\n".getBytes(StandardCharsets.UTF_8))),
+            Channels.newChannel(new ByteArrayOutputStream()));
+        assertEquals(3, report.rows());
+        assertEquals(2, report.errors());
+        assertTrue(report.rowsPerSecond() > 0);
+    }
+    
+    @Test
+    public void testMatchesIsOpenAt() throws IOException {
+        Map<String, OpeningHours> schedules = schedules();
+        String[] ids = {"store", "bar"};
+        Random random = new Random(42);
+        StringBuilder input = new StringBuilder();
+        StringBuilder expected = new StringBuilder();
+        LocalDateTime start = LocalDateTime.of(2024, 3, 20, 0, 0);
+        // Enough rows to span several input buffers
+        for (int i = 0; i < 60000; i++) {
+            String id = ids[random.nextInt(ids.length)];
+            LocalDateTime dateTime = start.plusMinutes(random.nextInt(60 * 24 * 14));
+            String row = id + "," + dateTime;
+            input.append(row).append('\n');
+            expected.append(row).append(schedules.get(id).isOpenAt(dateTime) ? ",1\n" : ",0\n");
+        }
+        assertEquals(expected.toString(), evaluate(schedules, input.toString()));
+    }
+    
+    @Test
+    public void testParseTimestamp() {
+        assertEquals(LocalDateTime.of(2024, 2, 29, 23, 59, 58).toEpochSecond(ZoneOffset.UTC), parse("2024-02-29T23:59:58"));
+        assertEquals(LocalDateTime.of(1969, 12, 31, 0, 0).toEpochSecond(ZoneOffset.UTC), parse("1969-12-31 00:00"));
+        assertEquals(Long.MIN_VALUE, parse("2023-02-29T10:00"));
+        assertEquals(Long.MIN_VALUE, parse("2024-03-25T24:00"));
+        assertEquals(Long.MIN_VALUE, parse("2024-03-25X10:00"));
+        assertEquals(Long.MIN_VALUE, parse("2024-03-25T10:0a"));
+        assertEquals(Long.MIN_VALUE, parse("2024-03-25"));
+    }
+    
+    private static long parse(String timestamp) {
+        byte[] bytes = timestamp.getBytes(StandardCharsets.US_ASCII);
+        return BulkEvaluator.parseTimestamp(bytes, 0, bytes.length);
+    }
+    
+    @Test
+    public void testLoadSchedules() throws IOException {
+        Path file = folder.newFile("schedules.properties").toPath();
+        Files.write(file, Arrays.asList(
+            "store.monday\\ to\\ friday=09:00-12:00,13:00-18:00",
+            "store.exceptions.2024-03-27=",
+            "bar.friday=20:00-02:00",
+            "bar.overflow=true",
+            "broken.monday=25:00-26:00"), StandardCharsets.UTF_8);
+        ByteArrayOutputStream log = new ByteArrayOutputStream();
+        Map<String, OpeningHours> schedules = BulkEvaluator.loadSchedules(file, new PrintStream(log, true, "UTF-8"));
+        
+        assertEquals(2, schedules.size());
+        assertTrue(schedules.get("store").isOpenAt(LocalDateTime.of(2024, 3, 25, 10, 0)));
+        assertFalse(schedules.get("store").isOpenAt(LocalDateTime.of(2024, 3, 27, 10, 0)));
+        assertTrue(schedules.get("bar").isOpenAt(LocalDateTime.of(2024, 3, 23, 1, 0)));
+        assertTrue(new String(log.toByteArray(), StandardCharsets.UTF_8).contains("broken"));
+    }
+    
+    @Test
+    public void testEvaluateFiles() throws IOException {
+        Path schedules = folder.newFile("schedules.properties").toPath();
+        Files.write(schedules, Arrays.asList("store.monday=09:00-18:00"), StandardCharsets.UTF_8);
+        Path input = folder.newFile("rows.csv").toPath();
+        Files.write(input, Arrays.asList("store,2024-03-25T10:00", "store,2024-03-26T10:00"), StandardCharsets.UTF_8);
+        Path output = folder.getRoot().toPath().resolve("out.csv");
+        ByteArrayOutputStream log = new ByteArrayOutputStream();
+        
+        BulkEvaluator evaluator = new BulkEvaluator(
+            BulkEvaluator.loadSchedules(schedules, new PrintStream(log, true, "UTF-8")));
+        BulkEvaluator.Report report;
+        try (FileChannel in = FileChannel.open(input, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            report = evaluator.evaluate(in, out);
+        }
+        
+        assertEquals(2, report.rows());
+        assertEquals(0, report.errors());
+        assertEquals(0, log.size());
+        assertEquals(Arrays.asList("store,2024-03-25T10:00,1", "store,2024-03-26T10:00,0"),
+                     Files.readAllLines(output, StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,77 @@
+package io.github.wuwx.openinghours;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Unit tests for CalendarCache
+ */
+public class CalendarCacheTest {
+    
+    private static final OpeningHoursForDay OPEN = OpeningHoursForDay.fromStrings(Arrays.asList("09:00-17:00"));
+    private static final OpeningHoursForDay CLOSED = new OpeningHoursForDay();
+    
+    @Test
+    public void testResolvesEveryDayOfTheYear() {
+        AtomicInteger resolved = new AtomicInteger();
+        CalendarCache cache = new CalendarCache(2, date -> {
+            resolved.incrementAndGet();
+            return date.getDayOfMonth() == 29 && date.getMonthValue() == 2 ? CLOSED : OPEN;
+        });
+        
+        assertFalse(cache.contains(LocalDate.of(2016, 2, 29)));
+        assertSame(CLOSED, cache.get(LocalDate.of(2016, 2, 29)));
+        assertSame(OPEN, cache.get(LocalDate.of(2016, 12, 31)));
+        assertTrue(cache.contains(LocalDate.of(2016, 1, 1)));
+        assertEquals(366, resolved.get());
+        
+        cache.get(LocalDate.of(2017, 6, 1));
+        assertEquals(366 + 365, resolved.get());
+    }
+    
+    @Test
+    public void testEvictsYearsNotUsedRecently() {
+        CalendarCache cache = new CalendarCache(2, date -> OPEN);
+        cache.get(LocalDate.of(2016, 1, 1));
+        cache.get(LocalDate.of(2017, 1, 1));
+        cache.get(LocalDate.of(2017, 6, 1));
+        cache.get(LocalDate.of(2018, 1, 1));
+        
+        // 2016 was not used since 2017 was built
+        assertEquals(2, cache.size());
+        assertFalse(cache.contains(LocalDate.of(2016, 1, 1)));
+        assertTrue(cache.contains(LocalDate.of(2017, 1, 1)));
+        assertTrue(cache.contains(LocalDate.of(2018, 1, 1)));
+    }
+    
+    @Test
+    public void testConcurrentReaders() throws Exception {
+        CalendarCache cache = new CalendarCache(3, date -> date.getDayOfWeek().getValue() < 6 ? OPEN : CLOSED);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Boolean>> futures = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                LocalDate date = LocalDate.of(2015 + i % 5, 1 + i % 12, 1 + i % 28);
+                futures.add(executor.submit(() -> cache.get(date) == (date.getDayOfWeek().getValue() < 6 ? OPEN : CLOSED)));
+            }
+            for (Future<Boolean> future : futures) {
+                assertTrue(future.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertTrue(cache.size() <= 3);
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidSize() {
+        new CalendarCache(0, date -> OPEN);
+    }
+}
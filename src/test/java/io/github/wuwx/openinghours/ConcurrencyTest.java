@@ -0,0 +1,144 @@
+package io.github.wuwx.openinghours;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * Stress tests sharing single OpeningHours instances between many threads
+ * 
+ * Every thread starts at the same time on a fresh instance, so the values computed
+ * on first use (lazy days, weekly tables, calendar years) are raced for, and each
+ * answer is compared with the one of an identical instance used by a single thread.
+ */
+public class ConcurrencyTest {
+    
+    private static final int THREADS = 32;
+    private static final int QUERIES_PER_THREAD = 2000;
+    
+    private static Map<String, Object> data() {
+        Map<String, Object> data = new HashMap<>();
+        data.put("monday to friday", Arrays.asList("09:00-12:00", "13:00-18:00"));
+        data.put("saturday", Arrays.asList("10:00-14:00"));
+        Map<String, Object> exceptions = new HashMap<>();
+        exceptions.put("12-25", Collections.emptyList());
+        exceptions.put("2024-07-04", Arrays.asList("10:00-12:00"));
+        data.put("exceptions", exceptions);
+        return data;
+    }
+    
+    private static List<Function<Map<String, Object>, OpeningHours>> factories() {
+        List<Function<Map<String, Object>, OpeningHours>> factories = new ArrayList<>();
+        factories.add(OpeningHours::create);
+        factories.add(OpeningHours::createLazy);
+        factories.add(data -> {
+            data.put("calendarCache", 2);
+            return OpeningHours.create(data);
+        });
+        factories.add(data -> {
+            data.put("overflow", true);
+            data.put("sunday", Arrays.asList("22:00-02:00"));
+            return OpeningHours.create(data);
+        });
+        factories.add(data -> OpeningHours.create(data).overlay(
+            Collections.singletonMap("exceptions", Collections.singletonMap("2024-07-05", Collections.emptyList()))));
+        return factories;
+    }
+    
+    /**
+     * Answers a fixed mix of queries, as a string so that results can be compared at once
+     */
+    private static String answer(OpeningHours openingHours, LocalDateTime dateTime) {
+        return openingHours.isOpenAt(dateTime)
+            + " " + openingHours.nextOpen(dateTime)
+            + " " + openingHours.nextClose(dateTime)
+            + " " + openingHours.forDate(dateTime)
+            + " " + openingHours.diffInOpenSeconds(dateTime, dateTime.plusDays(9))
+            + " " + openingHours.forWeekCombined().keySet();
+    }
+    
+    @Test
+    public void testSharedInstances() throws Exception {
+        Random random = new Random(7);
+        LocalDateTime base = LocalDateTime.of(2023, 1, 1, 0, 0);
+        List<LocalDateTime> dateTimes = new ArrayList<>();
+        for (int i = 0; i < QUERIES_PER_THREAD; i++) {
+            dateTimes.add(base.plusMinutes(random.nextInt(3 * 365 * 24 * 60)));
+        }
+        
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            for (Function<Map<String, Object>, OpeningHours> factory : factories()) {
+                OpeningHours reference = factory.apply(data());
+                List<String> expected = new ArrayList<>();
+                for (LocalDateTime dateTime : dateTimes) {
+                    expected.add(answer(reference, dateTime));
+                }
+                
+                OpeningHours shared = factory.apply(data());
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<Integer>> futures = new ArrayList<>();
+                for (int t = 0; t < THREADS; t++) {
+                    int offset = t * 61;
+                    futures.add(executor.submit(() -> {
+                        start.await();
+                        int mismatches = 0;
+                        for (int i = 0; i < dateTimes.size(); i++) {
+                            int index = (i + offset) % dateTimes.size();
+                            if (!expected.get(index).equals(answer(shared, dateTimes.get(index)))) {
+                                mismatches++;
+                            }
+                        }
+                        return mismatches;
+                    }));
+                }
+                start.countDown();
+                for (Future<Integer> future : futures) {
+                    assertEquals(Integer.valueOf(0), future.get());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+    
+    @Test
+    public void testSharedParseCache() throws Exception {
+        ParseCache cache = new ParseCache(16);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<OpeningHours>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    Map<String, Object> data = data();
+                    data.put("parseCache", cache);
+                    return OpeningHours.create(data);
+                }));
+            }
+            start.countDown();
+            OpeningHours first = futures.get(0).get();
+            for (Future<OpeningHours> future : futures) {
+                OpeningHours openingHours = future.get();
+                assertEquals(first.forWeek(), openingHours.forWeek());
+                assertTrue(openingHours.isOpenAt(LocalDateTime.of(2024, 7, 4, 11, 0)));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
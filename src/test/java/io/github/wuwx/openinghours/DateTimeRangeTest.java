@@ -0,0 +1,34 @@
+package io.github.wuwx.openinghours;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+public class DateTimeRangeTest {
+
+    @Test
+    public void testDuration() {
+        DateTimeRange range = new DateTimeRange(
+            LocalDateTime.of(2023, 7, 21, 22, 0), LocalDateTime.of(2023, 7, 22, 3, 0));
+
+        assertEquals(Duration.ofHours(5), range.duration());
+        assertEquals("2023-07-21T22:00/2023-07-22T03:00", range.toString());
+    }
+
+    @Test
+    public void testContains() {
+        DateTimeRange range = new DateTimeRange(
+            LocalDateTime.of(2023, 7, 21, 9, 0), LocalDateTime.of(2023, 7, 21, 12, 0));
+
+        assertTrue(range.contains(LocalDateTime.of(2023, 7, 21, 9, 0)));
+        assertTrue(range.contains(LocalDateTime.of(2023, 7, 21, 11, 59)));
+        assertFalse(range.contains(LocalDateTime.of(2023, 7, 21, 12, 0)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testEndBeforeStart() {
+        new DateTimeRange(LocalDateTime.of(2023, 7, 21, 12, 0), LocalDateTime.of(2023, 7, 21, 9, 0));
+    }
+}
@@ -0,0 +1,143 @@
+package io.github.wuwx.openinghours;
+
+import io.github.wuwx.openinghours.exceptions.MaximumLimitExceeded;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Checks every way of building a schedule against a minute by minute reference
+ *
+ * Random schedules and queries come from a seeded generator and each answer is
+ * compared with {@link MinuteReference}. The number of queries per engine is set
+ * with the {@code differential.queries} system property and the seed with
+ * {@code differential.seed}, e.g. {@code mvn test -Dtest=DifferentialTest -Ddifferential.queries=5000000}.
+ *
+ * The epoch minute methods follow the open intervals in both modes, and so do the
+ * date/time transition searches with overflow. Without overflow the date/time searches
+ * look at the ranges of each day on their own, which the weekly table tests check
+ * against the day by day search instead.
+ */
+public class DifferentialTest {
+
+    private static final int QUERIES = Integer.getInteger("differential.queries", 20000);
+    private static final long SEED = Long.getLong("differential.seed", 20240304L);
+    private static final int QUERIES_PER_SCHEDULE = 200;
+
+    private static Map<String, Function<Map<String, Object>, OpeningHours>> engines() {
+        Map<String, Function<Map<String, Object>, OpeningHours>> engines = new LinkedHashMap<>();
+        engines.put("default", OpeningHours::create);
+        engines.put("lazy", OpeningHours::createLazy);
+        engines.put("calendar cache", data -> {
+            data.put("calendarCache", true);
+            return OpeningHours.create(data);
+        });
+        ParseCache parseCache = new ParseCache(64);
+        engines.put("parse cache", data -> {
+            data.put("parseCache", parseCache);
+            return OpeningHours.create(data);
+        });
+        engines.put("overlay", data -> OpeningHours.create(Collections.singletonMap("overflow", data.get("overflow")))
+            .overlay(data));
+        engines.put("filtered", data -> {
+            // A filter that never applies turns off every weekly shortcut
+            List<Function<java.time.LocalDate, Map<String, Object>>> filters = new ArrayList<>();
+            filters.add(date -> null);
+            data.put("filters", filters);
+            return OpeningHours.create(data);
+        });
+        return engines;
+    }
+
+    @Test
+    public void testEngines() {
+        for (Map.Entry<String, Function<Map<String, Object>, OpeningHours>> engine : engines().entrySet()) {
+            check(engine.getKey(), engine.getValue());
+        }
+    }
+
+    private static void check(String name, Function<Map<String, Object>, OpeningHours> engine) {
+        RandomSchedules schedules = new RandomSchedules(SEED);
+        Random random = schedules.random();
+        int checked = 0;
+        for (int queries = 0; queries < QUERIES; queries += QUERIES_PER_SCHEDULE) {
+            RandomSchedules.Spec spec = schedules.next();
+            MinuteReference reference = new MinuteReference(spec);
+            OpeningHours openingHours = engine.apply(spec.data());
+            String schedule = name + " engine, seed " + SEED + ", " + spec;
+
+            for (int i = 0; i < QUERIES_PER_SCHEDULE; i++) {
+                LocalDateTime time = schedules.time();
+                String query = schedule + " at " + time;
+                long minute = time.toEpochSecond(ZoneOffset.UTC) / 60;
+                switch (random.nextInt(spec.overflow ? 8 : 4)) {
+                    case 0:
+                        assertEquals(query, reference.isOpenAt(time), openingHours.isOpenAt(time));
+                        break;
+                    case 1:
+                        LocalDateTime end = time.plusMinutes(random.nextInt(20000));
+                        long expected = reference.openSeconds(time, end);
+                        assertEquals(query + " to " + end, expected, (long) openingHours.diffInOpenSeconds(time, end));
+                        break;
+                    case 2:
+                        assertEquals(query + " isOpenAtEpochMinute", reference.isOpenDuring(time),
+                                     openingHours.isOpenAtEpochMinute(minute));
+                        break;
+                    case 3:
+                        boolean opening = random.nextBoolean();
+                        checked += compare(query + " next epoch minute", reference.next(time, opening),
+                                           () -> epochMinute(opening ? openingHours.nextOpenEpochMinute(minute)
+                                                                     : openingHours.nextCloseEpochMinute(minute)));
+                        checked += compare(query + " previous epoch minute", reference.previous(time, opening),
+                                           () -> epochMinute(opening ? openingHours.previousOpenEpochMinute(minute)
+                                                                     : openingHours.previousCloseEpochMinute(minute)));
+                        break;
+                    case 4:
+                        checked += compare(query + " nextOpen", reference.next(time, true),
+                                           () -> openingHours.nextOpen(time));
+                        break;
+                    case 5:
+                        checked += compare(query + " nextClose", reference.next(time, false),
+                                           () -> openingHours.nextClose(time));
+                        break;
+                    case 6:
+                        checked += compare(query + " previousOpen", reference.previous(time, true),
+                                           () -> openingHours.previousOpen(time));
+                        break;
+                    default:
+                        checked += compare(query + " previousClose", reference.previous(time, false),
+                                           () -> openingHours.previousClose(time));
+                        break;
+                }
+            }
+        }
+        assertTrue("Too few transition searches could be checked: " + checked, checked > QUERIES / 10);
+    }
+
+    private static LocalDateTime epochMinute(long minute) {
+        return LocalDateTime.ofEpochSecond(minute * 60, 0, ZoneOffset.UTC);
+    }
+
+    // Compares a search with the reference, skipping answers the reference can't give
+    private static int compare(String query, LocalDateTime expected, Supplier<LocalDateTime> search) {
+        if (expected == null) {
+            return 0;
+        }
+        try {
+            assertEquals(query, expected, search.get());
+        } catch (MaximumLimitExceeded e) {
+            fail(query + ": " + e.getMessage());
+        }
+        return 1;
+    }
+}
@@ -0,0 +1,122 @@
+package io.github.wuwx.openinghours;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import io.github.wuwx.openinghours.holidays.HolidayCalendar;
+import io.github.wuwx.openinghours.holidays.HolidayRule;
+
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.Arrays;
+import java.util.Collections;
+
+public class ExceptionIndexTest {
+    
+    private static long day(int year, int month, int dayOfMonth) {
+        return LocalDate.of(year, month, dayOfMonth).toEpochDay();
+    }
+    
+    @Test
+    public void testNextExceptionDay() {
+        ExceptionIndex index = ExceptionIndex.of(Arrays.asList("2023-07-04", "12-25", "invalid"));
+        
+        assertEquals(day(2023, 7, 4), index.nextExceptionDay(day(2023, 7, 1)));
+        assertEquals(day(2023, 7, 4), index.nextExceptionDay(day(2023, 7, 4)));
+        assertEquals(day(2023, 12, 25), index.nextExceptionDay(day(2023, 7, 5)));
+        assertEquals(day(2024, 12, 25), index.nextExceptionDay(day(2023, 12, 26)));
+    }
+    
+    @Test
+    public void testPreviousExceptionDay() {
+        ExceptionIndex index = ExceptionIndex.of(Arrays.asList("2023-07-04", "12-25"));
+        
+        assertEquals(day(2023, 7, 4), index.previousExceptionDay(day(2023, 7, 10)));
+        assertEquals(day(2022, 12, 25), index.previousExceptionDay(day(2023, 7, 3)));
+    }
+    
+    @Test
+    public void testContains() {
+        ExceptionIndex index = ExceptionIndex.of(Arrays.asList("2023-07-04", "12-25"));
+        
+        assertTrue(index.contains(day(2023, 7, 4)));
+        assertFalse(index.contains(day(2024, 7, 4)));
+        assertTrue(index.contains(day(1999, 12, 25)));
+        assertFalse(index.contains(day(2023, 12, 24)));
+        assertTrue(ExceptionIndex.ALL.contains(day(2023, 1, 1)));
+        assertFalse(ExceptionIndex.EMPTY.contains(day(2023, 1, 1)));
+    }
+    
+    @Test
+    public void testMonthDay() {
+        for (long epochDay = day(1600, 1, 1); epochDay < day(2400, 12, 31); epochDay += 13) {
+            LocalDate date = LocalDate.ofEpochDay(epochDay);
+            int monthDay = ExceptionIndex.monthDay(date.getMonthValue(), date.getDayOfMonth());
+            assertEquals(date.toString(), monthDay, ExceptionIndex.monthDay(epochDay));
+            assertEquals(date.toString(), date.getYear(), ExceptionIndex.year(epochDay));
+            assertEquals(date.toString(), epochDay, ExceptionIndex.epochDay(date.getYear(), monthDay));
+        }
+        assertEquals(229, ExceptionIndex.monthDay(day(2024, 2, 29)));
+        assertEquals(1231, ExceptionIndex.monthDay(day(1969, 12, 31)));
+    }
+    
+    @Test
+    public void testParseKey() {
+        assertTrue(ExceptionIndex.isRecurringKey("12-25"));
+        assertFalse(ExceptionIndex.isRecurringKey("2016-12-25"));
+        assertEquals(LocalDate.of(2001, 12, 25), ExceptionIndex.parseKey("12-25", 2001));
+        assertEquals(LocalDate.of(2016, 12, 25), ExceptionIndex.parseKey("2016-12-25", 2001));
+        assertEquals(LocalDate.of(2000, 2, 29), ExceptionIndex.parseKey("02-29", 2000));
+    }
+    
+    @Test(expected = java.time.format.DateTimeParseException.class)
+    public void testParseKeyOutsideLeapYear() {
+        ExceptionIndex.parseKey("02-29", 2001);
+    }
+    
+    @Test
+    public void testLeapDay() {
+        ExceptionIndex index = ExceptionIndex.of(Collections.singletonList("02-29"));
+        
+        assertEquals(day(2024, 2, 29), index.nextExceptionDay(day(2021, 3, 1)));
+        assertEquals(day(2020, 2, 29), index.previousExceptionDay(day(2024, 2, 28)));
+    }
+    
+    @Test
+    public void testEmpty() {
+        ExceptionIndex index = ExceptionIndex.of(Collections.emptyList());
+        
+        assertTrue(index.isEmpty());
+        assertEquals(Long.MAX_VALUE, index.nextExceptionDay(day(2023, 1, 1)));
+        assertEquals(Long.MIN_VALUE, index.previousExceptionDay(day(2023, 1, 1)));
+    }
+    
+    @Test
+    public void testHolidays() {
+        HolidayCalendar calendar = HolidayCalendar.of(Collections.singletonMap("Christmas", HolidayRule.fixed(Month.DECEMBER, 25)));
+        ExceptionIndex index = ExceptionIndex.of(Collections.singletonList("2023-07-04")).withHolidays(calendar, false);
+        
+        assertFalse(index.isEmpty());
+        assertEquals(day(2023, 7, 4), index.nextExceptionDay(day(2023, 7, 1)));
+        assertEquals(day(2023, 12, 25), index.nextExceptionDay(day(2023, 7, 5)));
+        assertEquals(day(2022, 12, 25), index.previousExceptionDay(day(2023, 7, 3)));
+        
+        // With overflow the day after a holiday deviates too
+        ExceptionIndex following = ExceptionIndex.EMPTY.withHolidays(calendar, true);
+        assertEquals(day(2023, 12, 26), following.nextExceptionDay(day(2023, 12, 26)));
+        assertEquals(day(2023, 12, 26), following.previousExceptionDay(day(2024, 7, 1)));
+    }
+    
+    @Test
+    public void testOver() {
+        ExceptionIndex parent = ExceptionIndex.of(Arrays.asList("2023-07-04", "12-25"));
+        ExceptionIndex child = ExceptionIndex.of(Collections.singletonList("2023-08-01")).over(parent);
+        
+        assertEquals(day(2023, 7, 4), child.nextExceptionDay(day(2023, 7, 1)));
+        assertEquals(day(2023, 8, 1), child.nextExceptionDay(day(2023, 7, 5)));
+        assertEquals(day(2023, 12, 25), child.nextExceptionDay(day(2023, 8, 2)));
+        assertEquals(day(2023, 8, 1), child.previousExceptionDay(day(2023, 12, 24)));
+        assertSame(ExceptionIndex.ALL, ExceptionIndex.ALL.over(parent));
+        assertTrue(ExceptionIndex.EMPTY.over(ExceptionIndex.EMPTY).isEmpty());
+    }
+}
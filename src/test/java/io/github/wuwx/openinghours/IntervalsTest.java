@@ -0,0 +1,69 @@
+package io.github.wuwx.openinghours;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+
+public class IntervalsTest {
+    
+    private static final int H = 3600;
+    
+    @Test
+    public void testOf() {
+        OpeningHoursForDay day = OpeningHoursForDay.fromStrings(Arrays.asList("13:00-18:00", "09:00-12:00", "11:00-13:00"));
+        assertArrayEquals(new int[] {9 * H, 18 * H}, Intervals.of(day));
+    }
+    
+    @Test
+    public void testOfOvernightAndMidnight() {
+        OpeningHoursForDay overnight = OpeningHoursForDay.fromStrings(Arrays.asList("22:00-02:00"));
+        assertArrayEquals(new int[] {0, 2 * H, 22 * H, 24 * H}, Intervals.of(overnight));
+        
+        OpeningHoursForDay untilMidnight = OpeningHoursForDay.fromStrings(Arrays.asList("22:00-24:00"));
+        assertArrayEquals(new int[] {22 * H, Intervals.SECONDS_PER_DAY}, Intervals.of(untilMidnight));
+    }
+    
+    @Test
+    public void testSameDayAndSpill() {
+        OpeningHoursForDay day = OpeningHoursForDay.fromStrings(Arrays.asList("09:00-12:00", "22:00-02:00", "23:00-03:00"));
+        assertArrayEquals(new int[] {9 * H, 12 * H, 22 * H, 24 * H}, Intervals.sameDay(day));
+        assertArrayEquals(new int[] {0, 3 * H}, Intervals.spill(day));
+        assertArrayEquals(Intervals.EMPTY, Intervals.spill(OpeningHoursForDay.fromStrings(Arrays.asList("22:00-24:00"))));
+        
+        assertTrue(Intervals.contains(Intervals.of(day), 1 * H));
+        assertFalse(Intervals.contains(Intervals.of(day), 12 * H));
+        assertTrue(Intervals.contains(Intervals.of(day), 24 * H - 1));
+    }
+    
+    @Test
+    public void testSetOperations() {
+        int[] a = {9 * H, 12 * H, 13 * H, 18 * H};
+        int[] b = {11 * H, 14 * H};
+        
+        assertArrayEquals(new int[] {9 * H, 18 * H}, Intervals.union(a, b));
+        assertArrayEquals(new int[] {11 * H, 12 * H, 13 * H, 14 * H}, Intervals.intersect(a, b));
+        assertArrayEquals(new int[] {9 * H, 11 * H, 14 * H, 18 * H}, Intervals.subtract(a, b));
+        assertArrayEquals(new int[] {12 * H, 13 * H}, Intervals.subtract(b, a));
+        assertArrayEquals(new int[] {9 * H, 11 * H, 12 * H, 13 * H, 14 * H, 18 * H}, Intervals.symmetricDifference(a, b));
+        assertArrayEquals(new int[0], Intervals.symmetricDifference(a, a.clone()));
+    }
+    
+    @Test
+    public void testAdjacentIntervalsMerge() {
+        int[] a = {9 * H, 12 * H};
+        int[] b = {12 * H, 13 * H};
+        
+        assertArrayEquals(new int[] {9 * H, 13 * H}, Intervals.union(a, b));
+        assertArrayEquals(new int[0], Intervals.intersect(a, b));
+    }
+    
+    @Test
+    public void testToDay() {
+        OpeningHoursForDay day = Intervals.toDay(new int[] {0, 2 * H, 22 * H, Intervals.SECONDS_PER_DAY}, null);
+        assertEquals(2, day.size());
+        assertEquals(TimeRange.fromString("00:00-02:00"), day.get(0));
+        assertEquals(TimeRange.fromString("22:00-24:00"), day.get(1));
+        assertArrayEquals(new int[] {0, 2 * H, 22 * H, Intervals.SECONDS_PER_DAY}, Intervals.of(day));
+    }
+}
@@ -0,0 +1,39 @@
+package io.github.wuwx.openinghours;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+public class LayeredMapTest {
+    
+    @Test
+    public void testOverridesWin() {
+        Map<String, String> parent = new HashMap<>();
+        parent.put("12-24", "closed");
+        parent.put("12-25", "closed");
+        Map<String, String> overrides = Collections.singletonMap("12-24", "morning");
+        LayeredMap<String, String> map = new LayeredMap<>(overrides, parent);
+        
+        assertEquals("morning", map.get("12-24"));
+        assertEquals("closed", map.get("12-25"));
+        assertNull(map.get("12-26"));
+        assertTrue(map.containsKey("12-25"));
+        assertFalse(map.containsKey("12-26"));
+        assertEquals(2, map.size());
+        assertEquals("morning", new HashMap<>(map).get("12-24"));
+    }
+    
+    @Test
+    public void testEmpty() {
+        assertTrue(new LayeredMap<>(Collections.emptyMap(), Collections.emptyMap()).isEmpty());
+        assertFalse(new LayeredMap<>(Collections.emptyMap(), Collections.singletonMap("a", 1)).isEmpty());
+    }
+    
+    @Test(expected = UnsupportedOperationException.class)
+    public void testReadOnly() {
+        new LayeredMap<>(new HashMap<String, String>(), new HashMap<String, String>()).put("a", "b");
+    }
+}
@@ -0,0 +1,50 @@
+package io.github.wuwx.openinghours;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Unit tests for LazyDayMap
+ */
+public class LazyDayMapTest {
+    
+    @Test
+    public void testParsesOnFirstRead() {
+        AtomicInteger parses = new AtomicInteger();
+        Function<Object, OpeningHoursForDay> parser = value -> {
+            parses.incrementAndGet();
+            @SuppressWarnings("unchecked")
+            List<String> hours = (List<String>) value;
+            return OpeningHoursForDay.fromStrings(hours);
+        };
+        LazyDayMap.Slot shared = LazyDayMap.Slot.deferred(Arrays.asList("09:00-17:00"), parser);
+        Map<String, LazyDayMap.Slot> slots = new LinkedHashMap<>();
+        slots.put("12-24", shared);
+        slots.put("12-25", shared);
+        slots.put("12-31", LazyDayMap.Slot.deferred(Arrays.asList("10:00-12:00"), parser));
+        LazyDayMap<String> map = new LazyDayMap<>(slots);
+        
+        assertEquals(3, map.size());
+        assertTrue(map.containsKey("12-25"));
+        assertEquals(new HashSet<>(Arrays.asList("12-24", "12-25", "12-31")), map.keySet());
+        assertEquals(0, parses.get());
+        
+        OpeningHoursForDay day = map.get("12-24");
+        assertSame(day, map.get("12-25"));
+        assertNull(map.get("01-01"));
+        assertEquals(1, parses.get());
+        
+        assertEquals(3, map.entrySet().size());
+        assertEquals("10:00-12:00", map.get("12-31").get(0).toString());
+        assertEquals(2, parses.get());
+    }
+    
+    @Test(expected = UnsupportedOperationException.class)
+    public void testReadOnly() {
+        new LazyDayMap<String>(new HashMap<>()).put("12-25", new OpeningHoursForDay());
+    }
+}
@@ -0,0 +1,146 @@
+package io.github.wuwx.openinghours;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Obviously correct model of a generated schedule, one flag per minute
+ *
+ * Every minute of a window around the query days is marked open or closed straight
+ * from the generated ranges, and queries scan those flags. Answers that would need
+ * minutes outside the window are unknown (null) and skipped by the harness.
+ */
+final class MinuteReference {
+
+    // Margin around the query days, enough for a week without openings on each side
+    private static final int MARGIN_DAYS = 14;
+
+    private final RandomSchedules.Spec spec;
+    private final LocalDateTime origin;
+    private final boolean[] open;
+
+    MinuteReference(RandomSchedules.Spec spec) {
+        this.spec = spec;
+        LocalDate first = RandomSchedules.START.minusDays(MARGIN_DAYS);
+        this.origin = first.atStartOfDay();
+        int days = RandomSchedules.DAYS + 2 * MARGIN_DAYS;
+        this.open = new boolean[days * 1440];
+        // The day before the window may spill into it
+        for (int day = -1; day < days; day++) {
+            int[] ranges = spec.rangesOn(first.plusDays(day));
+            for (int i = 0; i < ranges.length; i += 2) {
+                int start = day * 1440 + ranges[i];
+                int end = day * 1440 + ranges[i + 1];
+                if (ranges[i + 1] > ranges[i]) {
+                    mark(start, end);
+                } else if (spec.overflow) {
+                    mark(start, end + 1440);
+                } else {
+                    // Without overflow an overnight range covers both ends of its own day
+                    mark(start, (day + 1) * 1440);
+                    mark(day * 1440, end);
+                }
+            }
+        }
+    }
+
+    private void mark(int from, int to) {
+        for (int minute = Math.max(0, from); minute < Math.min(to, open.length); minute++) {
+            open[minute] = true;
+        }
+    }
+
+    private int minute(LocalDateTime time) {
+        return (int) ChronoUnit.MINUTES.between(origin, time);
+    }
+
+    private LocalDateTime time(int minute) {
+        return origin.plusMinutes(minute);
+    }
+
+    /**
+     * Checks if the schedule is open at a minute
+     *
+     * Without overflow, an overnight range also holds its end time, as the schedule
+     * checks the ranges of the day with an inclusive end.
+     *
+     * @param time the time, on a whole minute
+     * @return true if open
+     */
+    boolean isOpenAt(LocalDateTime time) {
+        if (open[minute(time)]) {
+            return true;
+        }
+        if (!spec.overflow) {
+            int[] ranges = spec.rangesOn(time.toLocalDate());
+            int minuteOfDay = time.getHour() * 60 + time.getMinute();
+            for (int i = 0; i < ranges.length; i += 2) {
+                if (ranges[i + 1] < ranges[i] && ranges[i + 1] == minuteOfDay) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks if the minute starting at a time is open
+     *
+     * @param time the time, on a whole minute
+     * @return true if open during that minute
+     */
+    boolean isOpenDuring(LocalDateTime time) {
+        return open[minute(time)];
+    }
+
+    /**
+     * Counts the open seconds between two minutes
+     *
+     * @param start the start, on a whole minute
+     * @param end the end, on a whole minute, not before start
+     * @return the open seconds
+     */
+    long openSeconds(LocalDateTime start, LocalDateTime end) {
+        long seconds = 0;
+        int last = minute(end);
+        for (int minute = minute(start); minute < last; minute++) {
+            if (open[minute]) {
+                seconds += 60;
+            }
+        }
+        return seconds;
+    }
+
+    /**
+     * Finds the first minute strictly after a time where the schedule opens or closes
+     *
+     * @param time the time, on a whole minute
+     * @param opening true for an opening, false for a closing
+     * @return the transition, or null if unknown within the window
+     */
+    LocalDateTime next(LocalDateTime time, boolean opening) {
+        for (int minute = minute(time) + 1; minute < open.length; minute++) {
+            if (open[minute] == opening && open[minute - 1] != opening) {
+                return time(minute);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Finds the last minute strictly before a time where the schedule opens or closes
+     *
+     * @param time the time, on a whole minute
+     * @param opening true for an opening, false for a closing
+     * @return the transition, or null if unknown within the window
+     */
+    LocalDateTime previous(LocalDateTime time, boolean opening) {
+        for (int minute = minute(time) - 1; minute > 0; minute--) {
+            if (open[minute] == opening && open[minute - 1] != opening) {
+                return time(minute);
+            }
+        }
+        return null;
+    }
+}
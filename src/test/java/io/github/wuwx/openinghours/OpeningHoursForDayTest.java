@@ -4,8 +4,12 @@ import org.junit.Test;
 import static org.junit.Assert.*;
 
 import java.time.LocalTime;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 public class OpeningHoursForDayTest {
     
@@ -47,4 +51,50 @@ public class OpeningHoursForDayTest {
         assertNotNull(firstRange);
         assertEquals("08:00-09:00", firstRange.toString());
     }
-}
\ No newline at end of file
+    
+    @Test
+    public void testStructuralEquality() {
+        OpeningHoursForDay overlapping = OpeningHoursForDay.fromStrings(Arrays.asList("09:00-12:00", "11:00-13:00"));
+        OpeningHoursForDay merged = OpeningHoursForDay.fromStrings(Arrays.asList("09:00-13:00"));
+        assertEquals(merged, overlapping);
+        assertEquals(merged.hashCode(), overlapping.hashCode());
+        assertEquals(merged.fingerprint(), overlapping.fingerprint());
+        
+        assertNotEquals(merged, OpeningHoursForDay.fromStrings(Arrays.asList("09:00-14:00")));
+        assertNotEquals(merged, OpeningHoursForDay.fromStrings(Arrays.asList("09:00-13:00"), "note"));
+        // Same times, but only the first one overflows into the next day
+        assertNotEquals(OpeningHoursForDay.fromStrings(Arrays.asList("22:00-02:00")),
+                OpeningHoursForDay.fromStrings(Arrays.asList("00:00-02:00", "22:00-24:00")));
+        assertEquals(OpeningHoursForDay.fromStrings(Collections.emptyList()),
+                OpeningHoursForDay.fromStrings(Collections.emptyList()));
+    }
+    
+    @Test
+    public void testImmutable() {
+        List<TimeRange> ranges = new ArrayList<>(Arrays.asList(TimeRange.fromString("09:00-12:00")));
+        Map<String, Object> data = new HashMap<>();
+        data.put("tags", new ArrayList<>(Arrays.asList("staffed")));
+        OpeningHoursForDay day = new OpeningHoursForDay(ranges, data);
+        
+        // Later changes to the inputs are not seen
+        ranges.add(TimeRange.fromString("13:00-18:00"));
+        data.put("note", "changed");
+        assertEquals(1, day.size());
+        assertFalse(((Map<?, ?>) day.getData()).containsKey("note"));
+        
+        try {
+            day.getTimeRanges().add(TimeRange.fromString("13:00-18:00"));
+            fail("Expected UnsupportedOperationException");
+        } catch (UnsupportedOperationException e) {
+            // Expected
+        }
+        try {
+            @SuppressWarnings("unchecked")
+            List<Object> tags = (List<Object>) ((Map<?, ?>) day.getData()).get("tags");
+            tags.add("unstaffed");
+            fail("Expected UnsupportedOperationException");
+        } catch (UnsupportedOperationException e) {
+            // Expected
+        }
+    }
+}
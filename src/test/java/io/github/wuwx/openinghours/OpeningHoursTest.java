@@ -1,5 +1,6 @@
 package io.github.wuwx.openinghours;
 
+import io.github.wuwx.openinghours.exceptions.MaximumLimitExceeded;
 import org.junit.Test;
 import static org.junit.Assert.*;
 
@@ -112,6 +113,17 @@ public class OpeningHoursTest {
         // Nov 11 should have special hours (closed in afternoon)
         assertTrue(openingHours.isOpenAt(LocalDateTime.of(2016, 11, 11, 10, 0)));
         assertFalse(openingHours.isOpenAt(LocalDateTime.of(2016, 11, 11, 15, 0)));
+        
+        // Neither the input nor the returned map can change the schedule
+        exceptions.put("2016-11-14", Collections.emptyList());
+        assertTrue(openingHours.isOpenAt(LocalDateTime.of(2016, 11, 14, 10, 0)));
+        try {
+            openingHours.exceptions().clear();
+            fail("Expected UnsupportedOperationException");
+        } catch (UnsupportedOperationException e) {
+            // Expected
+        }
+        assertEquals(2, openingHours.exceptions().size());
     }
     
     @Test
@@ -248,6 +260,100 @@ public class OpeningHoursTest {
         assertFalse(openingHours.isOpenAt(LocalDateTime.of(2023, 7, 22, 4, 0))); // Saturday
     }
     
+    private static OpeningHours fridayNight(boolean overflow, Map<String, Object> exceptions) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("overflow", overflow);
+        data.put("friday", Arrays.asList("22:00-03:00"));
+        data.put("exceptions", exceptions);
+        return OpeningHours.create(data);
+    }
+    
+    @Test
+    public void testOverflowOnlySpillsForward() {
+        OpeningHours overflow = fridayNight(true, new HashMap<>());
+        OpeningHours wrapped = fridayNight(false, new HashMap<>());
+        
+        // 2016-09-23 is a Friday
+        assertFalse(overflow.isOpenAt(LocalDateTime.of(2016, 9, 23, 1, 0)));
+        assertTrue(overflow.isOpenAt(LocalDateTime.of(2016, 9, 24, 1, 0)));
+        assertFalse(overflow.isOpenAt(LocalDateTime.of(2016, 9, 24, 3, 0)));
+        assertTrue(wrapped.isOpenAt(LocalDateTime.of(2016, 9, 23, 1, 0)));
+        assertFalse(wrapped.isOpenAt(LocalDateTime.of(2016, 9, 24, 1, 0)));
+        
+        assertEquals(5.0, overflow.diffInOpenHours(LocalDateTime.of(2016, 9, 23, 0, 0), LocalDateTime.of(2016, 9, 25, 0, 0)), 0.0);
+        assertEquals(3.0, overflow.diffInOpenHours(LocalDateTime.of(2016, 9, 24, 0, 0), LocalDateTime.of(2016, 9, 30, 0, 0)), 0.0);
+        // Five Fridays in Sept 2016, the last one spills past the end of the window
+        assertEquals(5.0 * 4 + 2, overflow.diffInOpenHours(LocalDateTime.of(2016, 9, 1, 0, 0), LocalDateTime.of(2016, 10, 1, 0, 0)), 0.0);
+    }
+    
+    @Test
+    public void testOverflowTransitions() {
+        OpeningHours openingHours = fridayNight(true, new HashMap<>());
+        
+        assertEquals(LocalDateTime.of(2016, 9, 24, 3, 0), openingHours.nextClose(LocalDateTime.of(2016, 9, 23, 23, 0)));
+        assertEquals(LocalDateTime.of(2016, 9, 24, 3, 0), openingHours.nextClose(LocalDateTime.of(2016, 9, 24, 1, 0)));
+        assertEquals(LocalDateTime.of(2016, 9, 30, 22, 0), openingHours.nextOpen(LocalDateTime.of(2016, 9, 24, 1, 0)));
+        assertEquals(LocalDateTime.of(2016, 9, 23, 22, 0), openingHours.nextOpen(LocalDateTime.of(2016, 9, 23, 1, 0)));
+        assertEquals(LocalDateTime.of(2016, 9, 23, 22, 0), openingHours.previousOpen(LocalDateTime.of(2016, 9, 24, 2, 0)));
+        assertEquals(LocalDateTime.of(2016, 9, 24, 3, 0), openingHours.previousClose(LocalDateTime.of(2016, 9, 26, 10, 0)));
+        assertEquals(LocalDateTime.of(2016, 9, 24, 3, 0),
+                     openingHours.nextClose(LocalDateTime.of(2016, 9, 20, 10, 0), null, LocalDateTime.of(2016, 9, 25, 0, 0)));
+    }
+    
+    @Test
+    public void testOverflowCurrentOpenRange() {
+        OpeningHours openingHours = fridayNight(true, new HashMap<>());
+        LocalDateTime saturdayNight = LocalDateTime.of(2016, 9, 24, 1, 0);
+        
+        assertEquals("22:00-03:00", openingHours.currentOpenRange(saturdayNight).get().toString());
+        assertEquals(LocalDateTime.of(2016, 9, 23, 22, 0), openingHours.currentOpenRangeStart(saturdayNight).get());
+        assertEquals(LocalDateTime.of(2016, 9, 24, 3, 0), openingHours.currentOpenRangeEnd(saturdayNight).get());
+        assertEquals(LocalDateTime.of(2016, 9, 24, 3, 0),
+                     openingHours.currentOpenRangeEnd(LocalDateTime.of(2016, 9, 23, 23, 0)).get());
+        assertFalse(openingHours.currentOpenRange(LocalDateTime.of(2016, 9, 23, 1, 0)).isPresent());
+    }
+    
+    @Test
+    public void testOverflowWithExceptions() {
+        Map<String, Object> exceptions = new HashMap<>();
+        exceptions.put("2016-09-23", Collections.emptyList());
+        exceptions.put("2016-10-01", Collections.emptyList());
+        exceptions.put("2016-09-28", Arrays.asList("23:00-01:00"));
+        OpeningHours openingHours = fridayNight(true, exceptions);
+        
+        // Closed Friday: nothing spills into Saturday
+        assertFalse(openingHours.isOpenAt(LocalDateTime.of(2016, 9, 24, 1, 0)));
+        // Closed Saturday still gets Friday's spill
+        assertTrue(openingHours.isOpenAt(LocalDateTime.of(2016, 10, 1, 1, 0)));
+        // An exception's own overnight range spills into a regular day
+        assertTrue(openingHours.isOpenAt(LocalDateTime.of(2016, 9, 29, 0, 30)));
+        assertEquals(LocalDateTime.of(2016, 9, 29, 1, 0), openingHours.nextClose(LocalDateTime.of(2016, 9, 28, 23, 30)));
+        
+        // Sept 2016: five Friday nights minus the closed one, the last cut at the end of the window,
+        // plus the Wednesday exception
+        assertEquals(5.0 * 3 + 2 + 2, openingHours.diffInOpenHours(LocalDateTime.of(2016, 9, 1, 0, 0), LocalDateTime.of(2016, 10, 1, 0, 0)), 0.0);
+    }
+    
+    @Test
+    public void testOverflowSetOperations() {
+        OpeningHours nights = fridayNight(true, Collections.singletonMap("2016-09-23", Collections.emptyList()));
+        Map<String, Object> data = new HashMap<>();
+        data.put("saturday", Arrays.asList("02:00-04:00"));
+        OpeningHours mornings = OpeningHours.create(data);
+        
+        OpeningHours union = nights.union(mornings);
+        assertEquals(LocalDateTime.of(2016, 10, 1, 4, 0), union.nextClose(LocalDateTime.of(2016, 10, 1, 1, 0)));
+        assertTrue(union.isOpenAt(LocalDateTime.of(2016, 10, 1, 0, 30)));
+        assertFalse(union.isOpenAt(LocalDateTime.of(2016, 9, 30, 0, 30)));
+        // The closed Friday does not spill into the following Saturday
+        assertFalse(union.isOpenAt(LocalDateTime.of(2016, 9, 24, 0, 30)));
+        assertTrue(union.isOpenAt(LocalDateTime.of(2016, 9, 24, 2, 30)));
+        
+        OpeningHours intersection = nights.intersect(mornings);
+        assertTrue(intersection.isOpenAt(LocalDateTime.of(2016, 10, 1, 2, 30)));
+        assertFalse(intersection.isOpenAt(LocalDateTime.of(2016, 9, 24, 2, 30)));
+    }
+    
     // ========== Special Time Tests ==========
     
     @Test
@@ -465,6 +571,84 @@ public class OpeningHoursTest {
         assertFalse(end2.isPresent());
     }
     
+    @Test
+    public void testCurrentOpenRangeAcrossMidnight() {
+        Map<String, Object> data = new HashMap<>();
+        data.put("sunday", Arrays.asList("22:00-03:00"));
+        data.put("monday", Arrays.asList("00:00-12:00", "12:00-24:00"));
+        data.put("tuesday", Arrays.asList("00:00-02:00"));
+        OpeningHours openingHours = OpeningHours.create(data);
+        
+        // Without overflow, Sunday's overnight range covers Sunday morning, which started on Saturday night
+        LocalDateTime sundayMorning = LocalDateTime.of(2016, 12, 25, 1, 0);
+        assertEquals("22:00-03:00", openingHours.currentOpenRange(sundayMorning).get().toString());
+        assertEquals(LocalDateTime.of(2016, 12, 25, 0, 0), openingHours.currentOpenRangeStart(sundayMorning).get());
+        assertEquals(LocalDateTime.of(2016, 12, 25, 3, 0), openingHours.currentOpenRangeEnd(sundayMorning).get());
+        // The end of an overnight range is still open without overflow, and ends the period
+        assertEquals(LocalDateTime.of(2016, 12, 25, 3, 0),
+                     openingHours.currentOpenRangeEnd(LocalDateTime.of(2016, 12, 25, 3, 0)).get());
+        
+        // Sunday night, Monday and Tuesday morning are one period
+        LocalDateTime mondayNoon = LocalDateTime.of(2016, 12, 26, 12, 0);
+        assertEquals(LocalDateTime.of(2016, 12, 25, 22, 0), openingHours.currentOpenRangeStart(mondayNoon).get());
+        assertEquals(LocalDateTime.of(2016, 12, 27, 2, 0), openingHours.currentOpenRangeEnd(mondayNoon).get());
+        assertEquals(LocalDateTime.of(2016, 12, 25, 22, 0),
+                     openingHours.currentOpenRangeStart(LocalDateTime.of(2016, 12, 27, 1, 59, 59, 999_999_999)).get());
+    }
+    
+    @Test
+    public void testCurrentOpenRangeOverSeveralDays() {
+        Map<String, Object> data = new HashMap<>();
+        data.put("monday to sunday", Arrays.asList("00:00-24:00"));
+        data.put("exceptions", Collections.singletonMap("12-25", Arrays.asList("10:00-14:00")));
+        OpeningHours openingHours = OpeningHours.create(data);
+        
+        LocalDateTime summer = LocalDateTime.of(2016, 7, 1, 12, 0);
+        assertEquals(LocalDateTime.of(2015, 12, 26, 0, 0), openingHours.currentOpenRangeStart(summer).get());
+        assertEquals(LocalDateTime.of(2016, 12, 25, 0, 0), openingHours.currentOpenRangeEnd(summer).get());
+        assertEquals(LocalDateTime.of(2016, 12, 25, 10, 0),
+                     openingHours.currentOpenRangeStart(LocalDateTime.of(2016, 12, 25, 11, 0)).get());
+        
+    }
+    
+    @Test
+    public void testCurrentOpenRangeAlwaysOpen() {
+        OpeningHours alwaysOpen = OpeningHours.create(Collections.singletonMap("monday to sunday", Arrays.asList("00:00-24:00")));
+        LocalDateTime summer = LocalDateTime.of(2016, 7, 1, 12, 0);
+        assertTrue(alwaysOpen.isOpenAt(summer));
+        assertTrue(alwaysOpen.currentOpenRange(summer).isPresent());
+        
+        // Open for longer than the search can see, which is not the same as closed
+        try {
+            alwaysOpen.currentOpenRangeStart(summer);
+            fail("Expected MaximumLimitExceeded");
+        } catch (MaximumLimitExceeded e) {
+            assertTrue(e.getMessage().contains("No open time"));
+        }
+        try {
+            alwaysOpen.currentOpenRangeEnd(summer);
+            fail("Expected MaximumLimitExceeded");
+        } catch (MaximumLimitExceeded e) {
+            assertTrue(e.getMessage().contains("No close time"));
+        }
+    }
+    
+    @Test
+    public void testCurrentOpenRangeNow() {
+        Map<String, Object> data = new HashMap<>();
+        data.put("monday to sunday", Arrays.asList("00:00-12:00", "12:00-24:00"));
+        data.put("timezone", "UTC");
+        data.put("exceptions", Collections.singletonMap("01-01", Arrays.asList("00:00-23:00")));
+        OpeningHours openingHours = OpeningHours.create(data);
+        
+        LocalDateTime before = LocalDateTime.now(java.time.ZoneOffset.UTC);
+        Optional<LocalDateTime> end = openingHours.currentOpenRangeEnd(null);
+        if (end.isPresent()) {
+            assertTrue(end.get().isAfter(before));
+            assertFalse(openingHours.currentOpenRangeStart(null).get().isAfter(before));
+        }
+    }
+    
     // ========== Diff Calculation Tests ==========
     
     @Test
@@ -527,6 +711,32 @@ public class OpeningHoursTest {
         assertEquals(1.0, hours, 0.01);
     }
     
+    @Test
+    public void testDiffAcrossMidnight() {
+        Map<String, Object> data = new HashMap<>();
+        data.put("wednesday", Arrays.asList("22:00-24:00"));
+        data.put("thursday", Arrays.asList("00:00-07:00"));
+        data.put("friday", Arrays.asList("22:00-02:00"));
+        
+        OpeningHours openingHours = OpeningHours.create(data);
+        
+        // 2023-07-05 is a Wednesday, "24:00" counts up to the end of the day
+        assertEquals(9.0 * 3600, openingHours.diffInOpenSeconds(
+            LocalDateTime.of(2023, 7, 5, 22, 0), LocalDateTime.of(2023, 7, 6, 7, 0)), 0.0);
+        assertEquals(0.0, openingHours.diffInClosedSeconds(
+            LocalDateTime.of(2023, 7, 5, 22, 0), LocalDateTime.of(2023, 7, 6, 7, 0)), 0.0);
+        
+        // Overnight range on Friday covers 00:00-02:00 and 22:00-24:00
+        assertEquals(4.0, openingHours.diffInOpenHours(
+            LocalDateTime.of(2023, 7, 7, 0, 0), LocalDateTime.of(2023, 7, 8, 0, 0)), 0.0);
+        assertEquals(20.0, openingHours.diffInClosedHours(
+            LocalDateTime.of(2023, 7, 7, 0, 0), LocalDateTime.of(2023, 7, 8, 0, 0)), 0.0);
+        
+        // Whole weeks
+        assertEquals(-13.0 * 4, openingHours.diffInOpenHours(
+            LocalDateTime.of(2023, 7, 31, 0, 0), LocalDateTime.of(2023, 7, 3, 0, 0)), 0.0);
+    }
+    
     // ========== Filters Tests ==========
     
     @Test
@@ -549,6 +759,368 @@ public class OpeningHoursTest {
         assertFalse(openingHours.isOpenAt(LocalDateTime.of(2020, 1, 1, 10, 0)));
     }
     
+    @Test
+    public void testFilterHours() {
+        Map<String, Object> data = new HashMap<>();
+        data.put("monday to friday", Arrays.asList("09:00-17:00"));
+        
+        List<java.util.function.Function<java.time.LocalDate, Map<String, Object>>> filters = new ArrayList<>();
+        filters.add(date -> {
+            // Short hours on the last Friday of the month
+            if (date.getDayOfWeek() == java.time.DayOfWeek.FRIDAY && date.plusWeeks(1).getMonth() != date.getMonth()) {
+                Map<String, Object> hours = new HashMap<>();
+                hours.put("hours", Arrays.asList("09:00-12:00"));
+                hours.put("data", "Inventory");
+                return hours;
+            }
+            return null;
+        });
+        data.put("filters", filters);
+        
+        // A function in the exceptions acts as a filter, after the filters list
+        Map<String, Object> exceptions = new HashMap<>();
+        exceptions.put("fridays", (java.util.function.Function<java.time.LocalDate, Map<String, Object>>) date ->
+            date.getDayOfWeek() == java.time.DayOfWeek.FRIDAY ? Collections.emptyMap() : null);
+        data.put("exceptions", exceptions);
+        
+        OpeningHours openingHours = OpeningHours.create(data);
+        
+        assertEquals("Inventory", openingHours.forDate(LocalDateTime.of(2016, 9, 30, 0, 0)).getData());
+        assertTrue(openingHours.isOpenAt(LocalDateTime.of(2016, 9, 30, 11, 0)));
+        assertFalse(openingHours.isOpenAt(LocalDateTime.of(2016, 9, 30, 13, 0)));
+        assertFalse(openingHours.isOpenAt(LocalDateTime.of(2016, 9, 23, 11, 0)));
+        assertTrue(openingHours.isOpenAt(LocalDateTime.of(2016, 9, 22, 13, 0)));
+        assertEquals(LocalDateTime.of(2016, 9, 26, 9, 0), openingHours.nextOpen(LocalDateTime.of(2016, 9, 22, 18, 0)));
+        
+        // Four regular weeks in Sept 2016 plus Thursday 1st, minus four closed Fridays, plus the short one
+        assertEquals(4 * 4 * 8 + 8 + 3, openingHours.diffInOpenHours(
+            LocalDateTime.of(2016, 9, 1, 0, 0), LocalDateTime.of(2016, 10, 1, 0, 0)), 0.0);
+    }
+    
+    // ========== Calendar Cache Tests ==========
+    
+    @Test
+    public void testCalendarCacheMatchesUncached() {
+        Map<String, Object> data = new HashMap<>();
+        data.put("monday to friday", Arrays.asList("09:00-17:00"));
+        Map<String, Object> exceptions = new HashMap<>();
+        exceptions.put("12-25", Collections.emptyList());
+        exceptions.put("2016-11-11", Arrays.asList("09:00-12:00"));
+        data.put("exceptions", exceptions);
+        OpeningHours uncached = OpeningHours.create(data);
+        data.put("calendarCache", true);
+        OpeningHours cached = OpeningHours.create(data);
+        
+        for (LocalDateTime day = LocalDateTime.of(2015, 1, 1, 0, 0); day.getYear() < 2018; day = day.plusDays(1)) {
+            assertEquals(uncached.forDate(day), cached.forDate(day));
+        }
+        assertEquals(uncached.diffInOpenHours(LocalDateTime.of(2016, 1, 1, 0, 0), LocalDateTime.of(2017, 1, 1, 0, 0)),
+                     cached.diffInOpenHours(LocalDateTime.of(2016, 1, 1, 0, 0), LocalDateTime.of(2017, 1, 1, 0, 0)), 0.0);
+    }
+    
+    @Test
+    public void testCalendarCacheResolvesFiltersOnce() {
+        java.util.concurrent.atomic.AtomicInteger calls = new java.util.concurrent.atomic.AtomicInteger();
+        Map<String, Object> data = new HashMap<>();
+        data.put("monday", Arrays.asList("09:00-17:00"));
+        data.put("filters", Arrays.<java.util.function.Function<java.time.LocalDate, Map<String, Object>>>asList(date -> {
+            calls.incrementAndGet();
+            return null;
+        }));
+        data.put("calendarCache", 1);
+        OpeningHours openingHours = OpeningHours.create(data);
+        
+        assertTrue(openingHours.isOpenAt(LocalDateTime.of(2016, 9, 26, 10, 0)));
+        assertTrue(openingHours.isOpenAt(LocalDateTime.of(2016, 10, 3, 10, 0)));
+        assertEquals(366, calls.get());
+        
+        // Only one year is kept, going back to 2016 builds it again
+        openingHours.isOpenAt(LocalDateTime.of(2017, 1, 2, 10, 0));
+        openingHours.isOpenAt(LocalDateTime.of(2016, 1, 4, 10, 0));
+        assertEquals(366 + 365 + 366, calls.get());
+    }
+    
+    // ========== Holiday Tests ==========
+    
+    private static io.github.wuwx.openinghours.holidays.HolidayCalendar easterHolidays() {
+        Map<String, io.github.wuwx.openinghours.holidays.HolidayRule> rules = new LinkedHashMap<>();
+        rules.put("New Year", io.github.wuwx.openinghours.holidays.HolidayRule.fixed(java.time.Month.JANUARY, 1));
+        rules.put("Good Friday", io.github.wuwx.openinghours.holidays.HolidayRule.easter(-2));
+        return io.github.wuwx.openinghours.holidays.HolidayCalendar.of(rules);
+    }
+    
+    @Test
+    public void testHolidays() {
+        Map<String, Object> data = new HashMap<>();
+        data.put("monday to friday", Arrays.asList("09:00-17:00"));
+        data.put("holidays", easterHolidays());
+        OpeningHours openingHours = OpeningHours.create(data);
+        
+        // Good Friday 2024 is March 29th, closed and named after the holiday
+        assertTrue(openingHours.forDate(LocalDateTime.of(2024, 3, 29, 0, 0)).isEmpty());
+        assertEquals("Good Friday", openingHours.forDate(LocalDateTime.of(2024, 3, 29, 0, 0)).getData());
+        assertFalse(openingHours.isOpenAt(LocalDateTime.of(2024, 3, 29, 10, 0)));
+        assertTrue(openingHours.isOpenAt(LocalDateTime.of(2025, 4, 17, 10, 0)));
+        assertFalse(openingHours.isOpenAt(LocalDateTime.of(2025, 4, 18, 10, 0)));
+        assertFalse(openingHours.isAlwaysClosed());
+        
+        assertEquals(LocalDateTime.of(2024, 4, 1, 9, 0), openingHours.nextOpen(LocalDateTime.of(2024, 3, 28, 18, 0)));
+        assertEquals(4 * 8, openingHours.diffInOpenHours(
+            LocalDateTime.of(2024, 3, 25, 0, 0), LocalDateTime.of(2024, 4, 1, 0, 0)), 0.0);
+    }
+    
+    @Test
+    public void testHolidayHoursAndPrecedence() {
+        Map<String, Object> holidays = new HashMap<>();
+        holidays.put("calendar", easterHolidays());
+        holidays.put("hours", Arrays.asList("10:00-14:00"));
+        Map<String, Object> data = new HashMap<>();
+        data.put("monday to friday", Arrays.asList("09:00-17:00"));
+        data.put("holidays", holidays);
+        data.put("exceptions", Collections.singletonMap("2025-04-18", Arrays.asList("09:00-10:00")));
+        OpeningHours openingHours = OpeningHours.create(data);
+        
+        assertEquals("10:00-14:00", openingHours.forDate(LocalDateTime.of(2024, 3, 29, 0, 0)).get(0).toString());
+        assertEquals("Good Friday", openingHours.forDate(LocalDateTime.of(2024, 3, 29, 0, 0)).getData());
+        // Explicit exceptions win over holiday rules
+        assertEquals("09:00-10:00", openingHours.forDate(LocalDateTime.of(2025, 4, 18, 0, 0)).get(0).toString());
+    }
+    
+    @Test
+    public void testHolidaysWithOverflow() {
+        Map<String, Object> data = new HashMap<>();
+        data.put("monday to sunday", Arrays.asList("20:00-02:00"));
+        data.put("holidays", easterHolidays());
+        data.put("overflow", true);
+        OpeningHours openingHours = OpeningHours.create(data);
+        
+        // Thursday's night still spills into Good Friday, but Friday has no night to spill into Saturday
+        assertTrue(openingHours.isOpenAt(LocalDateTime.of(2024, 3, 29, 1, 0)));
+        assertFalse(openingHours.isOpenAt(LocalDateTime.of(2024, 3, 30, 1, 0)));
+        assertEquals(6 + 2 + 4, openingHours.diffInOpenHours(
+            LocalDateTime.of(2024, 3, 28, 0, 0), LocalDateTime.of(2024, 3, 31, 0, 0)), 0.0);
+    }
+    
+    @Test
+    public void testSetOperationsWithHolidays() {
+        Map<String, Object> data = new HashMap<>();
+        data.put("monday to friday", Arrays.asList("09:00-17:00"));
+        data.put("holidays", easterHolidays());
+        OpeningHours store = OpeningHours.create(data);
+        Map<String, io.github.wuwx.openinghours.holidays.HolidayRule> rules = new LinkedHashMap<>();
+        rules.put("Christmas", io.github.wuwx.openinghours.holidays.HolidayRule.fixed(java.time.Month.DECEMBER, 25));
+        data = new HashMap<>();
+        data.put("monday to sunday", Arrays.asList("12:00-20:00"));
+        data.put("holidays", io.github.wuwx.openinghours.holidays.HolidayCalendar.of(rules));
+        data.put("exceptions", Collections.singletonMap("03-29", Arrays.asList("08:00-10:00")));
+        OpeningHours pickup = OpeningHours.create(data);
+        
+        OpeningHours union = store.union(pickup);
+        OpeningHours intersection = store.intersect(pickup);
+        OpeningHours difference = store.subtract(pickup);
+        
+        // Good Friday 2024 is March 29th: the store is closed, the recurring exception of the other side applies
+        assertEquals("[08:00-10:00]", union.forDate(LocalDateTime.of(2024, 3, 29, 0, 0)).toString());
+        assertEquals("Good Friday", union.forDate(LocalDateTime.of(2024, 3, 29, 0, 0)).getData());
+        assertTrue(intersection.forDate(LocalDateTime.of(2024, 3, 29, 0, 0)).isEmpty());
+        // Good Friday 2025 and in any later year
+        assertFalse(union.isOpenAt(LocalDateTime.of(2025, 4, 18, 10, 0)));
+        assertTrue(union.isOpenAt(LocalDateTime.of(2025, 4, 18, 13, 0)));
+        assertFalse(intersection.isOpenAt(LocalDateTime.of(2025, 4, 18, 13, 0)));
+        assertTrue(intersection.isOpenAt(LocalDateTime.of(2025, 4, 17, 13, 0)));
+        assertFalse(difference.isOpenAt(LocalDateTime.of(2025, 4, 18, 10, 0)));
+        assertTrue(difference.isOpenAt(LocalDateTime.of(2025, 4, 17, 10, 0)));
+        assertFalse(union.isOpenAt(LocalDateTime.of(2030, 4, 19, 10, 0)));
+        // Christmas of the other calendar
+        assertTrue(union.isOpenAt(LocalDateTime.of(2024, 12, 25, 10, 0)));
+        assertFalse(intersection.isOpenAt(LocalDateTime.of(2024, 12, 25, 13, 0)));
+        assertTrue(intersection.isOpenAt(LocalDateTime.of(2024, 12, 18, 13, 0)));
+        assertEquals(LocalDateTime.of(2024, 12, 26, 12, 0), intersection.nextOpen(LocalDateTime.of(2024, 12, 24, 17, 0)));
+        // New Year 2025 is a Wednesday
+        assertEquals(LocalDateTime.of(2025, 1, 1, 12, 0), union.nextOpen(LocalDateTime.of(2024, 12, 31, 20, 0)));
+        assertEquals(LocalDateTime.of(2025, 1, 2, 9, 0), difference.nextOpen(LocalDateTime.of(2024, 12, 31, 12, 0)));
+    }
+    
+    @Test
+    public void testSetOperationsWithFilters() {
+        Map<String, Object> data = new HashMap<>();
+        data.put("monday to friday", Arrays.asList("09:00-17:00"));
+        List<java.util.function.Function<java.time.LocalDate, Map<String, Object>>> filters = new ArrayList<>();
+        filters.add(date -> date.getMonthValue() == 1 && date.getDayOfMonth() == 1
+            ? Collections.singletonMap("hours", Collections.emptyList()) : null);
+        data.put("filters", filters);
+        OpeningHours store = OpeningHours.create(data);
+        OpeningHours weekend = OpeningHours.create(Collections.singletonMap("saturday", Arrays.asList("10:00-12:00")));
+        data = new HashMap<>();
+        data.put("monday to sunday", Arrays.asList("00:00-24:00"));
+        OpeningHours always = OpeningHours.create(data);
+        
+        // 2024-01-01 is a Monday, closed by the filter
+        LocalDateTime newYear = LocalDateTime.of(2024, 1, 1, 10, 0);
+        assertFalse(store.isOpenAt(newYear));
+        assertFalse(store.union(weekend).isOpenAt(newYear));
+        assertFalse(weekend.union(store).isOpenAt(newYear));
+        assertFalse(store.intersect(store).isOpenAt(newYear));
+        assertTrue(always.subtract(store).isOpenAt(newYear));
+        
+        // Dates the filter leaves alone keep the combined hours
+        assertTrue(store.union(weekend).isOpenAt(LocalDateTime.of(2024, 1, 2, 10, 0)));
+        assertTrue(store.union(weekend).isOpenAt(LocalDateTime.of(2024, 1, 6, 11, 0)));
+        assertFalse(always.subtract(store).isOpenAt(LocalDateTime.of(2024, 1, 8, 10, 0)));
+        assertEquals(LocalDateTime.of(2024, 1, 2, 9, 0), store.union(weekend).nextOpen(newYear));
+    }
+    
+    @Test
+    public void testSetOperationsWithHolidaysAndOverflow() {
+        Map<String, Object> data = new HashMap<>();
+        data.put("monday to sunday", Arrays.asList("20:00-02:00"));
+        data.put("holidays", easterHolidays());
+        data.put("overflow", true);
+        OpeningHours bar = OpeningHours.create(data);
+        OpeningHours union = bar.union(OpeningHours.create(Collections.singletonMap("saturday", Arrays.asList("09:00-12:00"))));
+        
+        // No night on Good Friday, so nothing spills into Saturday morning
+        assertTrue(union.isOpenAt(LocalDateTime.of(2024, 3, 29, 1, 0)));
+        assertFalse(union.isOpenAt(LocalDateTime.of(2024, 3, 29, 21, 0)));
+        assertFalse(union.isOpenAt(LocalDateTime.of(2024, 3, 30, 1, 0)));
+        assertTrue(union.isOpenAt(LocalDateTime.of(2024, 3, 30, 10, 0)));
+        assertTrue(union.isOpenAt(LocalDateTime.of(2024, 3, 23, 1, 0)));
+    }
+    
+    // ========== Overlay Tests ==========
+    
+    private static OpeningHours brandHours() {
+        Map<String, Object> data = new HashMap<>();
+        data.put("monday to friday", Arrays.asList("09:00-17:00"));
+        data.put("saturday", Arrays.asList("10:00-14:00"));
+        return OpeningHours.create(data);
+    }
+    
+    private static OpeningHours regionHours(OpeningHours brand) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("holidays", easterHolidays());
+        data.put("exceptions", Collections.singletonMap("12-24", Collections.emptyList()));
+        return brand.overlay(data);
+    }
+    
+    @Test
+    public void testOverlay() {
+        OpeningHours brand = brandHours();
+        OpeningHours region = regionHours(brand);
+        Map<String, Object> data = new HashMap<>();
+        data.put("saturday", Collections.emptyList());
+        Map<String, Object> exceptions = new HashMap<>();
+        exceptions.put("2024-03-30", Arrays.asList("10:00-12:00"));
+        exceptions.put("12-24", Arrays.asList("09:00-12:00"));
+        data.put("exceptions", exceptions);
+        OpeningHours store = region.overlay(data);
+        
+        assertSame(region, store.parent().get());
+        assertSame(brand, region.parent().get());
+        assertFalse(brand.parent().isPresent());
+        
+        // Inherited weekday, overridden weekday, own exception
+        assertTrue(store.isOpenAt(LocalDateTime.of(2024, 3, 25, 10, 0)));
+        assertFalse(store.isOpenAt(LocalDateTime.of(2024, 4, 6, 11, 0)));
+        assertTrue(store.isOpenAt(LocalDateTime.of(2024, 3, 30, 11, 0)));
+        assertTrue(brand.isOpenAt(LocalDateTime.of(2024, 4, 6, 11, 0)));
+        // Region holiday, and the store's exception replacing the region's on the same date
+        assertFalse(store.isOpenAt(LocalDateTime.of(2024, 3, 29, 10, 0)));
+        assertFalse(region.isOpenAt(LocalDateTime.of(2024, 12, 24, 10, 0)));
+        assertTrue(store.isOpenAt(LocalDateTime.of(2024, 12, 24, 10, 0)));
+        
+        assertEquals(4 * 8 + 2, store.diffInOpenHours(
+            LocalDateTime.of(2024, 3, 25, 0, 0), LocalDateTime.of(2024, 4, 1, 0, 0)), 0.0);
+        assertEquals(LocalDateTime.of(2024, 4, 1, 9, 0), store.nextOpen(LocalDateTime.of(2024, 3, 30, 12, 0)));
+        assertEquals(2, store.exceptions().size());
+    }
+    
+    @Test
+    public void testOverlayWithParent() {
+        OpeningHours region = regionHours(brandHours());
+        OpeningHours store = region.overlay(Collections.singletonMap("sunday", Arrays.asList("12:00-16:00")));
+        
+        Map<String, Object> data = new HashMap<>();
+        data.put("monday to friday", Arrays.asList("08:00-18:00"));
+        OpeningHours newRegion = region.withParent(OpeningHours.create(data));
+        OpeningHours newStore = store.withParent(newRegion);
+        
+        assertSame(newRegion, newStore.parent().get());
+        assertEquals(10, newStore.diffInOpenHours(
+            LocalDateTime.of(2024, 3, 25, 0, 0), LocalDateTime.of(2024, 3, 26, 0, 0)), 0.0);
+        assertEquals(4, newStore.diffInOpenHours(
+            LocalDateTime.of(2024, 3, 31, 0, 0), LocalDateTime.of(2024, 4, 1, 0, 0)), 0.0);
+        // The region's holidays and the old store are unchanged
+        assertFalse(newStore.isOpenAt(LocalDateTime.of(2024, 3, 29, 10, 0)));
+        assertEquals(8, store.diffInOpenHours(
+            LocalDateTime.of(2024, 3, 25, 0, 0), LocalDateTime.of(2024, 3, 26, 0, 0)), 0.0);
+    }
+    
+    @Test
+    public void testOverlayRulesBeforeParentRules() {
+        Map<String, Object> data = new HashMap<>();
+        data.put("monday to friday", Arrays.asList("09:00-17:00"));
+        Map<String, Object> exceptions = new HashMap<>();
+        exceptions.put("2024-12-25", Arrays.asList("10:00-12:00"));
+        exceptions.put("2024-03-29", Arrays.asList("09:00-17:00"));
+        exceptions.put("01-01", Arrays.asList("10:00-14:00"));
+        exceptions.put("12-24", Collections.emptyList());
+        exceptions.put("2024-07-04", Collections.emptyList());
+        data.put("exceptions", exceptions);
+        OpeningHours parent = OpeningHours.create(data);
+        
+        data = new HashMap<>();
+        data.put("holidays", easterHolidays());
+        exceptions = new HashMap<>();
+        exceptions.put("12-25", Collections.emptyList());
+        exceptions.put("2024-12-24", Arrays.asList("09:00-12:00"));
+        data.put("exceptions", exceptions);
+        OpeningHours child = parent.overlay(data);
+        
+        // The overlay's recurring exception beats the parent's dated exception
+        assertTrue(parent.isOpenAt(LocalDateTime.of(2024, 12, 25, 11, 0)));
+        assertFalse(child.isOpenAt(LocalDateTime.of(2024, 12, 25, 11, 0)));
+        // The overlay's holidays beat the parent's dated and recurring exceptions
+        assertFalse(child.isOpenAt(LocalDateTime.of(2024, 3, 29, 10, 0)));
+        assertEquals("Good Friday", child.forDate(LocalDateTime.of(2024, 3, 29, 0, 0)).getData());
+        assertTrue(parent.isOpenAt(LocalDateTime.of(2025, 1, 1, 11, 0)));
+        assertFalse(child.isOpenAt(LocalDateTime.of(2025, 1, 1, 11, 0)));
+        // The overlay's dated exception beats the parent's recurring exception
+        assertTrue(child.isOpenAt(LocalDateTime.of(2024, 12, 24, 10, 0)));
+        assertFalse(child.isOpenAt(LocalDateTime.of(2025, 12, 24, 10, 0)));
+        // Dates without a rule of the overlay fall back to the parent's
+        assertFalse(child.isOpenAt(LocalDateTime.of(2024, 7, 4, 10, 0)));
+        assertTrue(child.isOpenAt(LocalDateTime.of(2024, 7, 5, 10, 0)));
+        
+        assertEquals(LocalDateTime.of(2024, 12, 26, 9, 0), child.nextOpen(LocalDateTime.of(2024, 12, 24, 12, 0)));
+        assertEquals(LocalDateTime.of(2025, 1, 2, 9, 0), child.nextOpen(LocalDateTime.of(2024, 12, 31, 17, 0)));
+    }
+    
+    @Test
+    public void testOverlayInheritsOverflow() {
+        Map<String, Object> data = new HashMap<>();
+        data.put("friday", Arrays.asList("20:00-02:00"));
+        data.put("overflow", true);
+        OpeningHours parent = OpeningHours.create(data);
+        OpeningHours child = parent.overlay(Collections.singletonMap("exceptions",
+            Collections.singletonMap("2016-09-23", Collections.emptyList())));
+        
+        assertTrue(child.isOpenAt(LocalDateTime.of(2016, 9, 17, 1, 0)));
+        assertFalse(child.isOpenAt(LocalDateTime.of(2016, 9, 24, 1, 0)));
+        try {
+            parent.overlay(Collections.singletonMap("overflow", false));
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+        try {
+            parent.withParent(child);
+            fail("Expected IllegalStateException");
+        } catch (IllegalStateException e) {
+            // Expected
+        }
+    }
+    
     // ========== Merge Overlapping Ranges Tests ==========
     
     @Test
@@ -611,6 +1183,165 @@ public class OpeningHoursTest {
         assertTrue(consecutive.size() >= 2);
     }
     
+    @Test
+    public void testWeekGroupingsAreStructuralAndCached() {
+        Map<String, Object> data = new HashMap<>();
+        data.put("monday", Arrays.asList("09:00-12:00", "12:00-17:00"));
+        data.put("tuesday", Arrays.asList("09:00-17:00"));
+        data.put("wednesday", Arrays.asList("09:00-17:00"));
+        data.put("thursday", Arrays.asList("09:00-12:00"));
+        data.put("friday", Arrays.asList("09:00-17:00"));
+        
+        OpeningHours openingHours = OpeningHours.create(data);
+        
+        Map<String, Object> combined = openingHours.forWeekCombined();
+        assertEquals(Arrays.asList("monday", "thursday", "saturday"), new ArrayList<>(combined.keySet()));
+        assertEquals(Arrays.asList("monday", "tuesday", "wednesday", "friday"),
+                ((Map<?, ?>) combined.get("monday")).get("days"));
+        assertEquals(Arrays.asList("saturday", "sunday"), ((Map<?, ?>) combined.get("saturday")).get("days"));
+        assertSame(combined, openingHours.forWeekCombined());
+        
+        Map<String, Object> consecutive = openingHours.forWeekConsecutiveDays();
+        assertEquals(Arrays.asList("monday", "thursday", "friday", "saturday"), new ArrayList<>(consecutive.keySet()));
+        assertEquals(Arrays.asList("monday", "tuesday", "wednesday"),
+                ((Map<?, ?>) consecutive.get("monday")).get("days"));
+        assertSame(consecutive, openingHours.forWeekConsecutiveDays());
+    }
+    
+    @Test(expected = UnsupportedOperationException.class)
+    public void testWeekCombinedIsUnmodifiable() {
+        OpeningHours.create(new HashMap<>()).forWeekCombined().clear();
+    }
+    
+    // ========== Bulk Load Tests ==========
+    
+    private static Map<String, Object> store(String weekdayHours) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("monday to friday", Arrays.asList(weekdayHours));
+        data.put("saturday", Arrays.asList("10:00-14:00"));
+        return data;
+    }
+    
+    @Test
+    public void testCreateAll() {
+        List<Map<String, Object>> records = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            records.add(store(i % 2 == 0 ? "09:00-17:00" : "08:00-20:00"));
+        }
+        ParseCache cache = new ParseCache(64);
+        
+        LoadResult result = OpeningHours.createAll(records.stream(), cache, java.util.concurrent.ForkJoinPool.commonPool());
+        
+        assertFalse(result.hasErrors());
+        assertEquals(1000, result.loadedCount());
+        assertFalse(result.schedules().get(0).isOpenAt(LocalDateTime.of(2016, 9, 26, 8, 30)));
+        assertTrue(result.schedules().get(1).isOpenAt(LocalDateTime.of(2016, 9, 26, 8, 30)));
+        assertSame(result.schedules().get(0).forDay("saturday"), result.schedules().get(1).forDay("saturday"));
+        assertEquals(3, cache.size());
+    }
+    
+    @Test
+    public void testCreateAllReportsErrors() {
+        Map<String, Object> badDay = store("09:00-17:00");
+        badDay.put("mondai", Arrays.asList("09:00-12:00"));
+        Map<String, Object> badTime = store("09:00-17:00");
+        badTime.put("sunday", Arrays.asList("10:00-25:00"));
+        Map<String, Object> badException = store("09:00-17:00");
+        badException.put("exceptions", Collections.singletonMap("2016-13-01", Collections.emptyList()));
+        
+        LoadResult result = OpeningHours.createAll(
+            Arrays.asList(store("09:00-17:00"), badDay, badTime, null, badException).stream());
+        
+        assertEquals(5, result.schedules().size());
+        assertEquals(1, result.loadedCount());
+        assertNotNull(result.schedules().get(0));
+        assertNull(result.schedules().get(1));
+        
+        List<LoadResult.RecordError> errors = result.errors();
+        assertEquals(4, errors.size());
+        assertEquals(1, errors.get(0).index());
+        assertEquals("mondai", errors.get(0).key());
+        assertEquals(2, errors.get(1).index());
+        assertEquals("sunday", errors.get(1).key());
+        assertEquals(3, errors.get(2).index());
+        assertNull(errors.get(2).key());
+        assertEquals(4, errors.get(3).index());
+        assertEquals("2016-13-01", errors.get(3).key());
+        
+        // create itself stays lenient
+        assertNotNull(OpeningHours.create(badDay));
+    }
+    
+    // ========== Lazy Parsing Tests ==========
+    
+    private static Map<String, Object> lazySchedule(ParseCache cache) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("monday", Arrays.asList("09:00-12:00", "13:00-18:00"));
+        data.put("tuesday to thursday", Arrays.asList("08:00-17:00"));
+        data.put("friday", Arrays.asList("22:00-02:00"));
+        data.put("saturday", Arrays.asList("10:00-14:00"));
+        Map<String, Object> exceptions = new HashMap<>();
+        exceptions.put("2016-11-11", Arrays.asList("09:00-12:00"));
+        exceptions.put("12-24 to 12-26", Collections.emptyList());
+        data.put("exceptions", exceptions);
+        data.put("parseCache", cache);
+        return data;
+    }
+    
+    @Test
+    public void testCreateLazyParsesOnDemand() {
+        ParseCache cache = new ParseCache(16);
+        OpeningHours lazy = OpeningHours.createLazy(lazySchedule(cache));
+        assertEquals(0, cache.missCount());
+        
+        assertTrue(lazy.isOpenAt(LocalDateTime.of(2016, 9, 26, 10, 0)));
+        assertEquals(1, cache.missCount());
+        
+        // One parse covers the whole day range and the whole date range
+        assertTrue(lazy.isOpenAt(LocalDateTime.of(2016, 9, 27, 10, 0)));
+        assertTrue(lazy.isOpenAt(LocalDateTime.of(2016, 9, 29, 10, 0)));
+        assertFalse(lazy.isOpenAt(LocalDateTime.of(2016, 12, 26, 10, 0)));
+        assertFalse(lazy.isOpenAt(LocalDateTime.of(2016, 12, 24, 10, 0)));
+        assertEquals(3, cache.missCount());
+    }
+    
+    @Test
+    public void testCreateLazyMatchesCreate() {
+        OpeningHours eager = OpeningHours.create(lazySchedule(new ParseCache(16)));
+        OpeningHours lazy = OpeningHours.createLazy(lazySchedule(new ParseCache(16)));
+        
+        LocalDateTime start = LocalDateTime.of(2016, 11, 1, 0, 0);
+        for (int hour = 0; hour < 24 * 60; hour += 5) {
+            LocalDateTime time = start.plusHours(hour).plusMinutes(hour % 60);
+            assertEquals(eager.isOpenAt(time), lazy.isOpenAt(time));
+            assertEquals(eager.nextOpen(time), lazy.nextOpen(time));
+            assertEquals(eager.nextClose(time), lazy.nextClose(time));
+        }
+        assertEquals(eager.diffInOpenSeconds(start, start.plusDays(60)),
+                     lazy.diffInOpenSeconds(start, start.plusDays(60)), 0.0);
+        assertEquals(eager.forWeekCombined(), lazy.forWeekCombined());
+        assertEquals(eager.exceptions(), lazy.exceptions());
+    }
+    
+    @Test
+    public void testCreateLazyConcurrentReaders() throws Exception {
+        OpeningHours lazy = OpeningHours.createLazy(lazySchedule(new ParseCache(16)));
+        java.util.concurrent.ExecutorService executor = java.util.concurrent.Executors.newFixedThreadPool(8);
+        try {
+            List<java.util.concurrent.Future<Double>> futures = new ArrayList<>();
+            for (int i = 0; i < 64; i++) {
+                futures.add(executor.submit(() -> lazy.diffInOpenHours(
+                    LocalDateTime.of(2016, 11, 1, 0, 0), LocalDateTime.of(2016, 12, 1, 0, 0))));
+            }
+            double expected = futures.get(0).get();
+            for (java.util.concurrent.Future<Double> future : futures) {
+                assertEquals(expected, future.get(), 0.0);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+    
     // ========== Fill Method Test ==========
     
     @Test
@@ -721,4 +1452,436 @@ public class OpeningHoursTest {
         LocalDateTime searchUntil = LocalDateTime.of(2020, 1, 8, 0, 0);
         openingHours.nextOpen(LocalDateTime.of(2020, 1, 6, 10, 0), searchUntil, null);
     }
+    
+    // ========== Set Operation Tests ==========
+    
+    @Test
+    public void testUnion() {
+        Map<String, Object> storeData = new HashMap<>();
+        storeData.put("monday to friday", Arrays.asList("09:00-12:00", "13:00-17:00"));
+        OpeningHours store = OpeningHours.create(storeData);
+        
+        Map<String, Object> pickupData = new HashMap<>();
+        pickupData.put("monday", Arrays.asList("11:00-14:00"));
+        pickupData.put("saturday", Arrays.asList("10:00-12:00"));
+        OpeningHours pickup = OpeningHours.create(pickupData);
+        
+        OpeningHours union = store.union(pickup);
+        
+        assertEquals("[09:00-17:00]", union.forDay("monday").toString());
+        assertEquals("[09:00-12:00, 13:00-17:00]", union.forDay("tuesday").toString());
+        assertEquals("[10:00-12:00]", union.forDay("saturday").toString());
+        assertTrue(union.forDay("sunday").isEmpty());
+    }
+    
+    @Test
+    public void testIntersect() {
+        Map<String, Object> storeData = new HashMap<>();
+        storeData.put("monday to saturday", Arrays.asList("09:00-20:00"));
+        Map<String, Object> storeExceptions = new HashMap<>();
+        storeExceptions.put("12-25", Collections.emptyList());
+        storeData.put("exceptions", storeExceptions);
+        OpeningHours store = OpeningHours.create(storeData);
+        
+        Map<String, Object> driverData = new HashMap<>();
+        driverData.put("monday to friday", Arrays.asList("07:00-11:00", "17:00-22:00"));
+        Map<String, Object> driverExceptions = new HashMap<>();
+        driverExceptions.put("2023-07-04", Arrays.asList("10:00-12:00"));
+        driverData.put("exceptions", driverExceptions);
+        OpeningHours driver = OpeningHours.create(driverData);
+        
+        OpeningHours delivery = store.intersect(driver);
+        
+        assertEquals("[09:00-11:00, 17:00-20:00]", delivery.forDay("monday").toString());
+        assertTrue(delivery.forDay("saturday").isEmpty());
+        
+        // 2023-07-04 is a Tuesday, driver exception intersected with the store weekly hours
+        assertEquals("[10:00-12:00]", delivery.forDate(LocalDateTime.of(2023, 7, 4, 0, 0)).toString());
+        // Christmas is closed in the store, so closed whatever the day of week
+        assertTrue(delivery.exceptions().get("12-25").isEmpty());
+        assertFalse(delivery.isOpenAt(LocalDateTime.of(2023, 12, 25, 10, 0)));
+    }
+    
+    @Test
+    public void testSubtract() {
+        Map<String, Object> branchData = new HashMap<>();
+        branchData.put("monday to friday", Arrays.asList("08:00-18:00"));
+        OpeningHours branch = OpeningHours.create(branchData);
+        
+        Map<String, Object> trainingData = new HashMap<>();
+        trainingData.put("wednesday", Arrays.asList("14:00-16:00"));
+        Map<String, Object> trainingExceptions = new HashMap<>();
+        trainingExceptions.put("01-02", Arrays.asList("08:00-10:00"));
+        trainingData.put("exceptions", trainingExceptions);
+        OpeningHours training = OpeningHours.create(trainingData);
+        
+        OpeningHours open = branch.subtract(training);
+        
+        assertEquals("[08:00-14:00, 16:00-18:00]", open.forDay("wednesday").toString());
+        assertEquals("[08:00-18:00]", open.forDay("thursday").toString());
+        
+        // The recurring exception depends on the day of week January 2nd falls on
+        assertEquals("[10:00-18:00]", open.forDate(LocalDateTime.of(2023, 1, 2, 0, 0)).toString()); // Monday
+        assertTrue(open.forDate(LocalDateTime.of(2022, 1, 2, 0, 0)).isEmpty()); // Sunday
+        assertFalse(open.isOpenAt(LocalDateTime.of(2023, 1, 2, 9, 0)));
+        assertTrue(open.isOpenAt(LocalDateTime.of(2023, 1, 2, 11, 0)));
+    }
+    
+    @Test
+    public void testSetOperationsWithMidnight() {
+        Map<String, Object> lateData = new HashMap<>();
+        lateData.put("friday", Arrays.asList("18:00-24:00"));
+        OpeningHours late = OpeningHours.create(lateData);
+        
+        Map<String, Object> barData = new HashMap<>();
+        barData.put("friday", Arrays.asList("22:00-02:00"));
+        OpeningHours bar = OpeningHours.create(barData);
+        
+        OpeningHours both = late.intersect(bar);
+        
+        // 2023-07-21 is a Friday
+        assertTrue(both.isOpenAt(LocalDateTime.of(2023, 7, 21, 23, 0)));
+        assertFalse(both.isOpenAt(LocalDateTime.of(2023, 7, 21, 20, 0)));
+        assertFalse(both.isOpenAt(LocalDateTime.of(2023, 7, 21, 1, 0)));
+    }
+    
+    // ========== Common Availability Tests ==========
+    
+    @Test
+    public void testCommonOpenWindows() {
+        Map<String, Object> storeData = new HashMap<>();
+        storeData.put("monday to friday", Arrays.asList("09:00-18:00"));
+        OpeningHours store = OpeningHours.create(storeData);
+        
+        Map<String, Object> roomData = new HashMap<>();
+        roomData.put("monday to friday", Arrays.asList("08:00-10:00", "14:00-20:00"));
+        OpeningHours room = OpeningHours.create(roomData);
+        
+        Map<String, Object> staffData = new HashMap<>();
+        staffData.put("monday", Arrays.asList("09:30-16:00"));
+        staffData.put("tuesday", Arrays.asList("09:00-12:00"));
+        staffData.put("wednesday", Arrays.asList("13:00-17:00"));
+        OpeningHours staff = OpeningHours.create(staffData);
+        
+        // 2023-07-03 is a Monday
+        List<DateTimeRange> windows = OpeningHours.commonOpenWindows(
+            Arrays.asList(store, room, staff),
+            LocalDateTime.of(2023, 7, 3, 0, 0),
+            LocalDateTime.of(2023, 7, 10, 0, 0),
+            java.time.Duration.ofMinutes(60),
+            10);
+        
+        // Monday 09:30-10:00 is too short, Tuesday 09:00-10:00 is long enough
+        assertEquals(3, windows.size());
+        assertEquals(new DateTimeRange(LocalDateTime.of(2023, 7, 3, 14, 0), LocalDateTime.of(2023, 7, 3, 16, 0)), windows.get(0));
+        assertEquals(new DateTimeRange(LocalDateTime.of(2023, 7, 4, 9, 0), LocalDateTime.of(2023, 7, 4, 10, 0)), windows.get(1));
+        assertEquals(new DateTimeRange(LocalDateTime.of(2023, 7, 5, 14, 0), LocalDateTime.of(2023, 7, 5, 17, 0)), windows.get(2));
+        
+        List<DateTimeRange> first = OpeningHours.commonOpenWindows(
+            Arrays.asList(store, room, staff),
+            LocalDateTime.of(2023, 7, 3, 0, 0),
+            LocalDateTime.of(2023, 7, 10, 0, 0),
+            java.time.Duration.ofMinutes(60),
+            1);
+        assertEquals(1, first.size());
+        assertEquals(windows.get(0), first.get(0));
+    }
+    
+    @Test
+    public void testCommonOpenWindowsAcrossMidnight() {
+        Map<String, Object> alwaysOpenData = new HashMap<>();
+        alwaysOpenData.put("monday to sunday", Arrays.asList("00:00-24:00"));
+        OpeningHours alwaysOpen = OpeningHours.create(alwaysOpenData);
+        
+        Map<String, Object> nightData = new HashMap<>();
+        nightData.put("friday", Arrays.asList("20:00-24:00"));
+        nightData.put("saturday", Arrays.asList("00:00-03:00"));
+        OpeningHours night = OpeningHours.create(nightData);
+        
+        // Starting in the middle of the Friday night shift (2023-07-21 is a Friday)
+        List<DateTimeRange> windows = OpeningHours.commonOpenWindows(
+            Arrays.asList(alwaysOpen, night),
+            LocalDateTime.of(2023, 7, 21, 22, 0),
+            LocalDateTime.of(2023, 7, 29, 2, 0),
+            java.time.Duration.ZERO,
+            10);
+        
+        assertEquals(2, windows.size());
+        assertEquals(new DateTimeRange(LocalDateTime.of(2023, 7, 21, 22, 0), LocalDateTime.of(2023, 7, 22, 3, 0)), windows.get(0));
+        // Cut at the horizon
+        assertEquals(new DateTimeRange(LocalDateTime.of(2023, 7, 28, 20, 0), LocalDateTime.of(2023, 7, 29, 2, 0)), windows.get(1));
+    }
+    
+    // ========== Open Duration Arithmetic Tests ==========
+    
+    @Test
+    public void testAddOpenDuration() {
+        Map<String, Object> data = new HashMap<>();
+        data.put("monday to friday", Arrays.asList("09:00-17:00"));
+        Map<String, Object> exceptions = new HashMap<>();
+        exceptions.put("2023-07-11", Collections.emptyList());
+        exceptions.put("12-25", Collections.emptyList());
+        data.put("exceptions", exceptions);
+        
+        OpeningHours openingHours = OpeningHours.create(data);
+        
+        // 2023-07-03 is a Monday
+        assertEquals(LocalDateTime.of(2023, 7, 4, 10, 0),
+            openingHours.addOpenDuration(LocalDateTime.of(2023, 7, 3, 10, 0), java.time.Duration.ofHours(8)));
+        // Ends exactly at closing time
+        assertEquals(LocalDateTime.of(2023, 7, 3, 17, 0),
+            openingHours.addOpenDuration(LocalDateTime.of(2023, 7, 3, 9, 0), java.time.Duration.ofHours(8)));
+        // Starting while closed, over the weekend
+        assertEquals(LocalDateTime.of(2023, 7, 10, 10, 0),
+            openingHours.addOpenDuration(LocalDateTime.of(2023, 7, 7, 20, 0), java.time.Duration.ofHours(1)));
+        // Skips the closed Tuesday 2023-07-11
+        assertEquals(LocalDateTime.of(2023, 7, 12, 10, 0),
+            openingHours.addOpenDuration(LocalDateTime.of(2023, 7, 10, 10, 0), java.time.Duration.ofHours(8)));
+        // Skips the recurring Christmas closure (2023-12-25 is a Monday)
+        assertEquals(LocalDateTime.of(2023, 12, 26, 10, 0),
+            openingHours.addOpenDuration(LocalDateTime.of(2023, 12, 22, 16, 0), java.time.Duration.ofHours(2)));
+        assertEquals(LocalDateTime.of(2023, 7, 3, 10, 0),
+            openingHours.addOpenDuration(LocalDateTime.of(2023, 7, 3, 10, 0), java.time.Duration.ZERO));
+    }
+    
+    @Test
+    public void testAddLongOpenDuration() {
+        Map<String, Object> data = new HashMap<>();
+        data.put("monday to friday", Arrays.asList("09:00-17:00"));
+        OpeningHours openingHours = OpeningHours.create(data);
+        
+        // 1000 hours are exactly 25 weeks of 40 hours, ending on the Friday of the 25th week
+        assertEquals(LocalDateTime.of(2023, 6, 23, 17, 0),
+            openingHours.addOpenDuration(LocalDateTime.of(2023, 1, 2, 9, 0), java.time.Duration.ofHours(1000)));
+        assertEquals(LocalDateTime.of(2023, 1, 2, 9, 0),
+            openingHours.subtractOpenDuration(LocalDateTime.of(2023, 6, 23, 17, 0), java.time.Duration.ofHours(1000)));
+        
+        // Crossing a dated exception in the middle of the period
+        Map<String, Object> exceptions = new HashMap<>();
+        exceptions.put("2023-03-01", Collections.emptyList());
+        data.put("exceptions", exceptions);
+        OpeningHours withException = OpeningHours.create(data);
+        assertEquals(LocalDateTime.of(2023, 6, 26, 17, 0),
+            withException.addOpenDuration(LocalDateTime.of(2023, 1, 2, 9, 0), java.time.Duration.ofHours(1000)));
+    }
+    
+    @Test
+    public void testSubtractOpenDuration() {
+        Map<String, Object> data = new HashMap<>();
+        data.put("monday to friday", Arrays.asList("09:00-12:00", "13:00-17:00"));
+        OpeningHours openingHours = OpeningHours.create(data);
+        
+        // 2023-07-04 is a Tuesday
+        assertEquals(LocalDateTime.of(2023, 7, 3, 10, 0),
+            openingHours.subtractOpenDuration(LocalDateTime.of(2023, 7, 4, 10, 0), java.time.Duration.ofHours(7)));
+        // Ends exactly at opening time
+        assertEquals(LocalDateTime.of(2023, 7, 4, 13, 0),
+            openingHours.subtractOpenDuration(LocalDateTime.of(2023, 7, 4, 14, 0), java.time.Duration.ofHours(1)));
+        // Back over the weekend
+        assertEquals(LocalDateTime.of(2023, 6, 30, 16, 0),
+            openingHours.subtractOpenDuration(LocalDateTime.of(2023, 7, 3, 9, 0), java.time.Duration.ofHours(1)));
+        assertEquals(LocalDateTime.of(2023, 7, 3, 10, 0),
+            openingHours.addOpenDuration(LocalDateTime.of(2023, 7, 4, 10, 0), java.time.Duration.ofHours(-7)));
+    }
+    
+    @Test(expected = io.github.wuwx.openinghours.exceptions.MaximumLimitExceeded.class)
+    public void testAddOpenDurationNeverOpen() {
+        OpeningHours openingHours = OpeningHours.create(new HashMap<>());
+        openingHours.addOpenDuration(LocalDateTime.of(2023, 7, 3, 10, 0), java.time.Duration.ofHours(1));
+    }
+    
+    // ========== Bulk Diff Tests ==========
+    
+    @Test
+    public void testBulkDiffInOpenSeconds() {
+        Map<String, Object> data = new HashMap<>();
+        data.put("monday to friday", Arrays.asList("09:00-12:00", "13:00-18:00"));
+        data.put("saturday", Arrays.asList("10:00-14:00"));
+        Map<String, Object> exceptions = new HashMap<>();
+        exceptions.put("2023-07-04", Collections.emptyList());
+        exceptions.put("07-14", Arrays.asList("10:00-11:00"));
+        data.put("exceptions", exceptions);
+        OpeningHours openingHours = OpeningHours.create(data);
+        
+        long[] starts = {
+            LocalDateTime.of(2023, 7, 3, 9, 0).toEpochSecond(java.time.ZoneOffset.UTC),
+            LocalDateTime.of(2023, 7, 3, 0, 0).toEpochSecond(java.time.ZoneOffset.UTC),
+            LocalDateTime.of(2023, 7, 10, 11, 0).toEpochSecond(java.time.ZoneOffset.UTC),
+        };
+        long[] ends = {
+            LocalDateTime.of(2023, 7, 3, 16, 0).toEpochSecond(java.time.ZoneOffset.UTC),
+            LocalDateTime.of(2023, 7, 10, 0, 0).toEpochSecond(java.time.ZoneOffset.UTC),
+            LocalDateTime.of(2023, 7, 10, 10, 0).toEpochSecond(java.time.ZoneOffset.UTC),
+        };
+        long[] results = new long[3];
+        openingHours.diffInOpenSeconds(starts, ends, results);
+        
+        assertEquals(6 * 3600, results[0]);
+        // Week of 2023-07-03: 4 regular weekdays, closed Tuesday, Saturday
+        assertEquals((4 * 8 + 4) * 3600, results[1]);
+        // Reversed interval
+        assertEquals(-3600, results[2]);
+    }
+    
+    @Test
+    public void testBulkDiffMatchesDiffInOpenSeconds() {
+        Map<String, Object> data = new HashMap<>();
+        data.put("monday to friday", Arrays.asList("09:00-12:00", "13:00-18:00"));
+        data.put("saturday", Arrays.asList("10:00-14:00"));
+        Map<String, Object> exceptions = new HashMap<>();
+        exceptions.put("2023-07-04", Collections.emptyList());
+        exceptions.put("07-14", Arrays.asList("10:00-11:00"));
+        data.put("exceptions", exceptions);
+        OpeningHours openingHours = OpeningHours.create(data);
+        
+        // Large enough to be split across the fork-join pool
+        Random random = new Random(42);
+        int count = 10000;
+        long base = LocalDateTime.of(2023, 6, 1, 0, 0).toEpochSecond(java.time.ZoneOffset.UTC);
+        long[] starts = new long[count];
+        long[] ends = new long[count];
+        for (int i = 0; i < count; i++) {
+            starts[i] = base + random.nextInt(60 * 24 * 60) * 60L;
+            ends[i] = starts[i] + random.nextInt(10 * 24 * 60) * 60L;
+        }
+        long[] results = new long[count];
+        openingHours.diffInOpenSeconds(starts, ends, results);
+        
+        for (int i = 0; i < count; i += 97) {
+            double expected = openingHours.diffInOpenSeconds(
+                LocalDateTime.ofEpochSecond(starts[i], 0, java.time.ZoneOffset.UTC),
+                LocalDateTime.ofEpochSecond(ends[i], 0, java.time.ZoneOffset.UTC));
+            assertEquals(expected, results[i], 0.01);
+        }
+    }
+    
+    // ========== Epoch Minute Tests ==========
+    
+    private static long minute(int year, int month, int day, int hour, int minute) {
+        return LocalDateTime.of(year, month, day, hour, minute).toEpochSecond(java.time.ZoneOffset.UTC) / 60;
+    }
+    
+    @Test
+    public void testEpochMinutes() {
+        Map<String, Object> data = new HashMap<>();
+        data.put("monday to friday", Arrays.asList("09:00-12:00", "13:00-18:00"));
+        data.put("saturday", Arrays.asList("20:00-24:00"));
+        data.put("sunday", Arrays.asList("00:00-02:00"));
+        data.put("exceptions", Collections.singletonMap("2023-07-04", Collections.emptyList()));
+        OpeningHours openingHours = OpeningHours.create(data);
+        
+        // 2023-07-03 is a Monday
+        assertTrue(openingHours.isOpenAtEpochMinute(minute(2023, 7, 3, 9, 0)));
+        assertFalse(openingHours.isOpenAtEpochMinute(minute(2023, 7, 3, 12, 0)));
+        assertFalse(openingHours.isOpenAtEpochMinute(minute(2023, 7, 4, 10, 0)));
+        assertEquals(minute(2023, 7, 3, 13, 0), openingHours.nextOpenEpochMinute(minute(2023, 7, 3, 10, 0)));
+        assertEquals(minute(2023, 7, 3, 12, 0), openingHours.nextCloseEpochMinute(minute(2023, 7, 3, 10, 0)));
+        // Tuesday is an exception
+        assertEquals(minute(2023, 7, 5, 9, 0), openingHours.nextOpenEpochMinute(minute(2023, 7, 3, 18, 0)));
+        assertEquals(minute(2023, 7, 3, 13, 0), openingHours.previousOpenEpochMinute(minute(2023, 7, 5, 9, 0)));
+        assertEquals(minute(2023, 7, 3, 18, 0), openingHours.previousCloseEpochMinute(minute(2023, 7, 5, 9, 0)));
+        // Saturday night and Sunday morning are one open interval
+        assertEquals(minute(2023, 7, 9, 2, 0), openingHours.nextCloseEpochMinute(minute(2023, 7, 8, 21, 0)));
+        assertEquals(minute(2023, 7, 8, 20, 0), openingHours.previousOpenEpochMinute(minute(2023, 7, 9, 1, 0)));
+    }
+    
+    @Test
+    public void testEpochMinutesMatchOverflowSearches() {
+        Map<String, Object> data = new HashMap<>();
+        data.put("monday to friday", Arrays.asList("09:00-12:00", "13:00-18:00"));
+        data.put("friday", Arrays.asList("18:00-02:00"));
+        data.put("exceptions", Collections.singletonMap("12-25", Collections.emptyList()));
+        data.put("overflow", true);
+        OpeningHours openingHours = OpeningHours.create(data);
+        
+        Random random = new Random(47);
+        LocalDateTime base = LocalDateTime.of(2023, 12, 1, 0, 0);
+        for (int i = 0; i < 2000; i++) {
+            LocalDateTime time = base.plusMinutes(random.nextInt(60 * 24 * 60));
+            long minute = time.toEpochSecond(java.time.ZoneOffset.UTC) / 60;
+            assertEquals(openingHours.isOpenAt(time), openingHours.isOpenAtEpochMinute(minute));
+            assertEquals(openingHours.nextOpen(time).toEpochSecond(java.time.ZoneOffset.UTC) / 60,
+                         openingHours.nextOpenEpochMinute(minute));
+            assertEquals(openingHours.previousClose(time).toEpochSecond(java.time.ZoneOffset.UTC) / 60,
+                         openingHours.previousCloseEpochMinute(minute));
+        }
+    }
+    
+    @Test
+    public void testEpochMinutesInZone() {
+        Map<String, Object> data = new HashMap<>();
+        data.put("sunday", Arrays.asList("01:00-04:00"));
+        OpeningHours openingHours = OpeningHours.create(data);
+        java.time.ZoneId paris = java.time.ZoneId.of("Europe/Paris");
+        
+        // 2024-03-31 02:00 to 03:00 doesn't exist in Paris, 01:00 is 00:00Z and 04:00 is 02:00Z
+        long saturdayNoon = java.time.ZonedDateTime.of(2024, 3, 30, 12, 0, 0, 0, paris).toEpochSecond() / 60;
+        assertEquals(java.time.Instant.parse("2024-03-31T00:00:00Z").getEpochSecond() / 60,
+                     openingHours.nextOpenEpochMinute(saturdayNoon, paris));
+        assertEquals(java.time.Instant.parse("2024-03-31T02:00:00Z").getEpochSecond() / 60,
+                     openingHours.nextCloseEpochMinute(saturdayNoon, paris));
+        assertTrue(openingHours.isOpenAtEpochMinute(java.time.Instant.parse("2024-03-31T01:30:00Z").getEpochSecond() / 60, paris));
+        assertFalse(openingHours.isOpenAtEpochMinute(java.time.Instant.parse("2024-03-31T02:00:00Z").getEpochSecond() / 60, paris));
+        
+        // 2024-10-27 02:00 to 03:00 happens twice, 01:00 is 23:00Z the day before and 04:00 is 03:00Z
+        long octoberSaturday = java.time.ZonedDateTime.of(2024, 10, 26, 12, 0, 0, 0, paris).toEpochSecond() / 60;
+        assertEquals(java.time.Instant.parse("2024-10-26T23:00:00Z").getEpochSecond() / 60,
+                     openingHours.nextOpenEpochMinute(octoberSaturday, paris));
+        assertEquals(java.time.Instant.parse("2024-10-27T03:00:00Z").getEpochSecond() / 60,
+                     openingHours.nextCloseEpochMinute(octoberSaturday, paris));
+    }
+    
+    // ========== Open Count Tests ==========
+    
+    @Test
+    public void testOpenCounts() {
+        Map<String, Object> weekdays = new HashMap<>();
+        weekdays.put("monday to friday", Arrays.asList("09:00-12:00", "13:00-18:00"));
+        Map<String, Object> nights = new HashMap<>();
+        nights.put("friday", Arrays.asList("22:00-03:00"));
+        nights.put("overflow", true);
+        List<OpeningHours> schedules = Arrays.asList(OpeningHours.create(weekdays), OpeningHours.create(nights));
+        
+        // 2016-09-23 is a Friday
+        int[] counts = OpeningHours.openCounts(schedules, LocalDateTime.of(2016, 9, 23, 11, 0),
+                                               LocalDateTime.of(2016, 9, 24, 4, 0), java.time.Duration.ofHours(1));
+        assertArrayEquals(new int[] {1, 0, 1, 1, 1, 1, 1, 0, 0, 0, 0, 1, 1, 1, 1, 1, 0}, counts);
+        
+        // A bucket counts the schedules open at its start, the last one is cut short
+        counts = OpeningHours.openCounts(schedules, LocalDateTime.of(2016, 9, 23, 11, 50),
+                                         LocalDateTime.of(2016, 9, 23, 13, 1), java.time.Duration.ofMinutes(7));
+        assertEquals(11, counts.length);
+        assertEquals(1, counts[1]);
+        assertEquals(0, counts[2]);
+    }
+    
+    @Test
+    public void testOpenCountsMatchEpochMinutes() {
+        RandomSchedules generator = new RandomSchedules(50);
+        List<OpeningHours> schedules = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            schedules.add(OpeningHours.create(generator.next().data()));
+        }
+        LocalDateTime start = RandomSchedules.START.atTime(7, 35);
+        LocalDateTime end = start.plusWeeks(2).plusMinutes(3);
+        
+        int[] counts = OpeningHours.openCounts(schedules, start, end, java.time.Duration.ofMinutes(5));
+        assertEquals((2 * 7 * 1440 + 5) / 5, counts.length);
+        long firstMinute = start.toEpochSecond(java.time.ZoneOffset.UTC) / 60;
+        for (int bucket = 0; bucket < counts.length; bucket++) {
+            int expected = 0;
+            for (OpeningHours openingHours : schedules) {
+                if (openingHours.isOpenAtEpochMinute(firstMinute + bucket * 5)) {
+                    expected++;
+                }
+            }
+            assertEquals("bucket " + bucket, expected, counts[bucket]);
+        }
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testOpenCountsRejectsEmptyBucket() {
+        OpeningHours.openCounts(Collections.emptyList(), LocalDateTime.of(2016, 9, 23, 0, 0),
+                                LocalDateTime.of(2016, 9, 24, 0, 0), java.time.Duration.ZERO);
+    }
 }
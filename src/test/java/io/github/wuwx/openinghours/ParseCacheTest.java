@@ -0,0 +1,142 @@
+package io.github.wuwx.openinghours;
+
+import io.github.wuwx.openinghours.metrics.Metrics;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Unit tests for ParseCache
+ */
+public class ParseCacheTest {
+    
+    private static Map<String, Object> schedule(ParseCache cache) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("monday to friday", Arrays.asList("09:00-17:00"));
+        data.put("saturday", Arrays.asList("10:00-14:00"));
+        data.put("exceptions", Collections.singletonMap("12-25", Collections.emptyList()));
+        data.put("parseCache", cache);
+        return data;
+    }
+    
+    @Test
+    public void testSharesParsedDays() {
+        ParseCache cache = new ParseCache(16);
+        OpeningHours first = OpeningHours.create(schedule(cache));
+        OpeningHours second = OpeningHours.create(schedule(cache));
+        
+        assertEquals(3, cache.size());
+        assertEquals(3, cache.missCount());
+        assertEquals(3, cache.hitCount());
+        assertEquals(0.5, cache.hitRate(), 1e-9);
+        assertSame(first.forDay("monday"), second.forDay("monday"));
+        assertTrue(second.isOpenAt(LocalDateTime.of(2016, 9, 26, 10, 0)));
+        assertFalse(second.isOpenAt(LocalDateTime.of(2016, 12, 25, 10, 0)));
+    }
+    
+    @Test
+    public void testKeyIsCopied() {
+        ParseCache cache = new ParseCache(16);
+        List<String> hours = new ArrayList<>(Arrays.asList("09:00-17:00"));
+        OpeningHoursForDay first = cache.get(hours, Metrics.noop(), value -> OpeningHoursForDay.fromStrings(hours));
+        hours.set(0, "10:00-11:00");
+        OpeningHoursForDay second = cache.get(Arrays.asList("09:00-17:00"), Metrics.noop(),
+                value -> { throw new AssertionError("should be cached"); });
+        
+        assertSame(first, second);
+        assertEquals("09:00-17:00", second.get(0).toString());
+    }
+    
+    @Test
+    public void testLruEviction() {
+        ParseCache cache = new ParseCache(2, ParseCache.Eviction.LRU);
+        Map<String, Object> data = new HashMap<>();
+        data.put("parseCache", cache);
+        
+        data.put("monday", Arrays.asList("09:00-10:00"));
+        OpeningHours.create(data);
+        data.put("monday", Arrays.asList("10:00-11:00"));
+        OpeningHours.create(data);
+        data.put("monday", Arrays.asList("09:00-10:00"));
+        OpeningHours.create(data);
+        data.put("monday", Arrays.asList("11:00-12:00"));
+        OpeningHours.create(data);
+        
+        // 10:00-11:00 was least recently used and was evicted
+        data.put("monday", Arrays.asList("09:00-10:00"));
+        OpeningHours.create(data);
+        assertEquals(2, cache.hitCount());
+        data.put("monday", Arrays.asList("10:00-11:00"));
+        OpeningHours.create(data);
+        assertEquals(2, cache.hitCount());
+        assertEquals(4, cache.missCount());
+        assertEquals(2, cache.size());
+    }
+    
+    @Test
+    public void testFifoEviction() {
+        ParseCache cache = new ParseCache(2, ParseCache.Eviction.FIFO);
+        Map<String, Object> data = new HashMap<>();
+        data.put("parseCache", cache);
+        
+        for (String hours : Arrays.asList("09:00-10:00", "10:00-11:00", "09:00-10:00", "11:00-12:00")) {
+            data.put("monday", Arrays.asList(hours));
+            OpeningHours.create(data);
+        }
+        
+        // 09:00-10:00 was inserted first and was evicted despite the recent hit
+        data.put("monday", Arrays.asList("09:00-10:00"));
+        OpeningHours.create(data);
+        assertEquals(1, cache.hitCount());
+        assertEquals(4, cache.missCount());
+    }
+    
+    @Test
+    public void testFailedParseIsNotCached() {
+        ParseCache cache = new ParseCache(4);
+        List<String> hours = Arrays.asList("invalid");
+        
+        try {
+            cache.get(hours, Metrics.noop(), value -> OpeningHoursForDay.fromStrings(hours));
+            fail("Expected an exception");
+        } catch (RuntimeException e) {
+            // expected
+        }
+        assertEquals(0, cache.size());
+        assertEquals(1, cache.missCount());
+    }
+    
+    @Test
+    public void testConcurrentLoaders() throws Exception {
+        ParseCache cache = new ParseCache(8);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<OpeningHours>> futures = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                futures.add(executor.submit(() -> OpeningHours.create(schedule(cache))));
+            }
+            for (Future<OpeningHours> future : futures) {
+                assertTrue(future.get().isOpenAt(LocalDateTime.of(2016, 9, 26, 10, 0)));
+            }
+        } finally {
+            executor.shutdown();
+        }
+        
+        assertEquals(600, cache.hitCount() + cache.missCount());
+        assertEquals(3, cache.size());
+        
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(0.0, cache.hitRate(), 0.0);
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidSize() {
+        new ParseCache(0);
+    }
+}
@@ -0,0 +1,152 @@
+package io.github.wuwx.openinghours;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+/**
+ * Seeded generator of random schedules and query times for differential tests
+ *
+ * Ranges are whole minutes on a quarter-hour grid, so adjacent ranges, ranges
+ * ending at "24:00" and overnight ranges come up often. Exceptions are dated days
+ * within the first weeks after {@link #START}, where the queries fall.
+ */
+final class RandomSchedules {
+
+    /** First day of the generated exceptions and queries, a Monday */
+    static final LocalDate START = LocalDate.of(2024, 3, 4);
+
+    /** Number of days covered by the exceptions and queries */
+    static final int DAYS = 42;
+
+    private final Random random;
+
+    RandomSchedules(long seed) {
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Generates a schedule
+     *
+     * @return the schedule, with and without overflow at random
+     */
+    Spec next() {
+        Map<DayOfWeek, int[]> weekdays = new HashMap<>();
+        for (DayOfWeek day : DayOfWeek.values()) {
+            weekdays.put(day, ranges());
+        }
+        Map<LocalDate, int[]> exceptions = new TreeMap<>();
+        int count = random.nextInt(4);
+        for (int i = 0; i < count; i++) {
+            exceptions.put(START.plusDays(random.nextInt(DAYS)), ranges());
+        }
+        return new Spec(weekdays, exceptions, random.nextBoolean());
+    }
+
+    /**
+     * Generates a query time on a minute within the covered days
+     *
+     * @return the time
+     */
+    LocalDateTime time() {
+        return START.atStartOfDay().plusMinutes(random.nextInt(DAYS * 1440));
+    }
+
+    /**
+     * Gets the random source, for picking queries
+     *
+     * @return the random source
+     */
+    Random random() {
+        return random;
+    }
+
+    // Sorted start/end minute pairs, the last one possibly overnight (end before start)
+    private int[] ranges() {
+        int count = random.nextInt(4);
+        int[] points = new int[count * 2];
+        int previous = -1;
+        for (int i = 0; i < points.length; i++) {
+            // Leave room on the grid for the points still to come
+            int last = 96 - (points.length - 1 - i);
+            previous += 1 + random.nextInt(Math.min(last - previous, 24));
+            points[i] = previous * 15;
+        }
+        if (count > 0 && random.nextInt(4) == 0 && points[0] > 0 && points[points.length - 1] < 1440) {
+            // Rotate the boundaries so that the last range runs past midnight into the first one's place
+            int[] rotated = new int[points.length];
+            System.arraycopy(points, 1, rotated, 0, points.length - 1);
+            rotated[points.length - 1] = points[0];
+            return rotated;
+        }
+        return points;
+    }
+
+    /**
+     * A generated schedule: ranges as start/end minute pairs of each weekday and exception day
+     */
+    static final class Spec {
+        final Map<DayOfWeek, int[]> weekdays;
+        final Map<LocalDate, int[]> exceptions;
+        final boolean overflow;
+
+        Spec(Map<DayOfWeek, int[]> weekdays, Map<LocalDate, int[]> exceptions, boolean overflow) {
+            this.weekdays = weekdays;
+            this.exceptions = exceptions;
+            this.overflow = overflow;
+        }
+
+        /**
+         * Gets the ranges in effect on a date
+         *
+         * @param date the date
+         * @return the start/end minute pairs
+         */
+        int[] rangesOn(LocalDate date) {
+            int[] ranges = exceptions.get(date);
+            return ranges != null ? ranges : weekdays.get(date.getDayOfWeek());
+        }
+
+        /**
+         * Builds the data map accepted by {@link OpeningHours#create(Map)}
+         *
+         * @return a new, modifiable data map
+         */
+        Map<String, Object> data() {
+            Map<String, Object> data = new HashMap<>();
+            for (Map.Entry<DayOfWeek, int[]> entry : weekdays.entrySet()) {
+                data.put(entry.getKey().name().toLowerCase(), strings(entry.getValue()));
+            }
+            Map<String, Object> exceptionData = new HashMap<>();
+            for (Map.Entry<LocalDate, int[]> entry : exceptions.entrySet()) {
+                exceptionData.put(entry.getKey().toString(), strings(entry.getValue()));
+            }
+            data.put("exceptions", exceptionData);
+            data.put("overflow", overflow);
+            return data;
+        }
+
+        private static List<String> strings(int[] ranges) {
+            List<String> strings = new ArrayList<>();
+            for (int i = 0; i < ranges.length; i += 2) {
+                strings.add(format(ranges[i]) + "-" + format(ranges[i + 1]));
+            }
+            return strings;
+        }
+
+        private static String format(int minute) {
+            return String.format("%02d:%02d", minute / 60, minute % 60);
+        }
+
+        @Override
+        public String toString() {
+            return data().toString();
+        }
+    }
+}
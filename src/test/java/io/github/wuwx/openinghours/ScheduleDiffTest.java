@@ -0,0 +1,124 @@
+package io.github.wuwx.openinghours;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class ScheduleDiffTest {
+    
+    private static Map<String, Object> weekdays(String... ranges) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("monday to friday", Arrays.asList(ranges));
+        return data;
+    }
+    
+    @Test
+    public void testSameSchedule() {
+        OpeningHours before = OpeningHours.create(weekdays("09:00-12:00", "13:00-18:00"));
+        // Same open times, written differently
+        Map<String, Object> data = weekdays("13:00-18:00", "09:00-10:00", "10:00-12:00");
+        data.put("exceptions", Collections.singletonMap("2016-12-26", Arrays.asList("09:00-12:00", "13:00-18:00")));
+        OpeningHours after = OpeningHours.create(data);
+        
+        ScheduleDiff diff = before.diff(after);
+        assertTrue(diff.isEmpty());
+        assertTrue(diff.affectedWindows(LocalDate.of(2016, 1, 1), LocalDate.of(2017, 1, 1)).isEmpty());
+    }
+    
+    @Test
+    public void testChangedWeekday() {
+        OpeningHours before = OpeningHours.create(weekdays("09:00-12:00", "13:00-18:00"));
+        Map<String, Object> data = weekdays("09:00-12:00", "13:00-18:00");
+        data.put("wednesday", Arrays.asList("09:00-12:00", "14:00-19:00"));
+        OpeningHours after = OpeningHours.create(data);
+        
+        ScheduleDiff diff = before.diff(after);
+        assertEquals(Collections.singleton(DayOfWeek.WEDNESDAY), diff.weekdays().keySet());
+        assertEquals("[13:00-14:00, 18:00-19:00]", diff.weekdays().get(DayOfWeek.WEDNESDAY).toString());
+        assertTrue(diff.exceptions().isEmpty());
+        
+        // 2016-12-21 is a Wednesday
+        List<DateTimeRange> windows = diff.affectedWindows(LocalDate.of(2016, 12, 19), LocalDate.of(2016, 12, 26));
+        assertEquals(Arrays.asList(
+            new DateTimeRange(LocalDateTime.of(2016, 12, 21, 13, 0), LocalDateTime.of(2016, 12, 21, 14, 0)),
+            new DateTimeRange(LocalDateTime.of(2016, 12, 21, 18, 0), LocalDateTime.of(2016, 12, 21, 19, 0))), windows);
+    }
+    
+    @Test
+    public void testChangedExceptions() {
+        Map<String, Object> data = weekdays("09:00-18:00");
+        Map<String, Object> exceptions = new HashMap<>();
+        exceptions.put("2016-12-24", Arrays.asList("09:00-12:00"));
+        exceptions.put("2016-12-31", Arrays.asList("09:00-12:00"));
+        exceptions.put("12-25", Collections.emptyList());
+        data.put("exceptions", exceptions);
+        OpeningHours before = OpeningHours.create(data);
+        
+        data = weekdays("09:00-18:00");
+        exceptions = new HashMap<>();
+        exceptions.put("2016-12-24", Arrays.asList("09:00-12:00"));
+        exceptions.put("2016-12-31", Arrays.asList("09:00-14:00"));
+        exceptions.put("01-01", Collections.emptyList());
+        data.put("exceptions", exceptions);
+        OpeningHours after = OpeningHours.create(data);
+        
+        ScheduleDiff diff = before.diff(after);
+        assertTrue(diff.weekdays().isEmpty());
+        assertEquals(Arrays.asList("01-01", "12-25", "2016-12-31"), Arrays.asList(diff.exceptions().keySet().toArray()));
+        assertEquals("[12:00-14:00]", diff.exceptions().get("2016-12-31").toString());
+        assertEquals("[09:00-18:00]", diff.exceptions().get("12-25").toString());
+        
+        // 2016-12-31 is a Saturday, closed before and after, 12-25 and 01-01 are only open on weekdays
+        List<DateTimeRange> windows = diff.affectedWindows(LocalDate.of(2016, 12, 1), LocalDate.of(2018, 1, 2));
+        assertEquals(Arrays.asList(
+            new DateTimeRange(LocalDateTime.of(2016, 12, 31, 12, 0), LocalDateTime.of(2016, 12, 31, 14, 0)),
+            new DateTimeRange(LocalDateTime.of(2017, 12, 25, 9, 0), LocalDateTime.of(2017, 12, 25, 18, 0)),
+            new DateTimeRange(LocalDateTime.of(2018, 1, 1, 9, 0), LocalDateTime.of(2018, 1, 1, 18, 0))), windows);
+    }
+    
+    @Test
+    public void testOverflow() {
+        Map<String, Object> data = new HashMap<>();
+        data.put("friday", Arrays.asList("22:00-03:00"));
+        data.put("overflow", true);
+        OpeningHours before = OpeningHours.create(data);
+        data.put("friday", Arrays.asList("22:00-04:00"));
+        OpeningHours after = OpeningHours.create(data);
+        
+        // Only Saturday morning changed
+        ScheduleDiff diff = before.diff(after);
+        assertEquals(Collections.singleton(DayOfWeek.SATURDAY), diff.weekdays().keySet());
+        assertEquals("[03:00-04:00]", diff.weekdays().get(DayOfWeek.SATURDAY).toString());
+    }
+    
+    @Test
+    public void testWindowsAcrossMidnight() {
+        Map<String, Object> data = new HashMap<>();
+        data.put("monday to sunday", Arrays.asList("00:00-24:00"));
+        OpeningHours before = OpeningHours.create(data);
+        Map<String, Object> exceptions = new HashMap<>();
+        exceptions.put("12-24", Arrays.asList("00:00-18:00"));
+        exceptions.put("12-25", Collections.emptyList());
+        exceptions.put("12-26", Arrays.asList("08:00-24:00"));
+        data.put("exceptions", exceptions);
+        OpeningHours after = OpeningHours.create(data);
+        
+        List<DateTimeRange> windows = before.diff(after).affectedWindows(LocalDate.of(2000, 1, 1), LocalDate.of(2100, 1, 1));
+        assertEquals(100, windows.size());
+        assertEquals(new DateTimeRange(LocalDateTime.of(2000, 12, 24, 18, 0), LocalDateTime.of(2000, 12, 26, 8, 0)),
+                     windows.get(0));
+        
+        // Windows are cut at the dates asked for
+        assertEquals(Collections.singletonList(
+            new DateTimeRange(LocalDateTime.of(2016, 12, 25, 0, 0), LocalDateTime.of(2016, 12, 26, 0, 0))),
+            before.diff(after).affectedWindows(LocalDate.of(2016, 12, 25), LocalDate.of(2016, 12, 26)));
+    }
+}
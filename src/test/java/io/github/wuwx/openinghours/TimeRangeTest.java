@@ -4,6 +4,8 @@ import org.junit.Test;
 import static org.junit.Assert.*;
 
 import java.time.LocalTime;
+import java.util.HashMap;
+import java.util.Map;
 
 public class TimeRangeTest {
 
@@ -38,5 +40,27 @@ public class TimeRangeTest {
         // Should be closed at 10:00
         assertFalse(timeRange.containsTime(LocalTime.of(10, 0)));
     }
+    
+    @Test
+    public void testEndOfDayRange() {
+        TimeRange timeRange = TimeRange.fromString("22:00-24:00");
+        
+        assertTrue(timeRange.containsTime(LocalTime.of(23, 0)));
+        assertTrue(timeRange.containsTime(LocalTime.of(23, 59, 59)));
+        // Should not wrap around to the morning
+        assertFalse(timeRange.containsTime(LocalTime.of(1, 0)));
+        assertFalse(timeRange.containsTime(LocalTime.of(21, 0)));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    @SuppressWarnings("unchecked")
+    public void testDataIsImmutable() {
+        Map<String, Object> data = new HashMap<>();
+        data.put("note", "staffed");
+        TimeRange timeRange = TimeRange.fromString("09:00-12:00", data);
+        data.put("note", "changed");
 
-}
\ No newline at end of file
+        assertEquals("staffed", ((Map<?, ?>) timeRange.getData()).get("note"));
+        ((Map<String, Object>) timeRange.getData()).put("note", "changed");
+    }
+}
@@ -55,5 +55,17 @@ public class TimeTest {
         assertEquals(time1, time2);
         assertNotEquals(time1, time3);
     }
+    
+    @Test
+    public void testInterned() {
+        assertSame(Time.fromString("09:30"), Time.fromString("09:30"));
+        assertSame(Time.fromString("24:00"), Time.fromString("24:00"));
+        assertEquals(LocalTime.of(0, 0), Time.fromString("00:00").toLocalTime());
+        assertEquals(LocalTime.of(23, 59), Time.fromString("23:59").toLocalTime());
+    }
+    
+    @Test(expected = java.time.format.DateTimeParseException.class)
+    public void testInvalidTime() {
+        Time.fromString("24:30");
+    }
 }
-
@@ -0,0 +1,230 @@
+package io.github.wuwx.openinghours;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+public class TransitionPublisherTest {
+    
+    /**
+     * Subscriber recording what it receives, requesting a fixed number of items per onNext
+     */
+    private static final class Recorder implements Flow.Subscriber<Transition> {
+        final List<Transition> items = new ArrayList<>();
+        final long initialRequest;
+        final long requestPerItem;
+        Flow.Subscription subscription;
+        Throwable error;
+        boolean completed;
+        
+        Recorder(long initialRequest, long requestPerItem) {
+            this.initialRequest = initialRequest;
+            this.requestPerItem = requestPerItem;
+        }
+        
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (initialRequest != 0) {
+                subscription.request(initialRequest);
+            }
+        }
+        
+        @Override
+        public void onNext(Transition item) {
+            items.add(item);
+            if (requestPerItem > 0) {
+                subscription.request(requestPerItem);
+            }
+        }
+        
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+        }
+        
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+    }
+    
+    private static OpeningHours weekdays() {
+        Map<String, Object> data = new HashMap<>();
+        data.put("monday to friday", Arrays.asList("09:00-12:00", "13:00-18:00"));
+        return OpeningHours.create(data);
+    }
+    
+    private static Transition open(int day, int hour) {
+        return new Transition(LocalDateTime.of(2024, 3, day, hour, 0), true);
+    }
+    
+    private static Transition close(int day, int hour) {
+        return new Transition(LocalDateTime.of(2024, 3, day, hour, 0), false);
+    }
+    
+    @Test
+    public void testTransitionsBetween() {
+        Recorder recorder = new Recorder(Long.MAX_VALUE, 0);
+        weekdays().transitions(LocalDateTime.of(2024, 3, 25, 10, 0), LocalDateTime.of(2024, 3, 26, 17, 0))
+            .subscribe(recorder);
+        
+        // Already open at the start, so the first transition is a close; the last close is after the end
+        assertEquals(Arrays.asList(close(25, 12), open(25, 13), close(25, 18), open(26, 9), close(26, 12), open(26, 13)),
+                     recorder.items);
+        assertTrue(recorder.completed);
+        assertNull(recorder.error);
+    }
+    
+    @Test
+    public void testTransitionAtStart() {
+        Recorder opening = new Recorder(1, 0);
+        weekdays().transitions(LocalDateTime.of(2024, 3, 25, 9, 0)).subscribe(opening);
+        assertEquals(Collections.singletonList(open(25, 9)), opening.items);
+        
+        Recorder closing = new Recorder(1, 0);
+        weekdays().transitions(LocalDateTime.of(2024, 3, 25, 18, 0)).subscribe(closing);
+        assertEquals(Collections.singletonList(close(25, 18)), closing.items);
+        
+        Recorder weekend = new Recorder(1, 0);
+        weekdays().transitions(LocalDateTime.of(2024, 3, 29, 18, 30)).subscribe(weekend);
+        assertEquals(Collections.singletonList(new Transition(LocalDateTime.of(2024, 4, 1, 9, 0), true)), weekend.items);
+    }
+    
+    @Test
+    public void testStartAtOvernightEnd() {
+        Map<String, Object> data = new HashMap<>();
+        data.put("monday to sunday", Arrays.asList("22:00-03:00"));
+        OpeningHours openingHours = OpeningHours.create(data);
+        
+        // Open until 03:00, so a start at 03:00 publishes that close as a transition at the start
+        Recorder atEnd = new Recorder(1, 0);
+        openingHours.transitions(LocalDateTime.of(2024, 3, 26, 3, 0)).subscribe(atEnd);
+        assertEquals(Collections.singletonList(close(26, 3)), atEnd.items);
+        
+        // Already closed within the end minute, so the next transition opens
+        for (int second : new int[] {1, 30, 59}) {
+            Recorder recorder = new Recorder(1, 0);
+            openingHours.transitions(LocalDateTime.of(2024, 3, 26, 3, 0, second)).subscribe(recorder);
+            assertEquals(Collections.singletonList(open(26, 22)), recorder.items);
+        }
+    }
+    
+    @Test
+    public void testFailingFilter() {
+        Map<String, Object> data = new HashMap<>();
+        data.put("monday to friday", Arrays.asList("09:00-18:00"));
+        data.put("filters", Collections.<Function<LocalDate, Map<String, Object>>>singletonList(date -> {
+            throw new IllegalStateException("filter");
+        }));
+        
+        // Nothing is resolved when subscribing, the failure reaches the subscriber on demand
+        Recorder recorder = new Recorder(0, 0);
+        OpeningHours.create(data).transitions(LocalDateTime.of(2024, 3, 25, 0, 0)).subscribe(recorder);
+        assertNull(recorder.error);
+        
+        recorder.subscription.request(1);
+        assertTrue(recorder.error instanceof IllegalStateException);
+        assertTrue(recorder.items.isEmpty());
+    }
+    
+    @Test
+    public void testBackpressure() {
+        AtomicInteger lookups = new AtomicInteger();
+        Map<String, Object> data = new HashMap<>();
+        data.put("monday to friday", Arrays.asList("09:00-18:00"));
+        data.put("filters", Collections.<Function<LocalDate, Map<String, Object>>>singletonList(date -> {
+            lookups.incrementAndGet();
+            return null;
+        }));
+        OpeningHours openingHours = OpeningHours.create(data);
+        
+        Recorder recorder = new Recorder(0, 0);
+        openingHours.transitions(LocalDateTime.of(2024, 3, 25, 0, 0)).subscribe(recorder);
+        int afterSubscribe = lookups.get();
+        assertTrue(recorder.items.isEmpty());
+        
+        recorder.subscription.request(2);
+        assertEquals(Arrays.asList(open(25, 9), close(25, 18)), recorder.items);
+        assertFalse(recorder.completed);
+        // Only the days up to the second transition were looked at
+        assertTrue(lookups.get() - afterSubscribe < 5);
+        
+        recorder.subscription.request(1);
+        assertEquals(open(26, 9), recorder.items.get(2));
+        
+        recorder.subscription.cancel();
+        recorder.subscription.request(1);
+        assertEquals(3, recorder.items.size());
+        assertFalse(recorder.completed);
+    }
+    
+    @Test
+    public void testRequestFromOnNext() {
+        Recorder recorder = new Recorder(1, 1);
+        weekdays().transitions(LocalDateTime.of(2024, 3, 1, 0, 0), LocalDateTime.of(2024, 4, 1, 0, 0)).subscribe(recorder);
+        
+        // 21 weekdays in March 2024, four transitions each
+        assertEquals(21 * 4, recorder.items.size());
+        assertTrue(recorder.completed);
+        for (int i = 0; i < recorder.items.size(); i++) {
+            assertEquals(i % 2 == 0, recorder.items.get(i).isOpening());
+        }
+    }
+    
+    @Test
+    public void testNoTransitions() {
+        Recorder closed = new Recorder(1, 0);
+        OpeningHours.create(new HashMap<>()).transitions(LocalDateTime.of(2024, 3, 25, 0, 0)).subscribe(closed);
+        assertTrue(closed.items.isEmpty());
+        assertTrue(closed.completed);
+        
+        Map<String, Object> data = new HashMap<>();
+        data.put("monday to sunday", Arrays.asList("00:00-24:00"));
+        Recorder alwaysOpen = new Recorder(1, 0);
+        OpeningHours.create(data).transitions(LocalDateTime.of(2024, 3, 25, 10, 0)).subscribe(alwaysOpen);
+        assertTrue(alwaysOpen.items.isEmpty());
+        assertTrue(alwaysOpen.completed);
+    }
+    
+    @Test
+    public void testOverflow() {
+        Map<String, Object> data = new HashMap<>();
+        data.put("friday", Arrays.asList("20:00-02:00"));
+        data.put("overflow", true);
+        Recorder recorder = new Recorder(2, 0);
+        OpeningHours.create(data).transitions(LocalDateTime.of(2024, 3, 25, 0, 0)).subscribe(recorder);
+        
+        assertEquals(Arrays.asList(open(29, 20), close(30, 2)), recorder.items);
+    }
+    
+    @Test
+    public void testInvalidRequest() {
+        Recorder recorder = new Recorder(0, 0);
+        weekdays().transitions(LocalDateTime.of(2024, 3, 25, 0, 0)).subscribe(recorder);
+        recorder.subscription.request(0);
+        
+        assertTrue(recorder.error instanceof IllegalArgumentException);
+        assertTrue(recorder.items.isEmpty());
+    }
+    
+    @Test
+    public void testTransitionValue() {
+        assertEquals(open(25, 9), open(25, 9));
+        assertNotEquals(open(25, 9), close(25, 9));
+        assertEquals(open(25, 9).hashCode(), open(25, 9).hashCode());
+        assertTrue(close(25, 9).isClosing());
+        assertEquals("open at 2024-03-25T09:00", open(25, 9).toString());
+    }
+}
@@ -0,0 +1,138 @@
+package io.github.wuwx.openinghours;
+
+import io.github.wuwx.openinghours.exceptions.MaximumLimitExceeded;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+public class WeeklyTransitionsTest {
+    
+    private static final int DAY = Intervals.SECONDS_PER_DAY;
+    
+    // 2024-03-25 is a Monday
+    private static final long MONDAY = LocalDate.of(2024, 3, 25).toEpochDay() * DAY;
+    
+    private static int[][] week(int[]... days) {
+        int[][] week = new int[7][];
+        for (int i = 0; i < 7; i++) {
+            week[i] = i < days.length ? days[i] : new int[0];
+        }
+        return week;
+    }
+    
+    @Test
+    public void testOfIntervals() {
+        WeeklyTransitions table = WeeklyTransitions.ofIntervals(
+            week(new int[] {9 * 3600, 17 * 3600}, new int[] {22 * 3600, DAY}, new int[] {0, 2 * 3600}));
+        
+        assertEquals(MONDAY + 9 * 3600, table.nextOpening(MONDAY));
+        assertEquals(MONDAY + 17 * 3600, table.nextClosing(MONDAY + 9 * 3600));
+        assertEquals(MONDAY + DAY + 22 * 3600, table.nextOpening(MONDAY + 9 * 3600));
+        // Tuesday night runs into Wednesday as one range
+        assertEquals(MONDAY + 2 * DAY + 2 * 3600, table.nextClosing(MONDAY + DAY + 23 * 3600));
+        // Wraps to the next week
+        assertEquals(MONDAY + 7 * DAY + 9 * 3600, table.nextOpening(MONDAY + 3 * DAY));
+        
+        assertEquals(MONDAY + 9 * 3600, table.previousOpening(MONDAY + 17 * 3600));
+        assertEquals(MONDAY + DAY + 22 * 3600, table.previousOpening(MONDAY + 2 * DAY + 3600));
+        assertEquals(MONDAY + 17 * 3600, table.previousClosing(MONDAY + 2 * DAY + 2 * 3600));
+        // Wraps to the previous week
+        assertEquals(MONDAY - 5 * DAY + 2 * 3600, table.previousClosing(MONDAY + 17 * 3600));
+        assertEquals(MONDAY - 7 * DAY + DAY + 22 * 3600, table.previousOpening(MONDAY + 9 * 3600));
+    }
+    
+    @Test
+    public void testOfIntervalsAcrossWeeks() {
+        int[] allDay = {0, DAY};
+        WeeklyTransitions table = WeeklyTransitions.ofIntervals(
+            week(allDay, new int[] {0, 12 * 3600}, new int[0], new int[0], new int[0], new int[0], allDay));
+        
+        // Sunday and Monday are one range, opening on Sunday and closing on Tuesday
+        assertEquals(MONDAY + 6 * DAY, table.nextOpening(MONDAY));
+        assertEquals(MONDAY + DAY + 12 * 3600, table.nextClosing(MONDAY));
+        assertEquals(MONDAY + 8 * DAY + 12 * 3600, table.nextClosing(MONDAY + 6 * DAY));
+        assertEquals(MONDAY - DAY, table.previousOpening(MONDAY + DAY));
+    }
+    
+    @Test
+    public void testAlwaysOpenOrClosed() {
+        int[] allDay = {0, DAY};
+        WeeklyTransitions open = WeeklyTransitions.ofIntervals(week(allDay, allDay, allDay, allDay, allDay, allDay, allDay));
+        assertEquals(Long.MIN_VALUE, open.nextOpening(MONDAY));
+        assertEquals(Long.MIN_VALUE, open.nextClosing(MONDAY));
+        assertEquals(Long.MIN_VALUE, open.previousOpening(MONDAY));
+        assertEquals(Long.MIN_VALUE, open.previousClosing(MONDAY));
+        
+        WeeklyTransitions closed = WeeklyTransitions.ofIntervals(week());
+        assertEquals(Long.MIN_VALUE, closed.nextOpening(MONDAY));
+        assertEquals(Long.MIN_VALUE, closed.nextClosing(MONDAY));
+    }
+    
+    @Test
+    public void testMatchesDayByDaySearch() {
+        Random random = new Random(7);
+        String[] ranges = {"00:00-03:00", "08:00-12:00", "12:00-14:00", "13:00-18:00", "20:00-02:00", "22:00-24:00",
+                           "09:30-10:15"};
+        for (int schedule = 0; schedule < 200; schedule++) {
+            Map<String, Object> data = new HashMap<>();
+            for (DayOfWeek day : DayOfWeek.values()) {
+                List<String> hours = new ArrayList<>();
+                for (String range : ranges) {
+                    if (random.nextInt(4) == 0) {
+                        hours.add(range);
+                    }
+                }
+                data.put(day.name().toLowerCase(), hours);
+            }
+            if (random.nextBoolean()) {
+                data.put("exceptions", Collections.singletonMap("2024-04-0" + (1 + random.nextInt(9)),
+                                                                Arrays.asList("10:00-11:00")));
+            }
+            boolean overflow = random.nextBoolean();
+            data.put("overflow", overflow);
+            
+            OpeningHours fast;
+            OpeningHours reference;
+            try {
+                fast = OpeningHours.create(data);
+                // A filter that never applies turns off the weekly shortcuts
+                Map<String, Object> filtered = new HashMap<>(data);
+                List<Function<LocalDate, Map<String, Object>>> filters = new ArrayList<>();
+                filters.add(date -> null);
+                filtered.put("filters", filters);
+                reference = OpeningHours.create(filtered);
+            } catch (RuntimeException e) {
+                // Overlapping ranges
+                continue;
+            }
+            
+            for (int i = 0; i < 50; i++) {
+                LocalDateTime from = LocalDateTime.of(2024, 3, 25, 0, 0)
+                    .plusMinutes(random.nextInt(60 * 24 * 21)).plusSeconds(random.nextInt(2) * 30);
+                String message = data + " from " + from;
+                assertEquals(message, outcome(() -> reference.nextOpen(from)), outcome(() -> fast.nextOpen(from)));
+                assertEquals(message, outcome(() -> reference.nextClose(from)), outcome(() -> fast.nextClose(from)));
+            }
+        }
+    }
+    
+    private static Object outcome(Supplier<LocalDateTime> search) {
+        try {
+            return search.get();
+        } catch (MaximumLimitExceeded e) {
+            return "none";
+        }
+    }
+}
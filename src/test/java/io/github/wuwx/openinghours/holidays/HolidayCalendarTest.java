@@ -0,0 +1,141 @@
+package io.github.wuwx.openinghours.holidays;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Unit tests for HolidayCalendar and the built-in rules
+ */
+public class HolidayCalendarTest {
+    
+    @Test
+    public void testFixedDate() {
+        assertEquals(Optional.of(LocalDate.of(2024, 12, 25)), HolidayRule.fixed(Month.DECEMBER, 25).dateIn(2024));
+        assertEquals(Optional.of(LocalDate.of(2024, 2, 29)), HolidayRule.fixed(Month.FEBRUARY, 29).dateIn(2024));
+        assertEquals(Optional.empty(), HolidayRule.fixed(Month.FEBRUARY, 29).dateIn(2023));
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidFixedDate() {
+        HolidayRule.fixed(Month.APRIL, 31);
+    }
+    
+    @Test
+    public void testNthAndLastWeekday() {
+        // Martin Luther King Jr. Day and Memorial Day
+        assertEquals(Optional.of(LocalDate.of(2024, 1, 15)), HolidayRule.nthWeekday(3, DayOfWeek.MONDAY, Month.JANUARY).dateIn(2024));
+        assertEquals(Optional.of(LocalDate.of(2024, 5, 27)), HolidayRule.lastWeekday(DayOfWeek.MONDAY, Month.MAY).dateIn(2024));
+        // February 2021 only has four Mondays
+        assertEquals(Optional.empty(), HolidayRule.nthWeekday(5, DayOfWeek.MONDAY, Month.FEBRUARY).dateIn(2021));
+    }
+    
+    @Test
+    public void testEaster() {
+        assertEquals(LocalDate.of(2000, 4, 23), EasterRule.easterSunday(2000));
+        assertEquals(LocalDate.of(2019, 4, 21), EasterRule.easterSunday(2019));
+        assertEquals(LocalDate.of(2024, 3, 31), EasterRule.easterSunday(2024));
+        assertEquals(LocalDate.of(2038, 4, 25), EasterRule.easterSunday(2038));
+        assertEquals(Optional.of(LocalDate.of(2024, 3, 29)), HolidayRule.easter(-2).dateIn(2024));
+        assertEquals(Optional.of(LocalDate.of(2025, 4, 21)), HolidayRule.easter(1).dateIn(2025));
+    }
+    
+    @Test
+    public void testObserved() {
+        // July 4th 2026 is a Saturday
+        HolidayRule independenceDay = HolidayRule.fixed(Month.JULY, 4);
+        assertEquals(Optional.of(LocalDate.of(2026, 7, 6)), independenceDay.observedOnMonday().dateIn(2026));
+        assertEquals(Optional.of(LocalDate.of(2026, 7, 3)), independenceDay.observedOnNearestWeekday().dateIn(2026));
+        assertEquals(Optional.of(LocalDate.of(2025, 7, 4)), independenceDay.observedOnMonday().dateIn(2025));
+    }
+    
+    @Test
+    public void testHolidaysIn() {
+        HolidayCalendar calendar = HolidayCalendar.of(usHolidays());
+        
+        Map<LocalDate, String> holidays = calendar.holidaysIn(2024);
+        assertEquals(4, holidays.size());
+        assertEquals("Martin Luther King Jr. Day", holidays.get(LocalDate.of(2024, 1, 15)));
+        assertEquals(LocalDate.of(2024, 1, 1), holidays.keySet().iterator().next());
+        
+        assertTrue(calendar.isHoliday(LocalDate.of(2024, 5, 27)));
+        assertFalse(calendar.isHoliday(LocalDate.of(2024, 5, 28)));
+        assertEquals(Optional.of("Memorial Day"), calendar.holidayOn(LocalDate.of(2024, 5, 27)));
+    }
+    
+    @Test
+    public void testObservedAcrossYears() {
+        // January 1st 2022 is a Saturday, observed on Friday December 31st 2021
+        HolidayCalendar calendar = HolidayCalendar.of(usHolidays());
+        
+        assertEquals(Optional.of("New Year's Day"), calendar.holidayOn(LocalDate.of(2021, 12, 31)));
+        assertFalse(calendar.isHoliday(LocalDate.of(2022, 1, 1)));
+        assertFalse(calendar.holidaysIn(2022).containsValue("New Year's Day"));
+    }
+    
+    @Test
+    public void testFirstRuleWins() {
+        Map<String, HolidayRule> rules = new LinkedHashMap<>();
+        rules.put("Christmas", HolidayRule.fixed(Month.DECEMBER, 25));
+        rules.put("Company Day", HolidayRule.fixed(Month.DECEMBER, 25));
+        HolidayCalendar calendar = HolidayCalendar.of(rules);
+        
+        assertEquals(Optional.of("Christmas"), calendar.holidayOn(LocalDate.of(2024, 12, 25)));
+        assertEquals(1, calendar.holidaysIn(2024).size());
+    }
+    
+    @Test
+    public void testNextAndPreviousHoliday() {
+        HolidayCalendar calendar = HolidayCalendar.of(usHolidays());
+        
+        assertEquals(Optional.of(LocalDate.of(2024, 5, 27)), calendar.nextHoliday(LocalDate.of(2024, 1, 16)));
+        assertEquals(Optional.of(LocalDate.of(2024, 12, 25)), calendar.nextHoliday(LocalDate.of(2024, 5, 28)));
+        // 2027-01-01 is a Friday
+        assertEquals(Optional.of(LocalDate.of(2027, 1, 1)), calendar.nextHoliday(LocalDate.of(2026, 12, 26)));
+        assertEquals(Optional.of(LocalDate.of(2023, 12, 25)), calendar.previousHoliday(LocalDate.of(2023, 12, 31)));
+        
+        HolidayCalendar leapDay = HolidayCalendar.of(java.util.Collections.singletonMap("Leap Day", HolidayRule.fixed(Month.FEBRUARY, 29)));
+        assertEquals(Optional.of(LocalDate.of(2024, 2, 29)), leapDay.nextHoliday(LocalDate.of(2021, 3, 1)));
+        assertEquals(Optional.empty(), HolidayCalendar.of(new LinkedHashMap<>()).nextHoliday(LocalDate.of(2024, 1, 1)));
+    }
+    
+    @Test
+    public void testEpochDayLookups() {
+        HolidayCalendar calendar = HolidayCalendar.of(usHolidays());
+        
+        long memorialDay = LocalDate.of(2024, 5, 27).toEpochDay();
+        assertTrue(calendar.isHoliday(memorialDay));
+        assertFalse(calendar.isHoliday(memorialDay + 1));
+        assertEquals("Memorial Day", calendar.holidayName(memorialDay));
+        assertNull(calendar.holidayName(memorialDay + 1));
+        assertEquals("New Year's Day", calendar.holidayName(LocalDate.of(2021, 12, 31).toEpochDay()));
+        assertEquals(LocalDate.of(2024, 12, 25).toEpochDay(), calendar.nextHolidayDay(memorialDay + 1));
+        assertEquals(LocalDate.of(2024, 1, 15).toEpochDay(), calendar.previousHolidayDay(memorialDay - 1));
+        assertEquals(Long.MAX_VALUE, HolidayCalendar.of(new LinkedHashMap<>()).nextHolidayDay(memorialDay));
+        assertEquals(Long.MIN_VALUE, HolidayCalendar.of(new LinkedHashMap<>()).previousHolidayDay(memorialDay));
+        
+        // Years are found from the epoch day alone, around year ends and leap days and before 1970
+        HolidayCalendar leapDay = HolidayCalendar.of(java.util.Collections.singletonMap("Leap Day", HolidayRule.fixed(Month.FEBRUARY, 29)));
+        for (LocalDate date = LocalDate.of(1895, 12, 1); date.isBefore(LocalDate.of(1905, 3, 31)); date = date.plusDays(1)) {
+            assertEquals(date.toString(), date.getMonthValue() == 2 && date.getDayOfMonth() == 29,
+                         leapDay.isHoliday(date.toEpochDay()));
+        }
+        assertEquals(LocalDate.of(2000, 2, 29).toEpochDay(), leapDay.nextHolidayDay(LocalDate.of(1999, 12, 31).toEpochDay()));
+        assertEquals(LocalDate.of(1896, 2, 29).toEpochDay(), leapDay.previousHolidayDay(LocalDate.of(1903, 12, 31).toEpochDay()));
+    }
+    
+    private static Map<String, HolidayRule> usHolidays() {
+        Map<String, HolidayRule> rules = new LinkedHashMap<>();
+        rules.put("New Year's Day", HolidayRule.fixed(Month.JANUARY, 1).observedOnNearestWeekday());
+        rules.put("Martin Luther King Jr. Day", HolidayRule.nthWeekday(3, DayOfWeek.MONDAY, Month.JANUARY));
+        rules.put("Memorial Day", HolidayRule.lastWeekday(DayOfWeek.MONDAY, Month.MAY));
+        rules.put("Christmas Day", HolidayRule.fixed(Month.DECEMBER, 25).observedOnNearestWeekday());
+        return rules;
+    }
+}
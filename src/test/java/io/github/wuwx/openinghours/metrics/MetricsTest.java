@@ -0,0 +1,127 @@
+package io.github.wuwx.openinghours.metrics;
+
+import io.github.wuwx.openinghours.OpeningHours;
+import io.github.wuwx.openinghours.ParseCache;
+import io.github.wuwx.openinghours.exceptions.MaximumLimitExceeded;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Unit tests for the Metrics SPI
+ */
+public class MetricsTest {
+    
+    private static class RecordingMetrics implements Metrics {
+        final Map<String, AtomicLong> counters = new ConcurrentHashMap<>();
+        
+        void add(String name, long delta) {
+            counters.computeIfAbsent(name, k -> new AtomicLong()).addAndGet(delta);
+        }
+        
+        long get(String name) {
+            AtomicLong value = counters.get(name);
+            return value == null ? 0 : value.get();
+        }
+        
+        @Override
+        public void recordSearchIterations(String operation, int iterations) {
+            add("iterations." + operation, iterations);
+        }
+        
+        @Override
+        public void recordExceptionLookup(boolean hit) {
+            add(hit ? "exceptions.hit" : "exceptions.miss", 1);
+        }
+        
+        @Override
+        public void recordCacheAccess(String cache, boolean hit) {
+            add("cache." + cache + (hit ? ".hit" : ".miss"), 1);
+        }
+        
+        @Override
+        public void recordLimitExceeded(String operation) {
+            add("limit." + operation, 1);
+        }
+        
+        @Override
+        public void recordLatency(String operation, long nanos) {
+            add("latency." + operation, 1);
+        }
+    }
+    
+    @Test
+    public void testNoopIsDisabled() {
+        assertFalse(Metrics.noop().isEnabled());
+        assertSame(Metrics.noop(), Metrics.noop());
+    }
+    
+    @Test
+    public void testQueriesAreReported() {
+        RecordingMetrics metrics = new RecordingMetrics();
+        
+        Map<String, Object> data = new HashMap<>();
+        data.put("monday", Arrays.asList("09:00-12:00"));
+        Map<String, Object> exceptions = new HashMap<>();
+        exceptions.put("2016-12-26", Collections.emptyList());
+        data.put("exceptions", exceptions);
+        data.put("metrics", metrics);
+        
+        OpeningHours openingHours = OpeningHours.create(data);
+        
+        // 2016-12-26 is a Monday closed by exception, so the search walks to 2017-01-02
+        assertEquals(LocalDateTime.of(2017, 1, 2, 9, 0),
+            openingHours.nextOpen(LocalDateTime.of(2016, 12, 26, 8, 0)));
+        assertEquals(8, metrics.get("iterations." + Metrics.NEXT_OPEN));
+        assertEquals(1, metrics.get("latency." + Metrics.NEXT_OPEN));
+        assertEquals(1, metrics.get("exceptions.hit"));
+        assertEquals(7, metrics.get("exceptions.miss"));
+        
+        assertTrue(openingHours.isOpenAt(LocalDateTime.of(2017, 1, 2, 10, 0)));
+        assertEquals(1, metrics.get("latency." + Metrics.IS_OPEN_AT));
+        
+        // Only direct calls are timed, not the days looked up by other queries
+        assertEquals(0, metrics.get("latency." + Metrics.FOR_DATE));
+        assertTrue(openingHours.forDate(LocalDateTime.of(2016, 12, 26, 0, 0)).isEmpty());
+        assertEquals(1, metrics.get("latency." + Metrics.FOR_DATE));
+    }
+    
+    @Test
+    public void testLimitExceededIsReported() {
+        RecordingMetrics metrics = new RecordingMetrics();
+        
+        Map<String, Object> data = new HashMap<>();
+        data.put("metrics", metrics);
+        OpeningHours openingHours = OpeningHours.create(data);
+        
+        try {
+            openingHours.nextOpen(LocalDateTime.of(2020, 1, 1, 10, 0));
+            fail("Expected MaximumLimitExceeded");
+        } catch (MaximumLimitExceeded e) {
+            // expected
+        }
+        
+        assertEquals(1, metrics.get("limit." + Metrics.NEXT_OPEN));
+        assertEquals(1, metrics.get("latency." + Metrics.NEXT_OPEN));
+    }
+    
+    @Test
+    public void testParseCacheAccess() {
+        RecordingMetrics metrics = new RecordingMetrics();
+        ParseCache cache = new ParseCache(8);
+        Map<String, Object> data = new HashMap<>();
+        data.put("monday", Arrays.asList("09:00-17:00"));
+        data.put("tuesday", Arrays.asList("09:00-17:00"));
+        data.put("metrics", metrics);
+        data.put("parseCache", cache);
+        
+        OpeningHours.create(data);
+        
+        assertEquals(1, metrics.get("cache." + Metrics.PARSE_CACHE + ".miss"));
+        assertEquals(1, metrics.get("cache." + Metrics.PARSE_CACHE + ".hit"));
+    }
+}
@@ -0,0 +1,142 @@
+package io.github.wuwx.openinghours.server;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import io.github.wuwx.openinghours.OpeningHours;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+/**
+ * Load driver measuring the requests per second of the schedule server
+ * 
+ * Concurrent clients send open-now requests for single schedules and batch requests
+ * for {@value #BATCH_SIZE} ids over keep-alive connections on the loopback interface.
+ * A build runs a short pass that only checks every answer succeeds. Set the number of
+ * requests per kind with the {@code benchmark.requests} system property and the number
+ * of clients with {@code benchmark.clients} to get a throughput report, and pass
+ * {@code sun.net.httpserver.nodelay} as a deployment would, e.g.
+ * {@code mvn test -Dtest=ScheduleServerBenchmarkTest -Dbenchmark.requests=200000 -Dbenchmark.clients=32 -Dsun.net.httpserver.nodelay=true}.
+ */
+public class ScheduleServerBenchmarkTest {
+    
+    private static final int REQUESTS = Integer.getInteger("benchmark.requests", 1000);
+    private static final int CLIENTS = Integer.getInteger("benchmark.clients", 16);
+    private static final boolean REPORT = System.getProperty("benchmark.requests") != null;
+    private static final int SCHEDULES = 1000;
+    private static final int BATCH_SIZE = 100;
+    
+    @Test
+    public void testThroughput() throws Exception {
+        ScheduleRegistry registry = new ScheduleRegistry();
+        Map<String, Object> weekdays = new HashMap<>();
+        weekdays.put("monday to friday", Arrays.asList("09:00-12:00", "13:00-18:00"));
+        Map<String, Object> nights = new HashMap<>();
+        nights.put("friday to saturday", Arrays.asList("20:00-02:00"));
+        nights.put("overflow", true);
+        for (int i = 0; i < SCHEDULES; i++) {
+            registry.put("store-" + i, OpeningHours.create(i % 2 == 0 ? weekdays : nights));
+        }
+        StringBuilder batch = new StringBuilder();
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            batch.append("store-").append(i * (SCHEDULES / BATCH_SIZE)).append('\n');
+        }
+        String batchBody = batch.toString();
+        
+        try (ScheduleServer server = ScheduleServer.start(registry, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0))) {
+            IntFunction<Request> openNow = i -> new Request("GET", "/schedules/store-" + (i % SCHEDULES) + "/open", null);
+            IntFunction<Request> batchOpenAt = i -> new Request("POST", "/open-at?at=2024-03-25T10:00", batchBody);
+            
+            // Warm up the server and the connection pool before measuring
+            run(server, openNow, REQUESTS / 10 + 1);
+            run(server, batchOpenAt, REQUESTS / 10 + 1);
+            double openNowRate = run(server, openNow, REQUESTS);
+            double batchRate = run(server, batchOpenAt, REQUESTS);
+            
+            if (REPORT) {
+                System.out.printf("%d clients, %d requests per kind: open-now %.0f requests/s, "
+                                  + "batch of %d %.0f requests/s (%.0f schedules/s)%n",
+                                  CLIENTS, REQUESTS, openNowRate, BATCH_SIZE, batchRate, batchRate * BATCH_SIZE);
+            }
+        }
+    }
+    
+    // Sends the requests from concurrent clients, returning the requests per second
+    private static double run(ScheduleServer server, IntFunction<Request> requests, int count) throws Exception {
+        ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+        AtomicInteger next = new AtomicInteger();
+        try {
+            long start = System.nanoTime();
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int c = 0; c < CLIENTS; c++) {
+                futures.add(clients.submit(() -> {
+                    int sent = 0;
+                    for (int i; (i = next.getAndIncrement()) < count; sent++) {
+                        Request request = requests.apply(i);
+                        assertEquals(request.path, 200, request.send(server));
+                    }
+                    return sent;
+                }));
+            }
+            int sent = 0;
+            for (Future<Integer> future : futures) {
+                sent += future.get();
+            }
+            long nanos = System.nanoTime() - start;
+            assertEquals(count, sent);
+            return count * 1e9 / nanos;
+        } finally {
+            clients.shutdownNow();
+        }
+    }
+    
+    private static final class Request {
+        final String method;
+        final String path;
+        final byte[] body;
+        
+        Request(String method, String path, String body) {
+            this.method = method;
+            this.path = path;
+            this.body = body == null ? null : body.getBytes(StandardCharsets.UTF_8);
+        }
+        
+        // Reads the whole response so that the connection is kept alive for the next request
+        int send(ScheduleServer server) throws IOException {
+            URL url = new URL("http", server.address().getHostString(), server.address().getPort(), path);
+            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+            connection.setRequestMethod(method);
+            if (body != null) {
+                connection.setDoOutput(true);
+                try (OutputStream out = connection.getOutputStream()) {
+                    out.write(body);
+                }
+            }
+            int status = connection.getResponseCode();
+            try (InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+                byte[] buffer = new byte[8192];
+                while (in.read(buffer) != -1) {
+                    // Drain
+                }
+            }
+            return status;
+        }
+    }
+}
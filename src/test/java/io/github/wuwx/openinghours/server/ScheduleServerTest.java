@@ -0,0 +1,183 @@
+package io.github.wuwx.openinghours.server;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import io.github.wuwx.openinghours.OpeningHours;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class ScheduleServerTest {
+    
+    private ScheduleRegistry registry;
+    private ScheduleServer server;
+    
+    @Before
+    public void setUp() throws IOException {
+        registry = new ScheduleRegistry();
+        Map<String, Object> weekdays = new HashMap<>();
+        weekdays.put("monday to friday", Arrays.asList("09:00-18:00"));
+        registry.put("store-1", OpeningHours.create(weekdays));
+        Map<String, Object> weekend = new HashMap<>();
+        weekend.put("saturday to sunday", Arrays.asList("10:00-16:00"));
+        registry.put("store \"2\"", OpeningHours.create(weekend));
+        registry.put("never", OpeningHours.create(new HashMap<>()));
+        server = ScheduleServer.start(registry, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+    }
+    
+    @After
+    public void tearDown() {
+        server.close();
+    }
+    
+    private static final class Response {
+        final int status;
+        final String body;
+        
+        Response(int status, String body) {
+            this.status = status;
+            this.body = body;
+        }
+    }
+    
+    private Response request(String method, String path, String body) throws IOException {
+        URL url = new URL("http", server.address().getHostString(), server.address().getPort(), path);
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setRequestMethod(method);
+        if (body != null) {
+            connection.setDoOutput(true);
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(body.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        int status = connection.getResponseCode();
+        InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        for (int n; (n = in.read(buffer)) != -1; ) {
+            bytes.write(buffer, 0, n);
+        }
+        in.close();
+        return new Response(status, new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+    }
+    
+    private Response get(String path) throws IOException {
+        return request("GET", path, null);
+    }
+    
+    @Test
+    public void testOpen() throws IOException {
+        Response response = get("/schedules/store-1/open?at=2024-03-25T10:00");
+        assertEquals(200, response.status);
+        assertEquals("{\"id\":\"store-1\",\"at\":\"2024-03-25T10:00\",\"open\":true}", response.body);
+        
+        assertEquals("{\"id\":\"store-1\",\"at\":\"2024-03-23T10:00\",\"open\":false}",
+                     get("/schedules/store-1/open?at=2024-03-23T10:00").body);
+        // Ids are URL-decoded and escaped in the output
+        assertEquals("{\"id\":\"store \\\"2\\\"\",\"at\":\"2024-03-23T10:00\",\"open\":true}",
+                     get("/schedules/store%20%222%22/open?at=2024-03-23T10:00").body);
+    }
+    
+    @Test
+    public void testOpenNow() throws IOException {
+        // The time now is resolved once and always answered, so both fields are about the same time
+        String open = get("/schedules/never/open").body;
+        assertTrue(open, open.matches("\\{\"id\":\"never\",\"at\":\"[0-9T:.-]+\",\"open\":false\\}"));
+        String next = get("/schedules/never/next-transition").body;
+        assertTrue(next, next.matches("\\{\"id\":\"never\",\"at\":\"[0-9T:.-]+\",\"open\":false,\"next\":null\\}"));
+    }
+    
+    @Test
+    public void testNextTransition() throws IOException {
+        assertEquals("{\"id\":\"store-1\",\"at\":\"2024-03-25T10:00\",\"open\":true,"
+                     + "\"next\":{\"time\":\"2024-03-25T18:00\",\"opening\":false}}",
+                     get("/schedules/store-1/next-transition?at=2024-03-25T10:00").body);
+        assertEquals("{\"id\":\"store-1\",\"at\":\"2024-03-23T10:00\",\"open\":false,"
+                     + "\"next\":{\"time\":\"2024-03-25T09:00\",\"opening\":true}}",
+                     get("/schedules/store-1/next-transition?at=2024-03-23T10:00").body);
+        assertEquals("{\"id\":\"never\",\"at\":\"2024-03-23T10:00\",\"open\":false,\"next\":null}",
+                     get("/schedules/never/next-transition?at=2024-03-23T10:00").body);
+    }
+    
+    @Test
+    public void testBatchOpenAt() throws IOException {
+        Response response = get("/open-at?at=2024-03-25T10:00&ids=store-1,never,missing");
+        assertEquals(200, response.status);
+        assertEquals("{\"at\":\"2024-03-25T10:00\",\"results\":[{\"id\":\"store-1\",\"open\":true},"
+                     + "{\"id\":\"never\",\"open\":false},{\"id\":\"missing\",\"open\":null}]}", response.body);
+        
+        Response posted = request("POST", "/open-at?at=2024-03-23T11:00", "store-1\nstore \"2\"\n\n");
+        assertEquals("{\"at\":\"2024-03-23T11:00\",\"results\":[{\"id\":\"store-1\",\"open\":false},"
+                     + "{\"id\":\"store \\\"2\\\"\",\"open\":true}]}", posted.body);
+    }
+    
+    @Test
+    public void testOpenCounts() {
+        // 2024-03-23 is a Saturday
+        int[] counts = registry.openCounts(LocalDateTime.of(2024, 3, 23, 0, 0), LocalDateTime.of(2024, 3, 26, 0, 0),
+                                           Duration.ofHours(6));
+        assertArrayEquals(new int[] {0, 0, 1, 0, 0, 0, 1, 0, 0, 0, 1, 0}, counts);
+    }
+    
+    @Test
+    public void testErrors() throws IOException {
+        Response unknown = get("/schedules/missing/open");
+        assertEquals(404, unknown.status);
+        assertEquals("{\"error\":\"Unknown schedule: missing\"}", unknown.body);
+        assertEquals(404, get("/schedules/store-1/closing-soon").status);
+        assertEquals(400, get("/schedules/store-1/open?at=tomorrow").status);
+        assertEquals(400, get("/open-at?at=tomorrow&ids=store-1").status);
+        assertEquals(405, request("DELETE", "/open-at", null).status);
+    }
+    
+    @Test
+    public void testConcurrentRequests() throws Exception {
+        ExecutorService clients = Executors.newFixedThreadPool(16);
+        try {
+            List<Future<Response>> futures = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                String at = i % 2 == 0 ? "2024-03-25T10:00" : "2024-03-23T10:00";
+                futures.add(clients.submit(() -> get("/schedules/store-1/open?at=" + at)));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                assertTrue(futures.get(i).get().body.endsWith("\"open\":" + (i % 2 == 0) + "}"));
+            }
+        } finally {
+            clients.shutdownNow();
+        }
+    }
+    
+    @Test
+    public void testRegistry() {
+        assertEquals(3, registry.size());
+        assertTrue(registry.ids().contains("never"));
+        assertNotNull(registry.remove("never"));
+        assertNull(registry.get("never"));
+        try {
+            registry.put(null, registry.get("store-1"));
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+    }
+}